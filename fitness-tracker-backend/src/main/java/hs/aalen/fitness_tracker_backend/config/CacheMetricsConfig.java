@@ -0,0 +1,43 @@
+package hs.aalen.fitness_tracker_backend.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class CacheMetricsConfig {
+
+    // Hits, misses and hit ratio per second-level cache region, under /actuator/metrics/fitness.cache.*
+    @Bean
+    MeterBinder secondLevelCacheMetrics(EntityManagerFactory entityManagerFactory) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        return registry -> {
+            for (String region : statistics.getSecondLevelCacheRegionNames()) {
+                CacheRegionStatistics stats = statistics.getDomainDataRegionStatistics(region);
+                FunctionCounter.builder("fitness.cache.hits", stats, CacheRegionStatistics::getHitCount)
+                        .tag("region", region)
+                        .register(registry);
+                FunctionCounter.builder("fitness.cache.misses", stats, CacheRegionStatistics::getMissCount)
+                        .tag("region", region)
+                        .register(registry);
+                FunctionCounter.builder("fitness.cache.puts", stats, CacheRegionStatistics::getPutCount)
+                        .tag("region", region)
+                        .register(registry);
+                Gauge.builder("fitness.cache.hit.ratio", stats, CacheMetricsConfig::hitRatio)
+                        .tag("region", region)
+                        .register(registry);
+            }
+        };
+    }
+
+    static double hitRatio(CacheRegionStatistics stats) {
+        long lookups = stats.getHitCount() + stats.getMissCount();
+        return lookups == 0 ? 0.0 : (double) stats.getHitCount() / lookups;
+    }
+}
@@ -10,6 +10,7 @@ import hs.aalen.fitness_tracker_backend.plans.model.Plans;
 import hs.aalen.fitness_tracker_backend.plans.repository.PlansRepository;
 import hs.aalen.fitness_tracker_backend.sessions.model.Sessions;
 import hs.aalen.fitness_tracker_backend.sessions.repository.SessionsRepository;
+import hs.aalen.fitness_tracker_backend.shared.RankKeys;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -36,6 +37,7 @@ public class DatabaseSeeder {
             Users max = new Users();
             max.setUsername("max");
             max.setPassword("{noop}passwort123");
+            max.setRole(Users.Role.Coach);
             usersRepository.save(max);
 
             Users anna = new Users();
@@ -172,7 +174,7 @@ public class DatabaseSeeder {
             Sessions pushDay = new Sessions();
             pushDay.setName("Push Day - Chest & Shoulders");
             pushDay.setPlan(pushPullLegs);
-            pushDay.setOrderID(1);
+            pushDay.setRankKey(RankKeys.forPosition(1));
             sessionsRepository.save(pushDay);
 
             ExerciseExecutions pushEx1 = new ExerciseExecutions();
@@ -181,7 +183,7 @@ public class DatabaseSeeder {
             pushEx1.setPlannedSets(4);
             pushEx1.setPlannedReps(8);
             pushEx1.setPlannedWeight(80);
-            pushEx1.setOrderID(1);
+            pushEx1.setRankKey(RankKeys.forPosition(1));
             exerciseExecutionsRepository.save(pushEx1);
 
             ExerciseExecutions pushEx2 = new ExerciseExecutions();
@@ -190,7 +192,7 @@ public class DatabaseSeeder {
             pushEx2.setPlannedSets(3);
             pushEx2.setPlannedReps(10);
             pushEx2.setPlannedWeight(30);
-            pushEx2.setOrderID(2);
+            pushEx2.setRankKey(RankKeys.forPosition(2));
             exerciseExecutionsRepository.save(pushEx2);
 
             ExerciseExecutions pushEx3 = new ExerciseExecutions();
@@ -199,7 +201,7 @@ public class DatabaseSeeder {
             pushEx3.setPlannedSets(3);
             pushEx3.setPlannedReps(10);
             pushEx3.setPlannedWeight(50);
-            pushEx3.setOrderID(3);
+            pushEx3.setRankKey(RankKeys.forPosition(3));
             exerciseExecutionsRepository.save(pushEx3);
 
             ExerciseExecutions pushEx4 = new ExerciseExecutions();
@@ -208,14 +210,14 @@ public class DatabaseSeeder {
             pushEx4.setPlannedSets(3);
             pushEx4.setPlannedReps(12);
             pushEx4.setPlannedWeight(12);
-            pushEx4.setOrderID(4);
+            pushEx4.setRankKey(RankKeys.forPosition(4));
             exerciseExecutionsRepository.save(pushEx4);
 
             // Session 2: Pull Day (from Push Pull Legs)
             Sessions pullDay = new Sessions();
             pullDay.setName("Pull Day - Back & Biceps");
             pullDay.setPlan(pushPullLegs);
-            pullDay.setOrderID(2);
+            pullDay.setRankKey(RankKeys.forPosition(2));
             sessionsRepository.save(pullDay);
 
             ExerciseExecutions pullEx1 = new ExerciseExecutions();
@@ -224,7 +226,7 @@ public class DatabaseSeeder {
             pullEx1.setPlannedSets(4);
             pullEx1.setPlannedReps(6);
             pullEx1.setPlannedWeight(120);
-            pullEx1.setOrderID(1);
+            pullEx1.setRankKey(RankKeys.forPosition(1));
             exerciseExecutionsRepository.save(pullEx1);
 
             ExerciseExecutions pullEx2 = new ExerciseExecutions();
@@ -233,7 +235,7 @@ public class DatabaseSeeder {
             pullEx2.setPlannedSets(4);
             pullEx2.setPlannedReps(10);
             pullEx2.setPlannedWeight(0);
-            pullEx2.setOrderID(2);
+            pullEx2.setRankKey(RankKeys.forPosition(2));
             exerciseExecutionsRepository.save(pullEx2);
 
             ExerciseExecutions pullEx3 = new ExerciseExecutions();
@@ -242,7 +244,7 @@ public class DatabaseSeeder {
             pullEx3.setPlannedSets(3);
             pullEx3.setPlannedReps(10);
             pullEx3.setPlannedWeight(60);
-            pullEx3.setOrderID(3);
+            pullEx3.setRankKey(RankKeys.forPosition(3));
             exerciseExecutionsRepository.save(pullEx3);
 
             ExerciseExecutions pullEx4 = new ExerciseExecutions();
@@ -251,14 +253,14 @@ public class DatabaseSeeder {
             pullEx4.setPlannedSets(3);
             pullEx4.setPlannedReps(12);
             pullEx4.setPlannedWeight(15);
-            pullEx4.setOrderID(4);
+            pullEx4.setRankKey(RankKeys.forPosition(4));
             exerciseExecutionsRepository.save(pullEx4);
 
             // Session 3: Leg Day (from Push Pull Legs)
             Sessions legDay = new Sessions();
             legDay.setName("Leg Day - Quads & Glutes");
             legDay.setPlan(pushPullLegs);
-            legDay.setOrderID(3);
+            legDay.setRankKey(RankKeys.forPosition(3));
             sessionsRepository.save(legDay);
 
             ExerciseExecutions legEx1 = new ExerciseExecutions();
@@ -267,7 +269,7 @@ public class DatabaseSeeder {
             legEx1.setPlannedSets(4);
             legEx1.setPlannedReps(8);
             legEx1.setPlannedWeight(100);
-            legEx1.setOrderID(1);
+            legEx1.setRankKey(RankKeys.forPosition(1));
             exerciseExecutionsRepository.save(legEx1);
 
             ExerciseExecutions legEx2 = new ExerciseExecutions();
@@ -276,7 +278,7 @@ public class DatabaseSeeder {
             legEx2.setPlannedSets(3);
             legEx2.setPlannedReps(12);
             legEx2.setPlannedWeight(150);
-            legEx2.setOrderID(2);
+            legEx2.setRankKey(RankKeys.forPosition(2));
             exerciseExecutionsRepository.save(legEx2);
 
             ExerciseExecutions legEx3 = new ExerciseExecutions();
@@ -285,14 +287,14 @@ public class DatabaseSeeder {
             legEx3.setPlannedSets(3);
             legEx3.setPlannedReps(15);
             legEx3.setPlannedWeight(0);
-            legEx3.setOrderID(3);
+            legEx3.setRankKey(RankKeys.forPosition(3));
             exerciseExecutionsRepository.save(legEx3);
 
             // Session 4: Full Body Workout
             Sessions fullBodySession = new Sessions();
             fullBodySession.setName("Full Body - Day 1");
             fullBodySession.setPlan(fullBody);
-            fullBodySession.setOrderID(1);
+            fullBodySession.setRankKey(RankKeys.forPosition(1));
             sessionsRepository.save(fullBodySession);
 
             ExerciseExecutions fbEx1 = new ExerciseExecutions();
@@ -301,7 +303,7 @@ public class DatabaseSeeder {
             fbEx1.setPlannedSets(3);
             fbEx1.setPlannedReps(10);
             fbEx1.setPlannedWeight(90);
-            fbEx1.setOrderID(1);
+            fbEx1.setRankKey(RankKeys.forPosition(1));
             exerciseExecutionsRepository.save(fbEx1);
 
             ExerciseExecutions fbEx2 = new ExerciseExecutions();
@@ -310,7 +312,7 @@ public class DatabaseSeeder {
             fbEx2.setPlannedSets(3);
             fbEx2.setPlannedReps(10);
             fbEx2.setPlannedWeight(70);
-            fbEx2.setOrderID(2);
+            fbEx2.setRankKey(RankKeys.forPosition(2));
             exerciseExecutionsRepository.save(fbEx2);
 
             ExerciseExecutions fbEx3 = new ExerciseExecutions();
@@ -319,7 +321,7 @@ public class DatabaseSeeder {
             fbEx3.setPlannedSets(3);
             fbEx3.setPlannedReps(10);
             fbEx3.setPlannedWeight(55);
-            fbEx3.setOrderID(3);
+            fbEx3.setRankKey(RankKeys.forPosition(3));
             exerciseExecutionsRepository.save(fbEx3);
 
             ExerciseExecutions fbEx4 = new ExerciseExecutions();
@@ -328,7 +330,7 @@ public class DatabaseSeeder {
             fbEx4.setPlannedSets(3);
             fbEx4.setPlannedReps(10);
             fbEx4.setPlannedWeight(45);
-            fbEx4.setOrderID(4);
+            fbEx4.setRankKey(RankKeys.forPosition(4));
             exerciseExecutionsRepository.save(fbEx4);
 
             ExerciseExecutions fbEx5 = new ExerciseExecutions();
@@ -337,14 +339,14 @@ public class DatabaseSeeder {
             fbEx5.setPlannedSets(3);
             fbEx5.setPlannedReps(60);
             fbEx5.setPlannedWeight(0);
-            fbEx5.setOrderID(5);
+            fbEx5.setRankKey(RankKeys.forPosition(5));
             exerciseExecutionsRepository.save(fbEx5);
 
             // Session 5: Upper Body (from Upper Lower Split)
             Sessions upperBody = new Sessions();
             upperBody.setName("Upper Body Strength");
             upperBody.setPlan(upperLower);
-            upperBody.setOrderID(1);
+            upperBody.setRankKey(RankKeys.forPosition(1));
             sessionsRepository.save(upperBody);
 
             ExerciseExecutions upEx1 = new ExerciseExecutions();
@@ -353,7 +355,7 @@ public class DatabaseSeeder {
             upEx1.setPlannedSets(4);
             upEx1.setPlannedReps(6);
             upEx1.setPlannedWeight(85);
-            upEx1.setOrderID(1);
+            upEx1.setRankKey(RankKeys.forPosition(1));
             exerciseExecutionsRepository.save(upEx1);
 
             ExerciseExecutions upEx2 = new ExerciseExecutions();
@@ -362,7 +364,7 @@ public class DatabaseSeeder {
             upEx2.setPlannedSets(4);
             upEx2.setPlannedReps(8);
             upEx2.setPlannedWeight(0);
-            upEx2.setOrderID(2);
+            upEx2.setRankKey(RankKeys.forPosition(2));
             exerciseExecutionsRepository.save(upEx2);
 
             ExerciseExecutions upEx3 = new ExerciseExecutions();
@@ -371,7 +373,7 @@ public class DatabaseSeeder {
             upEx3.setPlannedSets(3);
             upEx3.setPlannedReps(8);
             upEx3.setPlannedWeight(55);
-            upEx3.setOrderID(3);
+            upEx3.setRankKey(RankKeys.forPosition(3));
             exerciseExecutionsRepository.save(upEx3);
 
             ExerciseExecutions upEx4 = new ExerciseExecutions();
@@ -380,14 +382,14 @@ public class DatabaseSeeder {
             upEx4.setPlannedSets(3);
             upEx4.setPlannedReps(12);
             upEx4.setPlannedWeight(0);
-            upEx4.setOrderID(4);
+            upEx4.setRankKey(RankKeys.forPosition(4));
             exerciseExecutionsRepository.save(upEx4);
 
             // Session 6: Bodyweight Circuit
             Sessions bodyweightCircuit = new Sessions();
             bodyweightCircuit.setName("Bodyweight Circuit");
             bodyweightCircuit.setPlan(fullBody);
-            bodyweightCircuit.setOrderID(2);
+            bodyweightCircuit.setRankKey(RankKeys.forPosition(2));
             sessionsRepository.save(bodyweightCircuit);
 
             ExerciseExecutions bwEx1 = new ExerciseExecutions();
@@ -396,7 +398,7 @@ public class DatabaseSeeder {
             bwEx1.setPlannedSets(4);
             bwEx1.setPlannedReps(15);
             bwEx1.setPlannedWeight(0);
-            bwEx1.setOrderID(1);
+            bwEx1.setRankKey(RankKeys.forPosition(1));
             exerciseExecutionsRepository.save(bwEx1);
 
             ExerciseExecutions bwEx2 = new ExerciseExecutions();
@@ -405,7 +407,7 @@ public class DatabaseSeeder {
             bwEx2.setPlannedSets(4);
             bwEx2.setPlannedReps(10);
             bwEx2.setPlannedWeight(0);
-            bwEx2.setOrderID(2);
+            bwEx2.setRankKey(RankKeys.forPosition(2));
             exerciseExecutionsRepository.save(bwEx2);
 
             ExerciseExecutions bwEx3 = new ExerciseExecutions();
@@ -414,7 +416,7 @@ public class DatabaseSeeder {
             bwEx3.setPlannedSets(3);
             bwEx3.setPlannedReps(20);
             bwEx3.setPlannedWeight(0);
-            bwEx3.setOrderID(3);
+            bwEx3.setRankKey(RankKeys.forPosition(3));
             exerciseExecutionsRepository.save(bwEx3);
 
             ExerciseExecutions bwEx4 = new ExerciseExecutions();
@@ -423,7 +425,7 @@ public class DatabaseSeeder {
             bwEx4.setPlannedSets(3);
             bwEx4.setPlannedReps(15);
             bwEx4.setPlannedWeight(0);
-            bwEx4.setOrderID(4);
+            bwEx4.setRankKey(RankKeys.forPosition(4));
             exerciseExecutionsRepository.save(bwEx4);
 
             ExerciseExecutions bwEx5 = new ExerciseExecutions();
@@ -432,7 +434,7 @@ public class DatabaseSeeder {
             bwEx5.setPlannedSets(3);
             bwEx5.setPlannedReps(90);
             bwEx5.setPlannedWeight(0);
-            bwEx5.setOrderID(5);
+            bwEx5.setRankKey(RankKeys.forPosition(5));
             exerciseExecutionsRepository.save(bwEx5);
 
             System.out.println("✅ Database seeded successfully!");
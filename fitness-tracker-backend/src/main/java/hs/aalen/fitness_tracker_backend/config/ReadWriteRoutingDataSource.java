@@ -0,0 +1,118 @@
+package hs.aalen.fitness_tracker_backend.config;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sends read-only transactions to the replica and everything else to the
+ * primary. A user whose own write committed less than the maximum
+ * replication lag ago keeps reading from the primary, so they never see
+ * their change disappear again. Sessions reading from the replica only
+ * read the second-level cache and never fill it, so a lagging row cannot
+ * reach primary reads through the cache. Must sit behind a lazy connection
+ * proxy, otherwise the connection is picked before the transaction is
+ * marked read-only.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route {
+        PRIMARY,
+        REPLICA
+    }
+
+    private final Duration maxLag;
+    private final Clock clock;
+    private final Map<String, Instant> lastWrites = new ConcurrentHashMap<>();
+
+    public ReadWriteRoutingDataSource(Duration maxLag, Clock clock) {
+        this.maxLag = maxLag;
+        this.clock = clock;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return Route.PRIMARY;
+        }
+        String username = currentUsername();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (username != null && TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        recordWrite(username);
+                    }
+                });
+            }
+            return Route.PRIMARY;
+        }
+        if (username != null && wroteRecently(username)) {
+            return Route.PRIMARY;
+        }
+        keepOutOfSecondLevelCache();
+        return Route.REPLICA;
+    }
+
+    // The JPA sessions bound to this transaction still read the cache, but stop putting into it
+    private static void keepOutOfSecondLevelCache() {
+        for (Object resource : TransactionSynchronizationManager.getResourceMap().values()) {
+            if (!(resource instanceof EntityManagerHolder holder)) {
+                continue;
+            }
+            Session session = holder.getEntityManager().unwrap(Session.class);
+            CacheMode previous = session.getCacheMode();
+            if (previous == CacheMode.GET || previous == CacheMode.IGNORE) {
+                continue;
+            }
+            session.setCacheMode(CacheMode.GET);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (session.isOpen()) {
+                        session.setCacheMode(previous);
+                    }
+                }
+            });
+        }
+    }
+
+    void recordWrite(String username) {
+        Instant now = clock.instant();
+        lastWrites.put(username, now);
+        // Forget users whose writes the replica has caught up with by now
+        lastWrites.values().removeIf(writtenAt -> writtenAt.plus(maxLag).isBefore(now));
+    }
+
+    boolean wroteRecently(String username) {
+        Instant writtenAt = lastWrites.get(username);
+        if (writtenAt == null) {
+            return false;
+        }
+        if (writtenAt.plus(maxLag).isBefore(clock.instant())) {
+            lastWrites.remove(username, writtenAt);
+            return false;
+        }
+        return true;
+    }
+
+    private String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+}
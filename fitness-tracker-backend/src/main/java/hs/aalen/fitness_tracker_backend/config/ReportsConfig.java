@@ -0,0 +1,21 @@
+package hs.aalen.fitness_tracker_backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class ReportsConfig {
+
+    // Few low-priority threads, so a report holds at most that many connections and leaves the rest to requests
+    @Bean
+    ThreadPoolTaskExecutor reportExecutor(@Value("${fitness.reports.threads:2}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadPriority(Thread.MIN_PRIORITY);
+        executor.setThreadNamePrefix("report-");
+        return executor;
+    }
+}
@@ -30,6 +30,8 @@ public class SecurityConfig {
                     // User-owned logs require auth to enforce isolation
                     .requestMatchers("/api/v1/session-logs/**").authenticated()
                     .requestMatchers("/api/v1/execution-logs/**").authenticated()
+                    // Reports across members are for coaches only
+                    .requestMatchers("/api/v1/coach/**").hasAuthority("COACH")
                     .anyRequest().authenticated()
             )
             .httpBasic(Customizer.withDefaults());
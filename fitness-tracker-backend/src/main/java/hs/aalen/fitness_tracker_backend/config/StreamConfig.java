@@ -0,0 +1,20 @@
+package hs.aalen.fitness_tracker_backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class StreamConfig {
+
+    // Writes to live stream clients; at most one queued task per client, so the queue stays bounded by them
+    @Bean
+    ThreadPoolTaskExecutor streamExecutor(@Value("${fitness.stream.threads:2}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("stream-");
+        return executor;
+    }
+}
@@ -1,13 +1,17 @@
 package hs.aalen.fitness_tracker_backend.executionlogs.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import hs.aalen.fitness_tracker_backend.executionlogs.dto.ExecutionLogsResponseDto;
+import hs.aalen.fitness_tracker_backend.executionlogs.dto.ExecutionLogsSetDto;
 import hs.aalen.fitness_tracker_backend.executionlogs.dto.ExecutionLogsUpdateDto;
 import hs.aalen.fitness_tracker_backend.executionlogs.service.ExecutionLogsService;
-import java.util.List;
+import hs.aalen.fitness_tracker_backend.shared.StreamingResponses;
+import hs.aalen.fitness_tracker_backend.shared.Versions;
 import java.util.UUID;
 
 @RestController
@@ -15,19 +19,17 @@ import java.util.UUID;
 public class ExecutionLogsController {
     @Autowired
     private ExecutionLogsService executionLogsService;
+    @Autowired
+    private StreamingResponses streamingResponses;
 
     @GetMapping
-    public ResponseEntity<List<ExecutionLogsResponseDto>> getAllExecutionLogs(
+    public ResponseEntity<StreamingResponseBody> getAllExecutionLogs(
             @RequestParam(required = false) UUID sessionLogId,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
             Authentication authentication) {
-        List<ExecutionLogsResponseDto> logs;
-        if (sessionLogId != null) {
-            logs = executionLogsService.getExecutionLogsBySessionLogId(
-                    sessionLogId, authentication.getName());
-        } else {
-            logs = executionLogsService.getAllExecutionLogs(authentication.getName());
-        }
-        return ResponseEntity.ok(logs);
+        String username = authentication.getName();
+        return streamingResponses.<ExecutionLogsResponseDto>array(accept,
+                sink -> executionLogsService.streamExecutionLogs(sessionLogId, username, sink));
     }
 
     @GetMapping("/{id}")
@@ -36,17 +38,29 @@ public class ExecutionLogsController {
             Authentication authentication) {
         ExecutionLogsResponseDto response = executionLogsService.getExecutionLogById(
                 id, authentication.getName());
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok().eTag(String.valueOf(response.getVersion())).body(response);
     }
 
     @PutMapping("/{id}")
     public ResponseEntity<ExecutionLogsResponseDto> updateExecutionLog(
             @PathVariable UUID id,
             @RequestBody ExecutionLogsUpdateDto dto,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             Authentication authentication) {
         ExecutionLogsResponseDto response = executionLogsService.updateExecutionLog(
-                id, dto, authentication.getName());
-        return ResponseEntity.ok(response);
+                id, dto, authentication.getName(), Versions.fromIfMatch(ifMatch));
+        return ResponseEntity.ok().eTag(String.valueOf(response.getVersion())).body(response);
+    }
+
+    @PostMapping("/{id}/sets")
+    public ResponseEntity<ExecutionLogsResponseDto> appendSet(
+            @PathVariable UUID id,
+            @RequestBody ExecutionLogsSetDto dto,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            Authentication authentication) {
+        ExecutionLogsResponseDto response = executionLogsService.appendSet(
+                id, dto, authentication.getName(), Versions.fromIfMatch(ifMatch));
+        return ResponseEntity.ok().eTag(String.valueOf(response.getVersion())).body(response);
     }
 
     @DeleteMapping("/{id}")
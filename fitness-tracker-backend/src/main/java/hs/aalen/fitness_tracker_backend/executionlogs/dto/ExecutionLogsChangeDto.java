@@ -0,0 +1,20 @@
+package hs.aalen.fitness_tracker_backend.executionlogs.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Fields of an execution log that changed in one committed update,
+ * pushed to the live stream of its session log.
+ */
+@Getter
+@Setter
+public class ExecutionLogsChangeDto {
+    private UUID id;
+    private UUID sessionLogId;
+    private Long version;
+    private Map<String, Object> changes = new LinkedHashMap<>();
+}
@@ -4,12 +4,14 @@ import lombok.Getter;
 import lombok.Setter;
 import java.util.List;
 import java.util.UUID;
+import hs.aalen.fitness_tracker_backend.executionlogs.model.PerformedSet;
 import hs.aalen.fitness_tracker_backend.exercises.model.Exercises;
 
 @Getter
 @Setter
 public class ExecutionLogsResponseDto {
     private UUID id;
+    private Long version;
     private Integer exerciseExecutionId;
     private Integer exerciseExecutionPlannedSets;
     private Integer exerciseExecutionPlannedReps;
@@ -22,6 +24,7 @@ public class ExecutionLogsResponseDto {
     private Integer actualSets;
     private Integer actualReps;
     private Integer actualWeight;
+    private List<PerformedSet> sets;
     private Boolean completed;
     private String notes;
     private UUID sessionLogId;
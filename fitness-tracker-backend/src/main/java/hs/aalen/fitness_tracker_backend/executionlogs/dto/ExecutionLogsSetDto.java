@@ -0,0 +1,13 @@
+package hs.aalen.fitness_tracker_backend.executionlogs.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class ExecutionLogsSetDto {
+    private Integer reps;
+    private Integer weight;
+    private Double rpe;
+    private Integer restSeconds;
+}
@@ -6,8 +6,10 @@ import lombok.Setter;
 import java.util.List;
 import java.util.UUID;
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import hs.aalen.fitness_tracker_backend.sessionlogs.model.SessionLogs;
 import hs.aalen.fitness_tracker_backend.exercises.model.Exercises;
+import hs.aalen.fitness_tracker_backend.exercises.model.MuscleGroup;
 
 @Entity
 @Getter
@@ -16,6 +18,8 @@ public class ExecutionLogs {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
+    @Version
+    private Long version;
     // Snapshot planned execution data to preserve history
     @Column(nullable = false)
     private Integer exerciseExecutionId;
@@ -33,10 +37,9 @@ public class ExecutionLogs {
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private Exercises.Category exerciseCategory;
-    @ElementCollection
-    @CollectionTable(name = "execution_log_muscle_groups", joinColumns = @JoinColumn(name = "execution_log_id"))
-    @Column(name = "muscle_group")
-    private List<String> exerciseMuscleGroup;
+    @Column(name = "exercise_muscle_groups", nullable = false)
+    @JsonIgnore
+    private long exerciseMuscleGroupMask;
     @Column(length = 1000)
     private String exerciseDescription;
     // User‑recorded performance metrics
@@ -46,6 +49,10 @@ public class ExecutionLogs {
     private Integer actualReps;
     @Column(nullable = false)
     private Integer actualWeight;
+    // Sets recorded one by one, packed by PerformedSets; null until the first one
+    @Column(name = "recorded_sets", length = 1 + PerformedSets.MAX_SETS * 20)
+    @JsonIgnore
+    private byte[] recordedSets;
     @Column(nullable = false)
     private Boolean completed = false;
     @Column(length = 1000)
@@ -54,4 +61,36 @@ public class ExecutionLogs {
     @JoinColumn(name = "session_log_id", nullable = false)
     @JsonBackReference
     private SessionLogs sessionLog;
+
+    public List<String> getExerciseMuscleGroup() {
+        return MuscleGroup.namesOf(exerciseMuscleGroupMask);
+    }
+
+    public List<PerformedSet> getSets() {
+        return PerformedSets.decode(recordedSets);
+    }
+
+    public boolean isPerformed() {
+        return isPerformed(recordedSets, completed);
+    }
+
+    public int getPerformedSetCount() {
+        return performedSetCount(recordedSets, completed, actualSets);
+    }
+
+    // Planned values that were never ticked off or recorded are not a performance
+    public static boolean isPerformed(byte[] recordedSets, Boolean completed) {
+        return recordedSets != null || Boolean.TRUE.equals(completed);
+    }
+
+    public static int performedSetCount(byte[] recordedSets, Boolean completed, Integer actualSets) {
+        if (recordedSets != null) {
+            return PerformedSets.count(recordedSets);
+        }
+        return Boolean.TRUE.equals(completed) ? actualSets : 0;
+    }
+
+    public void setExerciseMuscleGroup(List<String> exerciseMuscleGroup) {
+        this.exerciseMuscleGroupMask = MuscleGroup.toMask(exerciseMuscleGroup);
+    }
 }
@@ -0,0 +1,8 @@
+package hs.aalen.fitness_tracker_backend.executionlogs.model;
+
+/**
+ * One recorded set of an execution log. RPE and rest are optional; RPE
+ * goes in half steps from 1 to 10.
+ */
+public record PerformedSet(int reps, int weight, Double rpe, Integer restSeconds) {
+}
@@ -0,0 +1,105 @@
+package hs.aalen.fitness_tracker_backend.executionlogs.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Packed encoding of the sets recorded on an execution log. A format byte
+ * is followed by one entry per set: reps, weight, RPE in half steps and
+ * rest in seconds, each as an unsigned varint, with RPE and rest shifted
+ * up by one so that zero means "not given". A typical set takes four to
+ * six bytes. Appending copies the bytes without decoding them; only
+ * {@link #decode} builds objects.
+ */
+public final class PerformedSets {
+
+    static final byte FORMAT = 1;
+    public static final int MAX_SETS = 100;
+
+    private PerformedSets() {
+    }
+
+    public static byte[] append(byte[] packed, PerformedSet set) {
+        byte[] entry = new byte[4 * 5];
+        int length = 0;
+        length = writeVarint(entry, length, set.reps());
+        length = writeVarint(entry, length, set.weight());
+        length = writeVarint(entry, length, set.rpe() == null ? 0 : (int) Math.round(set.rpe() * 2) + 1);
+        length = writeVarint(entry, length, set.restSeconds() == null ? 0 : set.restSeconds() + 1);
+
+        if (packed == null || packed.length == 0) {
+            byte[] result = new byte[1 + length];
+            result[0] = FORMAT;
+            System.arraycopy(entry, 0, result, 1, length);
+            return result;
+        }
+        checkFormat(packed);
+        byte[] result = Arrays.copyOf(packed, packed.length + length);
+        System.arraycopy(entry, 0, result, packed.length, length);
+        return result;
+    }
+
+    // Counts entries by skipping over their varints, without decoding them
+    public static int count(byte[] packed) {
+        if (packed == null || packed.length == 0) {
+            return 0;
+        }
+        checkFormat(packed);
+        int varints = 0;
+        for (int i = 1; i < packed.length; i++) {
+            if ((packed[i] & 0x80) == 0) {
+                varints++;
+            }
+        }
+        return varints / 4;
+    }
+
+    public static List<PerformedSet> decode(byte[] packed) {
+        if (packed == null || packed.length == 0) {
+            return List.of();
+        }
+        checkFormat(packed);
+        List<PerformedSet> sets = new ArrayList<>();
+        int[] position = {1};
+        while (position[0] < packed.length) {
+            int reps = readVarint(packed, position);
+            int weight = readVarint(packed, position);
+            int rpe = readVarint(packed, position);
+            int rest = readVarint(packed, position);
+            sets.add(new PerformedSet(reps, weight,
+                    rpe == 0 ? null : (rpe - 1) / 2.0,
+                    rest == 0 ? null : rest - 1));
+        }
+        return sets;
+    }
+
+    private static void checkFormat(byte[] packed) {
+        if (packed[0] != FORMAT) {
+            throw new IllegalStateException("Unknown performed sets format: " + packed[0]);
+        }
+    }
+
+    private static int writeVarint(byte[] buffer, int offset, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[offset++] = (byte) value;
+        return offset;
+    }
+
+    private static int readVarint(byte[] buffer, int[] position) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (position[0] >= buffer.length) {
+                throw new IllegalStateException("Truncated performed sets");
+            }
+            byte b = buffer[position[0]++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+}
@@ -1,15 +1,64 @@
 package hs.aalen.fitness_tracker_backend.executionlogs.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import hs.aalen.fitness_tracker_backend.executionlogs.model.ExecutionLogs;
+import hs.aalen.fitness_tracker_backend.users.model.Users;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
+@Transactional(readOnly = true)
 public interface ExecutionLogsRepository extends JpaRepository<ExecutionLogs, UUID> {
 
     List<ExecutionLogs> findBySessionLogId(UUID sessionLogId);
 
+    // Log with its session log in one query, for use outside a service transaction
+    @EntityGraph(attributePaths = "sessionLog")
+    Optional<ExecutionLogs> findDetailedById(UUID id);
+
     List<ExecutionLogs> findByExerciseExecutionId(Integer exerciseExecutionId);
+
+    // Row-by-row variants for streamed responses; must be consumed inside a transaction and closed
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "100"))
+    Stream<ExecutionLogs> streamBySessionLogId(UUID sessionLogId);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "100"))
+    Stream<ExecutionLogs> streamBySessionLogOwner(Users owner);
+
+    @Transactional
+    @Modifying
+    @Query("delete from ExecutionLogs e where e.sessionLog.id in :sessionLogIds")
+    int deleteBySessionLogIdIn(@Param("sessionLogIds") Collection<UUID> sessionLogIds);
+
+    // Planned against performed sets of the workouts the users started since the given instant
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select s.owner.id as ownerId, e.exerciseExecutionPlannedSets as plannedSets, "
+            + "e.actualSets as actualSets, e.completed as completed, e.recordedSets as recordedSets "
+            + "from ExecutionLogs e join e.sessionLog s where s.owner.id in :ownerIds and s.startedAt >= :from")
+    Stream<SetsRow> streamSetsByOwners(@Param("ownerIds") Collection<UUID> ownerIds, @Param("from") Instant from);
+
+    interface SetsRow {
+        UUID getOwnerId();
+
+        Integer getPlannedSets();
+
+        Integer getActualSets();
+
+        Boolean getCompleted();
+
+        byte[] getRecordedSets();
+    }
 }
@@ -0,0 +1,261 @@
+package hs.aalen.fitness_tracker_backend.executionlogs.service;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.stereotype.Component;
+import hs.aalen.fitness_tracker_backend.executionlogs.dto.ExecutionLogsResponseDto;
+import hs.aalen.fitness_tracker_backend.executionlogs.dto.ExecutionLogsUpdateDto;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Execution log edits accepted in write-behind mode but not yet written.
+ * Edits to the same log are merged field by field (last value wins), so a
+ * burst of taps on one set ends up as a single update at flush time.
+ */
+@Component
+public class ExecutionLogsEditBuffer {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final Map<UUID, PendingEdit> pending = new ConcurrentHashMap<>();
+    // Per session log (striped): edits are buffered under the read lock, a workout completes under the write lock
+    private final ReadWriteLock[] completionLocks = new ReadWriteLock[LOCK_STRIPES];
+
+    public ExecutionLogsEditBuffer() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            completionLocks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    /**
+     * State of one buffered log: the committed values it was loaded with,
+     * who may edit it, and the merged edit still to be written.
+     */
+    static class PendingEdit {
+        private final String username;
+        private final ExecutionLogsResponseDto committed;
+        private final ExecutionLogsUpdateDto edit = new ExecutionLogsUpdateDto();
+        private boolean drained;
+
+        PendingEdit(String username, ExecutionLogsResponseDto committed) {
+            this.username = username;
+            this.committed = committed;
+        }
+
+        String getUsername() {
+            return username;
+        }
+
+        ExecutionLogsResponseDto getCommitted() {
+            return committed;
+        }
+
+        UUID getSessionLogId() {
+            return committed.getSessionLogId();
+        }
+
+        ExecutionLogsUpdateDto getEdit() {
+            return edit;
+        }
+    }
+
+    PendingEdit get(UUID id) {
+        return pending.get(id);
+    }
+
+    /**
+     * Runs the buffering of an edit so that no completion of its session
+     * log can flush and commit in between. Whatever the action checked
+     * about the workout still holds when the edit lands in the buffer.
+     */
+    <T> T whileOpen(UUID sessionLogId, Supplier<T> action) {
+        ReadWriteLock lock = completionLocks[stripe(sessionLogId)];
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs the completion of workouts, their flush included, while no edit
+     * of them can be buffered. Edits that wait meanwhile see the completed
+     * workout afterwards and are rejected instead of being lost at the next
+     * flush.
+     */
+    public <T> T completing(Collection<UUID> sessionLogIds, Supplier<T> completion) {
+        // Always in stripe order, so two batch completions cannot deadlock
+        List<ReadWriteLock> locks = sessionLogIds.stream()
+                .map(this::stripe)
+                .distinct()
+                .sorted()
+                .map(stripe -> completionLocks[stripe])
+                .toList();
+        locks.forEach(lock -> lock.writeLock().lock());
+        try {
+            return completion.get();
+        } finally {
+            locks.forEach(lock -> lock.writeLock().unlock());
+        }
+    }
+
+    private int stripe(UUID sessionLogId) {
+        return Math.floorMod(sessionLogId.hashCode(), LOCK_STRIPES);
+    }
+
+    /**
+     * Merges an edit into the pending state of a log, registering the log
+     * with its committed values on first use. Returns the values readers
+     * see from now on.
+     */
+    ExecutionLogsResponseDto merge(UUID id, String username, ExecutionLogsResponseDto committed,
+            ExecutionLogsUpdateDto dto) {
+        ExecutionLogsResponseDto base = committed;
+        while (true) {
+            ExecutionLogsResponseDto initial = base;
+            PendingEdit entry = pending.computeIfAbsent(id, key -> new PendingEdit(username, initial));
+            synchronized (entry) {
+                // A flush took this entry between lookup and lock; start over from what it wrote
+                if (entry.drained) {
+                    base = applyEdit(entry, copyOf(entry.committed));
+                    continue;
+                }
+                ExecutionLogsUpdateDto edit = entry.edit;
+                if (dto.getActualSets() != null) {
+                    edit.setActualSets(dto.getActualSets());
+                }
+                if (dto.getActualReps() != null) {
+                    edit.setActualReps(dto.getActualReps());
+                }
+                if (dto.getActualWeight() != null) {
+                    edit.setActualWeight(dto.getActualWeight());
+                }
+                if (dto.getCompleted() != null) {
+                    edit.setCompleted(dto.getCompleted());
+                }
+                if (dto.getNotes() != null) {
+                    edit.setNotes(dto.getNotes());
+                }
+                return applyEdit(entry, copyOf(entry.committed));
+            }
+        }
+    }
+
+    /**
+     * Applies the pending edit of a log, if any, to a DTO built from the
+     * database so reads never lag behind accepted edits.
+     */
+    public ExecutionLogsResponseDto overlay(ExecutionLogsResponseDto dto) {
+        PendingEdit entry = dto.getId() != null ? pending.get(dto.getId()) : null;
+        if (entry == null) {
+            return dto;
+        }
+        synchronized (entry) {
+            return applyEdit(entry, dto);
+        }
+    }
+
+    private ExecutionLogsResponseDto copyOf(ExecutionLogsResponseDto dto) {
+        ExecutionLogsResponseDto copy = new ExecutionLogsResponseDto();
+        BeanUtils.copyProperties(dto, copy);
+        return copy;
+    }
+
+    private ExecutionLogsResponseDto applyEdit(PendingEdit entry, ExecutionLogsResponseDto dto) {
+        ExecutionLogsUpdateDto edit = entry.edit;
+        if (edit.getActualSets() != null) {
+            dto.setActualSets(edit.getActualSets());
+        }
+        if (edit.getActualReps() != null) {
+            dto.setActualReps(edit.getActualReps());
+        }
+        if (edit.getActualWeight() != null) {
+            dto.setActualWeight(edit.getActualWeight());
+        }
+        if (edit.getCompleted() != null) {
+            dto.setCompleted(edit.getCompleted());
+        }
+        if (edit.getNotes() != null) {
+            dto.setNotes(edit.getNotes());
+        }
+        return dto;
+    }
+
+    boolean isEmpty() {
+        return pending.isEmpty();
+    }
+
+    boolean contains(UUID id) {
+        return pending.containsKey(id);
+    }
+
+    /**
+     * Removes and returns the pending edits, optionally only those of one
+     * session log. Edits arriving afterwards start a new entry.
+     */
+    Map<UUID, PendingEdit> drain(UUID sessionLogId) {
+        Map<UUID, PendingEdit> drained = new LinkedHashMap<>();
+        List<UUID> ids = new ArrayList<>(pending.keySet());
+        for (UUID id : ids) {
+            PendingEdit entry = pending.get(id);
+            if (entry == null || (sessionLogId != null && !sessionLogId.equals(entry.getSessionLogId()))) {
+                continue;
+            }
+            synchronized (entry) {
+                if (pending.remove(id, entry)) {
+                    entry.drained = true;
+                    drained.put(id, entry);
+                }
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * Removes and returns the pending edit of one log, to be written
+     * together with a versioned change of it, or null if there is none.
+     */
+    PendingEdit take(UUID id) {
+        PendingEdit entry = pending.get(id);
+        if (entry == null) {
+            return null;
+        }
+        synchronized (entry) {
+            if (!pending.remove(id, entry)) {
+                return null;
+            }
+            entry.drained = true;
+            return entry;
+        }
+    }
+
+    /**
+     * Puts edits back after a failed flush unless the log was edited again
+     * in the meantime, in which case the newer entry already wins.
+     */
+    void restore(Map<UUID, PendingEdit> edits) {
+        edits.forEach((id, entry) -> {
+            synchronized (entry) {
+                entry.drained = false;
+                pending.putIfAbsent(id, entry);
+            }
+        });
+    }
+
+    public void discard(UUID id) {
+        pending.remove(id);
+    }
+
+    public void discardSessionLog(UUID sessionLogId) {
+        pending.values().removeIf(entry -> sessionLogId.equals(entry.getSessionLogId()));
+    }
+}
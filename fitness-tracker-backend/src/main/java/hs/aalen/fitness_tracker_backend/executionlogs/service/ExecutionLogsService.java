@@ -1,19 +1,38 @@
 package hs.aalen.fitness_tracker_backend.executionlogs.service;
 
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import hs.aalen.fitness_tracker_backend.executionlogs.dto.ExecutionLogsChangeDto;
 import hs.aalen.fitness_tracker_backend.executionlogs.dto.ExecutionLogsResponseDto;
+import hs.aalen.fitness_tracker_backend.executionlogs.dto.ExecutionLogsSetDto;
 import hs.aalen.fitness_tracker_backend.executionlogs.dto.ExecutionLogsUpdateDto;
 import hs.aalen.fitness_tracker_backend.executionlogs.model.ExecutionLogs;
+import hs.aalen.fitness_tracker_backend.executionlogs.model.PerformedSet;
+import hs.aalen.fitness_tracker_backend.executionlogs.model.PerformedSets;
 import hs.aalen.fitness_tracker_backend.executionlogs.repository.ExecutionLogsRepository;
 import hs.aalen.fitness_tracker_backend.sessionlogs.model.SessionLogs;
 import hs.aalen.fitness_tracker_backend.sessionlogs.repository.SessionLogsRepository;
+import hs.aalen.fitness_tracker_backend.shared.OptimisticRetry;
+import hs.aalen.fitness_tracker_backend.shared.Versions;
 import hs.aalen.fitness_tracker_backend.users.model.Users;
 import hs.aalen.fitness_tracker_backend.users.repository.UsersRepository;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class ExecutionLogsService {
@@ -23,6 +42,17 @@ public class ExecutionLogsService {
     private SessionLogsRepository sessionLogsRepository;
     @Autowired
     private UsersRepository usersRepository;
+    @Autowired
+    private OptimisticRetry optimisticRetry;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private ExecutionLogsEditBuffer editBuffer;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${fitness.execution-logs.write-behind.enabled:false}")
+    private boolean writeBehind;
 
     private Users resolveUser(String username) {
         return usersRepository.findByUsername(username)
@@ -31,8 +61,12 @@ public class ExecutionLogsService {
 
     // Centralize ownership checks to keep access control consistent
     private ExecutionLogs getExecutionLogWithOwnershipCheck(UUID id, String username) {
+        return checkOwnership(executionLogsRepository.findById(id), username);
+    }
+
+    private ExecutionLogs checkOwnership(Optional<ExecutionLogs> found, String username) {
         Users owner = resolveUser(username);
-        ExecutionLogs executionLog = executionLogsRepository.findById(id)
+        ExecutionLogs executionLog = found
                 .orElseThrow(() -> new RuntimeException("ExecutionLog not found"));
 
         if (!executionLog.getSessionLog().getOwner().getId().equals(owner.getId())) {
@@ -53,31 +87,92 @@ public class ExecutionLogsService {
         }
     }
 
-    public List<ExecutionLogsResponseDto> getAllExecutionLogs(String username) {
-        Users owner = resolveUser(username);
-        return sessionLogsRepository.findByOwner(owner).stream()
-                .flatMap(sessionLog -> sessionLog.getExecutionLogs().stream())
-                .map(this::mapToResponseDto)
-                .collect(Collectors.toList());
+    private PerformedSet toPerformedSet(ExecutionLogsSetDto dto) {
+        if (dto.getReps() == null || dto.getReps() < 0) {
+            throw new IllegalArgumentException("Set reps are required and cannot be negative");
+        }
+        if (dto.getWeight() == null || dto.getWeight() < 0) {
+            throw new IllegalArgumentException("Set weight is required and cannot be negative");
+        }
+        Double rpe = dto.getRpe();
+        if (rpe != null && (rpe < 1 || rpe > 10 || rpe * 2 != Math.rint(rpe * 2))) {
+            throw new IllegalArgumentException("RPE must be between 1 and 10 in steps of 0.5");
+        }
+        if (dto.getRestSeconds() != null && dto.getRestSeconds() < 0) {
+            throw new IllegalArgumentException("Rest cannot be negative");
+        }
+        return new PerformedSet(dto.getReps(), dto.getWeight(), rpe, dto.getRestSeconds());
     }
 
+    @Transactional(readOnly = true)
     public ExecutionLogsResponseDto getExecutionLogById(UUID id, String username) {
         ExecutionLogs executionLog = getExecutionLogWithOwnershipCheck(id, username);
         return mapToResponseDto(executionLog);
     }
 
-    public List<ExecutionLogsResponseDto> getExecutionLogsBySessionLogId(UUID sessionLogId, String username) {
+    /**
+     * Hands the caller's execution logs, optionally of one session log, to the
+     * sink one row at a time. Each row leaves the persistence context once it
+     * is written, so memory does not grow with the result.
+     */
+    @Transactional(readOnly = true)
+    public void streamExecutionLogs(UUID sessionLogId, String username, Consumer<ExecutionLogsResponseDto> sink) {
         Users owner = resolveUser(username);
-        sessionLogsRepository.findByIdAndOwner(sessionLogId, owner)
-                .orElseThrow(() -> new AccessDeniedException("Session log not found or access denied"));
-
-        return executionLogsRepository.findBySessionLogId(sessionLogId).stream()
-                .map(this::mapToResponseDto)
-                .collect(Collectors.toList());
+        Stream<ExecutionLogs> rows;
+        if (sessionLogId != null) {
+            sessionLogsRepository.findByIdAndOwner(sessionLogId, owner)
+                    .orElseThrow(() -> new AccessDeniedException("Session log not found or access denied"));
+            rows = executionLogsRepository.streamBySessionLogId(sessionLogId);
+        } else {
+            rows = executionLogsRepository.streamBySessionLogOwner(owner);
+        }
+        try (rows) {
+            rows.forEach(executionLog -> {
+                sink.accept(mapToResponseDto(executionLog));
+                entityManager.detach(executionLog);
+            });
+        }
     }
 
     public ExecutionLogsResponseDto updateExecutionLog(UUID id, ExecutionLogsUpdateDto dto, String username) {
+        return updateExecutionLog(id, dto, username, null);
+    }
+
+    public ExecutionLogsResponseDto updateExecutionLog(
+            UUID id, ExecutionLogsUpdateDto dto, String username, Long expectedVersion) {
+        if (writeBehind && expectedVersion == null) {
+            return bufferUpdate(id, dto, username);
+        }
+        ExecutionLogsEditBuffer.PendingEdit pending = editBuffer.take(id);
+        return withPendingEdit(id, pending,
+                () -> optimisticRetry.run(expectedVersion, () -> applyUpdate(id, dto, username, expectedVersion, pending)));
+    }
+
+    /**
+     * Runs a direct write of a log that also carries its buffered edit. The
+     * edit was never written, so the version the client saw is still the
+     * stored one and If-Match holds; if the write fails the edit goes back
+     * into the buffer.
+     */
+    private <T> T withPendingEdit(UUID id, ExecutionLogsEditBuffer.PendingEdit pending, Supplier<T> write) {
+        try {
+            return write.get();
+        } catch (RuntimeException e) {
+            if (pending != null) {
+                editBuffer.restore(Map.of(id, pending));
+            }
+            throw e;
+        }
+    }
+
+    private ExecutionLogsChangeDto applyPendingEdit(ExecutionLogs executionLog, ExecutionLogsEditBuffer.PendingEdit pending) {
+        return pending != null ? applyChanges(executionLog, pending.getEdit()) : new ExecutionLogsChangeDto();
+    }
+
+    private ExecutionLogsResponseDto applyUpdate(UUID id, ExecutionLogsUpdateDto dto, String username,
+            Long expectedVersion, ExecutionLogsEditBuffer.PendingEdit pending) {
         ExecutionLogs executionLog = getExecutionLogWithOwnershipCheck(id, username);
+        Versions.checkIfMatch(expectedVersion, executionLog.getVersion(), "Execution log");
 
         if (executionLog.getSessionLog().getStatus() == SessionLogs.LogStatus.Completed) {
             throw new IllegalArgumentException("Cannot update exercises in a completed training");
@@ -85,25 +180,179 @@ public class ExecutionLogsService {
 
         validateActualValues(dto.getActualSets(), dto.getActualReps(), dto.getActualWeight());
 
-        if (dto.getActualSets() != null) {
+        ExecutionLogsChangeDto change = applyPendingEdit(executionLog, pending);
+        change.getChanges().putAll(applyChanges(executionLog, dto).getChanges());
+        ExecutionLogs updated = executionLogsRepository.saveAndFlush(executionLog);
+        publishChange(change, updated);
+        return mapToResponseDto(updated);
+    }
+
+    /**
+     * Records one more set on the log. The totals follow the recorded sets:
+     * the set count, and weight and reps of the heaviest set so far.
+     */
+    public ExecutionLogsResponseDto appendSet(
+            UUID id, ExecutionLogsSetDto dto, String username, Long expectedVersion) {
+        PerformedSet set = toPerformedSet(dto);
+        ExecutionLogsEditBuffer.PendingEdit pending = editBuffer.take(id);
+        return withPendingEdit(id, pending,
+                () -> optimisticRetry.run(expectedVersion, () -> applyAppendSet(id, set, username, expectedVersion, pending)));
+    }
+
+    private ExecutionLogsResponseDto applyAppendSet(UUID id, PerformedSet set, String username,
+            Long expectedVersion, ExecutionLogsEditBuffer.PendingEdit pending) {
+        ExecutionLogs executionLog = getExecutionLogWithOwnershipCheck(id, username);
+        Versions.checkIfMatch(expectedVersion, executionLog.getVersion(), "Execution log");
+
+        if (executionLog.getSessionLog().getStatus() == SessionLogs.LogStatus.Completed) {
+            throw new IllegalArgumentException("Cannot add sets to a completed training");
+        }
+        int recorded = PerformedSets.count(executionLog.getRecordedSets());
+        if (recorded >= PerformedSets.MAX_SETS) {
+            throw new IllegalArgumentException("An execution log can hold at most " + PerformedSets.MAX_SETS + " sets");
+        }
+        ExecutionLogsChangeDto change = applyPendingEdit(executionLog, pending);
+        executionLog.setRecordedSets(PerformedSets.append(executionLog.getRecordedSets(), set));
+
+        // The first recorded set replaces the planned values the totals started with
+        ExecutionLogsUpdateDto totals = new ExecutionLogsUpdateDto();
+        totals.setActualSets(recorded + 1);
+        if (recorded == 0 || set.weight() > executionLog.getActualWeight()
+                || set.weight() == executionLog.getActualWeight() && set.reps() > executionLog.getActualReps()) {
+            totals.setActualWeight(set.weight());
+            totals.setActualReps(set.reps());
+        }
+        change.getChanges().putAll(applyChanges(executionLog, totals).getChanges());
+        change.getChanges().put("sets", executionLog.getSets());
+
+        ExecutionLogs updated = executionLogsRepository.saveAndFlush(executionLog);
+        publishChange(change, updated);
+        return mapToResponseDto(updated);
+    }
+
+    /**
+     * Accepts an edit of an in-progress workout into the write-behind buffer.
+     * Only the first edit of a log pays for the load and ownership check;
+     * later ones are merged in memory until the next flush.
+     */
+    private ExecutionLogsResponseDto bufferUpdate(UUID id, ExecutionLogsUpdateDto dto, String username) {
+        validateActualValues(dto.getActualSets(), dto.getActualReps(), dto.getActualWeight());
+
+        ExecutionLogsEditBuffer.PendingEdit pending = editBuffer.get(id);
+        if (pending != null && pending.getUsername().equals(username)) {
+            // A completion drains the entry before it commits, so an entry found under the lock is still open
+            ExecutionLogsResponseDto merged = editBuffer.whileOpen(pending.getSessionLogId(),
+                    () -> editBuffer.get(id) == pending ? editBuffer.merge(id, username, pending.getCommitted(), dto) : null);
+            if (merged != null) {
+                return merged;
+            }
+        }
+        return bufferFirstEdit(id, dto, username);
+    }
+
+    private ExecutionLogsResponseDto bufferFirstEdit(UUID id, ExecutionLogsUpdateDto dto, String username) {
+        // No transaction here, so the log comes with everything the buffered copy needs
+        ExecutionLogs executionLog = checkOwnership(executionLogsRepository.findDetailedById(id), username);
+        UUID sessionLogId = executionLog.getSessionLog().getId();
+        return editBuffer.whileOpen(sessionLogId, () -> {
+            // Checked under the lock: a completion committed after the load would otherwise swallow the edit
+            if (!sessionLogsRepository.existsByIdAndStatus(sessionLogId, SessionLogs.LogStatus.InProgress)) {
+                throw new IllegalArgumentException("Cannot update exercises in a completed training");
+            }
+            return editBuffer.merge(id, username, mapToResponseDto(executionLog), dto);
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${fitness.execution-logs.write-behind.flush-interval:PT2S}")
+    public void flushPendingEdits() {
+        flushPendingEdits(null);
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flushPendingEdits(null);
+    }
+
+    /**
+     * Writes the buffered edits, all of them or those of one session log,
+     * in a single transaction. On failure they go back into the buffer for
+     * the next attempt.
+     */
+    public void flushPendingEdits(UUID sessionLogId) {
+        if (editBuffer.isEmpty()) {
+            return;
+        }
+        Map<UUID, ExecutionLogsEditBuffer.PendingEdit> edits = editBuffer.drain(sessionLogId);
+        if (edits.isEmpty()) {
+            return;
+        }
+        try {
+            optimisticRetry.run(null, () -> writeEdits(edits));
+        } catch (RuntimeException e) {
+            editBuffer.restore(edits);
+            throw e;
+        }
+    }
+
+    private int writeEdits(Map<UUID, ExecutionLogsEditBuffer.PendingEdit> edits) {
+        List<ExecutionLogs> executionLogs = new ArrayList<>();
+        List<ExecutionLogsChangeDto> changes = new ArrayList<>();
+        for (ExecutionLogs executionLog : executionLogsRepository.findAllById(edits.keySet())) {
+            // Completion flushes with the buffer closed for its session log; an edit still left is skipped
+            if (executionLog.getSessionLog().getStatus() == SessionLogs.LogStatus.Completed) {
+                continue;
+            }
+            ExecutionLogsChangeDto change = applyChanges(executionLog, edits.get(executionLog.getId()).getEdit());
+            if (!change.getChanges().isEmpty()) {
+                executionLogs.add(executionLog);
+                changes.add(change);
+            }
+        }
+        List<ExecutionLogs> saved = executionLogsRepository.saveAllAndFlush(executionLogs);
+        for (int i = 0; i < saved.size(); i++) {
+            publishChange(changes.get(i), saved.get(i));
+        }
+        return saved.size();
+    }
+
+    private ExecutionLogsChangeDto applyChanges(ExecutionLogs executionLog, ExecutionLogsUpdateDto dto) {
+        ExecutionLogsChangeDto change = new ExecutionLogsChangeDto();
+        Map<String, Object> changes = change.getChanges();
+        if (dto.getActualSets() != null && !dto.getActualSets().equals(executionLog.getActualSets())) {
             executionLog.setActualSets(dto.getActualSets());
+            changes.put("actualSets", dto.getActualSets());
         }
-        if (dto.getActualReps() != null) {
+        if (dto.getActualReps() != null && !dto.getActualReps().equals(executionLog.getActualReps())) {
             executionLog.setActualReps(dto.getActualReps());
+            changes.put("actualReps", dto.getActualReps());
         }
-        if (dto.getActualWeight() != null) {
+        if (dto.getActualWeight() != null && !dto.getActualWeight().equals(executionLog.getActualWeight())) {
             executionLog.setActualWeight(dto.getActualWeight());
+            changes.put("actualWeight", dto.getActualWeight());
         }
-        if (dto.getCompleted() != null) {
+        if (dto.getCompleted() != null && !dto.getCompleted().equals(executionLog.getCompleted())) {
             executionLog.setCompleted(dto.getCompleted());
+            changes.put("completed", dto.getCompleted());
         }
-        if (dto.getNotes() != null) {
+        if (dto.getNotes() != null && !dto.getNotes().equals(executionLog.getNotes())) {
             executionLog.setNotes(dto.getNotes());
+            changes.put("notes", dto.getNotes());
         }
-        ExecutionLogs updated = executionLogsRepository.save(executionLog);
-        return mapToResponseDto(updated);
+        return change;
+    }
+
+    // Delivered to live streams only once the surrounding transaction commits
+    private void publishChange(ExecutionLogsChangeDto change, ExecutionLogs updated) {
+        if (change.getChanges().isEmpty()) {
+            return;
+        }
+        change.setId(updated.getId());
+        change.setSessionLogId(updated.getSessionLog().getId());
+        change.setVersion(updated.getVersion());
+        eventPublisher.publishEvent(change);
     }
 
+    @Transactional
     public void deleteExecutionLog(UUID id, String username) {
         ExecutionLogs executionLog = getExecutionLogWithOwnershipCheck(id, username);
 
@@ -112,11 +361,13 @@ public class ExecutionLogsService {
         }
 
         executionLogsRepository.deleteById(id);
+        editBuffer.discard(id);
     }
 
     private ExecutionLogsResponseDto mapToResponseDto(ExecutionLogs executionLog) {
         ExecutionLogsResponseDto dto = new ExecutionLogsResponseDto();
         dto.setId(executionLog.getId());
+        dto.setVersion(executionLog.getVersion());
         dto.setExerciseExecutionId(executionLog.getExerciseExecutionId());
         dto.setExerciseExecutionPlannedSets(executionLog.getExerciseExecutionPlannedSets());
         dto.setExerciseExecutionPlannedReps(executionLog.getExerciseExecutionPlannedReps());
@@ -129,9 +380,10 @@ public class ExecutionLogsService {
         dto.setActualSets(executionLog.getActualSets());
         dto.setActualReps(executionLog.getActualReps());
         dto.setActualWeight(executionLog.getActualWeight());
+        dto.setSets(executionLog.getSets());
         dto.setCompleted(executionLog.getCompleted());
         dto.setNotes(executionLog.getNotes());
         dto.setSessionLogId(executionLog.getSessionLog().getId());
-        return dto;
+        return editBuffer.overlay(dto);
     }
 }
@@ -1,14 +1,18 @@
 package hs.aalen.fitness_tracker_backend.exerciseexecutions.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import jakarta.validation.Valid;
+import hs.aalen.fitness_tracker_backend.exerciseexecutions.dto.ExerciseExecutionsBulkCreateDto;
 import hs.aalen.fitness_tracker_backend.exerciseexecutions.dto.ExerciseExecutionsCreateDto;
+import hs.aalen.fitness_tracker_backend.exerciseexecutions.dto.ExerciseExecutionsReorderDto;
 import hs.aalen.fitness_tracker_backend.exerciseexecutions.dto.ExerciseExecutionsResponseDto;
 import hs.aalen.fitness_tracker_backend.exerciseexecutions.dto.ExerciseExecutionsUpdateDto;
 import hs.aalen.fitness_tracker_backend.exerciseexecutions.service.ExerciseExecutionsService;
+import hs.aalen.fitness_tracker_backend.shared.Versions;
 import java.util.List;
 import java.util.UUID;
 
@@ -25,6 +29,13 @@ public class ExerciseExecutionsController {
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
 
+    @PostMapping("/bulk")
+    public ResponseEntity<List<ExerciseExecutionsResponseDto>> createExerciseExecutions(
+            @Valid @RequestBody ExerciseExecutionsBulkCreateDto dto) {
+        List<ExerciseExecutionsResponseDto> response = exerciseExecutionsService.createExerciseExecutions(dto);
+        return new ResponseEntity<>(response, HttpStatus.CREATED);
+    }
+
     @GetMapping
     public ResponseEntity<List<ExerciseExecutionsResponseDto>> getAllExerciseExecutions(
             @RequestParam(required = false) UUID sessionId) {
@@ -40,14 +51,23 @@ public class ExerciseExecutionsController {
     @GetMapping("/{id}")
     public ResponseEntity<ExerciseExecutionsResponseDto> getExerciseExecutionById(@PathVariable UUID id) {
         ExerciseExecutionsResponseDto response = exerciseExecutionsService.getExerciseExecutionById(id);
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok().eTag(String.valueOf(response.getVersion())).body(response);
     }
 
     @PutMapping("/{id}")
     public ResponseEntity<ExerciseExecutionsResponseDto> updateExerciseExecution(
             @PathVariable UUID id,
-            @Valid @RequestBody ExerciseExecutionsUpdateDto dto) {
-        ExerciseExecutionsResponseDto response = exerciseExecutionsService.updateExerciseExecution(id, dto);
+            @Valid @RequestBody ExerciseExecutionsUpdateDto dto,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        ExerciseExecutionsResponseDto response = exerciseExecutionsService.updateExerciseExecution(
+                id, dto, Versions.fromIfMatch(ifMatch));
+        return ResponseEntity.ok().eTag(String.valueOf(response.getVersion())).body(response);
+    }
+
+    @PutMapping("/reorder")
+    public ResponseEntity<List<ExerciseExecutionsResponseDto>> reorderExerciseExecutions(
+            @Valid @RequestBody ExerciseExecutionsReorderDto dto) {
+        List<ExerciseExecutionsResponseDto> response = exerciseExecutionsService.reorderExerciseExecutions(dto);
         return ResponseEntity.ok(response);
     }
 
@@ -0,0 +1,22 @@
+package hs.aalen.fitness_tracker_backend.exerciseexecutions.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import java.util.List;
+import java.util.UUID;
+
+@Getter
+@Setter
+public class ExerciseExecutionsBulkCreateDto {
+
+    @NotNull(message = "Session ID is required")
+    private UUID sessionId;
+
+    // Applied in list order, so later entries see the positions of earlier ones
+    @NotEmpty(message = "Executions are required")
+    @Valid
+    private List<ExerciseExecutionsNestedCreateDto> executions;
+}
@@ -0,0 +1,20 @@
+package hs.aalen.fitness_tracker_backend.exerciseexecutions.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import java.util.List;
+import java.util.UUID;
+
+@Getter
+@Setter
+public class ExerciseExecutionsReorderDto {
+
+    @NotNull(message = "Session ID is required")
+    private UUID sessionId;
+
+    // Complete new order of the session, first entry gets order 1
+    @NotEmpty(message = "Execution IDs are required")
+    private List<UUID> executionIds;
+}
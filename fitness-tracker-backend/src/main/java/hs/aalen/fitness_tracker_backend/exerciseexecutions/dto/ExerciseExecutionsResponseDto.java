@@ -8,6 +8,7 @@ import java.util.UUID;
 @Setter
 public class ExerciseExecutionsResponseDto {
     private UUID id;
+    private Long version;
     private Integer plannedSets;
     private Integer plannedReps;
     private Integer plannedWeight;
@@ -3,25 +3,37 @@ package hs.aalen.fitness_tracker_backend.exerciseexecutions.model;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.util.UUID;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import hs.aalen.fitness_tracker_backend.exercises.model.Exercises;
 import hs.aalen.fitness_tracker_backend.sessions.model.Sessions;
+import hs.aalen.fitness_tracker_backend.shared.RankKeys;
 
 @Entity
 @Getter
 @Setter
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "exerciseExecutions")
 @Table(uniqueConstraints = {
-        @UniqueConstraint(columnNames = { "session_id", "exercise_id" })
+        @UniqueConstraint(name = ExerciseExecutions.UNIQUE_SESSION_EXERCISE, columnNames = { "session_id", "exercise_id" }),
+        @UniqueConstraint(name = ExerciseExecutions.UNIQUE_SESSION_ORDER, columnNames = { "session_id", "rankKey" })
 })
 public class ExerciseExecutions {
+    public static final String UNIQUE_SESSION_EXERCISE = "uk_exercise_executions_session_exercise";
+    public static final String UNIQUE_SESSION_ORDER = "uk_exercise_executions_session_order";
 
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
 
+    @Version
+    private Long version;
+
     @Column(nullable = false)
     private Integer plannedSets;
 
@@ -31,7 +43,13 @@ public class ExerciseExecutions {
     @Column(nullable = false)
     private Integer plannedWeight;
 
+    // Sparse sort key within the session, see RankKeys
     @Column(nullable = false)
+    @JsonIgnore
+    private Long rankKey = RankKeys.GAP;
+
+    // Set together with the session's position when a plan is serialized
+    @Transient
     private Integer orderID;
 
     @ManyToOne
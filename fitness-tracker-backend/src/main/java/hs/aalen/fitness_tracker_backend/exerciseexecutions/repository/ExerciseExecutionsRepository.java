@@ -1,15 +1,48 @@
 package hs.aalen.fitness_tracker_backend.exerciseexecutions.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import hs.aalen.fitness_tracker_backend.exerciseexecutions.model.ExerciseExecutions;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 @Repository
+@Transactional(readOnly = true)
 public interface ExerciseExecutionsRepository extends JpaRepository<ExerciseExecutions, UUID> {
 
-    List<ExerciseExecutions> findBySessionIdOrderByOrderID(UUID sessionId);
+    List<ExerciseExecutions> findBySessionIdOrderByRankKey(UUID sessionId);
 
     List<ExerciseExecutions> findByExerciseId(UUID exerciseId);
-}
\ No newline at end of file
+
+    boolean existsBySessionIdAndExerciseId(UUID sessionId, UUID exerciseId);
+
+    boolean existsBySessionIdAndExerciseIdAndIdNot(UUID sessionId, UUID exerciseId, UUID id);
+
+    @Query("select e.exercise.id from ExerciseExecutions e where e.session.id = :sessionId")
+    Set<UUID> findExerciseIdsBySessionId(@Param("sessionId") UUID sessionId);
+
+    @Query("select e.rankKey from ExerciseExecutions e where e.session.id = :sessionId and (:excludeId is null or e.id <> :excludeId) order by e.rankKey")
+    List<Long> findRankKeysBySessionId(@Param("sessionId") UUID sessionId, @Param("excludeId") UUID excludeId);
+
+    // Copies the executions of every session of a plan onto the same-named sessions of the target plan
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "exercise_executions"))
+    @Query(value = "insert into exercise_executions "
+            + "(id, version, planned_sets, planned_reps, planned_weight, rank_key, exercise_id, session_id) "
+            + "select random_uuid(), 0, e.planned_sets, e.planned_reps, e.planned_weight, e.rank_key, e.exercise_id, copy.id "
+            + "from exercise_executions e "
+            + "join sessions source on source.id = e.session_id "
+            + "join sessions copy on copy.plan_id = :targetPlanId and copy.name = source.name "
+            + "where source.plan_id = :sourcePlanId",
+            nativeQuery = true)
+    int copyExecutionsOfPlan(@Param("sourcePlanId") UUID sourcePlanId, @Param("targetPlanId") UUID targetPlanId);
+}
@@ -1,16 +1,38 @@
 package hs.aalen.fitness_tracker_backend.exerciseexecutions.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import hs.aalen.fitness_tracker_backend.exerciseexecutions.dto.ExerciseExecutionsBulkCreateDto;
 import hs.aalen.fitness_tracker_backend.exerciseexecutions.dto.ExerciseExecutionsCreateDto;
+import hs.aalen.fitness_tracker_backend.exerciseexecutions.dto.ExerciseExecutionsNestedCreateDto;
+import hs.aalen.fitness_tracker_backend.exerciseexecutions.dto.ExerciseExecutionsReorderDto;
 import hs.aalen.fitness_tracker_backend.exerciseexecutions.dto.ExerciseExecutionsResponseDto;
 import hs.aalen.fitness_tracker_backend.exerciseexecutions.dto.ExerciseExecutionsUpdateDto;
 import hs.aalen.fitness_tracker_backend.exerciseexecutions.model.ExerciseExecutions;
 import hs.aalen.fitness_tracker_backend.exerciseexecutions.repository.ExerciseExecutionsRepository;
+import hs.aalen.fitness_tracker_backend.exercises.model.Exercises;
 import hs.aalen.fitness_tracker_backend.exercises.repository.ExercisesRepository;
+import hs.aalen.fitness_tracker_backend.sessions.model.Sessions;
 import hs.aalen.fitness_tracker_backend.sessions.repository.SessionsRepository;
+import hs.aalen.fitness_tracker_backend.shared.OptimisticRetry;
+import hs.aalen.fitness_tracker_backend.shared.RankKeys;
+import hs.aalen.fitness_tracker_backend.shared.Versions;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -21,6 +43,13 @@ public class ExerciseExecutionsService {
     private SessionsRepository sessionsRepository;
     @Autowired
     private ExercisesRepository exercisesRepository;
+    @Autowired
+    private OptimisticRetry optimisticRetry;
+
+    private final Set<UUID> crowdedSessions = ConcurrentHashMap.newKeySet();
+
+    private static final String DUPLICATE_EXERCISE_MESSAGE =
+            "This exercise is already added to this session. Each exercise can only be added once per session.";
 
     private void validatePlannedValues(Integer sets, Integer reps, Integer weight) {
         if (sets == null || sets <= 0) {
@@ -35,74 +64,223 @@ public class ExerciseExecutionsService {
     }
 
     private void checkDuplicateExerciseInSession(UUID sessionId, UUID exerciseId, UUID excludeId) {
-        boolean exists = exerciseExecutionsRepository.findBySessionIdOrderByOrderID(sessionId).stream()
-                .filter(ee -> excludeId == null || !ee.getId().equals(excludeId))
-                .anyMatch(ee -> ee.getExercise().getId().equals(exerciseId));
+        boolean exists = excludeId == null
+                ? exerciseExecutionsRepository.existsBySessionIdAndExerciseId(sessionId, exerciseId)
+                : exerciseExecutionsRepository.existsBySessionIdAndExerciseIdAndIdNot(sessionId, exerciseId, excludeId);
 
         if (exists) {
-            throw new IllegalArgumentException(
-                    "This exercise is already added to this session. Each exercise can only be added once per session.");
+            throw new IllegalArgumentException(DUPLICATE_EXERCISE_MESSAGE);
         }
     }
 
-    private java.util.Optional<ExerciseExecutions> findExecutionWithOrder(UUID sessionId, Integer orderID, UUID excludeId) {
-        return exerciseExecutionsRepository.findBySessionIdOrderByOrderID(sessionId).stream()
-                .filter(ee -> excludeId == null || !ee.getId().equals(excludeId))
-                .filter(ee -> ee.getOrderID().equals(orderID))
-                .findFirst();
+    // Moves or inserts an execution by writing only its own rank key; returns the position it landed on
+    private int placeAt(ExerciseExecutions execution, UUID sessionId, int position) {
+        List<Long> siblingKeys = exerciseExecutionsRepository.findRankKeysBySessionId(sessionId, execution.getId());
+        OptionalLong rankKey = RankKeys.forInsert(siblingKeys, position);
+        if (rankKey.isEmpty()) {
+            rebalance(sessionId);
+            siblingKeys = exerciseExecutionsRepository.findRankKeysBySessionId(sessionId, execution.getId());
+            rankKey = RankKeys.forInsert(siblingKeys, position);
+        }
+        execution.setRankKey(rankKey.getAsLong());
+        if (RankKeys.isCrowded(siblingKeys, rankKey.getAsLong())) {
+            crowdedSessions.add(sessionId);
+        }
+        return RankKeys.positionOf(siblingKeys, rankKey.getAsLong());
     }
 
-    private void validateOrderNotTaken(UUID sessionId, Integer orderID) {
-        findExecutionWithOrder(sessionId, orderID, null)
-                .ifPresent(ee -> {
-                    throw new IllegalArgumentException(
-                            "Order " + orderID + " is already used in this session");
-                });
+    private void applyOrder(List<ExerciseExecutions> ordered) {
+        List<ExerciseExecutions> moved = new ArrayList<>();
+        for (int i = 0; i < ordered.size(); i++) {
+            if (ordered.get(i).getRankKey() != RankKeys.forPosition(i + 1)) {
+                moved.add(ordered.get(i));
+            }
+        }
+
+        // Park moved rows on free negative keys first so the unique rank constraint holds between batches
+        moved.forEach(execution -> execution.setRankKey(RankKeys.parked(execution.getRankKey())));
+        exerciseExecutionsRepository.saveAllAndFlush(moved);
+
+        for (int i = 0; i < ordered.size(); i++) {
+            ordered.get(i).setRankKey(RankKeys.forPosition(i + 1));
+        }
+        exerciseExecutionsRepository.saveAllAndFlush(moved);
+    }
+
+    // Rank keys for a batch placed in list order, or null when a gap runs out
+    private List<Long> assignRankKeys(UUID sessionId, List<ExerciseExecutionsNestedCreateDto> executionDtos) {
+        List<Long> keys = new ArrayList<>(exerciseExecutionsRepository.findRankKeysBySessionId(sessionId, null));
+        List<Long> assigned = new ArrayList<>();
+        for (ExerciseExecutionsNestedCreateDto executionDto : executionDtos) {
+            int position = executionDto.getOrderID() != null ? executionDto.getOrderID() : Integer.MAX_VALUE;
+            OptionalLong rankKey = RankKeys.forInsert(keys, position);
+            if (rankKey.isEmpty()) {
+                return null;
+            }
+            if (RankKeys.isCrowded(keys, rankKey.getAsLong())) {
+                crowdedSessions.add(sessionId);
+            }
+            keys.add(-Collections.binarySearch(keys, rankKey.getAsLong()) - 1, rankKey.getAsLong());
+            assigned.add(rankKey.getAsLong());
+        }
+        return assigned;
     }
 
+    private void rebalance(UUID sessionId) {
+        applyOrder(exerciseExecutionsRepository.findBySessionIdOrderByRankKey(sessionId));
+    }
+
+    // The checks above are only a fast path; the unique constraints decide concurrent writes
+    private ExerciseExecutions saveChecked(ExerciseExecutions execution, Integer orderID) {
+        try {
+            return exerciseExecutionsRepository.saveAndFlush(execution);
+        } catch (DataIntegrityViolationException e) {
+            throw translateConstraintViolation(e, orderID);
+        }
+    }
+
+    private RuntimeException translateConstraintViolation(DataIntegrityViolationException e, Integer orderID) {
+        String cause = String.valueOf(e.getMostSpecificCause().getMessage()).toLowerCase();
+        if (cause.contains(ExerciseExecutions.UNIQUE_SESSION_ORDER)) {
+            return new IllegalArgumentException(
+                    "Order " + orderID + " is already used in this session");
+        }
+        if (cause.contains(ExerciseExecutions.UNIQUE_SESSION_EXERCISE)) {
+            return new IllegalArgumentException(DUPLICATE_EXERCISE_MESSAGE);
+        }
+        return e;
+    }
+
+    @Transactional
     public ExerciseExecutionsResponseDto createExerciseExecution(ExerciseExecutionsCreateDto dto) {
         validatePlannedValues(dto.getPlannedSets(), dto.getPlannedReps(), dto.getPlannedWeight());
         checkDuplicateExerciseInSession(dto.getSessionId(), dto.getExerciseId(), null);
 
-        if (dto.getOrderID() != null) {
-            validateOrderNotTaken(dto.getSessionId(), dto.getOrderID());
-        }
-
         ExerciseExecutions execution = new ExerciseExecutions();
         execution.setPlannedSets(dto.getPlannedSets());
         execution.setPlannedReps(dto.getPlannedReps());
         execution.setPlannedWeight(dto.getPlannedWeight());
-        execution.setOrderID(dto.getOrderID() != null ? dto.getOrderID() : 0);
 
         execution.setSession(sessionsRepository.findById(dto.getSessionId())
                 .orElseThrow(() -> new RuntimeException("Session not found")));
         execution.setExercise(exercisesRepository.findById(dto.getExerciseId())
                 .orElseThrow(() -> new RuntimeException("Exercise not found")));
-        ExerciseExecutions saved = exerciseExecutionsRepository.save(execution);
-        return mapToResponseDto(saved);
+        // Append to the end when no position is given
+        int orderID = placeAt(execution, dto.getSessionId(),
+                dto.getOrderID() != null ? dto.getOrderID() : Integer.MAX_VALUE);
+        ExerciseExecutions saved = saveChecked(execution, orderID);
+        return mapToResponseDto(saved, orderID);
+    }
+
+    // Resolves and validates the whole batch up front, then inserts it in one JDBC batch
+    @Transactional
+    public List<ExerciseExecutionsResponseDto> createExerciseExecutions(ExerciseExecutionsBulkCreateDto dto) {
+        Sessions session = sessionsRepository.findById(dto.getSessionId())
+                .orElseThrow(() -> new RuntimeException("Session not found"));
+
+        Set<UUID> requestedExerciseIds = dto.getExecutions().stream()
+                .map(ExerciseExecutionsNestedCreateDto::getExerciseId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Map<UUID, Exercises> exercises = exercisesRepository.findAllById(requestedExerciseIds).stream()
+                .collect(Collectors.toMap(Exercises::getId, Function.identity()));
+        List<String> missing = requestedExerciseIds.stream()
+                .filter(exerciseId -> !exercises.containsKey(exerciseId))
+                .map(UUID::toString)
+                .toList();
+        if (!missing.isEmpty()) {
+            throw new RuntimeException("Exercise not found: " + String.join(", ", missing));
+        }
+
+        Set<UUID> usedExerciseIds = new HashSet<>(
+                exerciseExecutionsRepository.findExerciseIdsBySessionId(dto.getSessionId()));
+        for (ExerciseExecutionsNestedCreateDto executionDto : dto.getExecutions()) {
+            validatePlannedValues(
+                    executionDto.getPlannedSets(), executionDto.getPlannedReps(), executionDto.getPlannedWeight());
+            if (!usedExerciseIds.add(executionDto.getExerciseId())) {
+                throw new IllegalArgumentException(DUPLICATE_EXERCISE_MESSAGE);
+            }
+        }
+
+        List<Long> rankKeys = assignRankKeys(dto.getSessionId(), dto.getExecutions());
+        if (rankKeys == null) {
+            rebalance(dto.getSessionId());
+            rankKeys = assignRankKeys(dto.getSessionId(), dto.getExecutions());
+        }
+        if (rankKeys == null) {
+            throw new IllegalArgumentException("Too many exercises inserted at the same position");
+        }
+
+        List<ExerciseExecutions> executions = new ArrayList<>();
+        for (int i = 0; i < dto.getExecutions().size(); i++) {
+            ExerciseExecutionsNestedCreateDto executionDto = dto.getExecutions().get(i);
+            ExerciseExecutions execution = new ExerciseExecutions();
+            execution.setPlannedSets(executionDto.getPlannedSets());
+            execution.setPlannedReps(executionDto.getPlannedReps());
+            execution.setPlannedWeight(executionDto.getPlannedWeight());
+            execution.setRankKey(rankKeys.get(i));
+            execution.setSession(session);
+            execution.setExercise(exercises.get(executionDto.getExerciseId()));
+            executions.add(execution);
+        }
+
+        try {
+            exerciseExecutionsRepository.saveAllAndFlush(executions);
+        } catch (DataIntegrityViolationException e) {
+            throw translateConstraintViolation(e, dto.getExecutions().get(0).getOrderID());
+        }
+        List<Long> sessionKeys = exerciseExecutionsRepository.findRankKeysBySessionId(dto.getSessionId(), null);
+        return executions.stream()
+                .map(execution -> mapToResponseDto(execution, RankKeys.positionOf(sessionKeys, execution.getRankKey())))
+                .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public List<ExerciseExecutionsResponseDto> getAllExerciseExecutions() {
-        return exerciseExecutionsRepository.findAll().stream()
-                .map(this::mapToResponseDto)
+        List<ExerciseExecutions> executions = exerciseExecutionsRepository.findAll();
+
+        // Every execution is listed, so one sort by rank gives all positions
+        Map<UUID, Integer> positions = new HashMap<>();
+        Map<UUID, Integer> executionsPerSession = new HashMap<>();
+        executions.stream()
+                .sorted(Comparator.comparing(ExerciseExecutions::getRankKey))
+                .forEach(execution -> positions.put(execution.getId(),
+                        executionsPerSession.merge(execution.getSession().getId(), 1, Integer::sum)));
+
+        return executions.stream()
+                .map(execution -> mapToResponseDto(execution, positions.get(execution.getId())))
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public ExerciseExecutionsResponseDto getExerciseExecutionById(UUID id) {
         ExerciseExecutions execution = exerciseExecutionsRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("ExerciseExecution not found"));
-        return mapToResponseDto(execution);
+        return mapToResponseDto(execution, positionInSession(execution));
     }
 
+    @Transactional(readOnly = true)
     public List<ExerciseExecutionsResponseDto> getExerciseExecutionsBySessionId(UUID sessionId) {
-        return exerciseExecutionsRepository.findBySessionIdOrderByOrderID(sessionId).stream()
-                .map(this::mapToResponseDto)
-                .collect(Collectors.toList());
+        List<ExerciseExecutions> executions = exerciseExecutionsRepository.findBySessionIdOrderByRankKey(sessionId);
+        List<ExerciseExecutionsResponseDto> response = new ArrayList<>();
+        for (int i = 0; i < executions.size(); i++) {
+            response.add(mapToResponseDto(executions.get(i), i + 1));
+        }
+        return response;
     }
 
     public ExerciseExecutionsResponseDto updateExerciseExecution(UUID id, ExerciseExecutionsUpdateDto dto) {
+        return updateExerciseExecution(id, dto, null);
+    }
+
+    public ExerciseExecutionsResponseDto updateExerciseExecution(
+            UUID id, ExerciseExecutionsUpdateDto dto, Long expectedVersion) {
+        return optimisticRetry.run(expectedVersion, () -> applyUpdate(id, dto, expectedVersion));
+    }
+
+    private ExerciseExecutionsResponseDto applyUpdate(UUID id, ExerciseExecutionsUpdateDto dto, Long expectedVersion) {
         ExerciseExecutions execution = exerciseExecutionsRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("ExerciseExecution not found"));
+        Versions.checkIfMatch(expectedVersion, execution.getVersion(), "Exercise execution");
 
         Integer newSets = dto.getPlannedSets() != null ? dto.getPlannedSets() : execution.getPlannedSets();
         Integer newReps = dto.getPlannedReps() != null ? dto.getPlannedReps() : execution.getPlannedReps();
@@ -120,21 +298,13 @@ public class ExerciseExecutionsService {
             execution.setPlannedWeight(dto.getPlannedWeight());
         }
 
-        // Preserve unique ordering by swapping instead of rejecting
-        if (dto.getOrderID() != null) {
-            Integer oldOrder = execution.getOrderID();
-            Integer newOrder = dto.getOrderID();
-
-            if (!oldOrder.equals(newOrder)) {
-                java.util.Optional<ExerciseExecutions> executionWithTargetOrder =
-                        findExecutionWithOrder(execution.getSession().getId(), newOrder, id);
-                if (executionWithTargetOrder.isPresent()) {
-                    ExerciseExecutions otherExecution = executionWithTargetOrder.get();
-                    otherExecution.setOrderID(oldOrder);
-                    exerciseExecutionsRepository.save(otherExecution);
-                }
+        // Moving only rewrites this row's rank key, the neighbours keep theirs
+        Integer orderID = positionInSession(execution);
+        if (dto.getOrderID() != null && !dto.getOrderID().equals(orderID)) {
+            if (dto.getOrderID() < 1) {
+                throw new IllegalArgumentException("Order must be greater than 0");
             }
-            execution.setOrderID(newOrder);
+            orderID = placeAt(execution, execution.getSession().getId(), dto.getOrderID());
         }
 
         if (dto.getExerciseId() != null) {
@@ -146,21 +316,66 @@ public class ExerciseExecutionsService {
             execution.setExercise(exercisesRepository.findById(dto.getExerciseId())
                     .orElseThrow(() -> new RuntimeException("Exercise not found")));
         }
-        ExerciseExecutions updated = exerciseExecutionsRepository.save(execution);
-        return mapToResponseDto(updated);
+        ExerciseExecutions updated = saveChecked(execution, orderID);
+        return mapToResponseDto(updated, orderID);
+    }
+
+    private Integer positionInSession(ExerciseExecutions execution) {
+        List<Long> sessionKeys = exerciseExecutionsRepository.findRankKeysBySessionId(execution.getSession().getId(), null);
+        return RankKeys.positionOf(sessionKeys, execution.getRankKey());
+    }
+
+    @Transactional
+    public List<ExerciseExecutionsResponseDto> reorderExerciseExecutions(ExerciseExecutionsReorderDto dto) {
+        if (!sessionsRepository.existsById(dto.getSessionId())) {
+            throw new RuntimeException("Session not found");
+        }
+
+        Map<UUID, ExerciseExecutions> executionsById = exerciseExecutionsRepository
+                .findBySessionIdOrderByRankKey(dto.getSessionId()).stream()
+                .collect(Collectors.toMap(ExerciseExecutions::getId, Function.identity()));
+
+        List<UUID> orderedIds = dto.getExecutionIds();
+        if (orderedIds.size() != executionsById.size()
+                || !new HashSet<>(orderedIds).equals(executionsById.keySet())) {
+            throw new IllegalArgumentException(
+                    "Reorder must list every exercise execution of the session exactly once");
+        }
+
+        List<ExerciseExecutions> reordered = orderedIds.stream()
+                .map(executionsById::get)
+                .toList();
+        applyOrder(reordered);
+
+        List<ExerciseExecutionsResponseDto> response = new ArrayList<>();
+        for (int i = 0; i < reordered.size(); i++) {
+            response.add(mapToResponseDto(reordered.get(i), i + 1));
+        }
+        return response;
+    }
+
+    // Spreads the rank keys of sessions whose gaps ran low during single-row moves
+    @Scheduled(fixedDelayString = "${fitness.ordering.rebalance-interval:PT5M}")
+    @Transactional
+    public void rebalanceCrowdedSessions() {
+        for (UUID sessionId : List.copyOf(crowdedSessions)) {
+            crowdedSessions.remove(sessionId);
+            rebalance(sessionId);
+        }
     }
 
     public void deleteExerciseExecution(UUID id) {
         exerciseExecutionsRepository.deleteById(id);
     }
 
-    private ExerciseExecutionsResponseDto mapToResponseDto(ExerciseExecutions execution) {
+    private ExerciseExecutionsResponseDto mapToResponseDto(ExerciseExecutions execution, Integer orderID) {
         ExerciseExecutionsResponseDto dto = new ExerciseExecutionsResponseDto();
         dto.setId(execution.getId());
+        dto.setVersion(execution.getVersion());
         dto.setPlannedSets(execution.getPlannedSets());
         dto.setPlannedReps(execution.getPlannedReps());
         dto.setPlannedWeight(execution.getPlannedWeight());
-        dto.setOrderID(execution.getOrderID());
+        dto.setOrderID(orderID);
         dto.setSessionId(execution.getSession().getId());
         dto.setSessionName(execution.getSession().getName());
         dto.setExerciseId(execution.getExercise().getId());
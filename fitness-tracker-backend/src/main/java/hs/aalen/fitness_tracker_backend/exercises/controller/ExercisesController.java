@@ -1,7 +1,9 @@
 package hs.aalen.fitness_tracker_backend.exercises.controller;
 
+import hs.aalen.fitness_tracker_backend.exercises.dto.ExerciseAlternativeResponseDto;
 import hs.aalen.fitness_tracker_backend.exercises.dto.ExerciseCreateDto;
 import hs.aalen.fitness_tracker_backend.exercises.dto.ExerciseResponseDto;
+import hs.aalen.fitness_tracker_backend.exercises.dto.ExerciseSearchResponseDto;
 import hs.aalen.fitness_tracker_backend.exercises.dto.ExercisesUpdateDto;
 import hs.aalen.fitness_tracker_backend.exercises.service.ExercisesService;
 import jakarta.persistence.EntityNotFoundException;
@@ -14,11 +16,14 @@ import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import hs.aalen.fitness_tracker_backend.exercises.model.Exercises;
+import hs.aalen.fitness_tracker_backend.exercises.model.MuscleGroup;
 
 @RestController
 @RequestMapping("/api/v1/exercises")
 public class ExercisesController {
 
+    private static final int MAX_SEARCH_LIMIT = 50;
+
     private final ExercisesService service;
 
     public ExercisesController(ExercisesService service) {
@@ -26,8 +31,11 @@ public class ExercisesController {
     }
 
     @GetMapping
-    public List<ExerciseResponseDto> getAllExercises() {
-        return service.getAll();
+    public List<ExerciseResponseDto> getAllExercises(@RequestParam(required = false) List<String> muscleGroups) {
+        if (muscleGroups == null || muscleGroups.isEmpty()) {
+            return service.getAll();
+        }
+        return service.getByMuscleGroups(muscleGroups);
     }
 
     @GetMapping("/categories")
@@ -38,6 +46,21 @@ public class ExercisesController {
                 .collect(Collectors.toList());
     }
 
+    @GetMapping("/muscle-groups")
+    public List<String> getAvailableMuscleGroups() {
+        return Arrays.stream(MuscleGroup.values())
+                .map(Enum::name)
+                .collect(Collectors.toList());
+    }
+
+    @GetMapping("/search")
+    public ExerciseSearchResponseDto searchExercises(
+            @RequestParam(name = "q") String query,
+            @RequestParam(required = false) String category,
+            @RequestParam(defaultValue = "10") int limit) {
+        return service.search(query, category, Math.min(limit, MAX_SEARCH_LIMIT));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ExerciseResponseDto> getExerciseById(@PathVariable UUID id) {
         try {
@@ -47,6 +70,15 @@ public class ExercisesController {
         }
     }
 
+    @GetMapping("/{id}/alternatives")
+    public ResponseEntity<List<ExerciseAlternativeResponseDto>> getExerciseAlternatives(@PathVariable UUID id) {
+        try {
+            return ResponseEntity.ok(service.getAlternatives(id));
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+    }
+
     @PostMapping
     public ResponseEntity<?> createExercise(@Valid @RequestBody ExerciseCreateDto dto) {
         try {
@@ -0,0 +1,9 @@
+package hs.aalen.fitness_tracker_backend.exercises.dto;
+
+import lombok.Data;
+
+@Data
+public class ExerciseAlternativeResponseDto {
+    private ExerciseResponseDto exercise;
+    private double similarity;
+}
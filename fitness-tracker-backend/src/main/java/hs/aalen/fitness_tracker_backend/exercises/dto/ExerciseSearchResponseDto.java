@@ -0,0 +1,12 @@
+package hs.aalen.fitness_tracker_backend.exercises.dto;
+
+import lombok.Data;
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class ExerciseSearchResponseDto {
+    private List<ExerciseResponseDto> exercises = List.of();
+    private Map<String, Integer> categories = Map.of();
+    private int total;
+}
@@ -0,0 +1,39 @@
+package hs.aalen.fitness_tracker_backend.exercises.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import java.util.UUID;
+
+/**
+ * One precomputed neighbour of an exercise. Each exercise keeps its best
+ * few alternatives ranked from 1, so serving them is a single indexed read.
+ * The alternative has no foreign key: rows of a deleted exercise are
+ * replaced in the same transaction anyway.
+ */
+@Entity
+@Getter
+@Setter
+@Table(indexes = {
+        @Index(name = "idx_exercise_alternatives_exercise_rank", columnList = "exercise_id, rank"),
+        @Index(name = "idx_exercise_alternatives_alternative", columnList = "alternative_id")
+})
+public class ExerciseAlternatives {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "exercise_id", nullable = false)
+    private UUID exerciseId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "alternative_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private Exercises alternative;
+
+    @Column(nullable = false)
+    private Integer rank;
+
+    @Column(nullable = false)
+    private Double similarity;
+}
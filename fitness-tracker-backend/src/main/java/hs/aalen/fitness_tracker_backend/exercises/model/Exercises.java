@@ -1,14 +1,19 @@
 package hs.aalen.fitness_tracker_backend.exercises.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.util.List;
 import java.util.UUID;
 
 @Entity
 @Getter
 @Setter
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "exercises")
 public class Exercises {
 
     @Id
@@ -18,15 +23,24 @@ public class Exercises {
     @Column(nullable = false, unique = true)
     private String name;
 
-    @ElementCollection
-    @CollectionTable(name = "exercise_muscle_groups", joinColumns = @JoinColumn(name = "exercise_id"))
-    private List<String> muscleGroups;
+    // Bitmask of MuscleGroup bits; exposed as a list of names
+    @Column(name = "muscle_groups", nullable = false)
+    @JsonIgnore
+    private long muscleGroupMask;
 
     private String description;
 
     @Enumerated(EnumType.STRING)
     private Category category = Category.Unspecified;
 
+    public List<String> getMuscleGroups() {
+        return MuscleGroup.namesOf(muscleGroupMask);
+    }
+
+    public void setMuscleGroups(List<String> muscleGroups) {
+        this.muscleGroupMask = MuscleGroup.toMask(muscleGroups);
+    }
+
     public enum Category {
         Unspecified,
         BodyWeight,
@@ -0,0 +1,79 @@
+package hs.aalen.fitness_tracker_backend.exercises.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Fixed dictionary of muscle groups. Entities store a set of groups as a
+ * bitmask column; the bit of each group is part of the stored data and must
+ * never change, so new groups get the next free bit.
+ */
+public enum MuscleGroup {
+    Chest(0, "pecs", "pectorals"),
+    Back(1, "lats", "traps"),
+    Shoulders(2, "delts", "deltoids"),
+    Biceps(3, "bicep"),
+    Triceps(4, "tricep"),
+    Forearms(5, "forearm"),
+    Core(6, "abs", "abdominals", "obliques"),
+    Glutes(7, "glute"),
+    Quadriceps(8, "quads"),
+    Hamstrings(9, "hamstring"),
+    Calves(10, "calf");
+
+    private final long bit;
+    private final List<String> aliases;
+
+    MuscleGroup(int bitIndex, String... aliases) {
+        this.bit = 1L << bitIndex;
+        this.aliases = List.of(aliases);
+    }
+
+    private static final Map<String, MuscleGroup> BY_NAME = Arrays.stream(values())
+            .flatMap(group -> Stream.concat(Stream.of(group.name()), group.aliases.stream())
+                    .map(name -> Map.entry(key(name), group)))
+            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+
+    public long bit() {
+        return bit;
+    }
+
+    public static MuscleGroup fromString(String value) {
+        MuscleGroup group = value == null ? null : BY_NAME.get(key(value));
+        if (group == null) {
+            throw new IllegalArgumentException("Unknown muscle group: " + value);
+        }
+        return group;
+    }
+
+    public static long toMask(Collection<String> names) {
+        long mask = 0;
+        if (names != null) {
+            for (String name : names) {
+                mask |= fromString(name).bit;
+            }
+        }
+        return mask;
+    }
+
+    // Groups in dictionary order, so equal masks always give equal lists
+    public static List<String> namesOf(long mask) {
+        List<String> names = new ArrayList<>(Long.bitCount(mask));
+        for (MuscleGroup group : values()) {
+            if ((mask & group.bit) != 0) {
+                names.add(group.name());
+            }
+        }
+        return names;
+    }
+
+    private static String key(String name) {
+        return name.replaceAll("[^\\p{Alpha}]", "").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,44 @@
+package hs.aalen.fitness_tracker_backend.exercises.repository;
+
+import hs.aalen.fitness_tracker_backend.exercises.model.ExerciseAlternatives;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+@Repository
+@Transactional(readOnly = true)
+public interface ExerciseAlternativesRepository extends JpaRepository<ExerciseAlternatives, UUID> {
+
+    @EntityGraph(attributePaths = "alternative")
+    List<ExerciseAlternatives> findByExerciseIdOrderByRank(UUID exerciseId);
+
+    @Query("select a.exerciseId from ExerciseAlternatives a where a.alternative.id in :alternativeIds")
+    Set<UUID> findExerciseIdsByAlternativeIdIn(@Param("alternativeIds") Collection<UUID> alternativeIds);
+
+    // Size and weakest similarity of every exercise's list, to tell whether a changed exercise gets in
+    @Query("select a.exerciseId as exerciseId, count(a) as size, min(a.similarity) as weakest "
+            + "from ExerciseAlternatives a group by a.exerciseId")
+    List<ListBounds> findListBounds();
+
+    @Transactional
+    @Modifying
+    @Query("delete from ExerciseAlternatives a where a.exerciseId in :exerciseIds")
+    int deleteByExerciseIdIn(@Param("exerciseIds") Collection<UUID> exerciseIds);
+
+    interface ListBounds {
+        UUID getExerciseId();
+
+        long getSize();
+
+        double getWeakest();
+    }
+}
@@ -2,12 +2,23 @@ package hs.aalen.fitness_tracker_backend.exercises.repository;
 
 import hs.aalen.fitness_tracker_backend.exercises.model.Exercises;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
+@Transactional(readOnly = true)
 public interface ExercisesRepository extends JpaRepository<Exercises, UUID> {
     Optional<Exercises> findByNameIgnoreCase(String name);
+
+    // Exercises training every group in the mask, tested bitwise on the muscle_groups column;
+    // the casts tell the database the parameter type it cannot infer inside bitand
+    @Query("select e from Exercises e "
+            + "where bitand(e.muscleGroupMask, cast(:mask as Long)) = cast(:mask as Long)")
+    List<Exercises> findByAllMuscleGroups(@Param("mask") long mask);
 }
\ No newline at end of file
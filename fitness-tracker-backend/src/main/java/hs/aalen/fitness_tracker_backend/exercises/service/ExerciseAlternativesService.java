@@ -0,0 +1,152 @@
+package hs.aalen.fitness_tracker_backend.exercises.service;
+
+import hs.aalen.fitness_tracker_backend.exercises.model.ExerciseAlternatives;
+import hs.aalen.fitness_tracker_backend.exercises.model.Exercises;
+import hs.aalen.fitness_tracker_backend.exercises.repository.ExerciseAlternativesRepository;
+import hs.aalen.fitness_tracker_backend.exercises.repository.ExercisesRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the precomputed alternatives table in step with the catalog.
+ * Similarity is the overlap of the muscle group sets (shared groups over
+ * all groups of the pair), scaled down when the categories differ. A
+ * catalog change only recomputes the lists it can affect: those of the
+ * changed exercises, those that listed one of them, and those it now beats
+ * the weakest entry of.
+ */
+@Service
+public class ExerciseAlternativesService {
+
+    static final double OTHER_CATEGORY_WEIGHT = 0.8;
+    static final double UNSPECIFIED_CATEGORY_WEIGHT = 0.6;
+
+    private final ExerciseAlternativesRepository alternativesRepository;
+    private final ExercisesRepository exercisesRepository;
+
+    @Value("${fitness.exercises.alternatives.size:5}")
+    private int size = 5;
+
+    public ExerciseAlternativesService(ExerciseAlternativesRepository alternativesRepository,
+            ExercisesRepository exercisesRepository) {
+        this.alternativesRepository = alternativesRepository;
+        this.exercisesRepository = exercisesRepository;
+    }
+
+    @Transactional(readOnly = true)
+    public List<ExerciseAlternatives> getAlternatives(UUID exerciseId) {
+        return alternativesRepository.findByExerciseIdOrderByRank(exerciseId);
+    }
+
+    // Fills the table on first start; later starts find it in step already
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void initialize() {
+        if (alternativesRepository.count() == 0) {
+            refresh(exercisesRepository.findAll().stream().map(Exercises::getId).toList());
+        }
+    }
+
+    /**
+     * Recomputes the lists affected by created, updated or deleted
+     * exercises. Must run in the transaction that changed them, after the
+     * change, so the table commits together with the catalog.
+     */
+    @Transactional
+    public void refresh(Collection<UUID> changedIds) {
+        if (changedIds.isEmpty()) {
+            return;
+        }
+        List<Exercises> catalog = exercisesRepository.findAll();
+        Map<UUID, Exercises> byId = catalog.stream()
+                .collect(Collectors.toMap(Exercises::getId, Function.identity()));
+
+        Set<UUID> affected = new HashSet<>(changedIds);
+        affected.addAll(alternativesRepository.findExerciseIdsByAlternativeIdIn(changedIds));
+        List<Exercises> changed = changedIds.stream().map(byId::get).filter(Objects::nonNull).toList();
+        Map<UUID, ExerciseAlternativesRepository.ListBounds> boundsById = alternativesRepository.findListBounds()
+                .stream()
+                .collect(Collectors.toMap(ExerciseAlternativesRepository.ListBounds::getExerciseId,
+                        Function.identity()));
+        for (Exercises exercise : catalog) {
+            if (affected.contains(exercise.getId())) {
+                continue;
+            }
+            ExerciseAlternativesRepository.ListBounds bounds = boundsById.get(exercise.getId());
+            for (Exercises candidate : changed) {
+                double similarity = similarity(exercise, candidate);
+                if (similarity > 0 && (bounds == null || bounds.getSize() < size
+                        || similarity >= bounds.getWeakest())) {
+                    affected.add(exercise.getId());
+                    break;
+                }
+            }
+        }
+
+        alternativesRepository.deleteByExerciseIdIn(affected);
+        List<ExerciseAlternatives> rows = new ArrayList<>();
+        for (UUID id : affected) {
+            Exercises exercise = byId.get(id);
+            if (exercise != null) {
+                rows.addAll(topAlternatives(exercise, catalog));
+            }
+        }
+        alternativesRepository.saveAll(rows);
+    }
+
+    List<ExerciseAlternatives> topAlternatives(Exercises exercise, List<Exercises> catalog) {
+        record Scored(Exercises exercise, double similarity) {
+        }
+        List<Scored> best = catalog.stream()
+                .filter(candidate -> !candidate.getId().equals(exercise.getId()))
+                .map(candidate -> new Scored(candidate, similarity(exercise, candidate)))
+                .filter(scored -> scored.similarity() > 0)
+                .sorted(Comparator.comparingDouble(Scored::similarity).reversed()
+                        .thenComparing(scored -> scored.exercise().getName()))
+                .limit(size)
+                .toList();
+
+        List<ExerciseAlternatives> rows = new ArrayList<>(best.size());
+        for (int i = 0; i < best.size(); i++) {
+            ExerciseAlternatives row = new ExerciseAlternatives();
+            row.setExerciseId(exercise.getId());
+            row.setAlternative(best.get(i).exercise());
+            row.setRank(i + 1);
+            row.setSimilarity(best.get(i).similarity());
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    static double similarity(Exercises a, Exercises b) {
+        long shared = a.getMuscleGroupMask() & b.getMuscleGroupMask();
+        long all = a.getMuscleGroupMask() | b.getMuscleGroupMask();
+        if (shared == 0) {
+            return 0;
+        }
+        double overlap = (double) Long.bitCount(shared) / Long.bitCount(all);
+        return overlap * categoryWeight(a.getCategory(), b.getCategory());
+    }
+
+    static double categoryWeight(Exercises.Category a, Exercises.Category b) {
+        if (a == Exercises.Category.Unspecified || b == Exercises.Category.Unspecified) {
+            return UNSPECIFIED_CATEGORY_WEIGHT;
+        }
+        return a == b ? 1.0 : OTHER_CATEGORY_WEIGHT;
+    }
+}
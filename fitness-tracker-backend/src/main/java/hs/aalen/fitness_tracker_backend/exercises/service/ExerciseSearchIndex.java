@@ -0,0 +1,421 @@
+package hs.aalen.fitness_tracker_backend.exercises.service;
+
+import hs.aalen.fitness_tracker_backend.exercises.dto.ExerciseResponseDto;
+import hs.aalen.fitness_tracker_backend.exercises.dto.ExerciseSearchResponseDto;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index of trigrams over exercise name, muscle groups and
+ * description. Words are padded like "  bench " so one or two typed letters
+ * already hit the word start, and a typo only costs the few trigrams around
+ * it. Searches never touch the database; the service keeps the index in step
+ * with the catalog.
+ */
+@Component
+public class ExerciseSearchIndex {
+
+    static final int NAME_WEIGHT = 3;
+    static final int MUSCLE_GROUP_WEIGHT = 2;
+    static final int DESCRIPTION_WEIGHT = 1;
+
+    // Share of the query's trigrams a match has to contain; shorter queries must match exactly
+    static final double MIN_MATCH_RATIO = 0.4;
+    static final int MIN_FUZZY_GRAMS = 4;
+    // Keeps the per-document match count within the byte the scratch counters reserve for it
+    static final int MAX_QUERY_GRAMS = 64;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Posting> postings = new HashMap<>();
+    private final Map<UUID, Integer> ordinals = new HashMap<>();
+    private final List<Document> documents = new ArrayList<>();
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+    private final List<String> categoryNames = new ArrayList<>();
+    // Category and name length per ordinal, kept apart from the documents so ranking stays in flat arrays
+    private int[] documentCategories = new int[16];
+    private int[] documentNameLengths = new int[16];
+
+    private static final int ANY_CATEGORY = -1;
+    private static final int UNKNOWN_CATEGORY = -2;
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private record Document(ExerciseResponseDto exercise, Map<String, Integer> grams) {
+    }
+
+    /**
+     * Per-thread match counters, reused between searches so a keystroke does
+     * not allocate an array the size of the catalog. Each slot packs the score
+     * above the number of matched trigrams; only touched slots are cleared
+     * again.
+     */
+    private static class Scratch {
+        private int[] hits = new int[0];
+        private int[] candidates = new int[16];
+        private int candidateCount;
+
+        Scratch reset(int capacity) {
+            for (int c = 0; c < candidateCount; c++) {
+                if (candidates[c] < hits.length) {
+                    hits[candidates[c]] = 0;
+                }
+            }
+            candidateCount = 0;
+            if (hits.length < capacity) {
+                hits = new int[capacity];
+            }
+            return this;
+        }
+
+        void hit(int ordinal, int weight) {
+            if (hits[ordinal] == 0) {
+                if (candidateCount == candidates.length) {
+                    candidates = Arrays.copyOf(candidates, candidateCount * 2);
+                }
+                candidates[candidateCount++] = ordinal;
+            }
+            hits[ordinal] += weight << 8 | 1;
+        }
+
+        // Counts towards documents already found, without adding new ones
+        void hitCandidate(int ordinal, int weight) {
+            if (hits[ordinal] != 0) {
+                hits[ordinal] += weight << 8 | 1;
+            }
+        }
+
+        int matches(int ordinal) {
+            return hits[ordinal] & 0xFF;
+        }
+
+        int score(int ordinal) {
+            return hits[ordinal] >>> 8;
+        }
+    }
+
+    /** Documents and weights containing one trigram, in parallel arrays. */
+    private static class Posting {
+        private int[] ordinals = new int[4];
+        private int[] weights = new int[4];
+        private int size;
+
+        void add(int ordinal, int weight) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            ordinals[size] = ordinal;
+            weights[size] = weight;
+            size++;
+        }
+
+        void remove(int ordinal) {
+            for (int i = 0; i < size; i++) {
+                if (ordinals[i] == ordinal) {
+                    size--;
+                    ordinals[i] = ordinals[size];
+                    weights[i] = weights[size];
+                    return;
+                }
+            }
+        }
+    }
+
+    public void replaceAll(Collection<ExerciseResponseDto> exercises) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            ordinals.clear();
+            documents.clear();
+            freeOrdinals.clear();
+            categoryNames.clear();
+            exercises.forEach(this::add);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Adds or replaces an exercise once the surrounding transaction commits. */
+    public void put(ExerciseResponseDto exercise) {
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                delete(exercise.getId());
+                add(exercise);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /** Drops an exercise once the surrounding transaction commits. */
+    public void remove(UUID id) {
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                delete(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ranks the exercises sharing enough trigrams with the query, name hits
+     * first. Category counts cover all matches so the client can offer the
+     * other categories too; the hits respect the category filter.
+     * <p>
+     * A match needs {@code minMatches} of the query's trigrams, so it has to
+     * appear in at least one of the rarest {@code grams - minMatches + 1}
+     * posting lists. Only those lists bring in candidates; the frequent ones,
+     * such as the first letter, just add to candidates already found.
+     */
+    public ExerciseSearchResponseDto search(String query, String category, int limit) {
+        ExerciseSearchResponseDto result = new ExerciseSearchResponseDto();
+        Set<String> queryGrams = queryGrams(query);
+        if (queryGrams.isEmpty()) {
+            return result;
+        }
+        int minMatches = queryGrams.size() < MIN_FUZZY_GRAMS
+                ? queryGrams.size()
+                : (int) Math.ceil(queryGrams.size() * MIN_MATCH_RATIO);
+
+        lock.readLock().lock();
+        try {
+            List<Map.Entry<String, Posting>> present = new ArrayList<>(queryGrams.size());
+            for (String gram : queryGrams) {
+                Posting posting = postings.get(gram);
+                if (posting != null) {
+                    present.add(Map.entry(gram, posting));
+                }
+            }
+            if (present.size() < minMatches) {
+                return result;
+            }
+            present.sort(Comparator.comparingInt(entry -> entry.getValue().size));
+            int scanned = present.size() - minMatches + 1;
+
+            Scratch scratch = SCRATCH.get().reset(documents.size());
+            for (int g = 0; g < present.size(); g++) {
+                Posting posting = present.get(g).getValue();
+                if (g < scanned) {
+                    for (int i = 0; i < posting.size; i++) {
+                        scratch.hit(posting.ordinals[i], posting.weights[i]);
+                    }
+                } else {
+                    for (int i = 0; i < posting.size; i++) {
+                        scratch.hitCandidate(posting.ordinals[i], posting.weights[i]);
+                    }
+                }
+            }
+
+            int filter = category == null ? ANY_CATEGORY : categoryId(category);
+            int[] categoryCounts = new int[categoryNames.size()];
+            long[] top = new long[limit];
+            int topCount = 0;
+            int total = 0;
+            for (int c = 0; c < scratch.candidateCount; c++) {
+                int ordinal = scratch.candidates[c];
+                if (scratch.matches(ordinal) < minMatches) {
+                    continue;
+                }
+                int documentCategory = documentCategories[ordinal];
+                categoryCounts[documentCategory]++;
+                if (filter != ANY_CATEGORY && documentCategory != filter) {
+                    continue;
+                }
+                total++;
+                long key = rankKey(scratch.score(ordinal), documentNameLengths[ordinal], ordinal);
+                if (topCount < limit || key > top[topCount - 1]) {
+                    // Insertion into the short descending list of best keys
+                    int position = Math.min(topCount, limit - 1);
+                    while (position > 0 && top[position - 1] < key) {
+                        top[position] = top[position - 1];
+                        position--;
+                    }
+                    top[position] = key;
+                    topCount = Math.min(topCount + 1, limit);
+                }
+            }
+
+            List<ExerciseResponseDto> hits = new ArrayList<>(topCount);
+            for (int i = 0; i < topCount; i++) {
+                hits.add(documents.get(ordinalOf(top[i])).exercise());
+            }
+            Map<String, Integer> categories = new TreeMap<>();
+            for (int id = 0; id < categoryCounts.length; id++) {
+                if (categoryCounts[id] > 0) {
+                    categories.put(categoryNames.get(id), categoryCounts[id]);
+                }
+            }
+            result.setExercises(hits);
+            result.setCategories(categories);
+            result.setTotal(total);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(ExerciseResponseDto exercise) {
+        Map<String, Integer> grams = new HashMap<>();
+        collectGrams(exercise.getName(), NAME_WEIGHT, grams);
+        if (exercise.getMuscleGroups() != null) {
+            exercise.getMuscleGroups().forEach(group -> collectGrams(group, MUSCLE_GROUP_WEIGHT, grams));
+        }
+        collectGrams(exercise.getDescription(), DESCRIPTION_WEIGHT, grams);
+
+        int category = categoryNames.indexOf(exercise.getCategory());
+        if (category < 0) {
+            category = categoryNames.size();
+            categoryNames.add(exercise.getCategory());
+        }
+        Document document = new Document(exercise, grams);
+
+        int ordinal;
+        if (freeOrdinals.isEmpty()) {
+            ordinal = documents.size();
+            documents.add(document);
+        } else {
+            ordinal = freeOrdinals.pop();
+            documents.set(ordinal, document);
+        }
+        if (ordinal == documentCategories.length) {
+            documentCategories = Arrays.copyOf(documentCategories, ordinal * 2);
+            documentNameLengths = Arrays.copyOf(documentNameLengths, ordinal * 2);
+        }
+        documentCategories[ordinal] = category;
+        documentNameLengths[ordinal] = exercise.getName() == null ? 0 : exercise.getName().length();
+        ordinals.put(exercise.getId(), ordinal);
+        grams.forEach((gram, weight) -> postings.computeIfAbsent(gram, key -> new Posting()).add(ordinal, weight));
+    }
+
+    private void delete(UUID id) {
+        Integer ordinal = ordinals.remove(id);
+        if (ordinal == null) {
+            return;
+        }
+        for (String gram : documents.get(ordinal).grams().keySet()) {
+            Posting posting = postings.get(gram);
+            posting.remove(ordinal);
+            if (posting.size == 0) {
+                postings.remove(gram);
+            }
+        }
+        documents.set(ordinal, null);
+        freeOrdinals.push(ordinal);
+    }
+
+    // Best score first, then the shorter and so more specific name, then catalog order
+    private static long rankKey(int score, int nameLength, int ordinal) {
+        return (long) score << 48 | (long) (0xFFFF - Math.min(nameLength, 0xFFFF)) << 32 | (Integer.MAX_VALUE - ordinal);
+    }
+
+    private static int ordinalOf(long rankKey) {
+        return Integer.MAX_VALUE - (int) rankKey;
+    }
+
+    private int categoryId(String category) {
+        for (int id = 0; id < categoryNames.size(); id++) {
+            if (category.equalsIgnoreCase(categoryNames.get(id))) {
+                return id;
+            }
+        }
+        return UNKNOWN_CATEGORY;
+    }
+
+    // A trigram found in several fields counts with its best weight
+    private void collectGrams(String text, int weight, Map<String, Integer> grams) {
+        for (String word : words(text)) {
+            addTrigrams("  " + word + " ", weight, grams);
+        }
+    }
+
+    private void addTrigrams(String padded, int weight, Map<String, Integer> grams) {
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.merge(padded.substring(i, i + 3), weight, Math::max);
+        }
+    }
+
+    // The last word may still be typed, so it only matches as a prefix
+    static Set<String> queryGrams(String query) {
+        Set<String> grams = new LinkedHashSet<>();
+        List<String> words = words(query);
+        boolean complete = query != null && !query.isEmpty() && Character.isWhitespace(query.charAt(query.length() - 1));
+        for (int i = 0; i < words.size(); i++) {
+            boolean prefix = i == words.size() - 1 && !complete;
+            String padded = "  " + words.get(i) + (prefix ? "" : " ");
+            for (int j = 0; j + 3 <= padded.length() && grams.size() < MAX_QUERY_GRAMS; j++) {
+                grams.add(padded.substring(j, j + 3));
+            }
+        }
+        return grams;
+    }
+
+    static List<String> words(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        // Decomposing splits accents off their letters, which then get dropped below
+        String decomposed = Normalizer.isNormalized(text, Normalizer.Form.NFD)
+                ? text
+                : Normalizer.normalize(text, Normalizer.Form.NFD);
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(c));
+            } else if (!word.isEmpty()) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        if (!word.isEmpty()) {
+            words.add(word.toString());
+        }
+        return words;
+    }
+
+    private void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+}
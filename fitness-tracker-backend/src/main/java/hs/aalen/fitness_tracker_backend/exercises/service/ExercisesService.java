@@ -1,12 +1,18 @@
 package hs.aalen.fitness_tracker_backend.exercises.service;
 
+import hs.aalen.fitness_tracker_backend.exercises.dto.ExerciseAlternativeResponseDto;
 import hs.aalen.fitness_tracker_backend.exercises.dto.ExerciseCreateDto;
 import hs.aalen.fitness_tracker_backend.exercises.dto.ExerciseResponseDto;
+import hs.aalen.fitness_tracker_backend.exercises.dto.ExerciseSearchResponseDto;
 import hs.aalen.fitness_tracker_backend.exercises.dto.ExercisesUpdateDto;
 import hs.aalen.fitness_tracker_backend.exercises.model.Exercises;
+import hs.aalen.fitness_tracker_backend.exercises.model.MuscleGroup;
 import hs.aalen.fitness_tracker_backend.exercises.repository.ExercisesRepository;
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.modelmapper.ModelMapper;
 import java.util.List;
 import java.util.Optional;
@@ -17,14 +23,35 @@ public class ExercisesService {
 
     private final ExercisesRepository repository;
     private final hs.aalen.fitness_tracker_backend.exerciseexecutions.repository.ExerciseExecutionsRepository exerciseExecutionsRepository;
+    private final ExerciseSearchIndex searchIndex;
+    private final ExerciseAlternativesService alternativesService;
     private final ModelMapper mapper = new ModelMapper();
 
     public ExercisesService(ExercisesRepository repository,
-            hs.aalen.fitness_tracker_backend.exerciseexecutions.repository.ExerciseExecutionsRepository exerciseExecutionsRepository) {
+            hs.aalen.fitness_tracker_backend.exerciseexecutions.repository.ExerciseExecutionsRepository exerciseExecutionsRepository,
+            ExerciseSearchIndex searchIndex,
+            ExerciseAlternativesService alternativesService) {
         this.repository = repository;
         this.exerciseExecutionsRepository = exerciseExecutionsRepository;
+        this.searchIndex = searchIndex;
+        this.alternativesService = alternativesService;
     }
 
+    // Runs after the seeder, so the index starts out with the whole catalog
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuildSearchIndex() {
+        searchIndex.replaceAll(getAll());
+    }
+
+    public ExerciseSearchResponseDto search(String query, String category, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be at least 1");
+        }
+        return searchIndex.search(query, category, limit);
+    }
+
+    @Transactional(readOnly = true)
     public List<ExerciseResponseDto> getAll() {
         return repository.findAll()
                 .stream()
@@ -32,23 +59,56 @@ public class ExercisesService {
                 .toList();
     }
 
+    @Transactional(readOnly = true)
+    public List<ExerciseResponseDto> getByMuscleGroups(List<String> muscleGroups) {
+        return repository.findByAllMuscleGroups(MuscleGroup.toMask(muscleGroups))
+                .stream()
+                .map(e -> mapper.map(e, ExerciseResponseDto.class))
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
     public ExerciseResponseDto getById(UUID id) {
         Exercises exercise = repository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Exercise not found"));
         return mapper.map(exercise, ExerciseResponseDto.class);
     }
 
+    @Transactional(readOnly = true)
+    public List<ExerciseAlternativeResponseDto> getAlternatives(UUID id) {
+        if (!repository.existsById(id)) {
+            throw new EntityNotFoundException("Exercise not found");
+        }
+        return alternativesService.getAlternatives(id)
+                .stream()
+                .map(alternative -> {
+                    ExerciseAlternativeResponseDto dto = new ExerciseAlternativeResponseDto();
+                    dto.setExercise(mapper.map(alternative.getAlternative(), ExerciseResponseDto.class));
+                    dto.setSimilarity(alternative.getSimilarity());
+                    return dto;
+                })
+                .toList();
+    }
+
+    @Transactional
     public ExerciseResponseDto create(ExerciseCreateDto dto) {
         if (repository.findByNameIgnoreCase(dto.getName()).isPresent()) {
             throw new IllegalArgumentException("Exercise with this name already exists");
         }
 
+        // Resolved before mapping so unknown groups surface as IllegalArgumentException
+        long muscleGroups = MuscleGroup.toMask(dto.getMuscleGroups());
         Exercises exercise = mapper.map(dto, Exercises.class);
         exercise.setCategory(Exercises.Category.fromString(dto.getCategory()));
+        exercise.setMuscleGroupMask(muscleGroups);
         Exercises saved = repository.save(exercise);
-        return mapper.map(saved, ExerciseResponseDto.class);
+        alternativesService.refresh(List.of(saved.getId()));
+        ExerciseResponseDto created = mapper.map(saved, ExerciseResponseDto.class);
+        searchIndex.put(created);
+        return created;
     }
 
+    @Transactional
     public void delete(UUID id) {
         if (!repository.existsById(id)) {
             throw new EntityNotFoundException("Exercise not found");
@@ -63,8 +123,11 @@ public class ExercisesService {
         }
 
         repository.deleteById(id);
+        alternativesService.refresh(List.of(id));
+        searchIndex.remove(id);
     }
 
+    @Transactional
     public ExerciseResponseDto update(UUID id, ExercisesUpdateDto dto) {
         Exercises existingExercises = repository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Exercise not found"));
@@ -78,6 +141,9 @@ public class ExercisesService {
         existingExercises.setMuscleGroups(dto.getMuscleGroups());
         existingExercises.setDescription(dto.getDescription());
         Exercises saved = repository.save(existingExercises);
-        return mapper.map(saved, ExerciseResponseDto.class);
+        alternativesService.refresh(List.of(id));
+        ExerciseResponseDto updated = mapper.map(saved, ExerciseResponseDto.class);
+        searchIndex.put(updated);
+        return updated;
     }
 }
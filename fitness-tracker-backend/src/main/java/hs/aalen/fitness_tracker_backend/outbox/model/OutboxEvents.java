@@ -0,0 +1,54 @@
+package hs.aalen.fitness_tracker_backend.outbox.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+@Entity
+@Getter
+@Setter
+@Table(indexes = @Index(name = "idx_outbox_events_due", columnList = "status, next_attempt_at"))
+public class OutboxEvents {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(nullable = false)
+    private String type;
+
+    @Column(nullable = false)
+    private UUID aggregateId;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OutboxEvents.Status status = OutboxEvents.Status.Pending;
+
+    @Column(nullable = false)
+    private Instant nextAttemptAt;
+
+    private int attempts;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    private Instant processedAt;
+
+    // Handlers that already ran for this event; they are skipped when a retry comes around
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "outbox_event_handlers", joinColumns = @JoinColumn(name = "event_id"))
+    @Column(name = "handler", nullable = false)
+    private Set<String> completedHandlers = new HashSet<>();
+
+    public enum Status {
+        Pending,
+        Done,
+        Failed
+    }
+}
@@ -0,0 +1,46 @@
+package hs.aalen.fitness_tracker_backend.outbox.repository;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import hs.aalen.fitness_tracker_backend.outbox.model.OutboxEvents;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OutboxEventsRepository extends JpaRepository<OutboxEvents, UUID> {
+
+    // Locks the due rows; a lock timeout of -2 skips rows another poller holds where the database can
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = SpecHints.HINT_SPEC_LOCK_TIMEOUT, value = "-2"))
+    @Query("select e from OutboxEvents e where e.status = :status and e.nextAttemptAt <= :now "
+            + "order by e.createdAt")
+    List<OutboxEvents> lockDue(OutboxEvents.Status status, Instant now, Pageable page);
+
+    @Query("select e.id from OutboxEvents e where e.status = :status and e.processedAt < :cutoff "
+            + "order by e.processedAt")
+    List<UUID> findIdsProcessedBefore(OutboxEvents.Status status, Instant cutoff, Pageable page);
+
+    // A bulk delete skips the element collection, so its rows go first
+    @Transactional
+    @Modifying
+    @Query(value = "delete from outbox_event_handlers where event_id in :ids", nativeQuery = true)
+    int deleteHandlersOf(Collection<UUID> ids);
+
+    @Transactional
+    @Modifying
+    @Query("delete from OutboxEvents e where e.id in :ids")
+    int deleteByIdIn(Collection<UUID> ids);
+
+    long countByStatus(OutboxEvents.Status status);
+}
@@ -0,0 +1,140 @@
+package hs.aalen.fitness_tracker_backend.outbox.service;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+import hs.aalen.fitness_tracker_backend.outbox.model.OutboxEvents;
+import hs.aalen.fitness_tracker_backend.outbox.repository.OutboxEventsRepository;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Polls the outbox and runs the registered handlers of each due event on
+ * the bounded outbox executor. A handler's own writes and the record that
+ * it ran commit together, so a handler never runs twice for one event
+ * once it succeeded. Failed events are retried with exponential backoff
+ * until they run out of attempts. Each poll claims its batch, so several
+ * instances can poll one outbox. Done events are deleted once they are
+ * older than the retention period.
+ */
+@Service
+public class OutboxDispatcher {
+    private final OutboxEventsRepository outboxEventsRepository;
+    private final List<OutboxHandler> handlers;
+    private final TaskExecutor executor;
+    private final TransactionOperations transactions;
+
+    @Value("${fitness.outbox.batch-size:50}")
+    private int batchSize = 50;
+    @Value("${fitness.outbox.max-attempts:5}")
+    private int maxAttempts = 5;
+    @Value("${fitness.outbox.retry-backoff:PT10S}")
+    private Duration retryBackoff = Duration.ofSeconds(10);
+    @Value("${fitness.outbox.claim-timeout:PT5M}")
+    private Duration claimTimeout = Duration.ofMinutes(5);
+    @Value("${fitness.outbox.retention:P7D}")
+    private Duration retention = Duration.ofDays(7);
+
+    public OutboxDispatcher(
+            OutboxEventsRepository outboxEventsRepository,
+            List<OutboxHandler> handlers,
+            @Qualifier("outboxExecutor") TaskExecutor executor,
+            TransactionOperations transactions) {
+        this.outboxEventsRepository = outboxEventsRepository;
+        this.handlers = handlers;
+        this.executor = executor;
+        this.transactions = transactions;
+    }
+
+    // The next poll starts only after the whole batch finished, so an event is never run twice at once
+    @Scheduled(fixedDelayString = "${fitness.outbox.poll-interval:PT1S}")
+    public void dispatchDue() {
+        List<OutboxEvents> due = transactions.execute(status -> claimDue());
+        CompletableFuture.allOf(due.stream()
+                .map(event -> CompletableFuture.runAsync(() -> dispatch(event), executor))
+                .toArray(CompletableFuture[]::new))
+                .join();
+    }
+
+    // Moves each due event's next attempt past the claim timeout before any handler runs: other pollers
+    // skip the locked rows and find them not yet due after the commit. Should this instance die, the
+    // events come due again once the timeout has passed.
+    private List<OutboxEvents> claimDue() {
+        Instant now = Instant.now();
+        List<OutboxEvents> due = outboxEventsRepository.lockDue(
+                OutboxEvents.Status.Pending, now, PageRequest.of(0, batchSize));
+        due.forEach(event -> event.setNextAttemptAt(now.plus(claimTimeout)));
+        return outboxEventsRepository.saveAll(due);
+    }
+
+    // Failed events stay for inspection
+    @Scheduled(fixedDelayString = "${fitness.outbox.purge-interval:PT1H}")
+    public void purgeDone() {
+        Instant cutoff = Instant.now().minus(retention);
+        int purged;
+        do {
+            purged = transactions.execute(status -> {
+                List<UUID> ids = outboxEventsRepository.findIdsProcessedBefore(
+                        OutboxEvents.Status.Done, cutoff, PageRequest.of(0, batchSize));
+                if (ids.isEmpty()) {
+                    return 0;
+                }
+                outboxEventsRepository.deleteHandlersOf(ids);
+                return outboxEventsRepository.deleteByIdIn(ids);
+            });
+        } while (purged == batchSize);
+    }
+
+    void dispatch(OutboxEvents event) {
+        // Each save hands back the merged copy; keep working on that one so the next merge sees its handlers
+        OutboxEvents current = event;
+        RuntimeException failure = null;
+        for (OutboxHandler handler : handlers) {
+            if (!handler.eventType().equals(current.getType())
+                    || current.getCompletedHandlers().contains(handler.name())) {
+                continue;
+            }
+            OutboxEvents target = current;
+            try {
+                current = transactions.execute(status -> {
+                    handler.handle(target);
+                    target.getCompletedHandlers().add(handler.name());
+                    return outboxEventsRepository.save(target);
+                });
+            } catch (RuntimeException e) {
+                target.getCompletedHandlers().remove(handler.name());
+                failure = e;
+            }
+        }
+        finish(current, failure);
+    }
+
+    private void finish(OutboxEvents event, RuntimeException failure) {
+        Instant now = Instant.now();
+        if (failure == null) {
+            event.setStatus(OutboxEvents.Status.Done);
+            event.setProcessedAt(now);
+        } else {
+            int attempts = event.getAttempts() + 1;
+            event.setAttempts(attempts);
+            event.setLastError(abbreviate(String.valueOf(failure.getMessage())));
+            if (attempts >= maxAttempts) {
+                event.setStatus(OutboxEvents.Status.Failed);
+            } else {
+                event.setNextAttemptAt(now.plus(retryBackoff.multipliedBy(1L << (attempts - 1))));
+            }
+        }
+        outboxEventsRepository.save(event);
+    }
+
+    private String abbreviate(String message) {
+        return message.length() <= 1000 ? message : message.substring(0, 1000);
+    }
+}
@@ -0,0 +1,23 @@
+package hs.aalen.fitness_tracker_backend.outbox.service;
+
+import hs.aalen.fitness_tracker_backend.outbox.model.OutboxEvents;
+
+/**
+ * Work derived from a committed change, run by the {@link OutboxDispatcher}
+ * outside the request. Every handler bean for an event type runs once per
+ * event; a handler that throws is retried later without re-running the
+ * handlers that already succeeded.
+ */
+public interface OutboxHandler {
+
+    String eventType();
+
+    void handle(OutboxEvents event);
+
+    /**
+     * Stable name under which successful runs are recorded on the event.
+     */
+    default String name() {
+        return getClass().getSimpleName();
+    }
+}
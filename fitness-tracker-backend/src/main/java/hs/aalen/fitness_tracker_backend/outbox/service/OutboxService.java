@@ -0,0 +1,28 @@
+package hs.aalen.fitness_tracker_backend.outbox.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import hs.aalen.fitness_tracker_backend.outbox.model.OutboxEvents;
+import hs.aalen.fitness_tracker_backend.outbox.repository.OutboxEventsRepository;
+import java.time.Instant;
+import java.util.UUID;
+
+@Service
+public class OutboxService {
+    @Autowired
+    private OutboxEventsRepository outboxEventsRepository;
+
+    // Must join the caller's transaction so the event commits or rolls back with the change itself
+    @Transactional(propagation = Propagation.MANDATORY)
+    public OutboxEvents record(String type, UUID aggregateId) {
+        OutboxEvents event = new OutboxEvents();
+        event.setType(type);
+        event.setAggregateId(aggregateId);
+        Instant now = Instant.now();
+        event.setCreatedAt(now);
+        event.setNextAttemptAt(now);
+        return outboxEventsRepository.save(event);
+    }
+}
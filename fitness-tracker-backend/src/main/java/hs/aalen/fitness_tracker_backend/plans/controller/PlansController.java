@@ -1,13 +1,17 @@
 package hs.aalen.fitness_tracker_backend.plans.controller;
 
+import hs.aalen.fitness_tracker_backend.plans.dto.PlansCopyDto;
 import hs.aalen.fitness_tracker_backend.plans.dto.PlansCreateDto;
+import hs.aalen.fitness_tracker_backend.plans.dto.PlansNestedCreateDto;
 import hs.aalen.fitness_tracker_backend.plans.dto.PlansResponseDto;
 import hs.aalen.fitness_tracker_backend.plans.dto.PlansUpdateDto;
 import hs.aalen.fitness_tracker_backend.plans.service.PlansService;
+import hs.aalen.fitness_tracker_backend.shared.Versions;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import java.util.List;
 import java.util.UUID;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -32,7 +36,10 @@ public class PlansController {
         @PathVariable UUID id
     ) {
         try {
-            return ResponseEntity.ok(service.getById(id));
+            PlansResponseDto plan = service.getById(id);
+            return ResponseEntity.ok()
+                .eTag(String.valueOf(plan.getVersion()))
+                .body(plan);
         } catch (EntityNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
@@ -52,6 +59,41 @@ public class PlansController {
         }
     }
 
+    @PostMapping("/nested")
+    public ResponseEntity<?> createNestedPlan(
+        @Valid @RequestBody PlansNestedCreateDto dto
+    ) {
+        try {
+            PlansResponseDto created = service.createNested(dto);
+            return ResponseEntity.status(HttpStatus.CREATED).body(created);
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                e.getMessage()
+            );
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                e.getMessage()
+            );
+        }
+    }
+
+    @PostMapping("/{id}/copy")
+    public ResponseEntity<?> copyPlan(
+        @PathVariable UUID id,
+        @RequestBody(required = false) PlansCopyDto dto
+    ) {
+        try {
+            PlansResponseDto copied = service.copy(id, dto);
+            return ResponseEntity.status(HttpStatus.CREATED).body(copied);
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                e.getMessage()
+            );
+        }
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteExercise(@PathVariable UUID id) {
         try {
@@ -65,13 +107,23 @@ public class PlansController {
     @PutMapping("/{id}")
     public ResponseEntity<?> updateSession(
         @PathVariable UUID id,
-        @Valid @RequestBody PlansUpdateDto dto
+        @Valid @RequestBody PlansUpdateDto dto,
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) {
         try {
-            PlansResponseDto updated = service.update(id, dto);
-            return ResponseEntity.ok(updated);
+            PlansResponseDto updated = service.update(
+                id,
+                dto,
+                Versions.fromIfMatch(ifMatch)
+            );
+            return ResponseEntity.ok()
+                .eTag(String.valueOf(updated.getVersion()))
+                .body(updated);
         } catch (EntityNotFoundException e) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            // The message lists any unknown session ids
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                e.getMessage()
+            );
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.CONFLICT).body(
                 e.getMessage()
@@ -0,0 +1,10 @@
+package hs.aalen.fitness_tracker_backend.plans.dto;
+
+import lombok.Data;
+
+@Data
+public class PlansCopyDto {
+    // Defaults to the source name with a " (Copy)" suffix
+    private String name;
+    private String description;
+}
@@ -0,0 +1,20 @@
+package hs.aalen.fitness_tracker_backend.plans.dto;
+
+import hs.aalen.fitness_tracker_backend.sessions.dto.SessionsNestedCreateDto;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+
+@Data
+public class PlansNestedCreateDto {
+
+    @NotBlank
+    private String name;
+
+    private String description;
+
+    @Valid
+    private List<SessionsNestedCreateDto> sessions = new ArrayList<>();
+}
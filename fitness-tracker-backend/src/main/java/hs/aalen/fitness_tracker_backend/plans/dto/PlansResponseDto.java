@@ -9,6 +9,7 @@ import lombok.Data;
 public class PlansResponseDto {
 
     private UUID id;
+    private Long version;
     private String name;
     private String description;
     private List<Sessions> sessions;
@@ -3,6 +3,8 @@ package hs.aalen.fitness_tracker_backend.plans.model;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.util.UUID;
 
 import com.fasterxml.jackson.annotation.JsonManagedReference;
@@ -14,18 +16,25 @@ import hs.aalen.fitness_tracker_backend.sessions.model.Sessions;
 @Entity
 @Getter
 @Setter
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "plans")
 public class Plans {
 
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
 
+    @Version
+    private Long version;
+
     @Column(nullable = false, unique = true)
     private String name;
 
     private String description;
 
     @OneToMany(mappedBy = "plan")
+    @OrderBy("rankKey")
     @JsonManagedReference
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "plans.sessions")
     private List<Sessions> sessions = new ArrayList<>();
 }
@@ -1,51 +1,81 @@
 package hs.aalen.fitness_tracker_backend.plans.service;
 
+import hs.aalen.fitness_tracker_backend.exerciseexecutions.dto.ExerciseExecutionsNestedCreateDto;
+import hs.aalen.fitness_tracker_backend.exerciseexecutions.model.ExerciseExecutions;
+import hs.aalen.fitness_tracker_backend.exerciseexecutions.repository.ExerciseExecutionsRepository;
+import hs.aalen.fitness_tracker_backend.exercises.model.Exercises;
+import hs.aalen.fitness_tracker_backend.exercises.repository.ExercisesRepository;
+import hs.aalen.fitness_tracker_backend.plans.dto.PlansCopyDto;
 import hs.aalen.fitness_tracker_backend.plans.dto.PlansCreateDto;
+import hs.aalen.fitness_tracker_backend.plans.dto.PlansNestedCreateDto;
 import hs.aalen.fitness_tracker_backend.plans.dto.PlansResponseDto;
 import hs.aalen.fitness_tracker_backend.plans.dto.PlansUpdateDto;
 import hs.aalen.fitness_tracker_backend.plans.model.Plans;
 import hs.aalen.fitness_tracker_backend.plans.repository.PlansRepository;
+import hs.aalen.fitness_tracker_backend.sessions.dto.SessionsNestedCreateDto;
 import hs.aalen.fitness_tracker_backend.sessions.model.Sessions;
 import hs.aalen.fitness_tracker_backend.sessions.repository.SessionsRepository;
+import hs.aalen.fitness_tracker_backend.shared.OptimisticRetry;
+import hs.aalen.fitness_tracker_backend.shared.RankKeys;
+import hs.aalen.fitness_tracker_backend.shared.Versions;
 import jakarta.persistence.EntityNotFoundException;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.modelmapper.ModelMapper;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class PlansService {
 
     private final PlansRepository repository;
     private final SessionsRepository sessionsRepository;
+    private final ExerciseExecutionsRepository exerciseExecutionsRepository;
+    private final ExercisesRepository exercisesRepository;
+    private final OptimisticRetry optimisticRetry;
     private final ModelMapper mapper = new ModelMapper();
 
     public PlansService(
         PlansRepository repository,
-        SessionsRepository sessionsRepository
+        SessionsRepository sessionsRepository,
+        ExerciseExecutionsRepository exerciseExecutionsRepository,
+        ExercisesRepository exercisesRepository,
+        OptimisticRetry optimisticRetry
     ) {
         this.repository = repository;
         this.sessionsRepository = sessionsRepository;
+        this.exerciseExecutionsRepository = exerciseExecutionsRepository;
+        this.exercisesRepository = exercisesRepository;
+        this.optimisticRetry = optimisticRetry;
     }
 
+    @Transactional(readOnly = true)
     public List<PlansResponseDto> getAll() {
         return repository
             .findAll()
             .stream()
-            .map(e -> mapper.map(e, PlansResponseDto.class))
+            .map(this::toResponseDto)
             .toList();
     }
 
+    @Transactional(readOnly = true)
     public PlansResponseDto getById(UUID id) {
         Plans plans = repository
             .findById(id)
             .orElseThrow(() -> new EntityNotFoundException("Plan not found"));
-        return mapper.map(plans, PlansResponseDto.class);
+        return toResponseDto(plans);
     }
 
+    @Transactional
     public PlansResponseDto create(PlansCreateDto dto) {
         if (repository.findByNameIgnoreCase(dto.getName()).isPresent()) {
             throw new IllegalArgumentException(
@@ -55,9 +85,200 @@ public class PlansService {
 
         Plans plans = mapper.map(dto, Plans.class);
         Plans saved = repository.save(plans);
-        return mapper.map(saved, PlansResponseDto.class);
+        return toResponseDto(saved);
     }
 
+    // Validates the whole tree in memory, then inserts it in batches on commit
+    @Transactional
+    public PlansResponseDto createNested(PlansNestedCreateDto dto) {
+        if (repository.findByNameIgnoreCase(dto.getName()).isPresent()) {
+            throw new IllegalArgumentException(
+                "Plan with this name already exists"
+            );
+        }
+
+        List<SessionsNestedCreateDto> sessionDtos = dto.getSessions() != null
+            ? dto.getSessions()
+            : List.of();
+        if (sessionDtos.size() > 30) {
+            throw new IllegalArgumentException(
+                "Maximum of 30 sessions per plan reached"
+            );
+        }
+
+        Map<UUID, Exercises> exercises = findExercises(sessionDtos);
+
+        Plans plan = new Plans();
+        plan.setName(dto.getName());
+        plan.setDescription(dto.getDescription());
+
+        Set<String> names = new HashSet<>();
+        Set<Integer> orders = new HashSet<>();
+        List<Sessions> sessions = new ArrayList<>();
+        for (int i = 0; i < sessionDtos.size(); i++) {
+            SessionsNestedCreateDto sessionDto = sessionDtos.get(i);
+            int order = sessionDto.getOrderID() != null
+                ? sessionDto.getOrderID()
+                : i + 1;
+            if (order < 1 || order > 30) {
+                throw new IllegalArgumentException(
+                    "Order must be between 1 and 30"
+                );
+            }
+            if (!orders.add(order)) {
+                throw new IllegalArgumentException(
+                    "Order " + order + " is already used in this plan"
+                );
+            }
+            if (!names.add(sessionDto.getName())) {
+                throw new IllegalArgumentException(
+                    "Session with this name already exists in this plan"
+                );
+            }
+
+            Sessions session = new Sessions();
+            session.setName(sessionDto.getName());
+            session.setPlan(plan);
+            session.setRankKey(RankKeys.forPosition(order));
+            session.setExerciseExecutions(
+                buildExecutions(session, sessionDto, exercises)
+            );
+            sessions.add(session);
+        }
+        sessions.sort(Comparator.comparing(Sessions::getRankKey));
+        plan.getSessions().addAll(sessions);
+
+        Plans saved = repository.save(plan);
+        // Executions cascade from their sessions
+        sessionsRepository.saveAll(sessions);
+        return toResponseDto(saved);
+    }
+
+    private Map<UUID, Exercises> findExercises(
+        List<SessionsNestedCreateDto> sessionDtos
+    ) {
+        Set<UUID> exerciseIds = sessionDtos
+            .stream()
+            .filter(sessionDto -> sessionDto.getExerciseExecutions() != null)
+            .flatMap(sessionDto -> sessionDto.getExerciseExecutions().stream())
+            .map(ExerciseExecutionsNestedCreateDto::getExerciseId)
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+        Map<UUID, Exercises> exercises = exercisesRepository
+            .findAllById(exerciseIds)
+            .stream()
+            .collect(Collectors.toMap(Exercises::getId, Function.identity()));
+
+        List<UUID> missing = exerciseIds
+            .stream()
+            .filter(exerciseId -> !exercises.containsKey(exerciseId))
+            .toList();
+        if (!missing.isEmpty()) {
+            throw new EntityNotFoundException(
+                "Exercise not found: " +
+                missing.stream().map(UUID::toString).collect(Collectors.joining(", "))
+            );
+        }
+        return exercises;
+    }
+
+    private List<ExerciseExecutions> buildExecutions(
+        Sessions session,
+        SessionsNestedCreateDto sessionDto,
+        Map<UUID, Exercises> exercises
+    ) {
+        List<ExerciseExecutionsNestedCreateDto> executionDtos =
+            sessionDto.getExerciseExecutions() != null
+                ? sessionDto.getExerciseExecutions()
+                : List.of();
+
+        Set<UUID> exerciseIds = new HashSet<>();
+        Set<Integer> orders = new HashSet<>();
+        List<ExerciseExecutions> executions = new ArrayList<>();
+        for (int i = 0; i < executionDtos.size(); i++) {
+            ExerciseExecutionsNestedCreateDto executionDto = executionDtos.get(i);
+            validatePlannedValues(executionDto);
+            int order = executionDto.getOrderID() != null
+                ? executionDto.getOrderID()
+                : i + 1;
+            if (order < 1 || order > 30) {
+                throw new IllegalArgumentException(
+                    "Order must be between 1 and 30"
+                );
+            }
+            if (!orders.add(order)) {
+                throw new IllegalArgumentException(
+                    "Order " + order + " is already used in this session"
+                );
+            }
+            if (!exerciseIds.add(executionDto.getExerciseId())) {
+                throw new IllegalArgumentException(
+                    "This exercise is already added to this session. Each exercise can only be added once per session."
+                );
+            }
+
+            ExerciseExecutions execution = new ExerciseExecutions();
+            execution.setPlannedSets(executionDto.getPlannedSets());
+            execution.setPlannedReps(executionDto.getPlannedReps());
+            execution.setPlannedWeight(executionDto.getPlannedWeight());
+            execution.setRankKey(RankKeys.forPosition(order));
+            execution.setSession(session);
+            execution.setExercise(exercises.get(executionDto.getExerciseId()));
+            executions.add(execution);
+        }
+        executions.sort(Comparator.comparing(ExerciseExecutions::getRankKey));
+        return executions;
+    }
+
+    private void validatePlannedValues(ExerciseExecutionsNestedCreateDto dto) {
+        if (dto.getPlannedSets() == null || dto.getPlannedSets() <= 0) {
+            throw new IllegalArgumentException("Planned sets must be greater than 0");
+        }
+        if (dto.getPlannedReps() == null || dto.getPlannedReps() <= 0) {
+            throw new IllegalArgumentException("Planned reps must be greater than 0");
+        }
+        if (dto.getPlannedWeight() == null || dto.getPlannedWeight() < 0) {
+            throw new IllegalArgumentException(
+                "Planned weight must be greater than or equal to 0"
+            );
+        }
+    }
+
+    // Copies the plan with all sessions and executions in a fixed number of statements
+    @Transactional
+    public PlansResponseDto copy(UUID id, PlansCopyDto dto) {
+        Plans source = repository
+            .findById(id)
+            .orElseThrow(() -> new EntityNotFoundException("Plan not found"));
+
+        String name = dto != null && dto.getName() != null && !dto.getName().isBlank()
+            ? dto.getName()
+            : source.getName() + " (Copy)";
+        if (repository.findByNameIgnoreCase(name).isPresent()) {
+            throw new IllegalArgumentException(
+                "Plan with this name already exists"
+            );
+        }
+
+        Plans copy = new Plans();
+        copy.setName(name);
+        copy.setDescription(
+            dto != null && dto.getDescription() != null
+                ? dto.getDescription()
+                : source.getDescription()
+        );
+        UUID copyId = repository.saveAndFlush(copy).getId();
+
+        sessionsRepository.copySessionsOfPlan(id, copyId);
+        exerciseExecutionsRepository.copyExecutionsOfPlan(id, copyId);
+
+        // The bulk inserts bypass the persistence context, so read the copy back
+        Plans saved = repository
+            .findById(copyId)
+            .orElseThrow(() -> new EntityNotFoundException("Plan not found"));
+        return toResponseDto(saved);
+    }
+
+    @Transactional
     public void delete(UUID id) {
         Plans plan = repository
             .findById(id)
@@ -73,9 +294,28 @@ public class PlansService {
     }
 
     public PlansResponseDto update(UUID id, PlansUpdateDto dto) {
+        return update(id, dto, null);
+    }
+
+    public PlansResponseDto update(
+        UUID id,
+        PlansUpdateDto dto,
+        Long expectedVersion
+    ) {
+        return optimisticRetry.run(expectedVersion, () ->
+            applyUpdate(id, dto, expectedVersion)
+        );
+    }
+
+    private PlansResponseDto applyUpdate(
+        UUID id,
+        PlansUpdateDto dto,
+        Long expectedVersion
+    ) {
         Plans existingPlan = repository
             .findById(id)
             .orElseThrow(() -> new EntityNotFoundException("Plan not found"));
+        Versions.checkIfMatch(expectedVersion, existingPlan.getVersion(), "Plan");
 
         Optional<Plans> duplicate = repository.findByNameIgnoreCase(
             dto.getName()
@@ -87,25 +327,103 @@ public class PlansService {
             );
         }
 
-        List<Sessions> sessions = dto
+        existingPlan.setName(dto.getName());
+        existingPlan.setDescription(dto.getDescription());
+
+        if (dto.getSessions() != null) {
+            updateSessions(existingPlan, dto.getSessions());
+        }
+
+        Plans saved = repository.saveAndFlush(existingPlan);
+        return toResponseDto(saved);
+    }
+
+    // Resolves all ids in one query and only rewrites sessions that join or leave the plan
+    private void updateSessions(Plans plan, List<UUID> sessionIds) {
+        Set<UUID> requestedIds = new LinkedHashSet<>(sessionIds);
+        Map<UUID, Sessions> requested = sessionsRepository
+            .findAllById(requestedIds)
+            .stream()
+            .collect(Collectors.toMap(Sessions::getId, Function.identity()));
+
+        List<UUID> missing = requestedIds
+            .stream()
+            .filter(sessionId -> !requested.containsKey(sessionId))
+            .toList();
+        if (!missing.isEmpty()) {
+            throw new EntityNotFoundException(
+                "Session not found: " +
+                missing.stream().map(UUID::toString).collect(Collectors.joining(", "))
+            );
+        }
+        if (requested.size() > 30) {
+            throw new IllegalArgumentException(
+                "Maximum of 30 sessions per plan reached"
+            );
+        }
+        Set<String> names = new HashSet<>();
+        for (Sessions session : requested.values()) {
+            if (!names.add(session.getName())) {
+                throw new IllegalArgumentException(
+                    "Session with this name already exists in this plan"
+                );
+            }
+        }
+
+        List<Sessions> removed = plan
             .getSessions()
             .stream()
-            .map(sessionId ->
-                sessionsRepository
-                    .findById(sessionId)
-                    .orElseThrow(() ->
-                        new EntityNotFoundException("Session not found")
-                    )
-            )
+            .filter(session -> !requestedIds.contains(session.getId()))
             .collect(Collectors.toCollection(ArrayList::new));
+        Set<UUID> currentIds = plan
+            .getSessions()
+            .stream()
+            .map(Sessions::getId)
+            .collect(Collectors.toSet());
+        List<Sessions> added = requestedIds
+            .stream()
+            .filter(sessionId -> !currentIds.contains(sessionId))
+            .map(requested::get)
+            .toList();
 
-        existingPlan.setName(dto.getName());
-        existingPlan.setDescription(dto.getDescription());
+        // Detach first so names and rank keys are free before new sessions join
+        removed.forEach(session -> session.setPlan(null));
+        plan.getSessions().removeAll(removed);
+        sessionsRepository.saveAllAndFlush(removed);
 
-        existingPlan.getSessions().clear();
-        existingPlan.getSessions().addAll(sessions);
+        long lastRankKey = plan
+            .getSessions()
+            .stream()
+            .mapToLong(Sessions::getRankKey)
+            .max()
+            .orElse(0);
+        for (Sessions session : added) {
+            lastRankKey += RankKeys.GAP;
+            session.setRankKey(lastRankKey);
+            session.setPlan(plan);
+            plan.getSessions().add(session);
+        }
+        sessionsRepository.saveAllAndFlush(added);
+    }
 
-        Plans saved = repository.save(existingPlan);
-        return mapper.map(saved, PlansResponseDto.class);
+    // Sessions are returned as entities, so their executions are loaded while the transaction is open
+    private PlansResponseDto toResponseDto(Plans plan) {
+        if (plan.getSessions() != null) {
+            // Positions are not stored; one sort per parent gives them for the serialized entities
+            List<Sessions> sessions = plan.getSessions().stream()
+                .sorted(Comparator.comparing(Sessions::getRankKey))
+                .toList();
+            for (int i = 0; i < sessions.size(); i++) {
+                Sessions session = sessions.get(i);
+                session.setOrderID(i + 1);
+                List<ExerciseExecutions> executions = session.getExerciseExecutions().stream()
+                    .sorted(Comparator.comparing(ExerciseExecutions::getRankKey))
+                    .toList();
+                for (int j = 0; j < executions.size(); j++) {
+                    executions.get(j).setOrderID(j + 1);
+                }
+            }
+        }
+        return mapper.map(plan, PlansResponseDto.class);
     }
 }
@@ -0,0 +1,30 @@
+package hs.aalen.fitness_tracker_backend.progressions.controller;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import hs.aalen.fitness_tracker_backend.progressions.dto.ExerciseProgressionsResponseDto;
+import hs.aalen.fitness_tracker_backend.progressions.service.ExerciseProgressionsService;
+import java.time.LocalDate;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1/progressions")
+public class ExerciseProgressionsController {
+
+    private final ExerciseProgressionsService exerciseProgressionsService;
+
+    public ExerciseProgressionsController(ExerciseProgressionsService exerciseProgressionsService) {
+        this.exerciseProgressionsService = exerciseProgressionsService;
+    }
+
+    @GetMapping("/{exerciseId}")
+    public ExerciseProgressionsResponseDto getSeries(
+            @PathVariable UUID exerciseId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "100") int points,
+            Authentication authentication) {
+        return exerciseProgressionsService.getSeries(exerciseId, from, to, points, authentication.getName());
+    }
+}
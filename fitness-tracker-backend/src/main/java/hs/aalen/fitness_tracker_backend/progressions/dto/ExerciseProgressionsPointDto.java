@@ -0,0 +1,14 @@
+package hs.aalen.fitness_tracker_backend.progressions.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+import java.time.Instant;
+
+@Getter
+@Setter
+public class ExerciseProgressionsPointDto {
+    private Instant performedAt;
+    private Integer topWeight;
+    private Long volume;
+    private Integer workouts;
+}
@@ -0,0 +1,14 @@
+package hs.aalen.fitness_tracker_backend.progressions.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+import java.util.List;
+import java.util.UUID;
+
+@Getter
+@Setter
+public class ExerciseProgressionsResponseDto {
+    private UUID exerciseId;
+    private Integer workouts;
+    private List<ExerciseProgressionsPointDto> points;
+}
@@ -0,0 +1,48 @@
+package hs.aalen.fitness_tracker_backend.progressions.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One point of a user's progression series for an exercise: what the user
+ * achieved on it in one completed workout. Points are only ever appended,
+ * and a series for any date range is read along a single index.
+ */
+@Entity
+@Getter
+@Setter
+@Table(indexes = @Index(name = "idx_exercise_progressions_series", columnList = "owner_id, exercise_id, performed_at"),
+        uniqueConstraints = @UniqueConstraint(name = "uk_exercise_progressions_workout",
+                columnNames = {"session_log_id", "exercise_id"}))
+public class ExerciseProgressions {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "owner_id", nullable = false)
+    private UUID ownerId;
+
+    @Column(name = "exercise_id", nullable = false)
+    private UUID exerciseId;
+
+    @Column(name = "session_log_id", nullable = false)
+    private UUID sessionLogId;
+
+    @Column(name = "performed_at", nullable = false)
+    private Instant performedAt;
+
+    // Heaviest weight moved in the workout
+    @Column(nullable = false)
+    private Integer topWeight;
+
+    // Sum of reps times weight over all sets of the workout
+    @Column(nullable = false)
+    private Long volume;
+
+    @Column(nullable = false)
+    private Integer sets;
+}
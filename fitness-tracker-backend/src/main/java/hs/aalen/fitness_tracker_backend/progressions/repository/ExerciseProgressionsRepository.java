@@ -0,0 +1,25 @@
+package hs.aalen.fitness_tracker_backend.progressions.repository;
+
+import hs.aalen.fitness_tracker_backend.progressions.model.ExerciseProgressions;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+@Transactional(readOnly = true)
+public interface ExerciseProgressionsRepository extends JpaRepository<ExerciseProgressions, UUID> {
+
+    // Follows idx_exercise_progressions_series, so the range comes back in order without a sort
+    @Query("select p from ExerciseProgressions p where p.ownerId = :ownerId and p.exerciseId = :exerciseId "
+            + "and p.performedAt >= :from and p.performedAt < :to order by p.performedAt")
+    List<ExerciseProgressions> findSeries(@Param("ownerId") UUID ownerId, @Param("exerciseId") UUID exerciseId,
+            @Param("from") Instant from, @Param("to") Instant to);
+
+    boolean existsBySessionLogId(UUID sessionLogId);
+}
@@ -0,0 +1,26 @@
+package hs.aalen.fitness_tracker_backend.progressions.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import hs.aalen.fitness_tracker_backend.outbox.model.OutboxEvents;
+import hs.aalen.fitness_tracker_backend.outbox.service.OutboxHandler;
+import hs.aalen.fitness_tracker_backend.sessionlogs.service.SessionLogsService;
+
+/**
+ * Appends a completed workout to the progression series of its exercises.
+ */
+@Component
+public class ExerciseProgressionsCompletedHandler implements OutboxHandler {
+    @Autowired
+    private ExerciseProgressionsService exerciseProgressionsService;
+
+    @Override
+    public String eventType() {
+        return SessionLogsService.SESSION_LOG_COMPLETED;
+    }
+
+    @Override
+    public void handle(OutboxEvents event) {
+        exerciseProgressionsService.recordWorkout(event.getAggregateId());
+    }
+}
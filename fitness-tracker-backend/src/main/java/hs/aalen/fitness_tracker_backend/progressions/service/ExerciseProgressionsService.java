@@ -0,0 +1,188 @@
+package hs.aalen.fitness_tracker_backend.progressions.service;
+
+import hs.aalen.fitness_tracker_backend.executionlogs.model.ExecutionLogs;
+import hs.aalen.fitness_tracker_backend.executionlogs.model.PerformedSet;
+import hs.aalen.fitness_tracker_backend.progressions.dto.ExerciseProgressionsPointDto;
+import hs.aalen.fitness_tracker_backend.progressions.dto.ExerciseProgressionsResponseDto;
+import hs.aalen.fitness_tracker_backend.progressions.model.ExerciseProgressions;
+import hs.aalen.fitness_tracker_backend.progressions.repository.ExerciseProgressionsRepository;
+import hs.aalen.fitness_tracker_backend.sessionlogs.model.SessionLogs;
+import hs.aalen.fitness_tracker_backend.sessionlogs.repository.SessionLogsRepository;
+import hs.aalen.fitness_tracker_backend.users.model.Users;
+import hs.aalen.fitness_tracker_backend.users.repository.UsersRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Maintains the per-exercise progression series of every user. A completed
+ * workout appends one point per exercise it contains; charts read a date
+ * range of one series and thin it out to the number of points they can
+ * draw.
+ */
+@Service
+public class ExerciseProgressionsService {
+
+    public static final int MAX_POINTS = 500;
+
+    private final ExerciseProgressionsRepository progressionsRepository;
+    private final SessionLogsRepository sessionLogsRepository;
+    private final UsersRepository usersRepository;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ExerciseProgressionsService(ExerciseProgressionsRepository progressionsRepository,
+            SessionLogsRepository sessionLogsRepository, UsersRepository usersRepository) {
+        this.progressionsRepository = progressionsRepository;
+        this.sessionLogsRepository = sessionLogsRepository;
+        this.usersRepository = usersRepository;
+    }
+
+    /**
+     * Returns the caller's series for an exercise between two days, both
+     * inclusive (UTC). When the range holds more workouts than maxPoints,
+     * they are grouped into equally long time buckets; a bucket reports
+     * its best top weight, its average volume per workout and the time of
+     * its last workout.
+     */
+    @Transactional(readOnly = true)
+    public ExerciseProgressionsResponseDto getSeries(
+            UUID exerciseId, LocalDate from, LocalDate to, int maxPoints, String username) {
+        if (maxPoints < 1 || maxPoints > MAX_POINTS) {
+            throw new IllegalArgumentException("Points must be between 1 and " + MAX_POINTS);
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date must not be after end date");
+        }
+        Users owner = usersRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found: " + username));
+        Instant start = from != null ? from.atStartOfDay(ZoneOffset.UTC).toInstant() : Instant.EPOCH;
+        Instant end = to != null ? to.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant() : Instant.now();
+
+        List<ExerciseProgressions> series = progressionsRepository.findSeries(owner.getId(), exerciseId, start, end);
+        ExerciseProgressionsResponseDto dto = new ExerciseProgressionsResponseDto();
+        dto.setExerciseId(exerciseId);
+        dto.setWorkouts(series.size());
+        dto.setPoints(downsample(series, maxPoints));
+        return dto;
+    }
+
+    static List<ExerciseProgressionsPointDto> downsample(List<ExerciseProgressions> series, int maxPoints) {
+        List<ExerciseProgressionsPointDto> points = new ArrayList<>(Math.min(series.size(), maxPoints));
+        if (series.isEmpty()) {
+            return points;
+        }
+        // A series that fits is returned as is; time buckets would merge workouts that happen to be close together
+        boolean fits = series.size() <= maxPoints;
+        long first = series.get(0).getPerformedAt().toEpochMilli();
+        long span = series.get(series.size() - 1).getPerformedAt().toEpochMilli() - first + 1;
+
+        ExerciseProgressionsPointDto current = null;
+        long currentBucket = -1;
+        long volume = 0;
+        for (int i = 0; i < series.size(); i++) {
+            ExerciseProgressions point = series.get(i);
+            long bucket = fits ? i : (point.getPerformedAt().toEpochMilli() - first) * maxPoints / span;
+            if (bucket != currentBucket) {
+                close(current, volume, points);
+                current = new ExerciseProgressionsPointDto();
+                current.setTopWeight(0);
+                current.setWorkouts(0);
+                currentBucket = bucket;
+                volume = 0;
+            }
+            current.setPerformedAt(point.getPerformedAt());
+            current.setTopWeight(Math.max(current.getTopWeight(), point.getTopWeight()));
+            current.setWorkouts(current.getWorkouts() + 1);
+            volume += point.getVolume();
+        }
+        close(current, volume, points);
+        return points;
+    }
+
+    private static void close(ExerciseProgressionsPointDto point, long volume, List<ExerciseProgressionsPointDto> points) {
+        if (point != null) {
+            point.setVolume(Math.round((double) volume / point.getWorkouts()));
+            points.add(point);
+        }
+    }
+
+    /**
+     * Appends the points of a completed workout. Runs at most once per
+     * workout, so a retried completion event does not add them twice.
+     */
+    @Transactional
+    public void recordWorkout(UUID sessionLogId) {
+        sessionLogsRepository.findById(sessionLogId).ifPresent(this::record);
+    }
+
+    // Builds the series from existing history on first start; later starts find it in step already
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void initialize() {
+        if (progressionsRepository.count() > 0) {
+            return;
+        }
+        try (Stream<SessionLogs> completed = sessionLogsRepository.streamByStatus(SessionLogs.LogStatus.Completed)) {
+            completed.forEach(sessionLog -> {
+                record(sessionLog);
+                entityManager.detach(sessionLog);
+            });
+        }
+    }
+
+    private void record(SessionLogs sessionLog) {
+        if (sessionLog.getStatus() != SessionLogs.LogStatus.Completed
+                || progressionsRepository.existsBySessionLogId(sessionLog.getId())) {
+            return;
+        }
+        Instant performedAt = sessionLog.getCompletedAt() != null ? sessionLog.getCompletedAt() : sessionLog.getStartedAt();
+        Map<UUID, ExerciseProgressions> byExercise = new LinkedHashMap<>();
+        for (ExecutionLogs executionLog : sessionLog.getExecutionLogs()) {
+            if (!executionLog.isPerformed()) {
+                continue;
+            }
+            List<PerformedSet> sets = executionLog.getSets();
+            ExerciseProgressions point = byExercise.computeIfAbsent(executionLog.getExerciseId(), exerciseId -> {
+                ExerciseProgressions created = new ExerciseProgressions();
+                created.setOwnerId(sessionLog.getOwner().getId());
+                created.setExerciseId(exerciseId);
+                created.setSessionLogId(sessionLog.getId());
+                created.setPerformedAt(performedAt);
+                created.setTopWeight(0);
+                created.setVolume(0L);
+                created.setSets(0);
+                return created;
+            });
+            if (sets.isEmpty()) {
+                add(point, executionLog.getActualSets(), executionLog.getActualReps(), executionLog.getActualWeight());
+            } else {
+                for (PerformedSet set : sets) {
+                    add(point, 1, set.reps(), set.weight());
+                }
+            }
+        }
+        progressionsRepository.saveAll(byExercise.values());
+    }
+
+    private static void add(ExerciseProgressions point, int sets, int reps, int weight) {
+        if (sets > 0 && reps > 0) {
+            point.setTopWeight(Math.max(point.getTopWeight(), weight));
+        }
+        point.setVolume(point.getVolume() + (long) sets * reps * weight);
+        point.setSets(point.getSets() + sets);
+    }
+}
@@ -0,0 +1,23 @@
+package hs.aalen.fitness_tracker_backend.reports.controller;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import hs.aalen.fitness_tracker_backend.reports.dto.GymReportResponseDto;
+import hs.aalen.fitness_tracker_backend.reports.service.GymReportService;
+
+@RestController
+@RequestMapping("/api/v1/coach/gym-report")
+public class GymReportController {
+
+    private final GymReportService gymReportService;
+
+    public GymReportController(GymReportService gymReportService) {
+        this.gymReportService = gymReportService;
+    }
+
+    @GetMapping
+    public GymReportResponseDto getReport() {
+        return gymReportService.getReport();
+    }
+}
@@ -0,0 +1,19 @@
+package hs.aalen.fitness_tracker_backend.reports.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+import java.time.Instant;
+import java.util.List;
+
+@Getter
+@Setter
+public class GymReportResponseDto {
+    private Instant generatedAt;
+    private Instant windowStart;
+    private Instant inactiveSince;
+    private Integer memberCount;
+    private Long totalWorkouts;
+    private Double averageAdherence;
+    private List<MemberReportDto> members;
+    private List<String> inactiveMembers;
+}
@@ -0,0 +1,22 @@
+package hs.aalen.fitness_tracker_backend.reports.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+import java.time.Instant;
+import java.util.UUID;
+
+@Getter
+@Setter
+public class MemberReportDto {
+    private UUID userId;
+    private String username;
+    // Workouts completed within the report window
+    private Long workouts;
+    private Long startedWorkouts;
+    private Long plannedSets;
+    private Long performedSets;
+    // Performed over planned sets of the workouts started in the window; null without any
+    private Double adherence;
+    private Instant lastWorkoutAt;
+    private Boolean inactive;
+}
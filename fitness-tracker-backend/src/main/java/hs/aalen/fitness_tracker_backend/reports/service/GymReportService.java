@@ -0,0 +1,179 @@
+package hs.aalen.fitness_tracker_backend.reports.service;
+
+import hs.aalen.fitness_tracker_backend.executionlogs.model.ExecutionLogs;
+import hs.aalen.fitness_tracker_backend.executionlogs.repository.ExecutionLogsRepository;
+import hs.aalen.fitness_tracker_backend.reports.dto.GymReportResponseDto;
+import hs.aalen.fitness_tracker_backend.reports.dto.MemberReportDto;
+import hs.aalen.fitness_tracker_backend.sessionlogs.repository.SessionLogsRepository;
+import hs.aalen.fitness_tracker_backend.users.model.Users;
+import hs.aalen.fitness_tracker_backend.users.repository.UsersRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * Gym-wide activity report for staff. Users are split into chunks that
+ * are summarized in parallel on the small report pool, each in its own
+ * read-only transaction, so the work goes to the read replica when there
+ * is one. The merged report is kept until the next nightly run.
+ */
+@Service
+public class GymReportService {
+
+    private final UsersRepository usersRepository;
+    private final SessionLogsRepository sessionLogsRepository;
+    private final ExecutionLogsRepository executionLogsRepository;
+    private final TaskExecutor executor;
+    private final TransactionOperations readOnlyTransactions;
+
+    @Value("${fitness.reports.chunk-size:200}")
+    private int chunkSize = 200;
+    @Value("${fitness.reports.window:P28D}")
+    private Duration window = Duration.ofDays(28);
+    @Value("${fitness.reports.inactive-after:P14D}")
+    private Duration inactiveAfter = Duration.ofDays(14);
+
+    private volatile GymReportResponseDto latest;
+
+    @Autowired
+    public GymReportService(UsersRepository usersRepository, SessionLogsRepository sessionLogsRepository,
+            ExecutionLogsRepository executionLogsRepository,
+            @Qualifier("reportExecutor") TaskExecutor executor, PlatformTransactionManager transactionManager) {
+        this(usersRepository, sessionLogsRepository, executionLogsRepository, executor,
+                readOnly(new TransactionTemplate(transactionManager)));
+    }
+
+    public GymReportService(UsersRepository usersRepository, SessionLogsRepository sessionLogsRepository,
+            ExecutionLogsRepository executionLogsRepository, TaskExecutor executor,
+            TransactionOperations readOnlyTransactions) {
+        this.usersRepository = usersRepository;
+        this.sessionLogsRepository = sessionLogsRepository;
+        this.executionLogsRepository = executionLogsRepository;
+        this.executor = executor;
+        this.readOnlyTransactions = readOnlyTransactions;
+    }
+
+    private static TransactionTemplate readOnly(TransactionTemplate template) {
+        template.setReadOnly(true);
+        return template;
+    }
+
+    // The first request after a start builds the report instead of waiting for the night
+    public GymReportResponseDto getReport() {
+        GymReportResponseDto report = latest;
+        if (report == null) {
+            synchronized (this) {
+                report = latest;
+                if (report == null) {
+                    report = generate();
+                    latest = report;
+                }
+            }
+        }
+        return report;
+    }
+
+    @Scheduled(cron = "${fitness.reports.cron:0 0 3 * * *}")
+    public void refresh() {
+        GymReportResponseDto report = generate();
+        latest = report;
+    }
+
+    GymReportResponseDto generate() {
+        Instant now = Instant.now();
+        Instant windowStart = now.minus(window);
+        Instant inactiveSince = now.minus(inactiveAfter);
+
+        List<Users> users = usersRepository.findAll();
+        List<CompletableFuture<List<MemberReportDto>>> chunks = new ArrayList<>();
+        for (int start = 0; start < users.size(); start += chunkSize) {
+            List<Users> chunk = users.subList(start, Math.min(start + chunkSize, users.size()));
+            chunks.add(CompletableFuture.supplyAsync(() -> readOnlyTransactions.execute(
+                    status -> summarize(chunk, windowStart, inactiveSince)), executor));
+        }
+
+        List<MemberReportDto> members = new ArrayList<>(users.size());
+        for (CompletableFuture<List<MemberReportDto>> chunk : chunks) {
+            members.addAll(chunk.join());
+        }
+        members.sort(Comparator.comparing(MemberReportDto::getUsername));
+        return merge(members, now, windowStart, inactiveSince);
+    }
+
+    private List<MemberReportDto> summarize(List<Users> users, Instant windowStart, Instant inactiveSince) {
+        Map<UUID, MemberReportDto> byId = new HashMap<>();
+        for (Users user : users) {
+            MemberReportDto member = new MemberReportDto();
+            member.setUserId(user.getId());
+            member.setUsername(user.getUsername());
+            member.setWorkouts(0L);
+            member.setStartedWorkouts(0L);
+            member.setPlannedSets(0L);
+            member.setPerformedSets(0L);
+            byId.put(user.getId(), member);
+        }
+
+        for (SessionLogsRepository.ActivityRow row : sessionLogsRepository.summarizeActivity(byId.keySet(), windowStart)) {
+            MemberReportDto member = byId.get(row.getOwnerId());
+            member.setStartedWorkouts(row.getStarted());
+            member.setWorkouts(row.getCompleted());
+            member.setLastWorkoutAt(row.getLastCompletedAt());
+        }
+        try (Stream<ExecutionLogsRepository.SetsRow> rows =
+                executionLogsRepository.streamSetsByOwners(byId.keySet(), windowStart)) {
+            rows.forEach(row -> {
+                MemberReportDto member = byId.get(row.getOwnerId());
+                member.setPlannedSets(member.getPlannedSets() + row.getPlannedSets());
+                member.setPerformedSets(member.getPerformedSets() + ExecutionLogs.performedSetCount(
+                        row.getRecordedSets(), row.getCompleted(), row.getActualSets()));
+            });
+        }
+
+        for (MemberReportDto member : byId.values()) {
+            if (member.getPlannedSets() > 0) {
+                member.setAdherence((double) member.getPerformedSets() / member.getPlannedSets());
+            }
+            member.setInactive(member.getLastWorkoutAt() == null || member.getLastWorkoutAt().isBefore(inactiveSince));
+        }
+        return new ArrayList<>(byId.values());
+    }
+
+    private static GymReportResponseDto merge(List<MemberReportDto> members, Instant now,
+            Instant windowStart, Instant inactiveSince) {
+        GymReportResponseDto report = new GymReportResponseDto();
+        report.setGeneratedAt(now);
+        report.setWindowStart(windowStart);
+        report.setInactiveSince(inactiveSince);
+        report.setMemberCount(members.size());
+        report.setMembers(members);
+        report.setTotalWorkouts(members.stream().mapToLong(MemberReportDto::getWorkouts).sum());
+        OptionalDouble averageAdherence = members.stream()
+                .filter(member -> member.getAdherence() != null)
+                .mapToDouble(MemberReportDto::getAdherence)
+                .average();
+        report.setAverageAdherence(averageAdherence.isPresent() ? averageAdherence.getAsDouble() : null);
+        report.setInactiveMembers(members.stream()
+                .filter(MemberReportDto::getInactive)
+                .map(MemberReportDto::getUsername)
+                .toList());
+        return report;
+    }
+}
@@ -1,14 +1,20 @@
 package hs.aalen.fitness_tracker_backend.sessionlogs.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import hs.aalen.fitness_tracker_backend.sessionlogs.dto.SessionLogsResponseDto;
 import hs.aalen.fitness_tracker_backend.sessionlogs.dto.SessionLogsUpdateDto;
 import hs.aalen.fitness_tracker_backend.sessionlogs.service.SessionLogsService;
-import java.util.List;
+import hs.aalen.fitness_tracker_backend.sessionlogs.service.SessionLogsStreamService;
+import hs.aalen.fitness_tracker_backend.shared.StreamingResponses;
+import hs.aalen.fitness_tracker_backend.shared.Versions;
 import java.util.UUID;
 
 @RestController
@@ -16,6 +22,10 @@ import java.util.UUID;
 public class SessionLogsController {
     @Autowired
     private SessionLogsService sessionLogsService;
+    @Autowired
+    private SessionLogsStreamService sessionLogsStreamService;
+    @Autowired
+    private StreamingResponses streamingResponses;
 
     @PostMapping("/start/{sessionId}")
     public ResponseEntity<SessionLogsResponseDto> startSession(
@@ -36,17 +46,13 @@ public class SessionLogsController {
     }
 
     @GetMapping
-    public ResponseEntity<List<SessionLogsResponseDto>> getAllSessionLogs(
+    public ResponseEntity<StreamingResponseBody> getAllSessionLogs(
             @RequestParam(required = false) UUID sessionId,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
             Authentication authentication) {
-        List<SessionLogsResponseDto> logs;
-        if (sessionId != null) {
-            logs = sessionLogsService.getSessionLogsBySessionId(
-                    sessionId, authentication.getName());
-        } else {
-            logs = sessionLogsService.getAllSessionLogs(authentication.getName());
-        }
-        return ResponseEntity.ok(logs);
+        String username = authentication.getName();
+        return streamingResponses.<SessionLogsResponseDto>array(accept,
+                sink -> sessionLogsService.streamSessionLogs(sessionId, username, sink));
     }
 
     @GetMapping("/{id}")
@@ -55,17 +61,26 @@ public class SessionLogsController {
             Authentication authentication) {
         SessionLogsResponseDto response = sessionLogsService.getSessionLogById(
                 id, authentication.getName());
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok().eTag(String.valueOf(response.getVersion())).body(response);
+    }
+
+    @GetMapping(value = "/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamSessionLog(
+            @PathVariable UUID id,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            Authentication authentication) {
+        return sessionLogsStreamService.subscribe(id, authentication.getName(), lastEventId);
     }
 
     @PutMapping("/{id}")
     public ResponseEntity<SessionLogsResponseDto> updateSessionLog(
             @PathVariable UUID id,
             @RequestBody SessionLogsUpdateDto dto,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             Authentication authentication) {
         SessionLogsResponseDto response = sessionLogsService.updateSessionLog(
-                id, dto, authentication.getName());
-        return ResponseEntity.ok(response);
+                id, dto, authentication.getName(), Versions.fromIfMatch(ifMatch));
+        return ResponseEntity.ok().eTag(String.valueOf(response.getVersion())).body(response);
     }
 
     @DeleteMapping("/{id}")
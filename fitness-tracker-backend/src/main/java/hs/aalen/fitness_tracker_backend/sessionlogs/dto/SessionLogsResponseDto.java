@@ -12,12 +12,14 @@ import hs.aalen.fitness_tracker_backend.sessionlogs.model.SessionLogs;
 @Setter
 public class SessionLogsResponseDto {
     private UUID id;
+    private Long version;
     private String sessionName;
     private String sessionPlanName;
     private String sessionPlan;
     private Instant startedAt;
     private Instant completedAt;
     private SessionLogs.LogStatus status;
+    private Boolean autoCompleted;
     private String notes;
     private UUID originalSessionId;
     private List<ExecutionLogsResponseDto> executionLogs;
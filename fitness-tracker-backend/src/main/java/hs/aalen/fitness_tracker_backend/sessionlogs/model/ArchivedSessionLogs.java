@@ -0,0 +1,40 @@
+package hs.aalen.fitness_tracker_backend.sessionlogs.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A completed workout moved out of the session and execution log tables.
+ * The whole workout, as the API returns it, is kept in one compressed
+ * payload; only the columns needed to find it stay queryable.
+ */
+@Entity
+@Getter
+@Setter
+@Table(indexes = {
+        @Index(name = "idx_archived_session_logs_owner_completed", columnList = "owner_id, completed_at"),
+        @Index(name = "idx_archived_session_logs_owner_session", columnList = "owner_id, original_session_id")
+})
+public class ArchivedSessionLogs {
+    // Same id the workout had before it was archived
+    @Id
+    private UUID id;
+
+    @Column(name = "owner_id", nullable = false)
+    private UUID ownerId;
+
+    @Column(name = "original_session_id", nullable = false)
+    private UUID originalSessionId;
+
+    @Column(name = "completed_at", nullable = false)
+    private Instant completedAt;
+
+    @Column(nullable = false)
+    private Instant archivedAt;
+
+    @Column(nullable = false, length = 1 << 20)
+    private byte[] payload;
+}
@@ -12,12 +12,15 @@ import hs.aalen.fitness_tracker_backend.executionlogs.model.ExecutionLogs;
 import hs.aalen.fitness_tracker_backend.users.model.Users;
 
 @Entity
+@Table(indexes = @Index(name = "idx_session_logs_status_started_at", columnList = "status, started_at"))
 @Getter
 @Setter
 public class SessionLogs {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
+    @Version
+    private Long version;
 
     @Column(nullable = false)
     private String sessionName;
@@ -36,6 +39,9 @@ public class SessionLogs {
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private SessionLogs.LogStatus status = SessionLogs.LogStatus.InProgress;
+    // Completed by the sweeper rather than the user; reports count it as started, not as trained
+    @Column(nullable = false)
+    private Boolean autoCompleted = false;
 
     @Column(length = 1000)
     private String notes;
@@ -0,0 +1,28 @@
+package hs.aalen.fitness_tracker_backend.sessionlogs.repository;
+
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import hs.aalen.fitness_tracker_backend.sessionlogs.model.ArchivedSessionLogs;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+@Repository
+@Transactional(readOnly = true)
+public interface ArchivedSessionLogsRepository extends JpaRepository<ArchivedSessionLogs, UUID> {
+
+    Optional<ArchivedSessionLogs> findByIdAndOwnerId(UUID id, UUID ownerId);
+
+    // Must be consumed inside a transaction and closed
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "50"))
+    Stream<ArchivedSessionLogs> streamByOwnerIdOrderByCompletedAt(UUID ownerId);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "50"))
+    Stream<ArchivedSessionLogs> streamByOwnerIdAndOriginalSessionIdOrderByCompletedAt(UUID ownerId, UUID originalSessionId);
+
+    long countByOwnerIdAndOriginalSessionId(UUID ownerId, UUID originalSessionId);
+}
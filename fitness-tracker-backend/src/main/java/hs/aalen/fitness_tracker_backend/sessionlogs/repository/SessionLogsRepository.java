@@ -1,21 +1,36 @@
 package hs.aalen.fitness_tracker_backend.sessionlogs.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import hs.aalen.fitness_tracker_backend.sessionlogs.model.SessionLogs;
 import hs.aalen.fitness_tracker_backend.users.model.Users;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
+@Transactional(readOnly = true)
 public interface SessionLogsRepository extends JpaRepository<SessionLogs, UUID> {
 
     List<SessionLogs> findByOriginalSessionId(UUID originalSessionId);
 
     List<SessionLogs> findByStatus(SessionLogs.LogStatus status);
 
+    boolean existsByIdAndStatus(UUID id, SessionLogs.LogStatus status);
+
     List<SessionLogs> findByStartedAtBetween(LocalDateTime start, LocalDateTime end);
 
     // Scope queries to a user to enforce isolation.
@@ -25,5 +40,62 @@ public interface SessionLogsRepository extends JpaRepository<SessionLogs, UUID>
 
     Optional<SessionLogs> findByIdAndOwner(UUID id, Users owner);
 
+    // Row-by-row variants for streamed responses, by completion with workouts still running last;
+    // must be consumed inside a transaction and closed
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "50"))
+    @Query("select s from SessionLogs s where s.owner = :owner order by s.completedAt nulls last, s.startedAt")
+    Stream<SessionLogs> streamByOwner(@Param("owner") Users owner);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "50"))
+    @Query("select s from SessionLogs s where s.owner = :owner and s.originalSessionId = :originalSessionId "
+            + "order by s.completedAt nulls last, s.startedAt")
+    Stream<SessionLogs> streamByOwnerAndOriginalSessionId(@Param("owner") Users owner,
+            @Param("originalSessionId") UUID originalSessionId);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "50"))
+    Stream<SessionLogs> streamByStatus(SessionLogs.LogStatus status);
+
+    // Workouts a user completed within [from, to), with their execution logs; only completion sets completedAt
+    @EntityGraph(attributePaths = "executionLogs")
+    @Query("select s from SessionLogs s where s.owner.id = :ownerId "
+            + "and s.completedAt >= :from and s.completedAt < :to")
+    List<SessionLogs> findCompletedBetween(@Param("ownerId") UUID ownerId,
+            @Param("from") Instant from, @Param("to") Instant to);
+
+    // Per user: workouts started and completed since the given instant, and the last completion ever.
+    // Workouts the sweeper completed count as started only.
+    @Query("select s.owner.id as ownerId, "
+            + "sum(case when s.startedAt >= :from then 1 else 0 end) as started, "
+            + "sum(case when s.completedAt >= :from and s.autoCompleted = false then 1 else 0 end) as completed, "
+            + "max(case when s.autoCompleted = false then s.completedAt end) as lastCompletedAt "
+            + "from SessionLogs s where s.owner.id in :ownerIds group by s.owner.id")
+    List<ActivityRow> summarizeActivity(@Param("ownerIds") Collection<UUID> ownerIds, @Param("from") Instant from);
+
+    @Query("select s.id from SessionLogs s where s.status = :status and s.completedAt < :cutoff order by s.completedAt")
+    List<UUID> findIdsCompletedBefore(@Param("status") SessionLogs.LogStatus status,
+            @Param("cutoff") Instant cutoff, Pageable pageable);
+
+    @Query("select s.id from SessionLogs s where s.status = :status and s.startedAt < :cutoff order by s.startedAt")
+    List<UUID> findIdsStartedBefore(@Param("status") SessionLogs.LogStatus status,
+            @Param("cutoff") Instant cutoff, Pageable pageable);
+
+    @EntityGraph(attributePaths = "executionLogs")
+    List<SessionLogs> findWithExecutionLogsByIdIn(Collection<UUID> ids);
+
+    @Transactional
+    @Modifying
+    @Query("delete from SessionLogs s where s.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<UUID> ids);
+
     long countByOwnerAndOriginalSessionId(Users owner, UUID originalSessionId);
+
+    interface ActivityRow {
+        UUID getOwnerId();
+
+        long getStarted();
+
+        long getCompleted();
+
+        Instant getLastCompletedAt();
+    }
 }
@@ -0,0 +1,184 @@
+package hs.aalen.fitness_tracker_backend.sessionlogs.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import hs.aalen.fitness_tracker_backend.executionlogs.dto.ExecutionLogsResponseDto;
+import hs.aalen.fitness_tracker_backend.executionlogs.model.PerformedSet;
+import hs.aalen.fitness_tracker_backend.exercises.model.Exercises;
+import hs.aalen.fitness_tracker_backend.sessionlogs.dto.SessionLogsResponseDto;
+import hs.aalen.fitness_tracker_backend.sessionlogs.model.ArchivedSessionLogs;
+import hs.aalen.fitness_tracker_backend.sessionlogs.model.SessionLogs;
+import hs.aalen.fitness_tracker_backend.sessionlogs.repository.ArchivedSessionLogsRepository;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Storage of archived workouts. A payload is a format byte followed by a
+ * {@link Workout} in Smile, deflated. The payload shape is owned here rather
+ * than by the response DTO, so API changes cannot silently alter what old
+ * rows decode to; a field the record does not know fails the read. Reads
+ * hand back the same DTO the hot tables would have produced. Callers
+ * provide the transaction.
+ */
+@Component
+public class SessionLogsArchive {
+
+    static final byte FORMAT = 1;
+
+    private static final ObjectMapper MAPPER = SmileMapper.builder()
+            .addModule(new JavaTimeModule())
+            .enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+
+    // Payload of format 1. Add fields only together with a new format byte.
+    record Workout(UUID id, Long version, String sessionName, String sessionPlanName, String sessionPlan,
+            Instant startedAt, Instant completedAt, SessionLogs.LogStatus status, Boolean autoCompleted,
+            String notes, UUID originalSessionId, List<Execution> executionLogs) {
+    }
+
+    record Execution(UUID id, Long version, Integer exerciseExecutionId, Integer plannedSets, Integer plannedReps,
+            Integer plannedWeight, UUID exerciseId, String exerciseName, Exercises.Category exerciseCategory,
+            List<String> exerciseMuscleGroup, String exerciseDescription, Integer actualSets, Integer actualReps,
+            Integer actualWeight, List<PerformedSet> sets, Boolean completed, String notes) {
+    }
+
+    @Autowired
+    private ArchivedSessionLogsRepository archivedSessionLogsRepository;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public void store(SessionLogsResponseDto sessionLog, UUID ownerId) {
+        ArchivedSessionLogs archived = new ArchivedSessionLogs();
+        archived.setId(sessionLog.getId());
+        archived.setOwnerId(ownerId);
+        archived.setOriginalSessionId(sessionLog.getOriginalSessionId());
+        archived.setCompletedAt(sessionLog.getCompletedAt());
+        archived.setArchivedAt(Instant.now());
+        archived.setPayload(encode(sessionLog));
+        // The id is already set, so save would look for an existing row first
+        entityManager.persist(archived);
+    }
+
+    public Optional<SessionLogsResponseDto> find(UUID id, UUID ownerId) {
+        return archivedSessionLogsRepository.findByIdAndOwnerId(id, ownerId).map(this::decode);
+    }
+
+    // All of a user's archived workouts, or those of one session, oldest first
+    public void forEach(UUID ownerId, UUID originalSessionId, Consumer<SessionLogsResponseDto> sink) {
+        Stream<ArchivedSessionLogs> rows = originalSessionId != null
+                ? archivedSessionLogsRepository.streamByOwnerIdAndOriginalSessionIdOrderByCompletedAt(ownerId, originalSessionId)
+                : archivedSessionLogsRepository.streamByOwnerIdOrderByCompletedAt(ownerId);
+        try (rows) {
+            rows.forEach(archived -> {
+                sink.accept(decode(archived));
+                entityManager.detach(archived);
+            });
+        }
+    }
+
+    public long count(UUID ownerId, UUID originalSessionId) {
+        return archivedSessionLogsRepository.countByOwnerIdAndOriginalSessionId(ownerId, originalSessionId);
+    }
+
+    byte[] encode(SessionLogsResponseDto sessionLog) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(FORMAT);
+        try (OutputStream out = new DeflaterOutputStream(bytes, new Deflater(Deflater.BEST_COMPRESSION))) {
+            MAPPER.writeValue(out, toWorkout(sessionLog));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    SessionLogsResponseDto decode(ArchivedSessionLogs archived) {
+        byte[] payload = archived.getPayload();
+        if (payload.length == 0 || payload[0] != FORMAT) {
+            throw new IllegalStateException("Unknown archive format of session log " + archived.getId());
+        }
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(payload, 1, payload.length - 1))) {
+            return toResponseDto(MAPPER.readValue(in, Workout.class));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Workout toWorkout(SessionLogsResponseDto dto) {
+        List<Execution> executions = dto.getExecutionLogs() == null ? List.of()
+                : dto.getExecutionLogs().stream().map(SessionLogsArchive::toExecution).toList();
+        return new Workout(dto.getId(), dto.getVersion(), dto.getSessionName(), dto.getSessionPlanName(),
+                dto.getSessionPlan(), dto.getStartedAt(), dto.getCompletedAt(), dto.getStatus(),
+                dto.getAutoCompleted(), dto.getNotes(), dto.getOriginalSessionId(), executions);
+    }
+
+    private static Execution toExecution(ExecutionLogsResponseDto dto) {
+        return new Execution(dto.getId(), dto.getVersion(), dto.getExerciseExecutionId(),
+                dto.getExerciseExecutionPlannedSets(), dto.getExerciseExecutionPlannedReps(),
+                dto.getExerciseExecutionPlannedWeight(), dto.getExerciseId(), dto.getExerciseName(),
+                dto.getExerciseCategory(), dto.getExerciseMuscleGroup(), dto.getExerciseDescription(),
+                dto.getActualSets(), dto.getActualReps(), dto.getActualWeight(), dto.getSets(),
+                dto.getCompleted(), dto.getNotes());
+    }
+
+    private static SessionLogsResponseDto toResponseDto(Workout workout) {
+        SessionLogsResponseDto dto = new SessionLogsResponseDto();
+        dto.setId(workout.id());
+        dto.setVersion(workout.version());
+        dto.setSessionName(workout.sessionName());
+        dto.setSessionPlanName(workout.sessionPlanName());
+        dto.setSessionPlan(workout.sessionPlan());
+        dto.setStartedAt(workout.startedAt());
+        dto.setCompletedAt(workout.completedAt());
+        dto.setStatus(workout.status());
+        dto.setAutoCompleted(workout.autoCompleted());
+        dto.setNotes(workout.notes());
+        dto.setOriginalSessionId(workout.originalSessionId());
+        dto.setExecutionLogs(workout.executionLogs().stream()
+                .map(execution -> toResponseDto(execution, workout.id()))
+                .toList());
+        dto.setExecutionLogCount(workout.executionLogs().size());
+        return dto;
+    }
+
+    private static ExecutionLogsResponseDto toResponseDto(Execution execution, UUID sessionLogId) {
+        ExecutionLogsResponseDto dto = new ExecutionLogsResponseDto();
+        dto.setId(execution.id());
+        dto.setVersion(execution.version());
+        dto.setExerciseExecutionId(execution.exerciseExecutionId());
+        dto.setExerciseExecutionPlannedSets(execution.plannedSets());
+        dto.setExerciseExecutionPlannedReps(execution.plannedReps());
+        dto.setExerciseExecutionPlannedWeight(execution.plannedWeight());
+        dto.setExerciseId(execution.exerciseId());
+        dto.setExerciseName(execution.exerciseName());
+        dto.setExerciseCategory(execution.exerciseCategory());
+        dto.setExerciseMuscleGroup(execution.exerciseMuscleGroup());
+        dto.setExerciseDescription(execution.exerciseDescription());
+        dto.setActualSets(execution.actualSets());
+        dto.setActualReps(execution.actualReps());
+        dto.setActualWeight(execution.actualWeight());
+        dto.setSets(execution.sets());
+        dto.setCompleted(execution.completed());
+        dto.setNotes(execution.notes());
+        dto.setSessionLogId(sessionLogId);
+        return dto;
+    }
+}
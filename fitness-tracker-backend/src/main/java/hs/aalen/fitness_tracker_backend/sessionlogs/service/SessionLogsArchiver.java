@@ -0,0 +1,32 @@
+package hs.aalen.fitness_tracker_backend.sessionlogs.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Moves completed workouts older than the configured age into the
+ * archive, one short transaction per batch.
+ */
+@Component
+public class SessionLogsArchiver {
+    @Autowired
+    private SessionLogsService sessionLogsService;
+
+    @Value("${fitness.archive.after:P365D}")
+    private Duration archiveAfter = Duration.ofDays(365);
+    @Value("${fitness.archive.batch-size:100}")
+    private int batchSize = 100;
+
+    @Scheduled(fixedDelayString = "${fitness.archive.interval:PT1H}")
+    public void archiveDue() {
+        Instant cutoff = Instant.now().minus(archiveAfter);
+        int archived;
+        do {
+            archived = sessionLogsService.archiveCompletedBefore(cutoff, batchSize);
+        } while (archived == batchSize);
+    }
+}
@@ -0,0 +1,25 @@
+package hs.aalen.fitness_tracker_backend.sessionlogs.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import hs.aalen.fitness_tracker_backend.outbox.model.OutboxEvents;
+import hs.aalen.fitness_tracker_backend.outbox.service.OutboxHandler;
+
+/**
+ * Ends the live streams of a workout once its completion committed.
+ */
+@Component
+public class SessionLogsCompletedStreamHandler implements OutboxHandler {
+    @Autowired
+    private SessionLogsStreamService sessionLogsStreamService;
+
+    @Override
+    public String eventType() {
+        return SessionLogsService.SESSION_LOG_COMPLETED;
+    }
+
+    @Override
+    public void handle(OutboxEvents event) {
+        sessionLogsStreamService.close(event.getAggregateId());
+    }
+}
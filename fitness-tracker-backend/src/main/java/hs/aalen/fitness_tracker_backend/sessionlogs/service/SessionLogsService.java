@@ -1,38 +1,65 @@
 package hs.aalen.fitness_tracker_backend.sessionlogs.service;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import hs.aalen.fitness_tracker_backend.executionlogs.model.ExecutionLogs;
 import hs.aalen.fitness_tracker_backend.executionlogs.dto.ExecutionLogsResponseDto;
+import hs.aalen.fitness_tracker_backend.executionlogs.repository.ExecutionLogsRepository;
+import hs.aalen.fitness_tracker_backend.executionlogs.service.ExecutionLogsEditBuffer;
+import hs.aalen.fitness_tracker_backend.executionlogs.service.ExecutionLogsService;
 import hs.aalen.fitness_tracker_backend.exerciseexecutions.model.ExerciseExecutions;
-import hs.aalen.fitness_tracker_backend.exerciseexecutions.repository.ExerciseExecutionsRepository;
+import hs.aalen.fitness_tracker_backend.outbox.service.OutboxService;
 import hs.aalen.fitness_tracker_backend.sessionlogs.dto.SessionLogsResponseDto;
 import hs.aalen.fitness_tracker_backend.sessionlogs.dto.SessionLogsUpdateDto;
 import hs.aalen.fitness_tracker_backend.sessionlogs.model.SessionLogs;
 import hs.aalen.fitness_tracker_backend.sessionlogs.repository.SessionLogsRepository;
 import hs.aalen.fitness_tracker_backend.sessions.model.Sessions;
 import hs.aalen.fitness_tracker_backend.sessions.repository.SessionsRepository;
+import hs.aalen.fitness_tracker_backend.shared.OptimisticRetry;
+import hs.aalen.fitness_tracker_backend.shared.Versions;
 import hs.aalen.fitness_tracker_backend.users.model.Users;
 import hs.aalen.fitness_tracker_backend.users.repository.UsersRepository;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class SessionLogsService {
+    public static final String SESSION_LOG_COMPLETED = "session-log.completed";
+
     @Autowired
     private SessionLogsRepository sessionLogsRepository;
     @Autowired
     private SessionsRepository sessionsRepository;
     @Autowired
-    private ExerciseExecutionsRepository exerciseExecutionsRepository;
-    @Autowired
     private UsersRepository usersRepository;
+    @Autowired
+    private OptimisticRetry optimisticRetry;
+    @Autowired
+    private SessionLogsStreamService sessionLogsStreamService;
+    @Autowired
+    private ExecutionLogsService executionLogsService;
+    @Autowired
+    private ExecutionLogsEditBuffer executionLogsEditBuffer;
+    @Autowired
+    private OutboxService outboxService;
+    @Autowired
+    private ExecutionLogsRepository executionLogsRepository;
+    @Autowired
+    private SessionLogsArchive sessionLogsArchive;
+    @PersistenceContext
+    private EntityManager entityManager;
 
 
     private Users resolveUser(String username) {
@@ -55,8 +82,8 @@ public class SessionLogsService {
         Sessions session = sessionsRepository.findById(sessionId)
                 .orElseThrow(() -> new RuntimeException("Session not found"));
 
-        // Prevent starting empty workouts
-        List<ExerciseExecutions> executions = exerciseExecutionsRepository.findBySessionIdOrderByOrderID(sessionId);
+        // Prevent starting empty workouts; the ordered collection comes from the second-level cache
+        List<ExerciseExecutions> executions = session.getExerciseExecutions();
         if (executions.isEmpty()) {
             throw new IllegalArgumentException(
                     "Cannot start training: Session must contain at least one exercise");
@@ -77,10 +104,11 @@ public class SessionLogsService {
         SessionLogs savedLog = sessionLogsRepository.save(sessionLog);
 
         // Snapshot planned exercises into the workout log
-        for (ExerciseExecutions execution : executions) {
+        for (int i = 0; i < executions.size(); i++) {
+            ExerciseExecutions execution = executions.get(i);
             ExecutionLogs executionLog = new ExecutionLogs();
             // Persist planned execution details for a stable history
-            executionLog.setExerciseExecutionId(execution.getOrderID());
+            executionLog.setExerciseExecutionId(i + 1);
             executionLog.setExerciseExecutionPlannedSets(execution.getPlannedSets());
             executionLog.setExerciseExecutionPlannedReps(execution.getPlannedReps());
             executionLog.setExerciseExecutionPlannedWeight(execution.getPlannedWeight());
@@ -88,7 +116,7 @@ public class SessionLogsService {
             executionLog.setExerciseId(execution.getExercise().getId());
             executionLog.setExerciseName(execution.getExercise().getName());
             executionLog.setExerciseCategory(execution.getExercise().getCategory());
-            executionLog.setExerciseMuscleGroup(execution.getExercise().getMuscleGroups());
+            executionLog.setExerciseMuscleGroupMask(execution.getExercise().getMuscleGroupMask());
             executionLog.setExerciseDescription(execution.getExercise().getDescription());
             // Default actuals to planned values until user edits
             executionLog.setActualSets(execution.getPlannedSets());
@@ -105,36 +133,167 @@ public class SessionLogsService {
         return mapToResponseDto(finalLog);
     }
 
-    @Transactional
+    // Completing is a server-side merge, so a concurrent edit of the log just triggers a retry
     public SessionLogsResponseDto completeSession(UUID sessionLogId, String username) {
-        SessionLogs sessionLog = getSessionLogWithOwnershipCheck(sessionLogId, username);
-        sessionLog.setStatus(SessionLogs.LogStatus.Completed);
-        sessionLog.setCompletedAt(Instant.now());
-        SessionLogs updated = sessionLogsRepository.save(sessionLog);
-        return mapToResponseDto(updated);
+        return executionLogsEditBuffer.completing(List.of(sessionLogId), () -> {
+            executionLogsService.flushPendingEdits(sessionLogId);
+            return optimisticRetry.run(null, () -> {
+                SessionLogs sessionLog = getSessionLogWithOwnershipCheck(sessionLogId, username);
+                // A repeated call keeps the first completion time; the weekly and progression
+                // aggregates were derived from it and would not be recounted
+                if (sessionLog.getStatus() == SessionLogs.LogStatus.Completed) {
+                    return mapToResponseDto(sessionLog);
+                }
+                sessionLog.setStatus(SessionLogs.LogStatus.Completed);
+                sessionLog.setCompletedAt(Instant.now());
+                SessionLogs updated = sessionLogsRepository.saveAndFlush(sessionLog);
+                // Derived work runs from the outbox after commit instead of inside this request
+                outboxService.record(SESSION_LOG_COMPLETED, updated.getId());
+                return mapToResponseDto(updated);
+            });
+        });
     }
 
-    public List<SessionLogsResponseDto> getAllSessionLogs(String username) {
+    /**
+     * Streams the caller's session logs, optionally only those of one
+     * session, to the sink row by row inside a read-only transaction,
+     * oldest completion first. Archived workouts all completed before those
+     * left in the log tables, so they come first.
+     */
+    @Transactional(readOnly = true)
+    public void streamSessionLogs(UUID sessionId, String username, Consumer<SessionLogsResponseDto> sink) {
         Users owner = resolveUser(username);
-        return sessionLogsRepository.findByOwner(owner).stream()
-                .map(this::mapToResponseDto)
-                .collect(Collectors.toList());
+        sessionLogsArchive.forEach(owner.getId(), sessionId, sink);
+        Stream<SessionLogs> rows = sessionId != null
+                ? sessionLogsRepository.streamByOwnerAndOriginalSessionId(owner, sessionId)
+                : sessionLogsRepository.streamByOwner(owner);
+        try (rows) {
+            rows.forEach(sessionLog -> {
+                sink.accept(mapToResponseDto(sessionLog));
+                // Detaching cascades to the execution logs loaded for this row
+                entityManager.detach(sessionLog);
+            });
+        }
     }
 
+    @Transactional(readOnly = true)
     public SessionLogsResponseDto getSessionLogById(UUID id, String username) {
-        SessionLogs sessionLog = getSessionLogWithOwnershipCheck(id, username);
-        return mapToResponseDto(sessionLog);
-    }
-
-    public List<SessionLogsResponseDto> getSessionLogsBySessionId(UUID sessionId, String username) {
         Users owner = resolveUser(username);
-        return sessionLogsRepository.findByOwnerAndOriginalSessionId(owner, sessionId).stream()
+        return sessionLogsRepository.findByIdAndOwner(id, owner)
                 .map(this::mapToResponseDto)
-                .collect(Collectors.toList());
+                .or(() -> sessionLogsArchive.find(id, owner.getId()))
+                .orElseThrow(() -> new AccessDeniedException("Session log not found or access denied"));
+    }
+
+    /**
+     * Archives up to limit workouts completed before the cutoff, oldest
+     * first: each is stored as it reads and then removed from the log
+     * tables together with its execution logs. Returns how many moved.
+     */
+    @Transactional
+    public int archiveCompletedBefore(Instant cutoff, int limit) {
+        List<UUID> ids = sessionLogsRepository.findIdsCompletedBefore(
+                SessionLogs.LogStatus.Completed, cutoff, PageRequest.of(0, limit));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        for (SessionLogs sessionLog : sessionLogsRepository.findWithExecutionLogsByIdIn(ids)) {
+            sessionLogsArchive.store(mapToResponseDto(sessionLog), sessionLog.getOwner().getId());
+        }
+        executionLogsRepository.deleteBySessionLogIdIn(ids);
+        sessionLogsRepository.deleteByIdIn(ids);
+        return ids.size();
+    }
+
+    /**
+     * Completes up to limit workouts still in progress that were started
+     * before the cutoff, oldest first. Buffered edits are written first and
+     * the completion goes through the outbox like any other; the workouts
+     * are marked auto-completed so reports do not count them as trained,
+     * and their live streams are closed. Returns how many were picked up.
+     */
+    public int completeStartedBefore(Instant cutoff, int limit) {
+        List<UUID> ids = findInProgressStartedBefore(cutoff, limit);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        List<UUID> completed = executionLogsEditBuffer.completing(ids, () -> {
+            ids.forEach(executionLogsService::flushPendingEdits);
+            return optimisticRetry.run(null, () -> {
+                List<UUID> swept = new ArrayList<>();
+                for (SessionLogs sessionLog : sessionLogsRepository.findAllById(ids)) {
+                    // Skip workouts the user finished since they were picked
+                    if (isInProgressBefore(sessionLog, cutoff)) {
+                        sessionLog.setStatus(SessionLogs.LogStatus.Completed);
+                        sessionLog.setAutoCompleted(true);
+                        // Dated to its start so history places the workout when it was trained, not when it was swept
+                        sessionLog.setCompletedAt(sessionLog.getStartedAt());
+                        sessionLogsRepository.saveAndFlush(sessionLog);
+                        outboxService.record(SESSION_LOG_COMPLETED, sessionLog.getId());
+                        swept.add(sessionLog.getId());
+                    }
+                }
+                return swept;
+            });
+        });
+        completed.forEach(sessionLogsStreamService::close);
+        return ids.size();
+    }
+
+    /**
+     * Deletes up to limit workouts still in progress that were started
+     * before the cutoff, oldest first, together with their execution logs,
+     * buffered edits and open streams. Returns how many were picked up.
+     */
+    public int deleteStartedBefore(Instant cutoff, int limit) {
+        List<UUID> ids = findInProgressStartedBefore(cutoff, limit);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        List<UUID> deleted = optimisticRetry.run(null, () -> {
+            List<SessionLogs> stale = sessionLogsRepository.findWithExecutionLogsByIdIn(ids).stream()
+                    .filter(sessionLog -> isInProgressBefore(sessionLog, cutoff))
+                    .toList();
+            // Versioned deletes, so a workout completed meanwhile fails the batch instead of vanishing
+            sessionLogsRepository.deleteAll(stale);
+            sessionLogsRepository.flush();
+            return stale.stream().map(SessionLogs::getId).toList();
+        });
+        for (UUID id : deleted) {
+            executionLogsEditBuffer.discardSessionLog(id);
+            sessionLogsStreamService.close(id);
+        }
+        return ids.size();
+    }
+
+    private List<UUID> findInProgressStartedBefore(Instant cutoff, int limit) {
+        return sessionLogsRepository.findIdsStartedBefore(
+                SessionLogs.LogStatus.InProgress, cutoff, PageRequest.of(0, limit));
+    }
+
+    private static boolean isInProgressBefore(SessionLogs sessionLog, Instant cutoff) {
+        return sessionLog.getStatus() == SessionLogs.LogStatus.InProgress && sessionLog.getStartedAt().isBefore(cutoff);
     }
 
     public SessionLogsResponseDto updateSessionLog(UUID id, SessionLogsUpdateDto dto, String username) {
+        return updateSessionLog(id, dto, username, null);
+    }
+
+    public SessionLogsResponseDto updateSessionLog(
+            UUID id, SessionLogsUpdateDto dto, String username, Long expectedVersion) {
+        if (dto.getStatus() == SessionLogs.LogStatus.Completed) {
+            return executionLogsEditBuffer.completing(List.of(id), () -> {
+                executionLogsService.flushPendingEdits(id);
+                return optimisticRetry.run(expectedVersion, () -> applyUpdate(id, dto, username, expectedVersion));
+            });
+        }
+        return optimisticRetry.run(expectedVersion, () -> applyUpdate(id, dto, username, expectedVersion));
+    }
+
+    private SessionLogsResponseDto applyUpdate(
+            UUID id, SessionLogsUpdateDto dto, String username, Long expectedVersion) {
         SessionLogs sessionLog = getSessionLogWithOwnershipCheck(id, username);
+        Versions.checkIfMatch(expectedVersion, sessionLog.getVersion(), "Session log");
 
         if (sessionLog.getStatus() == SessionLogs.LogStatus.Completed) {
             throw new IllegalArgumentException("Cannot update a completed training");
@@ -149,7 +308,10 @@ public class SessionLogsService {
                 sessionLog.setCompletedAt(Instant.now());
             }
         }
-        SessionLogs updated = sessionLogsRepository.save(sessionLog);
+        SessionLogs updated = sessionLogsRepository.saveAndFlush(sessionLog);
+        if (updated.getStatus() == SessionLogs.LogStatus.Completed) {
+            outboxService.record(SESSION_LOG_COMPLETED, updated.getId());
+        }
         return mapToResponseDto(updated);
     }
 
@@ -164,17 +326,21 @@ public class SessionLogsService {
         }
 
         sessionLogsRepository.deleteById(id);
+        executionLogsEditBuffer.discardSessionLog(id);
+        sessionLogsStreamService.close(id);
     }
 
     private SessionLogsResponseDto mapToResponseDto(SessionLogs sessionLog) {
         SessionLogsResponseDto dto = new SessionLogsResponseDto();
         dto.setId(sessionLog.getId());
+        dto.setVersion(sessionLog.getVersion());
         dto.setSessionName(sessionLog.getSessionName());
         dto.setSessionPlanName(sessionLog.getSessionPlanName());
         dto.setSessionPlan(sessionLog.getSessionPlan());
         dto.setStartedAt(sessionLog.getStartedAt());
         dto.setCompletedAt(sessionLog.getCompletedAt());
         dto.setStatus(sessionLog.getStatus());
+        dto.setAutoCompleted(sessionLog.getAutoCompleted());
         dto.setNotes(sessionLog.getNotes());
         dto.setOriginalSessionId(sessionLog.getOriginalSessionId());
         List<ExecutionLogsResponseDto> executionLogs = mapExecutionLogs(sessionLog);
@@ -192,6 +358,7 @@ public class SessionLogsService {
     private ExecutionLogsResponseDto mapExecutionLog(ExecutionLogs executionLog) {
         ExecutionLogsResponseDto dto = new ExecutionLogsResponseDto();
         dto.setId(executionLog.getId());
+        dto.setVersion(executionLog.getVersion());
         dto.setExerciseExecutionId(executionLog.getExerciseExecutionId());
         dto.setExerciseExecutionPlannedSets(executionLog.getExerciseExecutionPlannedSets());
         dto.setExerciseExecutionPlannedReps(executionLog.getExerciseExecutionPlannedReps());
@@ -204,9 +371,10 @@ public class SessionLogsService {
         dto.setActualSets(executionLog.getActualSets());
         dto.setActualReps(executionLog.getActualReps());
         dto.setActualWeight(executionLog.getActualWeight());
+        dto.setSets(executionLog.getSets());
         dto.setCompleted(executionLog.getCompleted());
         dto.setNotes(executionLog.getNotes());
         dto.setSessionLogId(executionLog.getSessionLog() != null ? executionLog.getSessionLog().getId() : null);
-        return dto;
+        return executionLogsEditBuffer.overlay(dto);
     }
 }
@@ -0,0 +1,245 @@
+package hs.aalen.fitness_tracker_backend.sessionlogs.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import hs.aalen.fitness_tracker_backend.executionlogs.dto.ExecutionLogsChangeDto;
+import hs.aalen.fitness_tracker_backend.sessionlogs.repository.SessionLogsRepository;
+import hs.aalen.fitness_tracker_backend.users.model.Users;
+import hs.aalen.fitness_tracker_backend.users.repository.UsersRepository;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live stream of execution log changes per session log. Every event carries
+ * an increasing id; the last events of each watched session log are kept so
+ * a client reconnecting with Last-Event-ID gets what it missed instead of
+ * refetching. Events are queued per client and written on the stream
+ * executor, so a slow connection never holds up the request that committed
+ * the change.
+ */
+@Service
+public class SessionLogsStreamService {
+    static final String CHANGE_EVENT = "execution-log";
+    static final String RESYNC_EVENT = "resync";
+
+    @Autowired
+    private SessionLogsRepository sessionLogsRepository;
+    @Autowired
+    private UsersRepository usersRepository;
+    @Autowired
+    @Qualifier("streamExecutor")
+    private TaskExecutor streamExecutor;
+
+    @Value("${fitness.stream.timeout:PT30M}")
+    private Duration timeout = Duration.ofMinutes(30);
+    @Value("${fitness.stream.replay-size:100}")
+    private int replaySize = 100;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<UUID, Channel> channels = new ConcurrentHashMap<>();
+
+    private record StreamEvent(long id, ExecutionLogsChangeDto change) {
+    }
+
+    /**
+     * Subscribers and recent events of one session log, guarded by the
+     * channel's monitor. A channel exists only while someone listens; a new
+     * one treats every earlier event as missed.
+     */
+    private static class Channel {
+        private final Deque<StreamEvent> events = new ArrayDeque<>();
+        private final Set<Subscriber> subscribers = new CopyOnWriteArraySet<>();
+        private long droppedUpTo;
+        private boolean closed;
+
+        Channel(long droppedUpTo) {
+            this.droppedUpTo = droppedUpTo;
+        }
+    }
+
+    // One client connection with the events not yet written to it, sent in order by at most one task at a time
+    private class Subscriber {
+        private final UUID sessionLogId;
+        private final SseEmitter emitter;
+        private final Queue<SseEmitter.SseEventBuilder> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingCount = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        Subscriber(UUID sessionLogId, SseEmitter emitter) {
+            this.sessionLogId = sessionLogId;
+            this.emitter = emitter;
+        }
+
+        void enqueue(SseEmitter.SseEventBuilder event) {
+            if (pendingCount.incrementAndGet() > replaySize) {
+                // Too far behind; dropping it makes the client reconnect and replay or resync
+                leave(this);
+                emitter.completeWithError(new IllegalStateException("Stream client too slow"));
+                return;
+            }
+            pending.add(event);
+            if (draining.compareAndSet(false, true)) {
+                streamExecutor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                SseEmitter.SseEventBuilder event;
+                while ((event = pending.poll()) != null) {
+                    pendingCount.decrementAndGet();
+                    try {
+                        emitter.send(event);
+                    } catch (IOException | IllegalStateException e) {
+                        leave(this);
+                        emitter.completeWithError(e);
+                        pending.clear();
+                        return;
+                    }
+                }
+                draining.set(false);
+            } while (!pending.isEmpty() && draining.compareAndSet(false, true));
+        }
+    }
+
+    public SseEmitter subscribe(UUID sessionLogId, String username, String lastEventId) {
+        Users owner = usersRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found: " + username));
+        sessionLogsRepository.findByIdAndOwner(sessionLogId, owner)
+                .orElseThrow(() -> new AccessDeniedException("Session log not found or access denied"));
+
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(sessionLogId, emitter);
+        emitter.onCompletion(() -> leave(subscriber));
+        emitter.onTimeout(() -> leave(subscriber));
+        emitter.onError(e -> leave(subscriber));
+
+        // Replay is queued under the channel lock so no change slips between replay and registration
+        while (true) {
+            Channel channel = channels.computeIfAbsent(sessionLogId, id -> new Channel(sequence.get()));
+            synchronized (channel) {
+                if (channel.closed) {
+                    continue;
+                }
+                replay(subscriber, channel, parseEventId(lastEventId));
+                channel.subscribers.add(subscriber);
+                return emitter;
+            }
+        }
+    }
+
+    private void replay(Subscriber subscriber, Channel channel, Long lastEventId) {
+        if (lastEventId == null) {
+            return;
+        }
+        if (lastEventId < channel.droppedUpTo || lastEventId > sequence.get()) {
+            // Missed events were dropped or predate a restart; the client has to reload the session log
+            subscriber.enqueue(SseEmitter.event().id(String.valueOf(sequence.get())).name(RESYNC_EVENT).data(""));
+            return;
+        }
+        for (StreamEvent event : channel.events) {
+            if (event.id() > lastEventId) {
+                subscriber.enqueue(toSse(event));
+            }
+        }
+    }
+
+    private Long parseEventId(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.valueOf(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onExecutionLogChanged(ExecutionLogsChangeDto change) {
+        StreamEvent event = new StreamEvent(sequence.incrementAndGet(), change);
+        Channel channel = channels.get(change.getSessionLogId());
+        if (channel == null) {
+            return;
+        }
+        synchronized (channel) {
+            if (channel.closed) {
+                return;
+            }
+            channel.events.addLast(event);
+            while (channel.events.size() > replaySize) {
+                channel.droppedUpTo = channel.events.removeFirst().id();
+            }
+            for (Subscriber subscriber : channel.subscribers) {
+                subscriber.enqueue(toSse(event));
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${fitness.stream.heartbeat-interval:PT15S}")
+    public void sendHeartbeats() {
+        for (Channel channel : channels.values()) {
+            for (Subscriber subscriber : channel.subscribers) {
+                subscriber.enqueue(SseEmitter.event().comment("heartbeat"));
+            }
+        }
+    }
+
+    /**
+     * Closes the streams of a session log and forgets its replay buffer,
+     * called once the workout can no longer change.
+     */
+    public void close(UUID sessionLogId) {
+        Channel channel = channels.remove(sessionLogId);
+        if (channel == null) {
+            return;
+        }
+        synchronized (channel) {
+            channel.closed = true;
+        }
+        channel.subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    // Drops the subscriber and, with the last one gone, the channel and its buffered events
+    private void leave(Subscriber subscriber) {
+        Channel channel = channels.get(subscriber.sessionLogId);
+        if (channel == null) {
+            return;
+        }
+        synchronized (channel) {
+            channel.subscribers.remove(subscriber);
+            if (channel.subscribers.isEmpty() && !channel.closed) {
+                channel.closed = true;
+                channels.remove(subscriber.sessionLogId, channel);
+            }
+        }
+    }
+
+    private SseEmitter.SseEventBuilder toSse(StreamEvent event) {
+        return SseEmitter.event()
+                .id(String.valueOf(event.id()))
+                .name(CHANGE_EVENT)
+                .data(event.change());
+    }
+}
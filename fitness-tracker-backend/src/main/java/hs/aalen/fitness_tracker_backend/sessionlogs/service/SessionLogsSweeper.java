@@ -0,0 +1,42 @@
+package hs.aalen.fitness_tracker_backend.sessionlogs.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Cleans up workouts that were started but never finished, either by
+ * completing or by deleting them, one short transaction per batch.
+ */
+@Component
+public class SessionLogsSweeper {
+    public enum Policy {
+        Complete,
+        Delete
+    }
+
+    @Autowired
+    private SessionLogsService sessionLogsService;
+
+    @Value("${fitness.sweeper.stale-after:P2D}")
+    private Duration staleAfter = Duration.ofDays(2);
+    @Value("${fitness.sweeper.policy:Complete}")
+    private Policy policy = Policy.Complete;
+    @Value("${fitness.sweeper.batch-size:100}")
+    private int batchSize = 100;
+
+    @Scheduled(fixedDelayString = "${fitness.sweeper.interval:PT1H}")
+    public void sweepStale() {
+        Instant cutoff = Instant.now().minus(staleAfter);
+        int swept;
+        do {
+            swept = switch (policy) {
+                case Complete -> sessionLogsService.completeStartedBefore(cutoff, batchSize);
+                case Delete -> sessionLogsService.deleteStartedBefore(cutoff, batchSize);
+            };
+        } while (swept == batchSize);
+    }
+}
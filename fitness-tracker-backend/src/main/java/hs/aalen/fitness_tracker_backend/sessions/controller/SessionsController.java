@@ -1,11 +1,14 @@
 package hs.aalen.fitness_tracker_backend.sessions.controller;
 
 import hs.aalen.fitness_tracker_backend.sessions.dto.SessionsCreateDto;
+import hs.aalen.fitness_tracker_backend.sessions.dto.SessionsReorderDto;
 import hs.aalen.fitness_tracker_backend.sessions.dto.SessionsResponseDto;
 import hs.aalen.fitness_tracker_backend.sessions.dto.SessionsUpdateDto;
 import hs.aalen.fitness_tracker_backend.sessions.service.SessionsService;
 import jakarta.persistence.EntityNotFoundException;
+import hs.aalen.fitness_tracker_backend.shared.Versions;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -33,7 +36,8 @@ public class SessionsController {
     public ResponseEntity<SessionsResponseDto> getSessionById(@PathVariable UUID id, Principal principal) {
         try {
             String username = principal != null ? principal.getName() : null;
-            return ResponseEntity.ok(service.getById(id, username));
+            SessionsResponseDto session = service.getById(id, username);
+            return ResponseEntity.ok().eTag(String.valueOf(session.getVersion())).body(session);
         } catch (EntityNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
@@ -50,6 +54,18 @@ public class SessionsController {
         }
     }
 
+    @PutMapping("/reorder")
+    public ResponseEntity<?> reorderSessions(@Valid @RequestBody SessionsReorderDto dto) {
+        try {
+            return ResponseEntity.ok(service.reorder(dto));
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(e.getMessage());
+        }
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteSession(@PathVariable UUID id) {
         try {
@@ -63,10 +79,11 @@ public class SessionsController {
     @PutMapping("/{id}")
     public ResponseEntity<?> updateSession(
             @PathVariable UUID id,
-            @Valid @RequestBody SessionsUpdateDto dto) {
+            @Valid @RequestBody SessionsUpdateDto dto,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            SessionsResponseDto updated = service.update(id, dto);
-            return ResponseEntity.ok(updated);
+            SessionsResponseDto updated = service.update(id, dto, Versions.fromIfMatch(ifMatch));
+            return ResponseEntity.ok().eTag(String.valueOf(updated.getVersion())).body(updated);
         } catch (EntityNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         } catch (IllegalArgumentException e) {
@@ -0,0 +1,26 @@
+package hs.aalen.fitness_tracker_backend.sessions.dto;
+
+import hs.aalen.fitness_tracker_backend.exerciseexecutions.dto.ExerciseExecutionsNestedCreateDto;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class SessionsNestedCreateDto {
+
+    @NotBlank
+    private String name;
+
+    // Defaults to the position in the list
+    @Min(value = 1, message = "Order must be between 1 and 30")
+    @Max(value = 30, message = "Order must be between 1 and 30")
+    private Integer orderID;
+
+    @Valid
+    private List<ExerciseExecutionsNestedCreateDto> exerciseExecutions = new ArrayList<>();
+}
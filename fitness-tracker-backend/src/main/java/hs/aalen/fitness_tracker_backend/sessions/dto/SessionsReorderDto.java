@@ -0,0 +1,19 @@
+package hs.aalen.fitness_tracker_backend.sessions.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+public class SessionsReorderDto {
+
+    @NotNull(message = "Plan ID is required")
+    private UUID planId;
+
+    // Complete new order of the plan, first entry gets order 1
+    @NotEmpty(message = "Session IDs are required")
+    private List<UUID> sessionIds;
+}
@@ -8,6 +8,7 @@ import java.util.UUID;
 @Data
 public class SessionsResponseDto {
     private UUID id;
+    private Long version;
     private String name;
     private UUID planId;
     private Integer orderID;
@@ -3,25 +3,39 @@ package hs.aalen.fitness_tracker_backend.sessions.model;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import hs.aalen.fitness_tracker_backend.exerciseexecutions.model.ExerciseExecutions;
 import hs.aalen.fitness_tracker_backend.plans.model.Plans;
+import hs.aalen.fitness_tracker_backend.shared.RankKeys;
 
 @Entity
 @Getter
 @Setter
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "sessions")
 @Table(uniqueConstraints = {
-        @UniqueConstraint(columnNames = { "plan_id", "name" })
+        @UniqueConstraint(name = Sessions.UNIQUE_PLAN_NAME, columnNames = { "plan_id", "name" }),
+        @UniqueConstraint(name = Sessions.UNIQUE_PLAN_ORDER, columnNames = { "plan_id", "rankKey" })
 })
 public class Sessions {
+    public static final String UNIQUE_PLAN_NAME = "uk_sessions_plan_name";
+    public static final String UNIQUE_PLAN_ORDER = "uk_sessions_plan_order";
+
+
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
 
+    @Version
+    private Long version;
+
     @Column(nullable = false)
     private String name;
 
@@ -30,10 +44,18 @@ public class Sessions {
     @JsonBackReference
     private Plans plan;
 
+    // Sparse sort key within the plan, see RankKeys
     @Column(nullable = false)
-    private Integer orderID = 0;
+    @JsonIgnore
+    private Long rankKey = RankKeys.GAP;
+
+    // Position within the plan for serialized plans; not stored, PlansService derives it from the rank keys
+    @Transient
+    private Integer orderID;
 
     @OneToMany(mappedBy = "session", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("rankKey")
     @JsonManagedReference
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "sessions.exerciseExecutions")
     private List<ExerciseExecutions> exerciseExecutions = new ArrayList<>();
 }
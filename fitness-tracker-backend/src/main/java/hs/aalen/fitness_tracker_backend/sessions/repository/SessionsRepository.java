@@ -1,14 +1,22 @@
 package hs.aalen.fitness_tracker_backend.sessions.repository;
 
 import hs.aalen.fitness_tracker_backend.sessions.model.Sessions;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 import java.util.UUID;
 import java.util.List;
 
 @Repository
+@Transactional(readOnly = true)
 public interface SessionsRepository extends JpaRepository<Sessions, UUID> {
 
     Optional<Sessions> findByNameIgnoreCase(String name);
@@ -16,4 +24,21 @@ public interface SessionsRepository extends JpaRepository<Sessions, UUID> {
     Optional<Sessions> findByNameAndPlan_Id(String name, UUID planId);
 
     List<Sessions> findByPlan_Id(UUID planId);
+
+    List<Sessions> findByPlan_IdOrderByRankKey(UUID planId);
+
+    long countByPlan_Id(UUID planId);
+
+    @Query("select s.rankKey from Sessions s where s.plan.id = :planId and (:excludeId is null or s.id <> :excludeId) order by s.rankKey")
+    List<Long> findRankKeysByPlanId(@Param("planId") UUID planId, @Param("excludeId") UUID excludeId);
+
+    // Copies all sessions of a plan in one statement; names stay unique per plan and identify the copies.
+    // Naming the table keeps Hibernate from evicting every second-level cache region after the insert.
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "sessions"))
+    @Query(value = "insert into sessions (id, version, name, plan_id, rank_key) "
+            + "select random_uuid(), 0, s.name, :targetPlanId, s.rank_key from sessions s where s.plan_id = :sourcePlanId",
+            nativeQuery = true)
+    int copySessionsOfPlan(@Param("sourcePlanId") UUID sourcePlanId, @Param("targetPlanId") UUID targetPlanId);
 }
@@ -5,17 +5,34 @@ import hs.aalen.fitness_tracker_backend.exerciseexecutions.model.ExerciseExecuti
 import hs.aalen.fitness_tracker_backend.plans.model.Plans;
 import hs.aalen.fitness_tracker_backend.plans.repository.PlansRepository;
 import hs.aalen.fitness_tracker_backend.sessionlogs.repository.SessionLogsRepository;
+import hs.aalen.fitness_tracker_backend.sessionlogs.service.SessionLogsArchive;
 import hs.aalen.fitness_tracker_backend.sessions.dto.SessionsCreateDto;
+import hs.aalen.fitness_tracker_backend.sessions.dto.SessionsReorderDto;
 import hs.aalen.fitness_tracker_backend.sessions.dto.SessionsResponseDto;
 import hs.aalen.fitness_tracker_backend.sessions.dto.SessionsUpdateDto;
 import hs.aalen.fitness_tracker_backend.sessions.model.Sessions;
 import hs.aalen.fitness_tracker_backend.sessions.repository.SessionsRepository;
+import hs.aalen.fitness_tracker_backend.shared.OptimisticRetry;
+import hs.aalen.fitness_tracker_backend.shared.RankKeys;
+import hs.aalen.fitness_tracker_backend.shared.Versions;
 import hs.aalen.fitness_tracker_backend.users.model.Users;
 import hs.aalen.fitness_tracker_backend.users.repository.UsersRepository;
 import jakarta.persistence.EntityNotFoundException;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 import java.util.UUID;
 
@@ -26,17 +43,24 @@ public class SessionsService {
     private final SessionsRepository sessionsRepository;
     private final PlansRepository plansRepository;
     private final SessionLogsRepository sessionLogsRepository;
+    private final SessionLogsArchive sessionLogsArchive;
     private final UsersRepository usersRepository;
+    private final OptimisticRetry optimisticRetry;
+    private final Set<UUID> crowdedPlans = ConcurrentHashMap.newKeySet();
 
     public SessionsService(
             SessionsRepository sessionsRepository,
             PlansRepository plansRepository,
             SessionLogsRepository sessionLogsRepository,
-            UsersRepository usersRepository) {
+            SessionLogsArchive sessionLogsArchive,
+            UsersRepository usersRepository,
+            OptimisticRetry optimisticRetry) {
         this.sessionsRepository = sessionsRepository;
         this.plansRepository = plansRepository;
         this.sessionLogsRepository = sessionLogsRepository;
+        this.sessionLogsArchive = sessionLogsArchive;
         this.usersRepository = usersRepository;
+        this.optimisticRetry = optimisticRetry;
     }
 
     private void validateOrderRange(Integer orderID) {
@@ -45,25 +69,56 @@ public class SessionsService {
         }
     }
 
-    private Optional<Sessions> findSessionWithOrder(UUID planId, Integer orderID, UUID excludeSessionId) {
-        return sessionsRepository.findByPlan_Id(planId).stream()
-                .filter(s -> excludeSessionId == null || !s.getId().equals(excludeSessionId))
-                .filter(s -> s.getOrderID() != null && s.getOrderID().equals(orderID))
-                .findFirst();
+    // Dense 1-based position of the session within its plan
+    private Integer positionInPlan(Sessions session) {
+        if (session.getPlan() == null) {
+            return null;
+        }
+        List<Long> siblingKeys = sessionsRepository.findRankKeysByPlanId(session.getPlan().getId(), session.getId());
+        return RankKeys.positionOf(siblingKeys, session.getRankKey());
+    }
+
+    // Moves or inserts a session by writing only its own rank key; returns the position it landed on
+    private int placeAt(Sessions session, UUID planId, int position) {
+        List<Long> siblingKeys = sessionsRepository.findRankKeysByPlanId(planId, session.getId());
+        OptionalLong rankKey = RankKeys.forInsert(siblingKeys, position);
+        if (rankKey.isEmpty()) {
+            rebalance(planId);
+            siblingKeys = sessionsRepository.findRankKeysByPlanId(planId, session.getId());
+            rankKey = RankKeys.forInsert(siblingKeys, position);
+        }
+        session.setRankKey(rankKey.getAsLong());
+        if (RankKeys.isCrowded(siblingKeys, rankKey.getAsLong())) {
+            crowdedPlans.add(planId);
+        }
+        return RankKeys.positionOf(siblingKeys, rankKey.getAsLong());
+    }
+
+    private void applyOrder(List<Sessions> ordered) {
+        List<Sessions> moved = new ArrayList<>();
+        for (int i = 0; i < ordered.size(); i++) {
+            if (ordered.get(i).getRankKey() != RankKeys.forPosition(i + 1)) {
+                moved.add(ordered.get(i));
+            }
+        }
+
+        // Park moved rows on free negative keys first so the unique rank constraint holds between batches
+        moved.forEach(session -> session.setRankKey(RankKeys.parked(session.getRankKey())));
+        sessionsRepository.saveAllAndFlush(moved);
+
+        for (int i = 0; i < ordered.size(); i++) {
+            ordered.get(i).setRankKey(RankKeys.forPosition(i + 1));
+        }
+        sessionsRepository.saveAllAndFlush(moved);
     }
 
-    private void validateOrderNotTaken(UUID planId, Integer orderID, UUID excludeSessionId) {
-        validateOrderRange(orderID);
-        findSessionWithOrder(planId, orderID, excludeSessionId)
-                .ifPresent(s -> {
-                    throw new IllegalArgumentException(
-                            "Order " + orderID + " is already used in this plan");
-                });
+    private void rebalance(UUID planId) {
+        applyOrder(sessionsRepository.findByPlan_IdOrderByRankKey(planId));
     }
 
     private void validateMaxSessionsInPlan(UUID planId) {
         if (planId != null) {
-            long count = sessionsRepository.findByPlan_Id(planId).size();
+            long count = sessionsRepository.countByPlan_Id(planId);
 
             if (count >= 30) {
                 throw new IllegalArgumentException(
@@ -72,39 +127,66 @@ public class SessionsService {
         }
     }
 
-    private SessionsResponseDto toResponseDto(Sessions session, String username) {
+    // The checks above are only a fast path; the unique constraints decide concurrent writes
+    private Sessions saveChecked(Sessions session, Integer orderID) {
+        try {
+            return sessionsRepository.saveAndFlush(session);
+        } catch (DataIntegrityViolationException e) {
+            throw translateConstraintViolation(e, orderID);
+        }
+    }
+
+    private RuntimeException translateConstraintViolation(DataIntegrityViolationException e, Integer orderID) {
+        String cause = String.valueOf(e.getMostSpecificCause().getMessage()).toLowerCase();
+        if (cause.contains(Sessions.UNIQUE_PLAN_ORDER)) {
+            return new IllegalArgumentException(
+                    "Order " + orderID + " is already used in this plan");
+        }
+        if (cause.contains(Sessions.UNIQUE_PLAN_NAME)) {
+            return new IllegalArgumentException(
+                    "Session with this name already exists in this plan");
+        }
+        return e;
+    }
+
+    private SessionsResponseDto toResponseDto(Sessions session, Integer orderID, String username) {
         SessionsResponseDto response = new SessionsResponseDto();
         response.setId(session.getId());
+        response.setVersion(session.getVersion());
         response.setName(session.getName());
         response.setPlanId(session.getPlan() != null ? session.getPlan().getId() : null);
-        response.setOrderID(session.getOrderID());
+        response.setOrderID(orderID);
         response.setExerciseExecutionsCount(session.getExerciseExecutions().size());
-        response.setExerciseExecutions(session.getExerciseExecutions().stream()
-                .sorted(Comparator.comparing(
-                        ExerciseExecutions::getOrderID,
-                        Comparator.nullsLast(Comparator.naturalOrder())))
-                .map(this::toExerciseExecutionDto)
-                .toList());
+        List<ExerciseExecutions> executions = session.getExerciseExecutions().stream()
+                .sorted(Comparator.comparing(ExerciseExecutions::getRankKey))
+                .toList();
+        List<ExerciseExecutionsResponseDto> executionDtos = new ArrayList<>();
+        for (int i = 0; i < executions.size(); i++) {
+            executionDtos.add(toExerciseExecutionDto(executions.get(i), i + 1));
+        }
+        response.setExerciseExecutions(executionDtos);
 
         // Count is user‑specific, so compute at read time
         int sessionLogCount = 0;
         if (username != null) {
             Users owner = usersRepository.findByUsername(username).orElse(null);
             if (owner != null) {
-                sessionLogCount = (int) sessionLogsRepository.countByOwnerAndOriginalSessionId(owner, session.getId());
+                sessionLogCount = (int) (sessionLogsRepository.countByOwnerAndOriginalSessionId(owner, session.getId())
+                        + sessionLogsArchive.count(owner.getId(), session.getId()));
             }
         }
         response.setSessionLogCount(sessionLogCount);
         return response;
     }
 
-    private ExerciseExecutionsResponseDto toExerciseExecutionDto(ExerciseExecutions execution) {
+    private ExerciseExecutionsResponseDto toExerciseExecutionDto(ExerciseExecutions execution, int orderID) {
         ExerciseExecutionsResponseDto dto = new ExerciseExecutionsResponseDto();
         dto.setId(execution.getId());
+        dto.setVersion(execution.getVersion());
         dto.setPlannedSets(execution.getPlannedSets());
         dto.setPlannedReps(execution.getPlannedReps());
         dto.setPlannedWeight(execution.getPlannedWeight());
-        dto.setOrderID(execution.getOrderID());
+        dto.setOrderID(orderID);
         dto.setSessionId(execution.getSession() != null ? execution.getSession().getId() : null);
         dto.setSessionName(execution.getSession() != null ? execution.getSession().getName() : null);
         dto.setExerciseId(execution.getExercise() != null ? execution.getExercise().getId() : null);
@@ -112,19 +194,32 @@ public class SessionsService {
         return dto;
     }
 
+    @Transactional(readOnly = true)
     public List<SessionsResponseDto> getAll(String username) {
-        return sessionsRepository.findAll()
-                .stream()
-                .map(session -> toResponseDto(session, username))
+        List<Sessions> sessions = sessionsRepository.findAll();
+
+        // All sessions are listed, so one sort by rank gives every position
+        Map<UUID, Integer> positions = new HashMap<>();
+        Map<UUID, Integer> sessionsPerPlan = new HashMap<>();
+        sessions.stream()
+                .filter(session -> session.getPlan() != null)
+                .sorted(Comparator.comparing(Sessions::getRankKey))
+                .forEach(session -> positions.put(session.getId(),
+                        sessionsPerPlan.merge(session.getPlan().getId(), 1, Integer::sum)));
+
+        return sessions.stream()
+                .map(session -> toResponseDto(session, positions.get(session.getId()), username))
                 .toList();
     }
 
+    @Transactional(readOnly = true)
     public SessionsResponseDto getById(UUID id, String username) {
         Sessions session = sessionsRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Session not found"));
-        return toResponseDto(session, username);
+        return toResponseDto(session, positionInPlan(session), username);
     }
 
+    @Transactional
     public SessionsResponseDto create(SessionsCreateDto dto) {
         Plans plan = plansRepository.findById(dto.getPlanId())
                 .orElseThrow(() -> new EntityNotFoundException("Plan not found"));
@@ -140,27 +235,33 @@ public class SessionsService {
                     "Session with this name already exists in this plan");
         }
 
-        if (dto.getOrderID() != null) {
-            validateOrderNotTaken(dto.getPlanId(), dto.getOrderID(), null);
-        }
+        validateOrderRange(dto.getOrderID());
 
         Sessions session = new Sessions();
         session.setName(dto.getName());
         session.setPlan(plan);
-        if (dto.getOrderID() != null) {
-            session.setOrderID(dto.getOrderID());
-        }
+        int orderID = placeAt(session, dto.getPlanId(), dto.getOrderID());
         plan.getSessions().add(session);
 
-        Sessions saved = sessionsRepository.save(session);
-        return toResponseDto(saved, null);
+        Sessions saved = saveChecked(session, orderID);
+        return toResponseDto(saved, orderID, null);
     }
 
     public SessionsResponseDto update(UUID id, SessionsUpdateDto dto) {
+        return update(id, dto, null);
+    }
+
+    public SessionsResponseDto update(UUID id, SessionsUpdateDto dto, Long expectedVersion) {
+        return optimisticRetry.run(expectedVersion, () -> applyUpdate(id, dto, expectedVersion));
+    }
+
+    private SessionsResponseDto applyUpdate(UUID id, SessionsUpdateDto dto, Long expectedVersion) {
         Sessions existingSession = sessionsRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Session not found"));
+        Versions.checkIfMatch(expectedVersion, existingSession.getVersion(), "Session");
 
         Plans plan = null;
+        Integer orderID = null;
         if (dto.getPlanId() != null) {
             plan = plansRepository.findById(dto.getPlanId())
                     .orElseThrow(() -> new EntityNotFoundException("Plan not found"));
@@ -181,11 +282,16 @@ public class SessionsService {
                         "Session with this name already exists in this plan");
             }
 
-            Integer targetOrder = dto.getOrderID() != null ? dto.getOrderID() : existingSession.getOrderID();
+            Integer currentOrder = positionInPlan(existingSession);
+            Integer targetOrder = dto.getOrderID() != null ? dto.getOrderID() : currentOrder;
             if (targetOrder == null) {
                 throw new IllegalArgumentException("Order must be between 1 and 30");
             }
-            validateOrderNotTaken(dto.getPlanId(), targetOrder, id);
+            validateOrderRange(targetOrder);
+            // Moving only rewrites this row's rank key, the neighbours keep theirs
+            orderID = planChanged || !targetOrder.equals(currentOrder)
+                    ? placeAt(existingSession, dto.getPlanId(), targetOrder)
+                    : currentOrder;
 
             if (planChanged && existingSession.getPlan() != null) {
                 existingSession.getPlan().getSessions().remove(existingSession);
@@ -195,15 +301,50 @@ public class SessionsService {
             }
 
             existingSession.setPlan(plan);
-            if (dto.getOrderID() != null) {
-                existingSession.setOrderID(dto.getOrderID());
-            }
         }
 
         existingSession.setName(dto.getName());
 
-        Sessions saved = sessionsRepository.save(existingSession);
-        return toResponseDto(saved, null);
+        Sessions saved = saveChecked(existingSession, orderID);
+        return toResponseDto(saved, plan != null ? orderID : positionInPlan(saved), null);
+    }
+
+    @Transactional
+    public List<SessionsResponseDto> reorder(SessionsReorderDto dto) {
+        if (!plansRepository.existsById(dto.getPlanId())) {
+            throw new EntityNotFoundException("Plan not found");
+        }
+
+        Map<UUID, Sessions> sessionsById = sessionsRepository.findByPlan_Id(dto.getPlanId()).stream()
+                .collect(Collectors.toMap(Sessions::getId, Function.identity()));
+
+        List<UUID> orderedIds = dto.getSessionIds();
+        if (orderedIds.size() != sessionsById.size()
+                || !new HashSet<>(orderedIds).equals(sessionsById.keySet())) {
+            throw new IllegalArgumentException(
+                    "Reorder must list every session of the plan exactly once");
+        }
+
+        List<Sessions> reordered = orderedIds.stream()
+                .map(sessionsById::get)
+                .toList();
+        applyOrder(reordered);
+
+        List<SessionsResponseDto> response = new ArrayList<>();
+        for (int i = 0; i < reordered.size(); i++) {
+            response.add(toResponseDto(reordered.get(i), i + 1, null));
+        }
+        return response;
+    }
+
+    // Spreads the rank keys of plans whose gaps ran low during single-row moves
+    @Scheduled(fixedDelayString = "${fitness.ordering.rebalance-interval:PT5M}")
+    @Transactional
+    public void rebalanceCrowdedPlans() {
+        for (UUID planId : List.copyOf(crowdedPlans)) {
+            crowdedPlans.remove(planId);
+            rebalance(planId);
+        }
     }
 
     public void delete(UUID id) {
@@ -0,0 +1,44 @@
+package hs.aalen.fitness_tracker_backend.shared;
+
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs an update in its own transaction and, for server-side merges,
+ * repeats it on a fresh read when a concurrent commit bumped the version.
+ * Updates pinned to a client version via If-Match are never retried.
+ */
+@Component
+public class OptimisticRetry {
+
+    static final int MAX_ATTEMPTS = 3;
+
+    private final TransactionOperations transactions;
+
+    @Autowired
+    public OptimisticRetry(PlatformTransactionManager transactionManager) {
+        this(new TransactionTemplate(transactionManager));
+    }
+
+    public OptimisticRetry(TransactionOperations transactions) {
+        this.transactions = transactions;
+    }
+
+    public <T> T run(Long expectedVersion, Supplier<T> update) {
+        int attempts = expectedVersion == null ? MAX_ATTEMPTS : 1;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactions.execute(status -> update.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= attempts) {
+                    throw e;
+                }
+            }
+        }
+    }
+}
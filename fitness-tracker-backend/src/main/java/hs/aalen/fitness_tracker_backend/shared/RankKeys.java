@@ -0,0 +1,58 @@
+package hs.aalen.fitness_tracker_backend.shared;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.OptionalLong;
+
+/**
+ * Sparse ordering keys for sessions and exercise executions.
+ * Keys are spaced {@link #GAP} apart so an item can be inserted or moved
+ * by writing a key between its new neighbours, without touching them.
+ */
+public final class RankKeys {
+
+    public static final long GAP = 1L << 20;
+
+    // Below this distance to a neighbour the parent is queued for rebalancing
+    public static final long CROWDED_GAP = 1L << 10;
+
+    private RankKeys() {
+    }
+
+    public static long forPosition(int position) {
+        return position * GAP;
+    }
+
+    /**
+     * Key for inserting at a 1-based position into the sorted keys of the
+     * siblings. Positions past the end append. Empty when the neighbours are
+     * adjacent and the siblings have to be rebalanced first.
+     */
+    public static OptionalLong forInsert(List<Long> siblingKeys, int position) {
+        int index = Math.max(0, Math.min(position - 1, siblingKeys.size()));
+        long lower = index > 0 ? siblingKeys.get(index - 1) : 0;
+        if (index == siblingKeys.size()) {
+            return OptionalLong.of(lower + GAP);
+        }
+        long upper = siblingKeys.get(index);
+        if (upper - lower < 2) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(lower + (upper - lower) / 2);
+    }
+
+    // Dense 1-based position of a key among the sorted keys of its siblings, with or without itself
+    public static int positionOf(List<Long> siblingKeys, long key) {
+        int index = Collections.binarySearch(siblingKeys, key);
+        return 1 + (index >= 0 ? index : -index - 1);
+    }
+
+    public static boolean isCrowded(List<Long> siblingKeys, long key) {
+        return siblingKeys.stream().anyMatch(sibling -> Math.abs(sibling - key) < CROWDED_GAP);
+    }
+
+    // Parking slot outside the live key range, unique as long as the key is
+    public static long parked(long key) {
+        return -key - 1;
+    }
+}
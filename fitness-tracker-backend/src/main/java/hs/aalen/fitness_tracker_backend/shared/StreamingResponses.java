@@ -0,0 +1,162 @@
+package hs.aalen.fitness_tracker_backend.shared;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Writes a collection response element by element while the rows are still
+ * being read, instead of materializing the list and letting Jackson buffer
+ * the body. Time to first byte and heap stay flat however many rows there are.
+ */
+@Component
+public class StreamingResponses {
+
+    /**
+     * Produces the elements of the array by handing each one to the sink.
+     * Runs on the response thread once the controller returned.
+     */
+    @FunctionalInterface
+    public interface Producer<T> {
+        void forEach(Consumer<T> sink);
+    }
+
+    static final MediaType SMILE = new MediaType("application", "x-jackson-smile");
+
+    static final List<MediaType> OFFERED = List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR, SMILE);
+
+    // Elements between explicit flushes; the first one is flushed right away
+    static final int FLUSH_EVERY = 100;
+
+    private final ObjectMapper jsonMapper;
+    private final ObjectMapper cborMapper;
+    private final ObjectMapper smileMapper;
+
+    public StreamingResponses(
+            MappingJackson2HttpMessageConverter jsonConverter,
+            MappingJackson2CborHttpMessageConverter cborConverter,
+            MappingJackson2SmileHttpMessageConverter smileConverter) {
+        this.jsonMapper = jsonConverter.getObjectMapper();
+        this.cborMapper = cborConverter.getObjectMapper();
+        this.smileMapper = smileConverter.getObjectMapper();
+    }
+
+    /**
+     * Streams an array in the encoding negotiated from the Accept header, the
+     * same ones the message converters offer. Nothing is written before the
+     * first element, so an access error raised by the producer up front still
+     * turns into a regular error response. A client that accepts none of the
+     * encodings gets 406 without the producer running.
+     */
+    public <T> ResponseEntity<StreamingResponseBody> array(String accept, Producer<T> producer) {
+        MediaType mediaType = negotiate(accept);
+        if (mediaType == null) {
+            return ResponseEntity.status(HttpStatus.NOT_ACCEPTABLE).build();
+        }
+        ObjectMapper mapper = mediaType.equals(MediaType.APPLICATION_CBOR) ? cborMapper
+                : mediaType.equals(SMILE) ? smileMapper
+                : jsonMapper;
+        StreamingResponseBody body = out -> writeArray(mapper, out, producer);
+        return ResponseEntity.ok().contentType(mediaType).body(body);
+    }
+
+    private <T> void writeArray(ObjectMapper mapper, OutputStream out, Producer<T> producer) throws IOException {
+        ArrayWriter<T> writer = new ArrayWriter<>(mapper, out);
+        try {
+            producer.forEach(writer);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.finish();
+    }
+
+    /**
+     * Opens the array with the first element and flushes in batches; Jackson's
+     * flush after every value is switched off so rows go out in chunks.
+     */
+    private static class ArrayWriter<T> implements Consumer<T> {
+        private final ObjectWriter writer;
+        private final OutputStream out;
+        private JsonGenerator generator;
+        private int written;
+
+        ArrayWriter(ObjectMapper mapper, OutputStream out) {
+            this.writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            this.out = out;
+        }
+
+        @Override
+        public void accept(T element) {
+            try {
+                start();
+                writer.writeValue(generator, element);
+                if (written++ % FLUSH_EVERY == 0) {
+                    generator.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void finish() throws IOException {
+            start();
+            generator.writeEndArray();
+            generator.close();
+        }
+
+        private void start() throws IOException {
+            if (generator == null) {
+                generator = writer.createGenerator(out);
+                generator.writeStartArray();
+            }
+        }
+    }
+
+    /**
+     * Picks the offered type the client prefers most: quality first, then the
+     * more specific range, as the message converters would. Null when the
+     * client accepts none of them.
+     */
+    static MediaType negotiate(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return MediaType.APPLICATION_JSON;
+        }
+        List<MediaType> accepted = MediaType.parseMediaTypes(accept);
+        MimeTypeUtils.sortBySpecificity(accepted);
+        // List.sort is stable, so equally weighted ranges keep their specificity order
+        accepted.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType candidate : accepted) {
+            if (candidate.getQualityValue() == 0) {
+                break;
+            }
+            for (MediaType offered : OFFERED) {
+                if (candidate.isCompatibleWith(offered) && !excluded(accepted, offered)) {
+                    return offered;
+                }
+            }
+        }
+        return null;
+    }
+
+    // An explicit q=0 on a type rules it out even when a wildcard would match it
+    private static boolean excluded(List<MediaType> accepted, MediaType offered) {
+        return accepted.stream().anyMatch(type -> type.getQualityValue() == 0
+                && type.getType().equals(offered.getType()) && type.getSubtype().equals(offered.getSubtype()));
+    }
+}
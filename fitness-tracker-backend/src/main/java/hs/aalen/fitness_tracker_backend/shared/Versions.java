@@ -0,0 +1,40 @@
+package hs.aalen.fitness_tracker_backend.shared;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+
+/**
+ * Helpers for the entity versions exposed as ETags. Clients send the
+ * version back in If-Match; a mismatch surfaces as 412 Precondition Failed.
+ */
+public final class Versions {
+
+    private Versions() {
+    }
+
+    /**
+     * Expected version from an If-Match header, or null when the client
+     * sent none and the update may be merged onto the latest state.
+     */
+    public static Long fromIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String value = ifMatch.trim();
+        if (value.startsWith("W/")) {
+            value = value.substring(2);
+        }
+        value = value.replace("\"", "");
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new OptimisticLockingFailureException("If-Match does not name a known version");
+        }
+    }
+
+    public static void checkIfMatch(Long expected, Long actual, String resource) {
+        if (expected != null && !expected.equals(actual)) {
+            throw new OptimisticLockingFailureException(
+                    resource + " was modified by another request");
+        }
+    }
+}
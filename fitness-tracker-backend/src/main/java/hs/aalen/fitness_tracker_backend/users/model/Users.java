@@ -20,4 +20,14 @@ public class Users {
 
     @Column(nullable = false)
     private String password;
+
+    // Coaches may read the training reports of all members
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Users.Role role = Users.Role.Member;
+
+    public enum Role {
+        Member,
+        Coach
+    }
 }
@@ -1,13 +1,29 @@
 package hs.aalen.fitness_tracker_backend.users.repository;
 
 import hs.aalen.fitness_tracker_backend.users.model.Users;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
+@Transactional(readOnly = true)
 public interface UsersRepository extends JpaRepository<Users, UUID> {
     Optional<Users> findByUsername(String username);
+
+    List<Users> findByUsernameIn(Collection<String> usernames);
+
+    // Holds the user's row until the caller's transaction ends, to serialize per-user recounts
+    @Transactional
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select u from Users u where u.id = :id")
+    Optional<Users> lockById(@Param("id") UUID id);
 }
@@ -1,6 +1,7 @@
 package hs.aalen.fitness_tracker_backend.users.service;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -20,6 +21,7 @@ public class UsersService implements UserDetailsService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String username) {
         Optional<Users> optionalUser = usersRepository.findByUsername(username);
 
@@ -29,9 +31,13 @@ public class UsersService implements UserDetailsService {
 
         Users user = optionalUser.get();
 
-        return User.withUsername(user.getUsername())
-                .password(user.getPassword())
-                .authorities("USER")
-                .build();
+        User.UserBuilder builder = User.withUsername(user.getUsername())
+                .password(user.getPassword());
+        if (user.getRole() == Users.Role.Coach) {
+            builder.authorities("USER", "COACH");
+        } else {
+            builder.authorities("USER");
+        }
+        return builder.build();
     }
 }
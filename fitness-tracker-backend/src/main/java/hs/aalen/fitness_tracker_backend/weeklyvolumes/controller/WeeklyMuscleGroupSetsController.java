@@ -0,0 +1,36 @@
+package hs.aalen.fitness_tracker_backend.weeklyvolumes.controller;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import hs.aalen.fitness_tracker_backend.shared.StreamingResponses;
+import hs.aalen.fitness_tracker_backend.weeklyvolumes.dto.WeeklyMuscleGroupSetsResponseDto;
+import hs.aalen.fitness_tracker_backend.weeklyvolumes.service.WeeklyMuscleGroupSetsService;
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/coach/weekly-muscle-sets")
+public class WeeklyMuscleGroupSetsController {
+
+    private final WeeklyMuscleGroupSetsService weeklyMuscleGroupSetsService;
+    private final StreamingResponses streamingResponses;
+
+    public WeeklyMuscleGroupSetsController(WeeklyMuscleGroupSetsService weeklyMuscleGroupSetsService,
+            StreamingResponses streamingResponses) {
+        this.weeklyMuscleGroupSetsService = weeklyMuscleGroupSetsService;
+        this.streamingResponses = streamingResponses;
+    }
+
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> getReport(
+            @RequestParam(required = false) List<String> users,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return streamingResponses.<WeeklyMuscleGroupSetsResponseDto>array(accept,
+                sink -> weeklyMuscleGroupSetsService.streamReport(users, from, to, sink));
+    }
+}
@@ -0,0 +1,15 @@
+package hs.aalen.fitness_tracker_backend.weeklyvolumes.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@Getter
+@Setter
+public class WeeklyMuscleGroupSetsResponseDto {
+    private UUID userId;
+    private String username;
+    private List<WeeklyMuscleGroupSetsWeekDto> weeks = new ArrayList<>();
+}
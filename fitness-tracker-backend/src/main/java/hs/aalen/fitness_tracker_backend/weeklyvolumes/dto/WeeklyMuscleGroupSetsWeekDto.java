@@ -0,0 +1,15 @@
+package hs.aalen.fitness_tracker_backend.weeklyvolumes.dto;
+
+import hs.aalen.fitness_tracker_backend.exercises.model.MuscleGroup;
+import lombok.Getter;
+import lombok.Setter;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.Map;
+
+@Getter
+@Setter
+public class WeeklyMuscleGroupSetsWeekDto {
+    private LocalDate weekStart;
+    private Map<MuscleGroup, Integer> sets = new EnumMap<>(MuscleGroup.class);
+}
@@ -0,0 +1,39 @@
+package hs.aalen.fitness_tracker_backend.weeklyvolumes.model;
+
+import hs.aalen.fitness_tracker_backend.exercises.model.MuscleGroup;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Sets a user did for one muscle group in one week (Monday to Sunday,
+ * UTC), counted from completed workouts. Every set counts once for each
+ * muscle group of its exercise.
+ */
+@Entity
+@Getter
+@Setter
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_weekly_muscle_group_sets",
+        columnNames = {"owner_id", "week_start", "muscle_group"}),
+        indexes = @Index(name = "idx_weekly_muscle_group_sets_week", columnList = "week_start"))
+public class WeeklyMuscleGroupSets {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "owner_id", nullable = false)
+    private UUID ownerId;
+
+    @Column(name = "week_start", nullable = false)
+    private LocalDate weekStart;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "muscle_group", nullable = false)
+    private MuscleGroup muscleGroup;
+
+    @Column(nullable = false)
+    private Integer sets;
+}
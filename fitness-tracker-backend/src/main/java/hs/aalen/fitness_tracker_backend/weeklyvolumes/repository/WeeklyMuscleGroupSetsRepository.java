@@ -0,0 +1,39 @@
+package hs.aalen.fitness_tracker_backend.weeklyvolumes.repository;
+
+import hs.aalen.fitness_tracker_backend.weeklyvolumes.model.WeeklyMuscleGroupSets;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+@Repository
+@Transactional(readOnly = true)
+public interface WeeklyMuscleGroupSetsRepository extends JpaRepository<WeeklyMuscleGroupSets, UUID> {
+
+    // Rows come grouped by user and week, so a report can be written out one user at a time
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select w from WeeklyMuscleGroupSets w where w.ownerId in :ownerIds "
+            + "and w.weekStart >= :from and w.weekStart <= :to order by w.ownerId, w.weekStart")
+    Stream<WeeklyMuscleGroupSets> streamByOwners(@Param("ownerIds") Collection<UUID> ownerIds,
+            @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select w from WeeklyMuscleGroupSets w "
+            + "where w.weekStart >= :from and w.weekStart <= :to order by w.ownerId, w.weekStart")
+    Stream<WeeklyMuscleGroupSets> streamAll(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Transactional
+    @Modifying
+    @Query("delete from WeeklyMuscleGroupSets w where w.ownerId = :ownerId and w.weekStart = :weekStart")
+    int deleteWeek(@Param("ownerId") UUID ownerId, @Param("weekStart") LocalDate weekStart);
+}
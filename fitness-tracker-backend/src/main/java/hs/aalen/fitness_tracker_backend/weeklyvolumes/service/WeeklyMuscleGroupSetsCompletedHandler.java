@@ -0,0 +1,27 @@
+package hs.aalen.fitness_tracker_backend.weeklyvolumes.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import hs.aalen.fitness_tracker_backend.outbox.model.OutboxEvents;
+import hs.aalen.fitness_tracker_backend.outbox.service.OutboxHandler;
+import hs.aalen.fitness_tracker_backend.sessionlogs.service.SessionLogsService;
+
+/**
+ * Recounts the weekly sets per muscle group of the week a workout was
+ * completed in.
+ */
+@Component
+public class WeeklyMuscleGroupSetsCompletedHandler implements OutboxHandler {
+    @Autowired
+    private WeeklyMuscleGroupSetsService weeklyMuscleGroupSetsService;
+
+    @Override
+    public String eventType() {
+        return SessionLogsService.SESSION_LOG_COMPLETED;
+    }
+
+    @Override
+    public void handle(OutboxEvents event) {
+        weeklyMuscleGroupSetsService.recordWorkout(event.getAggregateId());
+    }
+}
@@ -0,0 +1,199 @@
+package hs.aalen.fitness_tracker_backend.weeklyvolumes.service;
+
+import hs.aalen.fitness_tracker_backend.executionlogs.model.ExecutionLogs;
+import hs.aalen.fitness_tracker_backend.exercises.model.MuscleGroup;
+import hs.aalen.fitness_tracker_backend.sessionlogs.model.SessionLogs;
+import hs.aalen.fitness_tracker_backend.sessionlogs.repository.SessionLogsRepository;
+import hs.aalen.fitness_tracker_backend.users.model.Users;
+import hs.aalen.fitness_tracker_backend.users.repository.UsersRepository;
+import hs.aalen.fitness_tracker_backend.weeklyvolumes.dto.WeeklyMuscleGroupSetsResponseDto;
+import hs.aalen.fitness_tracker_backend.weeklyvolumes.dto.WeeklyMuscleGroupSetsWeekDto;
+import hs.aalen.fitness_tracker_backend.weeklyvolumes.model.WeeklyMuscleGroupSets;
+import hs.aalen.fitness_tracker_backend.weeklyvolumes.repository.WeeklyMuscleGroupSetsRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the weekly sets per muscle group of every user. Completing a
+ * workout recounts the week it was completed in from that week's workouts,
+ * so the table stays right however often the count runs. Coach reports
+ * read the table only and never touch the logs.
+ */
+@Service
+public class WeeklyMuscleGroupSetsService {
+
+    public static final int DEFAULT_WEEKS = 12;
+
+    private final WeeklyMuscleGroupSetsRepository weeklyRepository;
+    private final SessionLogsRepository sessionLogsRepository;
+    private final UsersRepository usersRepository;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public WeeklyMuscleGroupSetsService(WeeklyMuscleGroupSetsRepository weeklyRepository,
+            SessionLogsRepository sessionLogsRepository, UsersRepository usersRepository) {
+        this.weeklyRepository = weeklyRepository;
+        this.sessionLogsRepository = sessionLogsRepository;
+        this.usersRepository = usersRepository;
+    }
+
+    public static LocalDate weekStart(Instant instant) {
+        return instant.atZone(ZoneOffset.UTC).toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    @Transactional
+    public void recordWorkout(UUID sessionLogId) {
+        SessionLogs completed = sessionLogsRepository.findById(sessionLogId).orElse(null);
+        if (completed == null || completed.getCompletedAt() == null) {
+            return;
+        }
+        UUID ownerId = completed.getOwner().getId();
+        // Two completions in one week would otherwise both delete the week
+        // and insert their own count next to each other
+        usersRepository.lockById(ownerId);
+        LocalDate week = weekStart(completed.getCompletedAt());
+        Instant from = week.atStartOfDay(ZoneOffset.UTC).toInstant();
+        Instant to = week.plusWeeks(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+
+        Map<MuscleGroup, Integer> sets = new EnumMap<>(MuscleGroup.class);
+        for (SessionLogs sessionLog : sessionLogsRepository.findCompletedBetween(ownerId, from, to)) {
+            count(sessionLog, sets);
+        }
+        weeklyRepository.deleteWeek(ownerId, week);
+        weeklyRepository.saveAll(rows(ownerId, week, sets));
+    }
+
+    // Counts existing history on first start; later starts find the table in step already.
+    // The archive is not read: archiving never removes rows here, so archived workouts
+    // were counted while they were still in the log tables.
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void initialize() {
+        if (weeklyRepository.count() > 0) {
+            return;
+        }
+        record Week(UUID ownerId, LocalDate weekStart) {
+        }
+        Map<Week, Map<MuscleGroup, Integer>> weeks = new HashMap<>();
+        try (Stream<SessionLogs> completed = sessionLogsRepository.streamByStatus(SessionLogs.LogStatus.Completed)) {
+            completed.forEach(sessionLog -> {
+                if (sessionLog.getCompletedAt() != null) {
+                    Week week = new Week(sessionLog.getOwner().getId(), weekStart(sessionLog.getCompletedAt()));
+                    count(sessionLog, weeks.computeIfAbsent(week, key -> new EnumMap<>(MuscleGroup.class)));
+                }
+                entityManager.detach(sessionLog);
+            });
+        }
+        List<WeeklyMuscleGroupSets> rows = new ArrayList<>();
+        weeks.forEach((week, sets) -> rows.addAll(rows(week.ownerId(), week.weekStart(), sets)));
+        weeklyRepository.saveAll(rows);
+    }
+
+    private static void count(SessionLogs sessionLog, Map<MuscleGroup, Integer> sets) {
+        for (ExecutionLogs executionLog : sessionLog.getExecutionLogs()) {
+            if (!executionLog.isPerformed() || executionLog.getPerformedSetCount() == 0) {
+                continue;
+            }
+            for (MuscleGroup group : MuscleGroup.values()) {
+                if ((executionLog.getExerciseMuscleGroupMask() & group.bit()) != 0) {
+                    sets.merge(group, executionLog.getPerformedSetCount(), Integer::sum);
+                }
+            }
+        }
+    }
+
+    private static List<WeeklyMuscleGroupSets> rows(UUID ownerId, LocalDate week, Map<MuscleGroup, Integer> sets) {
+        List<WeeklyMuscleGroupSets> rows = new ArrayList<>(sets.size());
+        sets.forEach((group, count) -> {
+            WeeklyMuscleGroupSets row = new WeeklyMuscleGroupSets();
+            row.setOwnerId(ownerId);
+            row.setWeekStart(week);
+            row.setMuscleGroup(group);
+            row.setSets(count);
+            rows.add(row);
+        });
+        return rows;
+    }
+
+    /**
+     * Hands the weekly sets of the given users, or of everyone when no
+     * usernames are given, to the sink one user at a time. The range
+     * covers the weeks starting on or after from up to to; it defaults to
+     * the last {@value #DEFAULT_WEEKS} weeks. Users without a counted
+     * set in the range are left out.
+     */
+    @Transactional(readOnly = true)
+    public void streamReport(Collection<String> usernames, LocalDate from, LocalDate to,
+            Consumer<WeeklyMuscleGroupSetsResponseDto> sink) {
+        LocalDate end = to != null ? to : LocalDate.now(ZoneOffset.UTC);
+        LocalDate start = from != null ? from : weekStart(Instant.now()).minusWeeks(DEFAULT_WEEKS - 1);
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("Start date must not be after end date");
+        }
+
+        Map<UUID, String> usernamesById;
+        Stream<WeeklyMuscleGroupSets> rows;
+        if (usernames == null || usernames.isEmpty()) {
+            usernamesById = usersRepository.findAll().stream()
+                    .collect(Collectors.toMap(Users::getId, Users::getUsername));
+            rows = weeklyRepository.streamAll(start, end);
+        } else {
+            Set<String> requested = new LinkedHashSet<>(usernames);
+            List<Users> users = usersRepository.findByUsernameIn(requested);
+            if (users.size() < requested.size()) {
+                users.forEach(user -> requested.remove(user.getUsername()));
+                throw new IllegalArgumentException("Unknown users: " + String.join(", ", requested));
+            }
+            usernamesById = users.stream().collect(Collectors.toMap(Users::getId, Users::getUsername));
+            rows = weeklyRepository.streamByOwners(usernamesById.keySet(), start, end);
+        }
+
+        try (rows) {
+            WeeklyMuscleGroupSetsResponseDto current = null;
+            WeeklyMuscleGroupSetsWeekDto week = null;
+            for (WeeklyMuscleGroupSets row : (Iterable<WeeklyMuscleGroupSets>) rows::iterator) {
+                if (current == null || !current.getUserId().equals(row.getOwnerId())) {
+                    if (current != null) {
+                        sink.accept(current);
+                    }
+                    current = new WeeklyMuscleGroupSetsResponseDto();
+                    current.setUserId(row.getOwnerId());
+                    current.setUsername(usernamesById.get(row.getOwnerId()));
+                    week = null;
+                }
+                if (week == null || !week.getWeekStart().equals(row.getWeekStart())) {
+                    week = new WeeklyMuscleGroupSetsWeekDto();
+                    week.setWeekStart(row.getWeekStart());
+                    current.getWeeks().add(week);
+                }
+                week.getSets().put(row.getMuscleGroup(), row.getSets());
+                entityManager.detach(row);
+            }
+            if (current != null) {
+                sink.accept(current);
+            }
+        }
+    }
+}
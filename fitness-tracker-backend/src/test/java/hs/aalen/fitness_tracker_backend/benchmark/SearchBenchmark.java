@@ -0,0 +1,76 @@
+package hs.aalen.fitness_tracker_backend.benchmark;
+
+import hs.aalen.fitness_tracker_backend.exercises.dto.ExerciseResponseDto;
+import hs.aalen.fitness_tracker_backend.exercises.service.ExerciseSearchIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Latency of typeahead queries against the exercise search index filled with
+ * a synthetic catalog. Each query is replayed keystroke by keystroke, the way
+ * the frontend sends it. Not part of the test suite, see the README.
+ */
+public class SearchBenchmark {
+
+    private static final int CATALOG_SIZE = 50_000;
+    private static final int WARMUP_ROUNDS = 100;
+    private static final int MEASURED_ROUNDS = 200;
+
+    private static final String[] MOVEMENTS = { "Press", "Row", "Curl", "Squat", "Lunge", "Deadlift", "Fly",
+            "Raise", "Extension", "Pulldown", "Pushdown", "Dip", "Crunch", "Bridge", "Thrust" };
+    private static final String[] VARIANTS = { "Bench", "Incline", "Decline", "Seated", "Standing", "Single-Arm",
+            "Cable", "Dumbbell", "Barbell", "Kettlebell", "Bulgarian", "Romanian", "Hammer", "Reverse", "Wide" };
+    private static final String[] MUSCLE_GROUPS = { "Chest", "Back", "Shoulders", "Biceps", "Triceps",
+            "Quadriceps", "Hamstrings", "Glutes", "Calves", "Abs" };
+    private static final String[] CATEGORIES = { "FreeWeight", "Machine", "BodyWeight", "Cable" };
+
+    private static final String[] QUERIES = { "bench press", "bemch pres", "romanian deadl", "hamstr",
+            "single arm cable row", "kettlebel swing", "glute", "x" };
+
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        List<ExerciseResponseDto> catalog = new ArrayList<>(CATALOG_SIZE);
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            ExerciseResponseDto exercise = new ExerciseResponseDto();
+            exercise.setId(UUID.randomUUID());
+            String movement = MOVEMENTS[random.nextInt(MOVEMENTS.length)];
+            exercise.setName(VARIANTS[random.nextInt(VARIANTS.length)] + " " + movement + " " + i);
+            exercise.setCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+            exercise.setMuscleGroups(List.of(MUSCLE_GROUPS[random.nextInt(MUSCLE_GROUPS.length)],
+                    MUSCLE_GROUPS[random.nextInt(MUSCLE_GROUPS.length)]));
+            exercise.setDescription("Perform the " + movement.toLowerCase() + " with control through the full range.");
+            catalog.add(exercise);
+        }
+
+        ExerciseSearchIndex index = new ExerciseSearchIndex();
+        long buildStart = System.nanoTime();
+        index.replaceAll(catalog);
+        System.out.printf("indexed %d exercises in %d ms%n", index.size(), (System.nanoTime() - buildStart) / 1_000_000);
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            for (String query : QUERIES) {
+                typeahead(index, query);
+            }
+        }
+
+        System.out.printf("%-24s %12s %12s%n", "query", "avg us/key", "matches");
+        for (String query : QUERIES) {
+            long start = System.nanoTime();
+            for (int i = 0; i < MEASURED_ROUNDS; i++) {
+                typeahead(index, query);
+            }
+            long perKey = (System.nanoTime() - start) / MEASURED_ROUNDS / query.length() / 1_000;
+            int matches = index.search(query, null, 10).getTotal();
+            System.out.printf("%-24s %12d %12d%n", query, perKey, matches);
+        }
+    }
+
+    private static void typeahead(ExerciseSearchIndex index, String query) {
+        for (int end = 1; end <= query.length(); end++) {
+            index.search(query.substring(0, end), null, 10);
+        }
+    }
+}
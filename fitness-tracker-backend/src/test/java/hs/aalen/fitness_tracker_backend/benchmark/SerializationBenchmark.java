@@ -0,0 +1,162 @@
+package hs.aalen.fitness_tracker_backend.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import hs.aalen.fitness_tracker_backend.executionlogs.dto.ExecutionLogsResponseDto;
+import hs.aalen.fitness_tracker_backend.exerciseexecutions.dto.ExerciseExecutionsResponseDto;
+import hs.aalen.fitness_tracker_backend.exercises.dto.ExerciseResponseDto;
+import hs.aalen.fitness_tracker_backend.exercises.model.Exercises;
+import hs.aalen.fitness_tracker_backend.sessionlogs.dto.SessionLogsResponseDto;
+import hs.aalen.fitness_tracker_backend.sessionlogs.model.SessionLogs;
+import hs.aalen.fitness_tracker_backend.sessions.dto.SessionsResponseDto;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Payload size and serialization CPU per endpoint for the encodings the API
+ * negotiates: JSON with plain reflection, JSON with Blackbird, and CBOR and
+ * Smile with Blackbird. Not part of the test suite; run it after
+ * {@code ./mvnw test-compile} with the test classpath, see the README.
+ */
+public class SerializationBenchmark {
+
+    private static final int WARMUP_ROUNDS = 20_000;
+    private static final int MEASURED_ROUNDS = 50_000;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        endpoints.put("GET /api/v1/session-logs/{id}", sessionLog(8));
+        endpoints.put("GET /api/v1/session-logs", List.of(sessionLog(6), sessionLog(8), sessionLog(10)));
+        endpoints.put("GET /api/v1/sessions", sessions(12, 6));
+        endpoints.put("GET /api/v1/exercises", exercises(60));
+
+        Map<String, ObjectMapper> encodings = new LinkedHashMap<>();
+        encodings.put("json (reflection)", configure(new ObjectMapper()));
+        encodings.put("json (blackbird)", configure(new ObjectMapper()).registerModule(new BlackbirdModule()));
+        encodings.put("cbor (blackbird)", configure(new ObjectMapper(new CBORFactory()))
+                .registerModule(new BlackbirdModule()));
+        encodings.put("smile (blackbird)", configure(new ObjectMapper(new SmileFactory()))
+                .registerModule(new BlackbirdModule()));
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        System.out.printf("%-32s %-20s %10s %14s%n", "endpoint", "encoding", "bytes", "cpu ns/op");
+        for (Map.Entry<String, Object> endpoint : endpoints.entrySet()) {
+            for (Map.Entry<String, ObjectMapper> encoding : encodings.entrySet()) {
+                ObjectMapper mapper = encoding.getValue();
+                Object payload = endpoint.getValue();
+                int size = mapper.writeValueAsBytes(payload).length;
+                for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                    mapper.writeValueAsBytes(payload);
+                }
+                long start = threads.getCurrentThreadCpuTime();
+                for (int i = 0; i < MEASURED_ROUNDS; i++) {
+                    mapper.writeValueAsBytes(payload);
+                }
+                long perOp = (threads.getCurrentThreadCpuTime() - start) / MEASURED_ROUNDS;
+                System.out.printf("%-32s %-20s %10d %14d%n", endpoint.getKey(), encoding.getKey(), size, perOp);
+            }
+        }
+    }
+
+    private static ObjectMapper configure(ObjectMapper mapper) {
+        return mapper.registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    private static SessionLogsResponseDto sessionLog(int executions) {
+        SessionLogsResponseDto dto = new SessionLogsResponseDto();
+        dto.setId(UUID.randomUUID());
+        dto.setVersion(3L);
+        dto.setSessionName("Push Day");
+        dto.setSessionPlanName("Push Pull Legs");
+        dto.setSessionPlan("Bench Press, Overhead Press, Dips, Triceps Pushdown");
+        dto.setStartedAt(Instant.parse("2026-10-19T07:30:00Z"));
+        dto.setCompletedAt(Instant.parse("2026-10-19T08:35:00Z"));
+        dto.setStatus(SessionLogs.LogStatus.Completed);
+        dto.setNotes("Felt strong today");
+        dto.setOriginalSessionId(UUID.randomUUID());
+        List<ExecutionLogsResponseDto> logs = new ArrayList<>();
+        for (int i = 1; i <= executions; i++) {
+            ExecutionLogsResponseDto log = new ExecutionLogsResponseDto();
+            log.setId(UUID.randomUUID());
+            log.setVersion(5L);
+            log.setExerciseExecutionId(i);
+            log.setExerciseExecutionPlannedSets(4);
+            log.setExerciseExecutionPlannedReps(8);
+            log.setExerciseExecutionPlannedWeight(80);
+            log.setExerciseId(UUID.randomUUID());
+            log.setExerciseName("Bench Press " + i);
+            log.setExerciseCategory(Exercises.Category.FreeWeight);
+            log.setExerciseMuscleGroup(List.of("Chest", "Triceps", "Shoulders"));
+            log.setExerciseDescription("Press the bar from the chest while lying on a flat bench.");
+            log.setActualSets(4);
+            log.setActualReps(8);
+            log.setActualWeight(82);
+            log.setCompleted(true);
+            log.setNotes("Last set was heavy");
+            log.setSessionLogId(dto.getId());
+            logs.add(log);
+        }
+        dto.setExecutionLogs(logs);
+        dto.setExecutionLogCount(executions);
+        return dto;
+    }
+
+    private static List<SessionsResponseDto> sessions(int count, int executions) {
+        List<SessionsResponseDto> sessions = new ArrayList<>();
+        UUID planId = UUID.randomUUID();
+        for (int s = 1; s <= count; s++) {
+            SessionsResponseDto session = new SessionsResponseDto();
+            session.setId(UUID.randomUUID());
+            session.setVersion(1L);
+            session.setName("Session " + s);
+            session.setPlanId(planId);
+            session.setOrderID(s);
+            session.setSessionLogCount(4);
+            List<ExerciseExecutionsResponseDto> list = new ArrayList<>();
+            for (int e = 1; e <= executions; e++) {
+                ExerciseExecutionsResponseDto execution = new ExerciseExecutionsResponseDto();
+                execution.setId(UUID.randomUUID());
+                execution.setVersion(0L);
+                execution.setPlannedSets(3);
+                execution.setPlannedReps(10);
+                execution.setPlannedWeight(40);
+                execution.setOrderID(e);
+                execution.setSessionId(session.getId());
+                execution.setSessionName(session.getName());
+                execution.setExerciseId(UUID.randomUUID());
+                execution.setExerciseName("Exercise " + e);
+                list.add(execution);
+            }
+            session.setExerciseExecutions(list);
+            session.setExerciseExecutionsCount(executions);
+            sessions.add(session);
+        }
+        return sessions;
+    }
+
+    private static List<ExerciseResponseDto> exercises(int count) {
+        List<ExerciseResponseDto> exercises = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            ExerciseResponseDto exercise = new ExerciseResponseDto();
+            exercise.setId(UUID.randomUUID());
+            exercise.setName("Exercise " + i);
+            exercise.setCategory("FreeWeight");
+            exercise.setMuscleGroups(List.of("Back", "Biceps"));
+            exercise.setDescription("Pull the weight towards the body while keeping the back straight.");
+            exercises.add(exercise);
+        }
+        return exercises;
+    }
+}
@@ -0,0 +1,211 @@
+package hs.aalen.fitness_tracker_backend.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReadWriteRoutingDataSourceTest {
+
+    private static final Duration MAX_LAG = Duration.ofSeconds(2);
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2026-10-19T08:00:00Z"));
+
+    private JdbcTemplate jdbc;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    // Two separate H2 databases, each knowing its own name
+    private static DataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate setup = new JdbcTemplate(dataSource);
+        setup.execute("create table if not exists marker (name varchar(20))");
+        setup.update("delete from marker");
+        setup.update("insert into marker values (?)", name);
+        return dataSource;
+    }
+
+    @BeforeEach
+    void setUp() {
+        DataSource primary = database("routing_primary");
+        DataSource replica = database("routing_replica");
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(MAX_LAG, clock);
+        routing.setTargetDataSources(Map.of(
+                ReadWriteRoutingDataSource.Route.PRIMARY, primary,
+                ReadWriteRoutingDataSource.Route.REPLICA, replica));
+        routing.afterPropertiesSet();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+
+        jdbc = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        List.copyOf(TransactionSynchronizationManager.getResourceMap().keySet())
+                .forEach(TransactionSynchronizationManager::unbindResource);
+    }
+
+    private String database() {
+        return jdbc.queryForObject("select name from marker", String.class);
+    }
+
+    private void authenticate(String username) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(username, null, List.of()));
+    }
+
+    @Test
+    void shouldRouteReadOnlyTransactionsToReplica() {
+        assertEquals("routing_replica", readOnly.execute(status -> database()));
+    }
+
+    @Test
+    void shouldRouteReadWriteTransactionsToPrimary() {
+        assertEquals("routing_primary", readWrite.execute(status -> database()));
+    }
+
+    @Test
+    void shouldRouteWorkOutsideTransactionsToPrimary() {
+        assertEquals("routing_primary", database());
+    }
+
+    @Test
+    void shouldReadOwnWritesFromPrimaryWithinMaxLag() {
+        authenticate("max");
+        readWrite.executeWithoutResult(status -> database());
+
+        clock.advance(MAX_LAG.minusMillis(1));
+        assertEquals("routing_primary", readOnly.execute(status -> database()));
+
+        clock.advance(Duration.ofMillis(2));
+        assertEquals("routing_replica", readOnly.execute(status -> database()));
+    }
+
+    @Test
+    void shouldKeepOtherUsersOnReplicaAfterWrite() {
+        authenticate("max");
+        readWrite.executeWithoutResult(status -> database());
+
+        authenticate("anna");
+        assertEquals("routing_replica", readOnly.execute(status -> database()));
+    }
+
+    @Test
+    void shouldNotRecordWriteOfRolledBackTransaction() {
+        authenticate("max");
+        readWrite.executeWithoutResult(status -> {
+            database();
+            status.setRollbackOnly();
+        });
+
+        assertEquals("routing_replica", readOnly.execute(status -> database()));
+    }
+
+    // Binds a JPA session to the running transaction the way JpaTransactionManager would
+    private static Session bindSession(CacheMode cacheMode) {
+        Session session = mock(Session.class);
+        when(session.getCacheMode()).thenReturn(cacheMode);
+        when(session.unwrap(Session.class)).thenReturn(session);
+        when(session.isOpen()).thenReturn(true);
+        TransactionSynchronizationManager.bindResource(new Object(), new EntityManagerHolder(session));
+        return session;
+    }
+
+    @Test
+    void shouldKeepReplicaReadsOutOfSecondLevelCache() {
+        Session session = readOnly.execute(status -> {
+            Session bound = bindSession(CacheMode.NORMAL);
+            database();
+            verify(bound).setCacheMode(CacheMode.GET);
+            return bound;
+        });
+
+        verify(session).setCacheMode(CacheMode.NORMAL);
+    }
+
+    @Test
+    void shouldLetPrimaryReadsFillSecondLevelCache() {
+        authenticate("max");
+        readWrite.executeWithoutResult(status -> {
+            Session session = bindSession(CacheMode.NORMAL);
+            database();
+            verify(session, never()).setCacheMode(any());
+        });
+
+        readOnly.executeWithoutResult(status -> {
+            Session session = bindSession(CacheMode.NORMAL);
+            database();
+            verify(session, never()).setCacheMode(any());
+        });
+    }
+
+    @Test
+    void shouldIgnoreAnonymousUsersForReadYourWrites() {
+        SecurityContextHolder.getContext().setAuthentication(new AnonymousAuthenticationToken(
+                "key", "anonymousUser", AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS")));
+        readWrite.executeWithoutResult(status -> database());
+
+        assertEquals("routing_replica", readOnly.execute(status -> database()));
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -1,23 +1,35 @@
 package hs.aalen.fitness_tracker_backend.executionlogs;
 
+import hs.aalen.fitness_tracker_backend.executionlogs.dto.ExecutionLogsChangeDto;
 import hs.aalen.fitness_tracker_backend.executionlogs.dto.ExecutionLogsResponseDto;
+import hs.aalen.fitness_tracker_backend.executionlogs.dto.ExecutionLogsSetDto;
 import hs.aalen.fitness_tracker_backend.executionlogs.dto.ExecutionLogsUpdateDto;
 import hs.aalen.fitness_tracker_backend.executionlogs.model.ExecutionLogs;
+import hs.aalen.fitness_tracker_backend.executionlogs.model.PerformedSet;
+import hs.aalen.fitness_tracker_backend.executionlogs.service.ExecutionLogsEditBuffer;
 import hs.aalen.fitness_tracker_backend.executionlogs.service.ExecutionLogsService;
 import hs.aalen.fitness_tracker_backend.executionlogs.repository.ExecutionLogsRepository;
 import hs.aalen.fitness_tracker_backend.sessionlogs.model.SessionLogs;
 import hs.aalen.fitness_tracker_backend.sessionlogs.repository.SessionLogsRepository;
 import hs.aalen.fitness_tracker_backend.users.model.Users;
 import hs.aalen.fitness_tracker_backend.users.repository.UsersRepository;
+import hs.aalen.fitness_tracker_backend.shared.OptimisticRetry;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.access.AccessDeniedException;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.*;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -35,6 +47,18 @@ class ExecutionLogsServiceTest {
     @Mock
     private UsersRepository usersRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Spy
+    private ExecutionLogsEditBuffer editBuffer = new ExecutionLogsEditBuffer();
+
+    @Spy
+    private OptimisticRetry optimisticRetry = new OptimisticRetry(TransactionOperations.withoutTransaction());
+
     @InjectMocks
     private ExecutionLogsService service;
 
@@ -69,12 +93,12 @@ class ExecutionLogsServiceTest {
     }
 
     @Test
-    void shouldReturnAllExecutionLogsForUser() {
-        sessionLog.setExecutionLogs(List.of(log));
+    void shouldStreamAllExecutionLogsForUser() {
+        List<ExecutionLogsResponseDto> result = new ArrayList<>();
         when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
-        when(sessionLogsRepository.findByOwner(testUser)).thenReturn(List.of(sessionLog));
+        when(repository.streamBySessionLogOwner(testUser)).thenReturn(Stream.of(log));
 
-        List<ExecutionLogsResponseDto> result = service.getAllExecutionLogs(TEST_USERNAME);
+        service.streamExecutionLogs(null, TEST_USERNAME, result::add);
 
         assertEquals(1, result.size());
         assertEquals(id, result.get(0).getId());
@@ -115,20 +139,6 @@ class ExecutionLogsServiceTest {
         assertThrows(AccessDeniedException.class, () -> service.getExecutionLogById(id, TEST_USERNAME));
     }
 
-    @Test
-    void shouldReturnExecutionLogsBySessionLogId() {
-        when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
-        when(sessionLogsRepository.findByIdAndOwner(sessionLog.getId(), testUser))
-                .thenReturn(Optional.of(sessionLog));
-        when(repository.findBySessionLogId(sessionLog.getId())).thenReturn(List.of(log));
-
-        List<ExecutionLogsResponseDto> result = service.getExecutionLogsBySessionLogId(
-                sessionLog.getId(), TEST_USERNAME);
-
-        assertEquals(1, result.size());
-        assertEquals(id, result.get(0).getId());
-    }
-
     @Test
     void shouldUpdateExecutionLogWhenValid() {
         ExecutionLogsUpdateDto dto = new ExecutionLogsUpdateDto();
@@ -140,7 +150,7 @@ class ExecutionLogsServiceTest {
 
         when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
         when(repository.findById(id)).thenReturn(Optional.of(log));
-        when(repository.save(log)).thenReturn(log);
+        when(repository.saveAndFlush(log)).thenReturn(log);
 
         ExecutionLogsResponseDto result = service.updateExecutionLog(id, dto, TEST_USERNAME);
 
@@ -149,7 +159,7 @@ class ExecutionLogsServiceTest {
         assertEquals(60, result.getActualWeight());
         assertTrue(result.getCompleted());
         assertEquals("updated", result.getNotes());
-        verify(repository).save(log);
+        verify(repository).saveAndFlush(log);
     }
 
     @Test
@@ -226,7 +236,7 @@ class ExecutionLogsServiceTest {
 
         when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
         when(repository.findById(id)).thenReturn(Optional.of(log));
-        when(repository.save(any())).thenAnswer(i -> i.getArgument(0));
+        when(repository.saveAndFlush(any())).thenAnswer(i -> i.getArgument(0));
 
         ExecutionLogsResponseDto result = service.updateExecutionLog(id, dto, TEST_USERNAME);
 
@@ -246,7 +256,7 @@ class ExecutionLogsServiceTest {
 
         when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
         when(repository.findById(id)).thenReturn(Optional.of(log));
-        when(repository.save(any())).thenAnswer(i -> i.getArgument(0));
+        when(repository.saveAndFlush(any())).thenAnswer(i -> i.getArgument(0));
 
         ExecutionLogsResponseDto result = service.updateExecutionLog(id, dto, TEST_USERNAME);
 
@@ -266,4 +276,263 @@ class ExecutionLogsServiceTest {
 
         verify(repository).deleteById(id);
     }
+
+    @Test
+    void shouldPublishOnlyChangedFields() {
+        log.setVersion(2L);
+        ExecutionLogsUpdateDto dto = new ExecutionLogsUpdateDto();
+        dto.setActualSets(5);
+        dto.setActualReps(12);
+        dto.setNotes("test");
+
+        when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
+        when(repository.findById(id)).thenReturn(Optional.of(log));
+        when(repository.saveAndFlush(log)).thenReturn(log);
+
+        service.updateExecutionLog(id, dto, TEST_USERNAME);
+
+        ArgumentCaptor<ExecutionLogsChangeDto> captor = ArgumentCaptor.forClass(ExecutionLogsChangeDto.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        ExecutionLogsChangeDto change = captor.getValue();
+        assertEquals(id, change.getId());
+        assertEquals(sessionLog.getId(), change.getSessionLogId());
+        assertEquals(2L, change.getVersion());
+        assertEquals(Map.of("actualReps", 12), change.getChanges());
+    }
+
+    @Test
+    void shouldNotPublishWhenNothingChanged() {
+        ExecutionLogsUpdateDto dto = new ExecutionLogsUpdateDto();
+        dto.setActualSets(5);
+        dto.setCompleted(false);
+
+        when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
+        when(repository.findById(id)).thenReturn(Optional.of(log));
+        when(repository.saveAndFlush(log)).thenReturn(log);
+
+        service.updateExecutionLog(id, dto, TEST_USERNAME);
+
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void shouldMergeBufferedEditsIntoOneWrite() {
+        ReflectionTestUtils.setField(service, "writeBehind", true);
+        ExecutionLogsUpdateDto firstTap = new ExecutionLogsUpdateDto();
+        firstTap.setActualReps(11);
+        ExecutionLogsUpdateDto secondTap = new ExecutionLogsUpdateDto();
+        secondTap.setActualReps(12);
+        secondTap.setActualWeight(55);
+
+        when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
+        when(repository.findDetailedById(id)).thenReturn(Optional.of(log));
+        when(sessionLogsRepository.existsByIdAndStatus(sessionLog.getId(), SessionLogs.LogStatus.InProgress)).thenReturn(true);
+
+        service.updateExecutionLog(id, firstTap, TEST_USERNAME);
+        ExecutionLogsResponseDto result = service.updateExecutionLog(id, secondTap, TEST_USERNAME);
+
+        assertEquals(12, result.getActualReps());
+        assertEquals(55, result.getActualWeight());
+        assertEquals(5, result.getActualSets());
+        verify(repository, times(1)).findDetailedById(id);
+        verify(repository, never()).saveAndFlush(any());
+
+        when(repository.findAllById(Set.of(id))).thenReturn(List.of(log));
+        when(repository.saveAllAndFlush(List.of(log))).thenReturn(List.of(log));
+
+        service.flushPendingEdits();
+
+        assertEquals(12, log.getActualReps());
+        assertEquals(55, log.getActualWeight());
+        verify(repository).saveAllAndFlush(List.of(log));
+        verify(eventPublisher, times(1)).publishEvent(any(ExecutionLogsChangeDto.class));
+    }
+
+    @Test
+    void shouldReadBufferedValuesBeforeFlush() {
+        ReflectionTestUtils.setField(service, "writeBehind", true);
+        ExecutionLogsUpdateDto dto = new ExecutionLogsUpdateDto();
+        dto.setCompleted(true);
+
+        when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
+        when(repository.findDetailedById(id)).thenReturn(Optional.of(log));
+        when(sessionLogsRepository.existsByIdAndStatus(sessionLog.getId(), SessionLogs.LogStatus.InProgress)).thenReturn(true);
+        when(repository.findById(id)).thenReturn(Optional.of(log));
+
+        service.updateExecutionLog(id, dto, TEST_USERNAME);
+        ExecutionLogsResponseDto read = service.getExecutionLogById(id, TEST_USERNAME);
+
+        assertTrue(read.getCompleted());
+        assertFalse(log.getCompleted());
+    }
+
+    @Test
+    void shouldKeepBufferedEditsWhenFlushFails() {
+        ReflectionTestUtils.setField(service, "writeBehind", true);
+        ExecutionLogsUpdateDto dto = new ExecutionLogsUpdateDto();
+        dto.setActualSets(6);
+
+        when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
+        when(repository.findDetailedById(id)).thenReturn(Optional.of(log));
+        when(sessionLogsRepository.existsByIdAndStatus(sessionLog.getId(), SessionLogs.LogStatus.InProgress)).thenReturn(true);
+        when(repository.findAllById(Set.of(id))).thenReturn(List.of(log));
+        when(repository.saveAllAndFlush(List.of(log)))
+                .thenThrow(new RuntimeException("connection lost"))
+                .thenReturn(List.of(log));
+
+        service.updateExecutionLog(id, dto, TEST_USERNAME);
+
+        assertThrows(RuntimeException.class, () -> service.flushPendingEdits());
+        // The rolled-back write leaves the stored row at its old value
+        log.setActualSets(5);
+        service.flushPendingEdits();
+
+        verify(repository, times(2)).saveAllAndFlush(List.of(log));
+        assertEquals(6, log.getActualSets());
+    }
+
+    @Test
+    void shouldRejectBufferedEditWhenWorkoutCompletedAfterLoad() {
+        ReflectionTestUtils.setField(service, "writeBehind", true);
+        ExecutionLogsUpdateDto dto = new ExecutionLogsUpdateDto();
+        dto.setActualSets(6);
+
+        when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
+        when(repository.findDetailedById(id)).thenReturn(Optional.of(log));
+        // The load still saw the workout in progress; the completion committed before the edit got the lock
+        when(sessionLogsRepository.existsByIdAndStatus(sessionLog.getId(), SessionLogs.LogStatus.InProgress)).thenReturn(false);
+
+        assertThrows(IllegalArgumentException.class, () -> service.updateExecutionLog(id, dto, TEST_USERNAME));
+        service.flushPendingEdits();
+
+        verify(repository, never()).findAllById(any());
+    }
+
+    @Test
+    void shouldWriteBufferedEditWithVersionedUpdateInsteadOfFlushingFirst() {
+        ReflectionTestUtils.setField(service, "writeBehind", true);
+        log.setVersion(3L);
+        ExecutionLogsUpdateDto buffered = new ExecutionLogsUpdateDto();
+        buffered.setActualReps(11);
+        ExecutionLogsUpdateDto versioned = new ExecutionLogsUpdateDto();
+        versioned.setActualWeight(60);
+
+        when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
+        when(repository.findDetailedById(id)).thenReturn(Optional.of(log));
+        when(sessionLogsRepository.existsByIdAndStatus(sessionLog.getId(), SessionLogs.LogStatus.InProgress)).thenReturn(true);
+        when(repository.findById(id)).thenReturn(Optional.of(log));
+        when(repository.saveAndFlush(log)).thenReturn(log);
+
+        // The buffered response still carries the stored version, which is what the client sends back
+        long seen = service.updateExecutionLog(id, buffered, TEST_USERNAME).getVersion();
+        service.updateExecutionLog(id, versioned, TEST_USERNAME, seen);
+
+        assertEquals(11, log.getActualReps());
+        assertEquals(60, log.getActualWeight());
+        verify(repository, never()).saveAllAndFlush(any());
+        ArgumentCaptor<ExecutionLogsChangeDto> captor = ArgumentCaptor.forClass(ExecutionLogsChangeDto.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        assertEquals(Map.of("actualReps", 11, "actualWeight", 60), captor.getValue().getChanges());
+
+        service.flushPendingEdits();
+        verify(repository, never()).findAllById(any());
+    }
+
+    @Test
+    void shouldStreamExecutionLogsOfSessionLogAndDetachEachRow() {
+        ExecutionLogs second = new ExecutionLogs();
+        second.setId(UUID.randomUUID());
+        second.setSessionLog(sessionLog);
+        List<ExecutionLogsResponseDto> received = new ArrayList<>();
+
+        when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
+        when(sessionLogsRepository.findByIdAndOwner(sessionLog.getId(), testUser))
+                .thenReturn(Optional.of(sessionLog));
+        when(repository.streamBySessionLogId(sessionLog.getId())).thenReturn(Stream.of(log, second));
+
+        service.streamExecutionLogs(sessionLog.getId(), TEST_USERNAME, received::add);
+
+        assertEquals(List.of(id, second.getId()),
+                received.stream().map(ExecutionLogsResponseDto::getId).toList());
+        verify(entityManager).detach(log);
+        verify(entityManager).detach(second);
+    }
+
+    @Test
+    void shouldDenyStreamingForeignSessionLogBeforeReadingRows() {
+        when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
+        when(sessionLogsRepository.findByIdAndOwner(sessionLog.getId(), testUser))
+                .thenReturn(Optional.empty());
+
+        assertThrows(AccessDeniedException.class,
+                () -> service.streamExecutionLogs(sessionLog.getId(), TEST_USERNAME, dto -> fail()));
+        verify(repository, never()).streamBySessionLogId(any());
+    }
+
+    private static ExecutionLogsSetDto set(int reps, int weight, Double rpe, Integer restSeconds) {
+        ExecutionLogsSetDto dto = new ExecutionLogsSetDto();
+        dto.setReps(reps);
+        dto.setWeight(weight);
+        dto.setRpe(rpe);
+        dto.setRestSeconds(restSeconds);
+        return dto;
+    }
+
+    @Test
+    void shouldAppendSetsAndKeepTotalsOnHeaviestSet() {
+        when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
+        when(repository.findById(id)).thenReturn(Optional.of(log));
+        when(repository.saveAndFlush(log)).thenReturn(log);
+
+        service.appendSet(id, set(8, 60, 7.5, 90), TEST_USERNAME, null);
+        service.appendSet(id, set(6, 70, 9.0, null), TEST_USERNAME, null);
+        ExecutionLogsResponseDto result = service.appendSet(id, set(10, 50, null, 120), TEST_USERNAME, null);
+
+        assertEquals(List.of(
+                new PerformedSet(8, 60, 7.5, 90),
+                new PerformedSet(6, 70, 9.0, null),
+                new PerformedSet(10, 50, null, 120)), result.getSets());
+        assertEquals(3, result.getActualSets());
+        assertEquals(6, result.getActualReps());
+        assertEquals(70, result.getActualWeight());
+    }
+
+    @Test
+    void shouldReplacePlannedTotalsWithFirstRecordedSet() {
+        when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
+        when(repository.findById(id)).thenReturn(Optional.of(log));
+        when(repository.saveAndFlush(log)).thenReturn(log);
+
+        service.appendSet(id, set(12, 40, null, null), TEST_USERNAME, null);
+
+        ArgumentCaptor<ExecutionLogsChangeDto> captor = ArgumentCaptor.forClass(ExecutionLogsChangeDto.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        Map<String, Object> changes = captor.getValue().getChanges();
+        assertEquals(1, changes.get("actualSets"));
+        assertEquals(12, changes.get("actualReps"));
+        assertEquals(40, changes.get("actualWeight"));
+        assertEquals(List.of(new PerformedSet(12, 40, null, null)), changes.get("sets"));
+    }
+
+    @Test
+    void shouldRejectInvalidSetBeforeLoading() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service.appendSet(id, set(-1, 40, null, null), TEST_USERNAME, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.appendSet(id, set(8, 40, 7.3, null), TEST_USERNAME, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.appendSet(id, set(8, 40, 11.0, null), TEST_USERNAME, null));
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void shouldThrowWhenAppendingSetToCompletedTraining() {
+        sessionLog.setStatus(SessionLogs.LogStatus.Completed);
+        when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
+        when(repository.findById(id)).thenReturn(Optional.of(log));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> service.appendSet(id, set(8, 40, null, null), TEST_USERNAME, null));
+        verify(repository, never()).saveAndFlush(any());
+    }
 }
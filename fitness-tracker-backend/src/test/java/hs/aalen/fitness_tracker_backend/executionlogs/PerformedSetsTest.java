@@ -0,0 +1,47 @@
+package hs.aalen.fitness_tracker_backend.executionlogs;
+
+import hs.aalen.fitness_tracker_backend.executionlogs.model.PerformedSet;
+import hs.aalen.fitness_tracker_backend.executionlogs.model.PerformedSets;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PerformedSetsTest {
+
+    @Test
+    void shouldDecodeWhatWasAppended() {
+        byte[] packed = null;
+        List<PerformedSet> sets = List.of(
+                new PerformedSet(5, 100, 8.5, 180),
+                new PerformedSet(0, 0, null, null),
+                new PerformedSet(300, 20000, 10.0, 0),
+                new PerformedSet(12, 60, 1.0, 600));
+        for (PerformedSet set : sets) {
+            packed = PerformedSets.append(packed, set);
+        }
+
+        assertEquals(sets, PerformedSets.decode(packed));
+        assertEquals(4, PerformedSets.count(packed));
+    }
+
+    @Test
+    void shouldPackTypicalSetIntoFewBytes() {
+        byte[] packed = PerformedSets.append(null, new PerformedSet(10, 80, 8.0, 90));
+
+        // Format byte plus one byte per field
+        assertEquals(5, packed.length);
+    }
+
+    @Test
+    void shouldTreatMissingDataAsNoSets() {
+        assertEquals(List.of(), PerformedSets.decode(null));
+        assertEquals(0, PerformedSets.count(new byte[0]));
+    }
+
+    @Test
+    void shouldRejectUnknownFormat() {
+        assertThrows(IllegalStateException.class, () -> PerformedSets.decode(new byte[] {9, 1, 1, 0, 0}));
+    }
+}
@@ -1,6 +1,9 @@
 package hs.aalen.fitness_tracker_backend.exerciseexecutions;
 
+import hs.aalen.fitness_tracker_backend.exerciseexecutions.dto.ExerciseExecutionsBulkCreateDto;
 import hs.aalen.fitness_tracker_backend.exerciseexecutions.dto.ExerciseExecutionsCreateDto;
+import hs.aalen.fitness_tracker_backend.exerciseexecutions.dto.ExerciseExecutionsNestedCreateDto;
+import hs.aalen.fitness_tracker_backend.exerciseexecutions.dto.ExerciseExecutionsReorderDto;
 import hs.aalen.fitness_tracker_backend.exerciseexecutions.dto.ExerciseExecutionsResponseDto;
 import hs.aalen.fitness_tracker_backend.exerciseexecutions.dto.ExerciseExecutionsUpdateDto;
 import hs.aalen.fitness_tracker_backend.exerciseexecutions.service.ExerciseExecutionsService;
@@ -10,13 +13,19 @@ import hs.aalen.fitness_tracker_backend.exercises.model.Exercises;
 import hs.aalen.fitness_tracker_backend.exercises.repository.ExercisesRepository;
 import hs.aalen.fitness_tracker_backend.sessions.model.Sessions;
 import hs.aalen.fitness_tracker_backend.sessions.repository.SessionsRepository;
+import hs.aalen.fitness_tracker_backend.shared.OptimisticRetry;
+import hs.aalen.fitness_tracker_backend.shared.RankKeys;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.dao.DataIntegrityViolationException;
 
 import java.util.*;
 
@@ -36,6 +45,9 @@ class ExerciseExecutionsServiceTest {
     @Mock
     private ExercisesRepository exercisesRepository;
 
+    @Spy
+    private OptimisticRetry optimisticRetry = new OptimisticRetry(TransactionOperations.withoutTransaction());
+
     @InjectMocks
     private ExerciseExecutionsService service;
 
@@ -65,9 +77,10 @@ class ExerciseExecutionsServiceTest {
         execution.setPlannedSets(3);
         execution.setPlannedReps(10);
         execution.setPlannedWeight(100);
-        execution.setOrderID(1);
+        execution.setRankKey(RankKeys.forPosition(1));
         execution.setSession(session);
         execution.setExercise(exercise);
+        session.getExerciseExecutions().add(execution);
     }
 
     @Test
@@ -82,13 +95,12 @@ class ExerciseExecutionsServiceTest {
 
         when(sessionsRepository.findById(sessionId)).thenReturn(Optional.of(session));
         when(exercisesRepository.findById(exerciseId)).thenReturn(Optional.of(exercise));
-        when(executionsRepository.findBySessionIdOrderByOrderID(sessionId)).thenReturn(List.of());
-        when(executionsRepository.save(any())).thenReturn(execution);
+        when(executionsRepository.saveAndFlush(any())).thenReturn(execution);
 
         ExerciseExecutionsResponseDto result = service.createExerciseExecution(dto);
 
         assertEquals(execId, result.getId());
-        verify(executionsRepository).save(any());
+        verify(executionsRepository).saveAndFlush(any());
     }
 
     @Test
@@ -143,14 +155,13 @@ class ExerciseExecutionsServiceTest {
 
         execution.setExercise(exercise);
 
-        when(executionsRepository.findBySessionIdOrderByOrderID(sessionId))
-                .thenReturn(List.of(execution));
+        when(executionsRepository.existsBySessionIdAndExerciseId(sessionId, exerciseId)).thenReturn(true);
 
         assertThrows(IllegalArgumentException.class, () -> service.createExerciseExecution(dto));
     }
 
     @Test
-    void shouldThrowWhenOrderAlreadyTaken() {
+    void shouldInsertExecutionBetweenNeighboursOnCreate() {
         ExerciseExecutionsCreateDto dto = new ExerciseExecutionsCreateDto();
         dto.setPlannedSets(3);
         dto.setPlannedReps(10);
@@ -159,10 +170,19 @@ class ExerciseExecutionsServiceTest {
         dto.setExerciseId(exerciseId);
         dto.setOrderID(1);
 
-        when(executionsRepository.findBySessionIdOrderByOrderID(sessionId))
-                .thenReturn(List.of(execution));
+        when(sessionsRepository.findById(sessionId)).thenReturn(Optional.of(session));
+        when(exercisesRepository.findById(exerciseId)).thenReturn(Optional.of(exercise));
+        when(executionsRepository.findRankKeysBySessionId(sessionId, null))
+                .thenReturn(List.of(RankKeys.forPosition(1)));
+        when(executionsRepository.saveAndFlush(any())).thenAnswer(i -> i.getArgument(0));
 
-        assertThrows(IllegalArgumentException.class, () -> service.createExerciseExecution(dto));
+        ExerciseExecutionsResponseDto result = service.createExerciseExecution(dto);
+
+        assertEquals(1, result.getOrderID());
+        ArgumentCaptor<ExerciseExecutions> saved = ArgumentCaptor.forClass(ExerciseExecutions.class);
+        verify(executionsRepository, times(1)).saveAndFlush(saved.capture());
+        assertEquals(RankKeys.GAP / 2, saved.getValue().getRankKey());
+        assertEquals(RankKeys.forPosition(1), execution.getRankKey());
     }
 
     @Test
@@ -174,6 +194,29 @@ class ExerciseExecutionsServiceTest {
         assertEquals(1, result.size());
     }
 
+    @Test
+    void shouldDerivePositionsPerSessionWhenListingAll() {
+        Sessions otherSession = new Sessions();
+        otherSession.setId(UUID.randomUUID());
+        ExerciseExecutions second = new ExerciseExecutions();
+        second.setId(UUID.randomUUID());
+        second.setRankKey(RankKeys.forPosition(1) + 1);
+        second.setSession(session);
+        second.setExercise(exercise);
+        ExerciseExecutions elsewhere = new ExerciseExecutions();
+        elsewhere.setId(UUID.randomUUID());
+        elsewhere.setRankKey(RankKeys.forPosition(3));
+        elsewhere.setSession(otherSession);
+        elsewhere.setExercise(exercise);
+
+        when(executionsRepository.findAll()).thenReturn(List.of(second, elsewhere, execution));
+
+        List<ExerciseExecutionsResponseDto> result = service.getAllExerciseExecutions();
+
+        assertEquals(List.of(2, 1, 1), result.stream().map(ExerciseExecutionsResponseDto::getOrderID).toList());
+        verify(executionsRepository, never()).findRankKeysBySessionId(any(), any());
+    }
+
     @Test
     void shouldReturnExecutionById() {
         when(executionsRepository.findById(execId)).thenReturn(Optional.of(execution));
@@ -192,7 +235,7 @@ class ExerciseExecutionsServiceTest {
 
     @Test
     void shouldReturnExecutionsBySessionId() {
-        when(executionsRepository.findBySessionIdOrderByOrderID(sessionId)).thenReturn(List.of(execution));
+        when(executionsRepository.findBySessionIdOrderByRankKey(sessionId)).thenReturn(List.of(execution));
 
         List<ExerciseExecutionsResponseDto> result = service.getExerciseExecutionsBySessionId(sessionId);
 
@@ -207,43 +250,99 @@ class ExerciseExecutionsServiceTest {
         dto.setPlannedWeight(150);
 
         when(executionsRepository.findById(execId)).thenReturn(Optional.of(execution));
-        when(executionsRepository.save(execution)).thenReturn(execution);
+        when(executionsRepository.saveAndFlush(execution)).thenReturn(execution);
 
         ExerciseExecutionsResponseDto result = service.updateExerciseExecution(execId, dto);
 
         assertEquals(5, result.getPlannedSets());
-        verify(executionsRepository).save(execution);
+        verify(executionsRepository).saveAndFlush(execution);
+    }
+
+    @Test
+    void shouldMoveExecutionBetweenNeighboursWithoutRewritingThem() {
+        ExerciseExecutions second = new ExerciseExecutions();
+        second.setId(UUID.randomUUID());
+        second.setRankKey(RankKeys.forPosition(2));
+        ExerciseExecutions third = new ExerciseExecutions();
+        third.setId(UUID.randomUUID());
+        third.setRankKey(RankKeys.forPosition(3));
+
+        ExerciseExecutionsUpdateDto dto = new ExerciseExecutionsUpdateDto();
+        dto.setOrderID(2);
+
+        when(executionsRepository.findById(execId)).thenReturn(Optional.of(execution));
+        when(executionsRepository.findRankKeysBySessionId(sessionId, null)).thenReturn(List.of(
+                RankKeys.forPosition(1), RankKeys.forPosition(2), RankKeys.forPosition(3)));
+        when(executionsRepository.findRankKeysBySessionId(sessionId, execId))
+                .thenReturn(List.of(RankKeys.forPosition(2), RankKeys.forPosition(3)));
+        when(executionsRepository.saveAndFlush(any(ExerciseExecutions.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        ExerciseExecutionsResponseDto result = service.updateExerciseExecution(execId, dto);
+
+        assertEquals(2, result.getOrderID());
+        assertEquals(RankKeys.forPosition(2) + RankKeys.GAP / 2, execution.getRankKey());
+        assertEquals(RankKeys.forPosition(2), second.getRankKey());
+        assertEquals(RankKeys.forPosition(3), third.getRankKey());
+        verify(executionsRepository, times(1)).saveAndFlush(execution);
+        verify(executionsRepository, never()).saveAllAndFlush(any());
     }
 
     @Test
-    void shouldSwapOrderIfTargetOrderIsTaken() {
+    void shouldMoveToEndWhenTargetOrderIsPastLastExecution() {
         ExerciseExecutions other = new ExerciseExecutions();
         other.setId(UUID.randomUUID());
-        other.setOrderID(2);
+        other.setRankKey(RankKeys.forPosition(2));
         other.setSession(session);
         other.setExercise(exercise);
-        other.setPlannedSets(3);
-        other.setPlannedReps(10);
-        other.setPlannedWeight(100);
-
-        execution.setOrderID(1);
-        execution.setExercise(exercise);
+        session.getExerciseExecutions().add(other);
 
         ExerciseExecutionsUpdateDto dto = new ExerciseExecutionsUpdateDto();
-        dto.setOrderID(2);
+        dto.setOrderID(5);
 
         when(executionsRepository.findById(execId)).thenReturn(Optional.of(execution));
-        when(executionsRepository.findBySessionIdOrderByOrderID(sessionId))
-                .thenReturn(List.of(execution, other));
-        when(executionsRepository.save(any(ExerciseExecutions.class)))
-                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(executionsRepository.findRankKeysBySessionId(sessionId, null))
+                .thenReturn(List.of(RankKeys.forPosition(1), RankKeys.forPosition(2)));
+        when(executionsRepository.findRankKeysBySessionId(sessionId, execId))
+                .thenReturn(List.of(RankKeys.forPosition(2)));
+        when(executionsRepository.saveAndFlush(any())).thenAnswer(i -> i.getArgument(0));
 
-        service.updateExerciseExecution(execId, dto);
+        ExerciseExecutionsResponseDto result = service.updateExerciseExecution(execId, dto);
 
-        assertEquals(2, execution.getOrderID());
-        assertEquals(1, other.getOrderID());
+        assertEquals(2, result.getOrderID());
+        assertEquals(RankKeys.forPosition(3), execution.getRankKey());
+        assertEquals(RankKeys.forPosition(2), other.getRankKey());
+        verify(executionsRepository, times(1)).saveAndFlush(any());
     }
+    @Test
+    void shouldRebalanceBeforeBulkInsertWhenNeighboursAreAdjacent() {
+        ExerciseExecutions first = new ExerciseExecutions();
+        first.setId(UUID.randomUUID());
+        first.setRankKey(5L);
+        ExerciseExecutions second = new ExerciseExecutions();
+        second.setId(UUID.randomUUID());
+        second.setRankKey(6L);
+
+        ExerciseExecutionsBulkCreateDto dto = new ExerciseExecutionsBulkCreateDto();
+        dto.setSessionId(sessionId);
+        dto.setExecutions(List.of(bulkEntry(exerciseId, 2)));
 
+        when(sessionsRepository.findById(sessionId)).thenReturn(Optional.of(session));
+        when(exercisesRepository.findAllById(any())).thenReturn(List.of(exercise));
+        when(executionsRepository.findExerciseIdsBySessionId(sessionId)).thenReturn(Set.of());
+        when(executionsRepository.findRankKeysBySessionId(sessionId, null))
+                .thenReturn(List.of(5L, 6L))
+                .thenReturn(List.of(RankKeys.forPosition(1), RankKeys.forPosition(2)));
+        when(executionsRepository.findBySessionIdOrderByRankKey(sessionId))
+                .thenReturn(List.of(first, second));
+
+        service.createExerciseExecutions(dto);
+
+        assertEquals(RankKeys.forPosition(1), first.getRankKey());
+        assertEquals(RankKeys.forPosition(2), second.getRankKey());
+        // Two for the rebalance, one for the insert
+        verify(executionsRepository, times(3)).saveAllAndFlush(any());
+    }
     @Test
     void shouldThrowWhenUpdatingInvalidValues() {
         ExerciseExecutionsUpdateDto dto = new ExerciseExecutionsUpdateDto();
@@ -265,8 +364,8 @@ class ExerciseExecutionsServiceTest {
         duplicate.setSession(session);
 
         when(executionsRepository.findById(execId)).thenReturn(Optional.of(execution));
-        when(executionsRepository.findBySessionIdOrderByOrderID(sessionId))
-                .thenReturn(List.of(duplicate));
+        when(executionsRepository.existsBySessionIdAndExerciseIdAndIdNot(sessionId, dto.getExerciseId(), execId))
+                .thenReturn(true);
 
         assertThrows(RuntimeException.class, () -> service.updateExerciseExecution(execId, dto));
     }
@@ -310,8 +409,7 @@ class ExerciseExecutionsServiceTest {
 
         when(sessionsRepository.findById(sessionId)).thenReturn(Optional.of(session));
         when(exercisesRepository.findById(exerciseId)).thenReturn(Optional.of(exercise));
-        when(executionsRepository.findBySessionIdOrderByOrderID(sessionId)).thenReturn(List.of());
-        when(executionsRepository.save(any())).thenAnswer(i -> i.getArgument(0));
+        when(executionsRepository.saveAndFlush(any())).thenAnswer(i -> i.getArgument(0));
 
         ExerciseExecutionsResponseDto result = service.createExerciseExecution(dto);
 
@@ -330,12 +428,39 @@ class ExerciseExecutionsServiceTest {
 
         when(sessionsRepository.findById(sessionId)).thenReturn(Optional.of(session));
         when(exercisesRepository.findById(exerciseId)).thenReturn(Optional.of(exercise));
-        when(executionsRepository.findBySessionIdOrderByOrderID(sessionId)).thenReturn(List.of());
-        when(executionsRepository.save(any())).thenAnswer(i -> i.getArgument(0));
+        when(executionsRepository.saveAndFlush(any())).thenAnswer(i -> i.getArgument(0));
 
-        ExerciseExecutionsResponseDto result = service.createExerciseExecution(dto);
+        when(executionsRepository.findRankKeysBySessionId(sessionId, null)).thenReturn(List.of(
+                RankKeys.forPosition(1), RankKeys.forPosition(2), RankKeys.forPosition(3)));
+
+        service.createExerciseExecution(dto);
 
-        assertEquals(0, result.getOrderID());
+        verify(executionsRepository).saveAndFlush(argThat(saved ->
+                saved.getRankKey() == RankKeys.forPosition(4)));
+    }
+
+    @Test
+    void shouldTranslateOrderConstraintViolationOnCreate() {
+        ExerciseExecutionsCreateDto dto = new ExerciseExecutionsCreateDto();
+        dto.setPlannedSets(3);
+        dto.setPlannedReps(10);
+        dto.setPlannedWeight(50);
+        dto.setSessionId(sessionId);
+        dto.setExerciseId(exerciseId);
+        dto.setOrderID(2);
+
+        when(sessionsRepository.findById(sessionId)).thenReturn(Optional.of(session));
+        when(exercisesRepository.findById(exerciseId)).thenReturn(Optional.of(exercise));
+        when(executionsRepository.findRankKeysBySessionId(sessionId, null))
+                .thenReturn(List.of(RankKeys.forPosition(1)));
+        when(executionsRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException(
+                "Unique index or primary key violation: \"PUBLIC.UK_EXERCISE_EXECUTIONS_SESSION_ORDER_INDEX_1\""));
+
+        IllegalArgumentException ex = assertThrows(
+                IllegalArgumentException.class,
+                () -> service.createExerciseExecution(dto));
+
+        assertEquals("Order 2 is already used in this session", ex.getMessage());
     }
 
     @Test
@@ -344,7 +469,7 @@ class ExerciseExecutionsServiceTest {
         dto.setPlannedSets(4);
 
         when(executionsRepository.findById(execId)).thenReturn(Optional.of(execution));
-        when(executionsRepository.save(any())).thenAnswer(i -> i.getArgument(0));
+        when(executionsRepository.saveAndFlush(any())).thenAnswer(i -> i.getArgument(0));
 
         ExerciseExecutionsResponseDto result = service.updateExerciseExecution(execId, dto);
 
@@ -358,11 +483,122 @@ class ExerciseExecutionsServiceTest {
         dto.setPlannedReps(12);
 
         when(executionsRepository.findById(execId)).thenReturn(Optional.of(execution));
-        when(executionsRepository.save(any())).thenAnswer(i -> i.getArgument(0));
+        when(executionsRepository.saveAndFlush(any())).thenAnswer(i -> i.getArgument(0));
 
         ExerciseExecutionsResponseDto result = service.updateExerciseExecution(execId, dto);
 
         assertEquals(12, result.getPlannedReps());
         assertEquals(exerciseId, result.getExerciseId());
     }
+    @Test
+    void shouldReorderExecutionsInOneTransaction() {
+        ExerciseExecutions other = new ExerciseExecutions();
+        other.setId(UUID.randomUUID());
+        other.setRankKey(RankKeys.forPosition(2));
+        other.setSession(session);
+        other.setExercise(exercise);
+        session.getExerciseExecutions().add(other);
+
+        ExerciseExecutionsReorderDto dto = new ExerciseExecutionsReorderDto();
+        dto.setSessionId(sessionId);
+        dto.setExecutionIds(List.of(other.getId(), execId));
+
+        when(sessionsRepository.existsById(sessionId)).thenReturn(true);
+        when(executionsRepository.findBySessionIdOrderByRankKey(sessionId))
+                .thenReturn(List.of(execution, other));
+
+        List<ExerciseExecutionsResponseDto> result = service.reorderExerciseExecutions(dto);
+
+        assertEquals(other.getId(), result.get(0).getId());
+        assertEquals(1, result.get(0).getOrderID());
+        assertEquals(2, result.get(1).getOrderID());
+        assertEquals(RankKeys.forPosition(1), other.getRankKey());
+        verify(executionsRepository, times(2)).saveAllAndFlush(any());
+    }
+
+    @Test
+    void shouldRejectIncompleteReorder() {
+        ExerciseExecutions other = new ExerciseExecutions();
+        other.setId(UUID.randomUUID());
+        other.setRankKey(RankKeys.forPosition(2));
+
+        ExerciseExecutionsReorderDto dto = new ExerciseExecutionsReorderDto();
+        dto.setSessionId(sessionId);
+        dto.setExecutionIds(List.of(execId, execId));
+
+        when(sessionsRepository.existsById(sessionId)).thenReturn(true);
+        when(executionsRepository.findBySessionIdOrderByRankKey(sessionId))
+                .thenReturn(List.of(execution, other));
+
+        assertThrows(IllegalArgumentException.class, () -> service.reorderExerciseExecutions(dto));
+        verify(executionsRepository, never()).saveAllAndFlush(any());
+    }
+
+    private ExerciseExecutionsNestedCreateDto bulkEntry(UUID exerciseId, Integer orderID) {
+        ExerciseExecutionsNestedCreateDto entry = new ExerciseExecutionsNestedCreateDto();
+        entry.setExerciseId(exerciseId);
+        entry.setPlannedSets(3);
+        entry.setPlannedReps(10);
+        entry.setPlannedWeight(50);
+        entry.setOrderID(orderID);
+        return entry;
+    }
+
+    @Test
+    void shouldBulkCreateExecutionsInOneBatch() {
+        Exercises press = new Exercises();
+        press.setId(UUID.randomUUID());
+        press.setName("Press");
+
+        ExerciseExecutionsBulkCreateDto dto = new ExerciseExecutionsBulkCreateDto();
+        dto.setSessionId(sessionId);
+        dto.setExecutions(List.of(bulkEntry(exerciseId, null), bulkEntry(press.getId(), 1)));
+
+        when(sessionsRepository.findById(sessionId)).thenReturn(Optional.of(session));
+        when(exercisesRepository.findAllById(any())).thenReturn(List.of(exercise, press));
+        when(executionsRepository.findExerciseIdsBySessionId(sessionId)).thenReturn(Set.of());
+        when(executionsRepository.findRankKeysBySessionId(sessionId, null))
+                .thenReturn(List.of(RankKeys.forPosition(1)));
+
+        List<ExerciseExecutionsResponseDto> result = service.createExerciseExecutions(dto);
+
+        assertEquals(2, result.size());
+        verify(exercisesRepository, times(1)).findAllById(any());
+        verify(executionsRepository).saveAllAndFlush(argThat(saved -> {
+            List<ExerciseExecutions> batch = new ArrayList<>();
+            saved.forEach(batch::add);
+            return batch.size() == 2
+                    && batch.get(0).getRankKey() == RankKeys.forPosition(2)
+                    && batch.get(1).getRankKey() == RankKeys.GAP / 2;
+        }));
+        verify(executionsRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void shouldRejectBulkCreateWithExerciseAlreadyInSession() {
+        ExerciseExecutionsBulkCreateDto dto = new ExerciseExecutionsBulkCreateDto();
+        dto.setSessionId(sessionId);
+        dto.setExecutions(List.of(bulkEntry(exerciseId, null)));
+
+        when(sessionsRepository.findById(sessionId)).thenReturn(Optional.of(session));
+        when(exercisesRepository.findAllById(any())).thenReturn(List.of(exercise));
+        when(executionsRepository.findExerciseIdsBySessionId(sessionId)).thenReturn(Set.of(exerciseId));
+
+        assertThrows(IllegalArgumentException.class, () -> service.createExerciseExecutions(dto));
+        verify(executionsRepository, never()).saveAllAndFlush(any());
+    }
+
+    @Test
+    void shouldReportMissingExercisesOnBulkCreate() {
+        UUID missing = UUID.randomUUID();
+        ExerciseExecutionsBulkCreateDto dto = new ExerciseExecutionsBulkCreateDto();
+        dto.setSessionId(sessionId);
+        dto.setExecutions(List.of(bulkEntry(exerciseId, null), bulkEntry(missing, null)));
+
+        when(sessionsRepository.findById(sessionId)).thenReturn(Optional.of(session));
+        when(exercisesRepository.findAllById(any())).thenReturn(List.of(exercise));
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> service.createExerciseExecutions(dto));
+        assertEquals("Exercise not found: " + missing, ex.getMessage());
+    }
 }
@@ -0,0 +1,170 @@
+package hs.aalen.fitness_tracker_backend.exercises;
+
+import hs.aalen.fitness_tracker_backend.exercises.model.ExerciseAlternatives;
+import hs.aalen.fitness_tracker_backend.exercises.model.Exercises;
+import hs.aalen.fitness_tracker_backend.exercises.repository.ExerciseAlternativesRepository;
+import hs.aalen.fitness_tracker_backend.exercises.repository.ExercisesRepository;
+import hs.aalen.fitness_tracker_backend.exercises.service.ExerciseAlternativesService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExerciseAlternativesServiceTest {
+
+    @Mock
+    private ExerciseAlternativesRepository alternativesRepository;
+
+    @Mock
+    private ExercisesRepository exercisesRepository;
+
+    @InjectMocks
+    private ExerciseAlternativesService service;
+
+    private Exercises benchPress;
+    private Exercises dumbbellPress;
+    private Exercises pushUp;
+    private Exercises squat;
+
+    private static Exercises exercise(String name, Exercises.Category category, String... muscleGroups) {
+        Exercises exercise = new Exercises();
+        exercise.setId(UUID.randomUUID());
+        exercise.setName(name);
+        exercise.setCategory(category);
+        exercise.setMuscleGroups(List.of(muscleGroups));
+        return exercise;
+    }
+
+    private record Bounds(UUID exerciseId, long size, double weakest)
+            implements ExerciseAlternativesRepository.ListBounds {
+        public UUID getExerciseId() {
+            return exerciseId;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public double getWeakest() {
+            return weakest;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "size", 2);
+        benchPress = exercise("Bench Press", Exercises.Category.FreeWeight, "Chest", "Triceps", "Shoulders");
+        dumbbellPress = exercise("Dumbbell Press", Exercises.Category.FreeWeight, "Chest", "Triceps", "Shoulders");
+        pushUp = exercise("Push-Up", Exercises.Category.BodyWeight, "Chest", "Triceps", "Core");
+        squat = exercise("Squat", Exercises.Category.FreeWeight, "Quadriceps", "Glutes");
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ExerciseAlternatives> savedRows() {
+        ArgumentCaptor<List<ExerciseAlternatives>> rows = ArgumentCaptor.forClass(List.class);
+        verify(alternativesRepository).saveAll(rows.capture());
+        return rows.getValue();
+    }
+
+    @Test
+    void shouldWeightMuscleGroupOverlapByCategory() {
+        assertEquals(1.0, similarity(benchPress, dumbbellPress));
+        // Two of four groups shared, other category
+        assertEquals(0.5 * 0.8, similarity(benchPress, pushUp), 1e-9);
+        assertEquals(0.0, similarity(benchPress, squat));
+    }
+
+    private static double similarity(Exercises a, Exercises b) {
+        return (double) ReflectionTestUtils.invokeMethod(ExerciseAlternativesService.class, "similarity", a, b);
+    }
+
+    @Test
+    void shouldRankBestAlternativesAndSkipUnrelatedExercises() {
+        List<Exercises> catalog = List.of(benchPress, dumbbellPress, pushUp, squat);
+        when(exercisesRepository.findAll()).thenReturn(catalog);
+        when(alternativesRepository.findExerciseIdsByAlternativeIdIn(anyCollection())).thenReturn(Set.of());
+        when(alternativesRepository.findListBounds()).thenReturn(List.of());
+
+        service.refresh(List.of(benchPress.getId()));
+
+        List<ExerciseAlternatives> benchRows = savedRows().stream()
+                .filter(row -> row.getExerciseId().equals(benchPress.getId()))
+                .toList();
+        assertEquals(List.of("Dumbbell Press", "Push-Up"),
+                benchRows.stream().map(row -> row.getAlternative().getName()).toList());
+        assertEquals(List.of(1, 2), benchRows.stream().map(ExerciseAlternatives::getRank).toList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldOnlyRecomputeListsTheChangeCanReach() {
+        Exercises lateralRaise = exercise("Lateral Raise", Exercises.Category.FreeWeight, "Shoulders");
+        List<Exercises> catalog = List.of(benchPress, dumbbellPress, pushUp, squat, lateralRaise);
+        when(exercisesRepository.findAll()).thenReturn(catalog);
+        when(alternativesRepository.findExerciseIdsByAlternativeIdIn(anyCollection())).thenReturn(Set.of());
+        // Push-up's list is full of stronger matches than the lateral raise
+        when(alternativesRepository.findListBounds()).thenReturn(List.of(
+                new Bounds(pushUp.getId(), 2, 0.4),
+                new Bounds(dumbbellPress.getId(), 2, 0.3),
+                new Bounds(squat.getId(), 0, 0)));
+
+        service.refresh(List.of(lateralRaise.getId()));
+
+        ArgumentCaptor<Collection<UUID>> affected = ArgumentCaptor.forClass(Collection.class);
+        verify(alternativesRepository).deleteByExerciseIdIn(affected.capture());
+        assertEquals(Set.of(lateralRaise.getId(), benchPress.getId(), dumbbellPress.getId()),
+                Set.copyOf(affected.getValue()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldRecomputeListsThatContainedDeletedExercise() {
+        when(exercisesRepository.findAll()).thenReturn(List.of(benchPress, pushUp, squat));
+        when(alternativesRepository.findExerciseIdsByAlternativeIdIn(List.of(dumbbellPress.getId())))
+                .thenReturn(Set.of(benchPress.getId()));
+        when(alternativesRepository.findListBounds()).thenReturn(List.of());
+
+        service.refresh(List.of(dumbbellPress.getId()));
+
+        ArgumentCaptor<Collection<UUID>> affected = ArgumentCaptor.forClass(Collection.class);
+        verify(alternativesRepository).deleteByExerciseIdIn(affected.capture());
+        assertEquals(Set.of(dumbbellPress.getId(), benchPress.getId()), Set.copyOf(affected.getValue()));
+        assertTrue(savedRows().stream().noneMatch(row -> row.getExerciseId().equals(dumbbellPress.getId())
+                || row.getAlternative() == dumbbellPress));
+    }
+
+    @Test
+    void shouldFillEmptyTableOnStartup() {
+        when(alternativesRepository.count()).thenReturn(0L);
+        when(exercisesRepository.findAll()).thenReturn(List.of(benchPress, dumbbellPress));
+        when(alternativesRepository.findExerciseIdsByAlternativeIdIn(anyCollection())).thenReturn(Set.of());
+        when(alternativesRepository.findListBounds()).thenReturn(List.of());
+
+        service.initialize();
+
+        assertEquals(2, savedRows().size());
+    }
+
+    @Test
+    void shouldKeepExistingTableOnStartup() {
+        when(alternativesRepository.count()).thenReturn(12L);
+
+        service.initialize();
+
+        verify(alternativesRepository, never()).saveAll(anyCollection());
+    }
+}
@@ -0,0 +1,140 @@
+package hs.aalen.fitness_tracker_backend.exercises;
+
+import hs.aalen.fitness_tracker_backend.exercises.dto.ExerciseResponseDto;
+import hs.aalen.fitness_tracker_backend.exercises.dto.ExerciseSearchResponseDto;
+import hs.aalen.fitness_tracker_backend.exercises.service.ExerciseSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExerciseSearchIndexTest {
+
+    private ExerciseSearchIndex index;
+    private ExerciseResponseDto bench;
+    private ExerciseResponseDto squat;
+    private ExerciseResponseDto pushUp;
+
+    private static ExerciseResponseDto exercise(String name, String category, List<String> muscleGroups,
+            String description) {
+        ExerciseResponseDto dto = new ExerciseResponseDto();
+        dto.setId(UUID.randomUUID());
+        dto.setName(name);
+        dto.setCategory(category);
+        dto.setMuscleGroups(muscleGroups);
+        dto.setDescription(description);
+        return dto;
+    }
+
+    private static List<String> names(ExerciseSearchResponseDto result) {
+        return result.getExercises().stream().map(ExerciseResponseDto::getName).toList();
+    }
+
+    @BeforeEach
+    void setUp() {
+        bench = exercise("Bench Press", "FreeWeight", List.of("Chest", "Triceps"), "Press the bar from the chest");
+        squat = exercise("Back Squat", "FreeWeight", List.of("Quadriceps", "Glutes"), "Squat with the bar on the back");
+        pushUp = exercise("Push-Up", "BodyWeight", List.of("Chest"), "Lower the chest to the floor");
+        index = new ExerciseSearchIndex();
+        index.replaceAll(List.of(bench, squat, pushUp));
+    }
+
+    @Test
+    void shouldFindExerciseByNamePrefix() {
+        assertEquals(List.of("Bench Press"), names(index.search("be", null, 10)));
+    }
+
+    @Test
+    void shouldTolerateTypos() {
+        assertEquals("Bench Press", names(index.search("bemch pres", null, 10)).get(0));
+        assertEquals("Back Squat", names(index.search("sqaut", null, 10)).get(0));
+    }
+
+    @Test
+    void shouldRankNameMatchesAboveMuscleGroupMatches() {
+        ExerciseResponseDto chestFly = exercise("Chest Fly", "Machine", List.of("Pectorals"), "Fly movement");
+        index.put(chestFly);
+
+        List<String> result = names(index.search("chest", null, 10));
+
+        assertEquals("Chest Fly", result.get(0));
+        assertTrue(result.containsAll(List.of("Bench Press", "Push-Up")));
+    }
+
+    @Test
+    void shouldIgnoreCaseAndAccents() {
+        ExerciseResponseDto curl = exercise("Bizeps-Curl für Anfänger", "FreeWeight", List.of("Bizeps"), null);
+        index.put(curl);
+
+        assertEquals(List.of("Bizeps-Curl für Anfänger"), names(index.search("FUR ANFANGER", null, 10)));
+    }
+
+    @Test
+    void shouldCountCategoriesAcrossAllMatchesAndFilterHits() {
+        ExerciseSearchResponseDto result = index.search("chest", "bodyweight", 10);
+
+        assertEquals(List.of("Push-Up"), names(result));
+        assertEquals(1, result.getTotal());
+        assertEquals(Map.of("BodyWeight", 1, "FreeWeight", 1), result.getCategories());
+    }
+
+    @Test
+    void shouldLimitHitsButReportTotal() {
+        ExerciseSearchResponseDto result = index.search("bar", null, 1);
+
+        assertEquals(1, result.getExercises().size());
+        assertEquals(2, result.getTotal());
+    }
+
+    @Test
+    void shouldReturnNothingForBlankQuery() {
+        ExerciseSearchResponseDto result = index.search("  -- ", null, 10);
+
+        assertTrue(result.getExercises().isEmpty());
+        assertEquals(0, result.getTotal());
+    }
+
+    @Test
+    void shouldReplaceUpdatedExercise() {
+        ExerciseResponseDto renamed = exercise("Incline Press", "FreeWeight", List.of("Chest"), null);
+        renamed.setId(bench.getId());
+
+        index.put(renamed);
+
+        assertEquals(3, index.size());
+        assertTrue(names(index.search("bench", null, 10)).isEmpty());
+        assertEquals(List.of("Incline Press"), names(index.search("incline", null, 10)));
+    }
+
+    @Test
+    void shouldRemoveExerciseAndReuseItsSlot() {
+        index.remove(squat.getId());
+        assertTrue(names(index.search("squat", null, 10)).isEmpty());
+
+        index.put(exercise("Deadlift", "FreeWeight", List.of("Hamstrings"), null));
+
+        assertEquals(3, index.size());
+        assertEquals(List.of("Deadlift"), names(index.search("deadl", null, 10)));
+    }
+
+    @Test
+    void shouldApplyChangesOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.remove(bench.getId());
+            assertEquals(List.of("Bench Press"), names(index.search("bench", null, 10)));
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertTrue(names(index.search("bench", null, 10)).isEmpty());
+    }
+}
@@ -1,9 +1,14 @@
 package hs.aalen.fitness_tracker_backend.exercises;
 
+import hs.aalen.fitness_tracker_backend.exercises.dto.ExerciseAlternativeResponseDto;
 import hs.aalen.fitness_tracker_backend.exercises.dto.ExerciseCreateDto;
 import hs.aalen.fitness_tracker_backend.exercises.dto.ExerciseResponseDto;
 import hs.aalen.fitness_tracker_backend.exercises.dto.ExercisesUpdateDto;
+import hs.aalen.fitness_tracker_backend.exercises.model.ExerciseAlternatives;
 import hs.aalen.fitness_tracker_backend.exercises.model.Exercises;
+import hs.aalen.fitness_tracker_backend.exercises.model.MuscleGroup;
+import hs.aalen.fitness_tracker_backend.exercises.service.ExerciseAlternativesService;
+import hs.aalen.fitness_tracker_backend.exercises.service.ExerciseSearchIndex;
 import hs.aalen.fitness_tracker_backend.exercises.service.ExercisesService;
 import hs.aalen.fitness_tracker_backend.exercises.repository.ExercisesRepository;
 
@@ -23,6 +28,7 @@ import java.util.*;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,6 +40,12 @@ class ExercisesServiceTest {
     @Mock
     private ExerciseExecutionsRepository executionsRepository;
 
+    @Mock
+    private ExerciseSearchIndex searchIndex;
+
+    @Mock
+    private ExerciseAlternativesService alternativesService;
+
     @InjectMocks
     private ExercisesService service;
 
@@ -63,6 +75,24 @@ class ExercisesServiceTest {
         verify(repository).findAll();
     }
 
+    @Test
+    void shouldFilterExercisesByMuscleGroupMask() {
+        when(repository.findByAllMuscleGroups(MuscleGroup.Chest.bit() | MuscleGroup.Triceps.bit()))
+                .thenReturn(List.of(exercise));
+
+        List<ExerciseResponseDto> result = service.getByMuscleGroups(List.of("triceps", "Chest"));
+
+        assertEquals(List.of("Bench Press"), result.stream().map(ExerciseResponseDto::getName).toList());
+    }
+
+    @Test
+    void shouldNormalizeMuscleGroupsIntoDictionaryOrder() {
+        exercise.setMuscleGroups(List.of("Triceps", "pecs", "CHEST"));
+
+        assertEquals(MuscleGroup.Chest.bit() | MuscleGroup.Triceps.bit(), exercise.getMuscleGroupMask());
+        assertEquals(List.of("Chest", "Triceps"), exercise.getMuscleGroups());
+    }
+
     @Test
     void shouldReturnExerciseWhenIdExists() {
         when(repository.findById(id)).thenReturn(Optional.of(exercise));
@@ -95,6 +125,21 @@ class ExercisesServiceTest {
 
         assertEquals("Bench Press", created.getName());
         verify(repository).save(any(Exercises.class));
+        verify(searchIndex).put(created);
+        verify(alternativesService).refresh(List.of(id));
+    }
+
+    @Test
+    void shouldRejectUnknownMuscleGroupOnCreate() {
+        ExerciseCreateDto dto = new ExerciseCreateDto();
+        dto.setName("Bench Press");
+        dto.setCategory("STRENGTH");
+        dto.setMuscleGroups(List.of("Chest", "Elbows"));
+
+        when(repository.findByNameIgnoreCase("Bench Press")).thenReturn(Optional.empty());
+
+        assertThrows(IllegalArgumentException.class, () -> service.create(dto));
+        verify(repository, never()).save(any(Exercises.class));
     }
 
     @Test
@@ -109,6 +154,7 @@ class ExercisesServiceTest {
                 .thenReturn(Optional.of(exercise));
 
         assertThrows(IllegalArgumentException.class, () -> service.create(dto));
+        verifyNoInteractions(searchIndex);
     }
 
     @Test
@@ -123,6 +169,8 @@ class ExercisesServiceTest {
 
         verify(executionsRepository).deleteAll(anyList());
         verify(repository).deleteById(id);
+        verify(alternativesService).refresh(List.of(id));
+        verify(searchIndex).remove(id);
     }
 
     @Test
@@ -159,6 +207,62 @@ class ExercisesServiceTest {
 
         assertEquals("Updated Name", result.getName());
         verify(repository).save(exercise);
+        verify(searchIndex).put(result);
+        verify(alternativesService).refresh(List.of(id));
+    }
+
+    @Test
+    void shouldReturnPrecomputedAlternatives() {
+        Exercises pushUp = new Exercises();
+        pushUp.setId(UUID.randomUUID());
+        pushUp.setName("Push-Up");
+        pushUp.setMuscleGroups(List.of("Chest"));
+        ExerciseAlternatives alternative = new ExerciseAlternatives();
+        alternative.setExerciseId(id);
+        alternative.setAlternative(pushUp);
+        alternative.setRank(1);
+        alternative.setSimilarity(0.8);
+
+        when(repository.existsById(id)).thenReturn(true);
+        when(alternativesService.getAlternatives(id)).thenReturn(List.of(alternative));
+
+        List<ExerciseAlternativeResponseDto> result = service.getAlternatives(id);
+
+        assertEquals(1, result.size());
+        assertEquals("Push-Up", result.get(0).getExercise().getName());
+        assertEquals(List.of("Chest"), result.get(0).getExercise().getMuscleGroups());
+        assertEquals(0.8, result.get(0).getSimilarity());
+    }
+
+    @Test
+    void shouldThrowExceptionWhenExerciseNotFoundForAlternatives() {
+        when(repository.existsById(id)).thenReturn(false);
+
+        assertThrows(EntityNotFoundException.class, () -> service.getAlternatives(id));
+        verifyNoInteractions(alternativesService);
+    }
+
+    @Test
+    void shouldRebuildSearchIndexFromCatalog() {
+        when(repository.findAll()).thenReturn(List.of(exercise));
+
+        service.rebuildSearchIndex();
+
+        verify(searchIndex).replaceAll(argThat(exercises -> exercises.size() == 1
+                && exercises.iterator().next().getName().equals("Bench Press")));
+    }
+
+    @Test
+    void shouldDelegateSearchToIndex() {
+        service.search("bench", null, 5);
+
+        verify(searchIndex).search("bench", null, 5);
+    }
+
+    @Test
+    void shouldRejectSearchLimitBelowOne() {
+        assertThrows(IllegalArgumentException.class, () -> service.search("bench", null, 0));
+        verifyNoInteractions(searchIndex);
     }
 
     @Test
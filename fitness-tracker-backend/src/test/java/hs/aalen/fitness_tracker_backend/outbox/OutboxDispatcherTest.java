@@ -0,0 +1,187 @@
+package hs.aalen.fitness_tracker_backend.outbox;
+
+import hs.aalen.fitness_tracker_backend.outbox.model.OutboxEvents;
+import hs.aalen.fitness_tracker_backend.outbox.repository.OutboxEventsRepository;
+import hs.aalen.fitness_tracker_backend.outbox.service.OutboxDispatcher;
+import hs.aalen.fitness_tracker_backend.outbox.service.OutboxHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxDispatcherTest {
+
+    private static final String TYPE = "session-log.completed";
+
+    @Mock
+    private OutboxEventsRepository repository;
+
+    private RecordingHandler first;
+    private RecordingHandler second;
+    private OutboxEvents event;
+
+    @BeforeEach
+    void setup() {
+        event = new OutboxEvents();
+        event.setId(UUID.randomUUID());
+        event.setType(TYPE);
+        event.setAggregateId(UUID.randomUUID());
+        event.setCreatedAt(Instant.now());
+        event.setNextAttemptAt(Instant.now());
+
+        first = new RecordingHandler("first", TYPE, 0);
+        second = new RecordingHandler("second", TYPE, 0);
+    }
+
+    private OutboxDispatcher dispatcher(OutboxHandler... handlers) {
+        return new OutboxDispatcher(repository, List.of(handlers), Runnable::run,
+                TransactionOperations.withoutTransaction());
+    }
+
+    private void due(OutboxEvents... events) {
+        when(repository.lockDue(eq(OutboxEvents.Status.Pending), any(Instant.class), any(Pageable.class)))
+                .thenReturn(List.of(events));
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(repository.save(any(OutboxEvents.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void shouldRunMatchingHandlersAndMarkEventDone() {
+        RecordingHandler other = new RecordingHandler("other", "plan.copied", 0);
+        due(event);
+
+        dispatcher(first, second, other).dispatchDue();
+
+        assertEquals(List.of(event.getAggregateId()), first.handled);
+        assertEquals(List.of(event.getAggregateId()), second.handled);
+        assertTrue(other.handled.isEmpty());
+        assertEquals(OutboxEvents.Status.Done, event.getStatus());
+        assertNotNull(event.getProcessedAt());
+    }
+
+    @Test
+    void shouldRetryOnlyTheFailedHandler() {
+        RecordingHandler flaky = new RecordingHandler("flaky", TYPE, 1);
+        OutboxDispatcher dispatcher = dispatcher(first, flaky);
+        due(event);
+
+        dispatcher.dispatchDue();
+
+        assertEquals(OutboxEvents.Status.Pending, event.getStatus());
+        assertEquals(1, event.getAttempts());
+        assertTrue(event.getNextAttemptAt().isAfter(Instant.now()));
+        assertEquals("flaky failed", event.getLastError());
+
+        dispatcher.dispatchDue();
+
+        assertEquals(1, first.handled.size());
+        assertEquals(1, flaky.handled.size());
+        assertEquals(OutboxEvents.Status.Done, event.getStatus());
+    }
+
+    @Test
+    void shouldGiveUpAfterMaxAttempts() {
+        RecordingHandler broken = new RecordingHandler("broken", TYPE, Integer.MAX_VALUE);
+        OutboxDispatcher dispatcher = dispatcher(broken);
+        due(event);
+
+        for (int i = 0; i < 5; i++) {
+            dispatcher.dispatchDue();
+        }
+
+        assertEquals(OutboxEvents.Status.Failed, event.getStatus());
+        assertEquals(5, event.getAttempts());
+        verify(repository, atLeast(5)).save(event);
+    }
+
+    @Test
+    void shouldClaimEventsBeforeRunningHandlers() {
+        List<Instant> nextAttemptWhileHandled = new ArrayList<>();
+        OutboxHandler handler = new OutboxHandler() {
+            @Override
+            public String eventType() {
+                return TYPE;
+            }
+
+            @Override
+            public void handle(OutboxEvents handled) {
+                nextAttemptWhileHandled.add(handled.getNextAttemptAt());
+            }
+        };
+        due(event);
+
+        dispatcher(handler).dispatchDue();
+
+        verify(repository).saveAll(List.of(event));
+        assertTrue(nextAttemptWhileHandled.get(0).isAfter(Instant.now().plusSeconds(60)));
+    }
+
+    @Test
+    void shouldPurgeDoneEventsInBatches() {
+        OutboxDispatcher dispatcher = dispatcher(first);
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 2);
+        List<UUID> full = List.of(UUID.randomUUID(), UUID.randomUUID());
+        List<UUID> rest = List.of(UUID.randomUUID());
+        when(repository.findIdsProcessedBefore(eq(OutboxEvents.Status.Done), any(Instant.class), any(Pageable.class)))
+                .thenReturn(full)
+                .thenReturn(rest);
+        when(repository.deleteByIdIn(full)).thenReturn(2);
+        when(repository.deleteByIdIn(rest)).thenReturn(1);
+
+        dispatcher.purgeDone();
+
+        InOrder inOrder = inOrder(repository);
+        inOrder.verify(repository).deleteHandlersOf(full);
+        inOrder.verify(repository).deleteByIdIn(full);
+        inOrder.verify(repository).deleteHandlersOf(rest);
+        inOrder.verify(repository).deleteByIdIn(rest);
+    }
+
+    private static class RecordingHandler implements OutboxHandler {
+        private final String name;
+        private final String type;
+        private int failuresLeft;
+        private final List<UUID> handled = new ArrayList<>();
+
+        RecordingHandler(String name, String type, int failures) {
+            this.name = name;
+            this.type = type;
+            this.failuresLeft = failures;
+        }
+
+        @Override
+        public String eventType() {
+            return type;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public void handle(OutboxEvents event) {
+            if (failuresLeft > 0) {
+                failuresLeft--;
+                throw new IllegalStateException(name + " failed");
+            }
+            handled.add(event.getAggregateId());
+        }
+    }
+}
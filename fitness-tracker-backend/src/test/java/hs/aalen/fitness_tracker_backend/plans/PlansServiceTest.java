@@ -3,14 +3,24 @@ package hs.aalen.fitness_tracker_backend.plans;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
+import hs.aalen.fitness_tracker_backend.exerciseexecutions.dto.ExerciseExecutionsNestedCreateDto;
+import hs.aalen.fitness_tracker_backend.exerciseexecutions.model.ExerciseExecutions;
+import hs.aalen.fitness_tracker_backend.exerciseexecutions.repository.ExerciseExecutionsRepository;
+import hs.aalen.fitness_tracker_backend.exercises.model.Exercises;
+import hs.aalen.fitness_tracker_backend.exercises.repository.ExercisesRepository;
+import hs.aalen.fitness_tracker_backend.plans.dto.PlansCopyDto;
 import hs.aalen.fitness_tracker_backend.plans.dto.PlansCreateDto;
+import hs.aalen.fitness_tracker_backend.plans.dto.PlansNestedCreateDto;
 import hs.aalen.fitness_tracker_backend.plans.dto.PlansResponseDto;
 import hs.aalen.fitness_tracker_backend.plans.dto.PlansUpdateDto;
 import hs.aalen.fitness_tracker_backend.plans.model.Plans;
 import hs.aalen.fitness_tracker_backend.plans.repository.PlansRepository;
 import hs.aalen.fitness_tracker_backend.plans.service.PlansService;
+import hs.aalen.fitness_tracker_backend.sessions.dto.SessionsNestedCreateDto;
 import hs.aalen.fitness_tracker_backend.sessions.model.Sessions;
 import hs.aalen.fitness_tracker_backend.sessions.repository.SessionsRepository;
+import hs.aalen.fitness_tracker_backend.shared.OptimisticRetry;
+import hs.aalen.fitness_tracker_backend.shared.RankKeys;
 import jakarta.persistence.EntityNotFoundException;
 import java.util.*;
 import org.junit.jupiter.api.BeforeEach;
@@ -18,7 +28,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionOperations;
 
 @ExtendWith(MockitoExtension.class)
 class PlansServiceTest {
@@ -29,6 +42,15 @@ class PlansServiceTest {
     @Mock
     private SessionsRepository sessionsRepository;
 
+    @Mock
+    private ExerciseExecutionsRepository exerciseExecutionsRepository;
+
+    @Mock
+    private ExercisesRepository exercisesRepository;
+
+    @Spy
+    private OptimisticRetry optimisticRetry = new OptimisticRetry(TransactionOperations.withoutTransaction());
+
     @InjectMocks
     private PlansService service;
 
@@ -143,16 +165,90 @@ class PlansServiceTest {
         when(repository.findByNameIgnoreCase("Plan Updated")).thenReturn(
             Optional.empty()
         );
-        when(sessionsRepository.findById(sessionId)).thenReturn(
-            Optional.of(session)
+        when(sessionsRepository.findAllById(Set.of(sessionId))).thenReturn(
+            List.of(session)
         );
-        when(repository.save(any(Plans.class))).thenReturn(plan);
+        when(repository.saveAndFlush(any(Plans.class))).thenReturn(plan);
 
         PlansResponseDto updated = service.update(planId, dto);
 
         assertEquals("Plan Updated", updated.getName());
         assertEquals(1, plan.getSessions().size());
-        verify(repository).save(plan);
+        assertEquals(plan, session.getPlan());
+        verify(repository).saveAndFlush(plan);
+    }
+
+    @Test
+    void shouldApplyUpdateWhenIfMatchVersionIsCurrent() {
+        plan.setVersion(4L);
+        PlansUpdateDto dto = new PlansUpdateDto();
+        dto.setName("Plan A");
+
+        when(repository.findById(planId)).thenReturn(Optional.of(plan));
+        when(repository.findByNameIgnoreCase("Plan A")).thenReturn(
+            Optional.of(plan)
+        );
+        when(repository.saveAndFlush(plan)).thenReturn(plan);
+
+        PlansResponseDto updated = service.update(planId, dto, 4L);
+
+        assertEquals(4L, updated.getVersion());
+        verify(repository).saveAndFlush(plan);
+    }
+
+    @Test
+    void shouldNotRetryUpdateWhenIfMatchVersionIsStale() {
+        plan.setVersion(5L);
+        PlansUpdateDto dto = new PlansUpdateDto();
+        dto.setName("Plan A");
+
+        when(repository.findById(planId)).thenReturn(Optional.of(plan));
+
+        assertThrows(OptimisticLockingFailureException.class, () ->
+            service.update(planId, dto, 4L)
+        );
+        verify(repository, times(1)).findById(planId);
+        verify(repository, never()).saveAndFlush(any(Plans.class));
+    }
+
+    @Test
+    void shouldOnlyWriteSessionsThatJoinOrLeaveThePlan() {
+        Sessions kept = new Sessions();
+        kept.setId(UUID.randomUUID());
+        kept.setName("Kept");
+        kept.setPlan(plan);
+        Sessions dropped = new Sessions();
+        dropped.setId(UUID.randomUUID());
+        dropped.setName("Dropped");
+        dropped.setPlan(plan);
+        dropped.setRankKey(RankKeys.forPosition(2));
+        plan.getSessions().addAll(List.of(kept, dropped));
+        Sessions joining = new Sessions();
+        joining.setId(UUID.randomUUID());
+        joining.setName("Joining");
+
+        PlansUpdateDto dto = new PlansUpdateDto();
+        dto.setName("Plan A");
+        dto.setSessions(List.of(kept.getId(), joining.getId()));
+
+        when(repository.findById(planId)).thenReturn(Optional.of(plan));
+        when(repository.findByNameIgnoreCase("Plan A")).thenReturn(
+            Optional.of(plan)
+        );
+        when(sessionsRepository.findAllById(any())).thenReturn(
+            List.of(kept, joining)
+        );
+        when(repository.saveAndFlush(any(Plans.class))).thenReturn(plan);
+
+        service.update(planId, dto);
+
+        assertNull(dropped.getPlan());
+        assertEquals(plan, joining.getPlan());
+        assertEquals(RankKeys.forPosition(2), joining.getRankKey());
+        assertEquals(List.of(kept, joining), plan.getSessions());
+        verify(sessionsRepository).saveAllAndFlush(List.of(dropped));
+        verify(sessionsRepository).saveAllAndFlush(List.of(joining));
+        verify(sessionsRepository, never()).findById(any());
     }
 
     @Test
@@ -187,12 +283,185 @@ class PlansServiceTest {
         when(repository.findByNameIgnoreCase("Plan Updated")).thenReturn(
             Optional.empty()
         );
-        when(sessionsRepository.findById(sessionId)).thenReturn(
+        when(sessionsRepository.findAllById(Set.of(sessionId))).thenReturn(
+            List.of()
+        );
+
+        EntityNotFoundException ex = assertThrows(EntityNotFoundException.class, () ->
+            service.update(planId, dto)
+        );
+        assertEquals("Session not found: " + sessionId, ex.getMessage());
+    }
+
+    @Test
+    void shouldCopyPlanWithBulkInserts() {
+        UUID copyId = UUID.randomUUID();
+        Plans copy = new Plans();
+        copy.setId(copyId);
+        copy.setName("Plan A (Copy)");
+        copy.setSessions(new ArrayList<>());
+
+        when(repository.findById(planId)).thenReturn(Optional.of(plan));
+        when(repository.findByNameIgnoreCase("Plan A (Copy)")).thenReturn(
             Optional.empty()
         );
+        when(repository.saveAndFlush(any(Plans.class))).thenReturn(copy);
+        when(repository.findById(copyId)).thenReturn(Optional.of(copy));
+
+        PlansResponseDto result = service.copy(planId, null);
+
+        assertEquals(copyId, result.getId());
+        assertEquals("Plan A (Copy)", result.getName());
+        verify(sessionsRepository).copySessionsOfPlan(planId, copyId);
+        verify(exerciseExecutionsRepository).copyExecutionsOfPlan(planId, copyId);
+        verifyNoMoreInteractions(sessionsRepository, exerciseExecutionsRepository);
+    }
+
+    @Test
+    void shouldRejectCopyWithTakenName() {
+        PlansCopyDto dto = new PlansCopyDto();
+        dto.setName("Plan A");
+
+        when(repository.findById(planId)).thenReturn(Optional.of(plan));
+        when(repository.findByNameIgnoreCase("Plan A")).thenReturn(
+            Optional.of(plan)
+        );
+
+        assertThrows(IllegalArgumentException.class, () ->
+            service.copy(planId, dto)
+        );
+        verify(repository, never()).saveAndFlush(any(Plans.class));
+    }
+
+    @Test
+    void shouldThrowExceptionWhenCopyingUnknownPlan() {
+        when(repository.findById(planId)).thenReturn(Optional.empty());
 
         assertThrows(EntityNotFoundException.class, () ->
-            service.update(planId, dto)
+            service.copy(planId, new PlansCopyDto())
+        );
+    }
+
+    private SessionsNestedCreateDto nestedSession(String name, UUID... exerciseIds) {
+        SessionsNestedCreateDto session = new SessionsNestedCreateDto();
+        session.setName(name);
+        for (UUID exerciseId : exerciseIds) {
+            ExerciseExecutionsNestedCreateDto execution = new ExerciseExecutionsNestedCreateDto();
+            execution.setExerciseId(exerciseId);
+            execution.setPlannedSets(3);
+            execution.setPlannedReps(10);
+            execution.setPlannedWeight(50);
+            session.getExerciseExecutions().add(execution);
+        }
+        return session;
+    }
+
+    @Test
+    void shouldCreateNestedPlanInOneBatch() {
+        Exercises squat = new Exercises();
+        squat.setId(UUID.randomUUID());
+        Exercises press = new Exercises();
+        press.setId(UUID.randomUUID());
+
+        SessionsNestedCreateDto legs = nestedSession("Legs", squat.getId());
+        legs.setOrderID(2);
+        SessionsNestedCreateDto push = nestedSession("Push", press.getId(), squat.getId());
+        push.setOrderID(1);
+
+        PlansNestedCreateDto dto = new PlansNestedCreateDto();
+        dto.setName("Plan B");
+        dto.setSessions(List.of(legs, push));
+
+        when(repository.findByNameIgnoreCase("Plan B")).thenReturn(Optional.empty());
+        when(exercisesRepository.findAllById(any())).thenReturn(List.of(squat, press));
+        when(repository.save(any(Plans.class))).thenAnswer(i -> i.getArgument(0));
+
+        PlansResponseDto result = service.createNested(dto);
+
+        assertEquals("Plan B", result.getName());
+        assertEquals("Push", result.getSessions().get(0).getName());
+        assertEquals(1, result.getSessions().get(0).getOrderID());
+        assertEquals(List.of(1, 2), result.getSessions().get(0).getExerciseExecutions().stream()
+            .map(ExerciseExecutions::getOrderID)
+            .toList());
+        assertEquals(2, result.getSessions().get(1).getOrderID());
+        verify(exercisesRepository, times(1)).findAllById(any());
+        verify(sessionsRepository, times(1)).saveAll(any());
+        verifyNoInteractions(exerciseExecutionsRepository);
+    }
+
+    @Test
+    void shouldReportAllMissingExercisesOnNestedCreate() {
+        UUID missing = UUID.randomUUID();
+        PlansNestedCreateDto dto = new PlansNestedCreateDto();
+        dto.setName("Plan B");
+        dto.setSessions(List.of(nestedSession("Legs", missing)));
+
+        when(repository.findByNameIgnoreCase("Plan B")).thenReturn(Optional.empty());
+        when(exercisesRepository.findAllById(any())).thenReturn(List.of());
+
+        EntityNotFoundException ex = assertThrows(EntityNotFoundException.class, () ->
+            service.createNested(dto)
+        );
+        assertEquals("Exercise not found: " + missing, ex.getMessage());
+        verify(repository, never()).save(any(Plans.class));
+    }
+
+    @Test
+    void shouldRejectDuplicateSessionOrderOnNestedCreate() {
+        SessionsNestedCreateDto first = nestedSession("Push");
+        first.setOrderID(1);
+        SessionsNestedCreateDto second = nestedSession("Pull");
+        second.setOrderID(1);
+
+        PlansNestedCreateDto dto = new PlansNestedCreateDto();
+        dto.setName("Plan B");
+        dto.setSessions(List.of(first, second));
+
+        when(repository.findByNameIgnoreCase("Plan B")).thenReturn(Optional.empty());
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () ->
+            service.createNested(dto)
+        );
+        assertEquals("Order 1 is already used in this plan", ex.getMessage());
+        verify(repository, never()).save(any(Plans.class));
+    }
+
+    @Test
+    void shouldRejectExecutionOrderOutOfRangeOnNestedCreate() {
+        Exercises squat = new Exercises();
+        squat.setId(UUID.randomUUID());
+        SessionsNestedCreateDto legs = nestedSession("Legs", squat.getId());
+        legs.getExerciseExecutions().get(0).setOrderID(31);
+
+        PlansNestedCreateDto dto = new PlansNestedCreateDto();
+        dto.setName("Plan B");
+        dto.setSessions(List.of(legs));
+
+        when(repository.findByNameIgnoreCase("Plan B")).thenReturn(Optional.empty());
+        when(exercisesRepository.findAllById(any())).thenReturn(List.of(squat));
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () ->
+            service.createNested(dto)
+        );
+        assertEquals("Order must be between 1 and 30", ex.getMessage());
+        verify(repository, never()).save(any(Plans.class));
+    }
+
+    @Test
+    void shouldRejectMoreThanThirtySessionsOnNestedCreate() {
+        List<SessionsNestedCreateDto> sessions = new ArrayList<>();
+        for (int i = 1; i <= 31; i++) {
+            sessions.add(nestedSession("Session " + i));
+        }
+        PlansNestedCreateDto dto = new PlansNestedCreateDto();
+        dto.setName("Plan B");
+        dto.setSessions(sessions);
+
+        when(repository.findByNameIgnoreCase("Plan B")).thenReturn(Optional.empty());
+
+        assertThrows(IllegalArgumentException.class, () ->
+            service.createNested(dto)
         );
     }
 }
@@ -0,0 +1,218 @@
+package hs.aalen.fitness_tracker_backend.progressions;
+
+import hs.aalen.fitness_tracker_backend.executionlogs.model.ExecutionLogs;
+import hs.aalen.fitness_tracker_backend.executionlogs.model.PerformedSet;
+import hs.aalen.fitness_tracker_backend.executionlogs.model.PerformedSets;
+import hs.aalen.fitness_tracker_backend.progressions.dto.ExerciseProgressionsPointDto;
+import hs.aalen.fitness_tracker_backend.progressions.dto.ExerciseProgressionsResponseDto;
+import hs.aalen.fitness_tracker_backend.progressions.model.ExerciseProgressions;
+import hs.aalen.fitness_tracker_backend.progressions.repository.ExerciseProgressionsRepository;
+import hs.aalen.fitness_tracker_backend.progressions.service.ExerciseProgressionsService;
+import hs.aalen.fitness_tracker_backend.sessionlogs.model.SessionLogs;
+import hs.aalen.fitness_tracker_backend.sessionlogs.repository.SessionLogsRepository;
+import hs.aalen.fitness_tracker_backend.users.model.Users;
+import hs.aalen.fitness_tracker_backend.users.repository.UsersRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExerciseProgressionsServiceTest {
+
+    @Mock
+    private ExerciseProgressionsRepository progressionsRepository;
+
+    @Mock
+    private SessionLogsRepository sessionLogsRepository;
+
+    @Mock
+    private UsersRepository usersRepository;
+
+    @InjectMocks
+    private ExerciseProgressionsService service;
+
+    private static final String TEST_USERNAME = "testUser";
+    private static final Instant COMPLETED_AT = Instant.parse("2026-10-19T18:00:00Z");
+
+    private Users owner;
+    private SessionLogs sessionLog;
+    private UUID bench;
+    private UUID squat;
+
+    @BeforeEach
+    void setup() {
+        owner = new Users();
+        owner.setId(UUID.randomUUID());
+        owner.setUsername(TEST_USERNAME);
+
+        sessionLog = new SessionLogs();
+        sessionLog.setId(UUID.randomUUID());
+        sessionLog.setOwner(owner);
+        sessionLog.setStatus(SessionLogs.LogStatus.Completed);
+        sessionLog.setStartedAt(COMPLETED_AT.minus(Duration.ofHours(1)));
+        sessionLog.setCompletedAt(COMPLETED_AT);
+
+        bench = UUID.randomUUID();
+        squat = UUID.randomUUID();
+    }
+
+    private ExecutionLogs executionLog(UUID exerciseId, int sets, int reps, int weight, boolean completed) {
+        ExecutionLogs executionLog = new ExecutionLogs();
+        executionLog.setExerciseId(exerciseId);
+        executionLog.setActualSets(sets);
+        executionLog.setActualReps(reps);
+        executionLog.setActualWeight(weight);
+        executionLog.setCompleted(completed);
+        executionLog.setSessionLog(sessionLog);
+        sessionLog.getExecutionLogs().add(executionLog);
+        return executionLog;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ExerciseProgressions> recordAndCapture() {
+        when(sessionLogsRepository.findById(sessionLog.getId())).thenReturn(Optional.of(sessionLog));
+        service.recordWorkout(sessionLog.getId());
+        ArgumentCaptor<Iterable<ExerciseProgressions>> captor = ArgumentCaptor.forClass(Iterable.class);
+        verify(progressionsRepository).saveAll(captor.capture());
+        List<ExerciseProgressions> points = new ArrayList<>();
+        captor.getValue().forEach(points::add);
+        return points;
+    }
+
+    @Test
+    void shouldAppendOnePointPerExerciseOfCompletedWorkout() {
+        ExecutionLogs recorded = executionLog(bench, 3, 8, 80, false);
+        byte[] packed = PerformedSets.append(null, new PerformedSet(8, 60, null, null));
+        packed = PerformedSets.append(packed, new PerformedSet(5, 90, null, null));
+        recorded.setRecordedSets(packed);
+        executionLog(bench, 2, 10, 50, true);
+        executionLog(squat, 4, 5, 120, true);
+        executionLog(UUID.randomUUID(), 3, 10, 20, false);
+
+        List<ExerciseProgressions> points = recordAndCapture();
+
+        assertEquals(2, points.size());
+        ExerciseProgressions benchPoint = points.get(0);
+        assertEquals(bench, benchPoint.getExerciseId());
+        assertEquals(owner.getId(), benchPoint.getOwnerId());
+        assertEquals(COMPLETED_AT, benchPoint.getPerformedAt());
+        assertEquals(90, benchPoint.getTopWeight());
+        assertEquals(8 * 60 + 5 * 90 + 2 * 10 * 50, benchPoint.getVolume());
+        assertEquals(4, benchPoint.getSets());
+        assertEquals(120, points.get(1).getTopWeight());
+        assertEquals(2400, points.get(1).getVolume());
+    }
+
+    @Test
+    void shouldNotRecordWorkoutTwice() {
+        executionLog(bench, 3, 8, 80, true);
+        when(sessionLogsRepository.findById(sessionLog.getId())).thenReturn(Optional.of(sessionLog));
+        when(progressionsRepository.existsBySessionLogId(sessionLog.getId())).thenReturn(true);
+
+        service.recordWorkout(sessionLog.getId());
+
+        verify(progressionsRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void shouldIgnoreWorkoutStillInProgress() {
+        sessionLog.setStatus(SessionLogs.LogStatus.InProgress);
+        executionLog(bench, 3, 8, 80, true);
+        when(sessionLogsRepository.findById(sessionLog.getId())).thenReturn(Optional.of(sessionLog));
+
+        service.recordWorkout(sessionLog.getId());
+
+        verify(progressionsRepository, never()).saveAll(any());
+    }
+
+    private static ExerciseProgressions point(Instant performedAt, int topWeight, long volume) {
+        ExerciseProgressions point = new ExerciseProgressions();
+        point.setPerformedAt(performedAt);
+        point.setTopWeight(topWeight);
+        point.setVolume(volume);
+        point.setSets(1);
+        return point;
+    }
+
+    @Test
+    void shouldReturnEveryPointWhenRangeFits() {
+        when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(owner));
+        when(progressionsRepository.findSeries(owner.getId(), bench,
+                Instant.parse("2026-10-01T00:00:00Z"), Instant.parse("2026-10-20T00:00:00Z")))
+                .thenReturn(List.of(point(COMPLETED_AT.minus(Duration.ofDays(2)), 80, 2000), point(COMPLETED_AT, 85, 2100)));
+
+        ExerciseProgressionsResponseDto result = service.getSeries(
+                bench, LocalDate.parse("2026-10-01"), LocalDate.parse("2026-10-19"), 100, TEST_USERNAME);
+
+        assertEquals(2, result.getWorkouts());
+        assertEquals(2, result.getPoints().size());
+        assertEquals(85, result.getPoints().get(1).getTopWeight());
+        assertEquals(1, result.getPoints().get(1).getWorkouts());
+    }
+
+    @Test
+    void shouldKeepUnevenlySpacedPointsWhenSeriesFits() {
+        Instant start = Instant.parse("2026-10-01T08:00:00Z");
+        List<ExerciseProgressions> series = List.of(
+                point(start, 60, 1500),
+                point(start.plus(Duration.ofHours(2)), 62, 1600),
+                point(start.plus(Duration.ofHours(3)), 64, 1700),
+                point(start.plus(Duration.ofDays(18)), 70, 1800));
+        when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(owner));
+        when(progressionsRepository.findSeries(any(), any(), any(), any())).thenReturn(series);
+
+        List<ExerciseProgressionsPointDto> points = service.getSeries(bench, null, null, 4, TEST_USERNAME).getPoints();
+
+        assertEquals(4, points.size());
+        for (int i = 0; i < series.size(); i++) {
+            assertEquals(series.get(i).getPerformedAt(), points.get(i).getPerformedAt());
+            assertEquals(series.get(i).getTopWeight(), points.get(i).getTopWeight());
+            assertEquals(series.get(i).getVolume(), points.get(i).getVolume());
+            assertEquals(1, points.get(i).getWorkouts());
+        }
+    }
+
+    @Test
+    void shouldDownsampleIntoTimeBuckets() {
+        Instant start = Instant.parse("2026-01-01T00:00:00Z");
+        List<ExerciseProgressions> series = new ArrayList<>();
+        for (int day = 0; day < 100; day++) {
+            series.add(point(start.plus(Duration.ofDays(day)), 50 + day, 1000 + day));
+        }
+        when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(owner));
+        when(progressionsRepository.findSeries(any(), any(), any(), any())).thenReturn(series);
+
+        List<ExerciseProgressionsPointDto> points = service.getSeries(bench, null, null, 10, TEST_USERNAME).getPoints();
+
+        assertEquals(10, points.size());
+        assertEquals(100, points.stream().mapToInt(ExerciseProgressionsPointDto::getWorkouts).sum());
+        ExerciseProgressionsPointDto last = points.get(9);
+        assertEquals(149, last.getTopWeight());
+        assertEquals(start.plus(Duration.ofDays(99)), last.getPerformedAt());
+        assertEquals(1000 + (90 + 99) / 2.0, last.getVolume(), 0.5);
+    }
+
+    @Test
+    void shouldRejectInvalidRange() {
+        assertThrows(IllegalArgumentException.class, () -> service.getSeries(
+                bench, LocalDate.parse("2026-10-19"), LocalDate.parse("2026-10-01"), 100, TEST_USERNAME));
+        assertThrows(IllegalArgumentException.class, () -> service.getSeries(bench, null, null, 0, TEST_USERNAME));
+        verifyNoInteractions(progressionsRepository);
+    }
+}
@@ -0,0 +1,165 @@
+package hs.aalen.fitness_tracker_backend.reports;
+
+import hs.aalen.fitness_tracker_backend.executionlogs.model.PerformedSet;
+import hs.aalen.fitness_tracker_backend.executionlogs.model.PerformedSets;
+import hs.aalen.fitness_tracker_backend.executionlogs.repository.ExecutionLogsRepository;
+import hs.aalen.fitness_tracker_backend.reports.dto.GymReportResponseDto;
+import hs.aalen.fitness_tracker_backend.reports.dto.MemberReportDto;
+import hs.aalen.fitness_tracker_backend.reports.service.GymReportService;
+import hs.aalen.fitness_tracker_backend.sessionlogs.repository.SessionLogsRepository;
+import hs.aalen.fitness_tracker_backend.users.model.Users;
+import hs.aalen.fitness_tracker_backend.users.repository.UsersRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GymReportServiceTest {
+
+    @Mock
+    private UsersRepository usersRepository;
+
+    @Mock
+    private SessionLogsRepository sessionLogsRepository;
+
+    @Mock
+    private ExecutionLogsRepository executionLogsRepository;
+
+    private GymReportService service;
+
+    private Users anna;
+    private Users max;
+
+    private record Activity(UUID ownerId, long started, long completed, Instant lastCompletedAt)
+            implements SessionLogsRepository.ActivityRow {
+        public UUID getOwnerId() {
+            return ownerId;
+        }
+
+        public long getStarted() {
+            return started;
+        }
+
+        public long getCompleted() {
+            return completed;
+        }
+
+        public Instant getLastCompletedAt() {
+            return lastCompletedAt;
+        }
+    }
+
+    private record Sets(UUID ownerId, int plannedSets, int actualSets, boolean completed, byte[] recordedSets)
+            implements ExecutionLogsRepository.SetsRow {
+        public UUID getOwnerId() {
+            return ownerId;
+        }
+
+        public Integer getPlannedSets() {
+            return plannedSets;
+        }
+
+        public Integer getActualSets() {
+            return actualSets;
+        }
+
+        public Boolean getCompleted() {
+            return completed;
+        }
+
+        public byte[] getRecordedSets() {
+            return recordedSets;
+        }
+    }
+
+    private static Users user(String username) {
+        Users user = new Users();
+        user.setId(UUID.randomUUID());
+        user.setUsername(username);
+        return user;
+    }
+
+    @BeforeEach
+    void setup() {
+        service = new GymReportService(usersRepository, sessionLogsRepository, executionLogsRepository,
+                new SyncTaskExecutor(), TransactionOperations.withoutTransaction());
+        // One user per chunk, so merging across chunks is exercised
+        ReflectionTestUtils.setField(service, "chunkSize", 1);
+
+        max = user("max");
+        anna = user("anna");
+        when(usersRepository.findAll()).thenReturn(List.of(max, anna));
+    }
+
+    @Test
+    void shouldSummarizeEveryUserAcrossChunks() {
+        Instant recently = Instant.now().minus(Duration.ofDays(2));
+        when(sessionLogsRepository.summarizeActivity(eq(Set.of(max.getId())), any()))
+                .thenReturn(List.of(new Activity(max.getId(), 3, 2, recently)));
+        when(sessionLogsRepository.summarizeActivity(eq(Set.of(anna.getId())), any()))
+                .thenReturn(List.of(new Activity(anna.getId(), 1, 0, Instant.now().minus(Duration.ofDays(40)))));
+        byte[] twoSets = PerformedSets.append(PerformedSets.append(null,
+                new PerformedSet(5, 80, null, null)), new PerformedSet(5, 80, null, null));
+        when(executionLogsRepository.streamSetsByOwners(eq(Set.of(max.getId())), any())).thenReturn(Stream.of(
+                new Sets(max.getId(), 4, 4, true, null),
+                new Sets(max.getId(), 3, 3, false, twoSets),
+                new Sets(max.getId(), 3, 3, false, null)));
+        when(executionLogsRepository.streamSetsByOwners(eq(Set.of(anna.getId())), any())).thenReturn(Stream.empty());
+
+        GymReportResponseDto report = service.getReport();
+
+        assertEquals(2, report.getMemberCount());
+        assertEquals(2, report.getTotalWorkouts());
+        assertEquals(List.of("anna", "max"), report.getMembers().stream().map(MemberReportDto::getUsername).toList());
+        MemberReportDto maxReport = report.getMembers().get(1);
+        assertEquals(10, maxReport.getPlannedSets());
+        assertEquals(6, maxReport.getPerformedSets());
+        assertEquals(0.6, maxReport.getAdherence(), 1e-9);
+        assertFalse(maxReport.getInactive());
+        assertNull(report.getMembers().get(0).getAdherence());
+        assertEquals(0.6, report.getAverageAdherence(), 1e-9);
+        assertEquals(List.of("anna"), report.getInactiveMembers());
+    }
+
+    @Test
+    void shouldCountMembersWithoutWorkoutsAsInactive() {
+        when(sessionLogsRepository.summarizeActivity(any(), any())).thenReturn(List.of());
+        when(executionLogsRepository.streamSetsByOwners(any(), any())).thenAnswer(i -> Stream.empty());
+
+        GymReportResponseDto report = service.getReport();
+
+        assertEquals(List.of("anna", "max"), report.getInactiveMembers());
+        assertEquals(0, report.getTotalWorkouts());
+        assertNull(report.getAverageAdherence());
+    }
+
+    @Test
+    void shouldServeCachedReportUntilNextRun() {
+        when(sessionLogsRepository.summarizeActivity(any(), any())).thenReturn(List.of());
+        when(executionLogsRepository.streamSetsByOwners(any(), any())).thenAnswer(i -> Stream.empty());
+
+        GymReportResponseDto first = service.getReport();
+        assertSame(first, service.getReport());
+        verify(usersRepository, times(1)).findAll();
+
+        service.refresh();
+        assertNotSame(first, service.getReport());
+        verify(usersRepository, times(2)).findAll();
+    }
+}
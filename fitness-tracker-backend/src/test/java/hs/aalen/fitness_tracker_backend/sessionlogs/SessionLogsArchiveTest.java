@@ -0,0 +1,144 @@
+package hs.aalen.fitness_tracker_backend.sessionlogs;
+
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import hs.aalen.fitness_tracker_backend.executionlogs.dto.ExecutionLogsResponseDto;
+import hs.aalen.fitness_tracker_backend.executionlogs.model.PerformedSet;
+import hs.aalen.fitness_tracker_backend.sessionlogs.dto.SessionLogsResponseDto;
+import hs.aalen.fitness_tracker_backend.sessionlogs.model.ArchivedSessionLogs;
+import hs.aalen.fitness_tracker_backend.sessionlogs.model.SessionLogs;
+import hs.aalen.fitness_tracker_backend.sessionlogs.repository.ArchivedSessionLogsRepository;
+import hs.aalen.fitness_tracker_backend.sessionlogs.service.SessionLogsArchive;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.DeflaterOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SessionLogsArchiveTest {
+
+    @Mock
+    private ArchivedSessionLogsRepository archivedSessionLogsRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @InjectMocks
+    private SessionLogsArchive archive;
+
+    private final UUID ownerId = UUID.randomUUID();
+
+    private SessionLogsResponseDto workout() {
+        ExecutionLogsResponseDto executionLog = new ExecutionLogsResponseDto();
+        executionLog.setId(UUID.randomUUID());
+        executionLog.setExerciseName("Bench Press");
+        executionLog.setExerciseMuscleGroup(List.of("Chest", "Triceps"));
+        executionLog.setActualSets(2);
+        executionLog.setSets(List.of(new PerformedSet(5, 80, 8.5, 120), new PerformedSet(5, 80, null, null)));
+
+        SessionLogsResponseDto sessionLog = new SessionLogsResponseDto();
+        sessionLog.setId(UUID.randomUUID());
+        sessionLog.setSessionName("Push Day");
+        sessionLog.setStatus(SessionLogs.LogStatus.Completed);
+        sessionLog.setOriginalSessionId(UUID.randomUUID());
+        sessionLog.setStartedAt(Instant.parse("2025-03-01T17:00:00Z"));
+        sessionLog.setCompletedAt(Instant.parse("2025-03-01T18:00:00Z"));
+        sessionLog.setExecutionLogs(List.of(executionLog));
+        sessionLog.setExecutionLogCount(1);
+        return sessionLog;
+    }
+
+    private ArchivedSessionLogs storeAndCapture(SessionLogsResponseDto sessionLog) {
+        archive.store(sessionLog, ownerId);
+        ArgumentCaptor<ArchivedSessionLogs> captor = ArgumentCaptor.forClass(ArchivedSessionLogs.class);
+        verify(entityManager).persist(captor.capture());
+        return captor.getValue();
+    }
+
+    @Test
+    void shouldReadBackWhatWasStored() {
+        SessionLogsResponseDto sessionLog = workout();
+        ArchivedSessionLogs stored = storeAndCapture(sessionLog);
+        when(archivedSessionLogsRepository.findByIdAndOwnerId(sessionLog.getId(), ownerId)).thenReturn(Optional.of(stored));
+
+        SessionLogsResponseDto read = archive.find(sessionLog.getId(), ownerId).orElseThrow();
+
+        assertEquals(sessionLog.getId(), stored.getId());
+        assertEquals(ownerId, stored.getOwnerId());
+        assertEquals(sessionLog.getCompletedAt(), stored.getCompletedAt());
+        assertEquals("Push Day", read.getSessionName());
+        assertEquals(sessionLog.getStartedAt(), read.getStartedAt());
+        assertEquals(SessionLogs.LogStatus.Completed, read.getStatus());
+        ExecutionLogsResponseDto executionLog = read.getExecutionLogs().get(0);
+        assertEquals(List.of("Chest", "Triceps"), executionLog.getExerciseMuscleGroup());
+        assertEquals(sessionLog.getExecutionLogs().get(0).getSets(), executionLog.getSets());
+        assertEquals(sessionLog.getId(), executionLog.getSessionLogId());
+    }
+
+    @Test
+    void shouldStreamArchivedWorkoutsAndDetachEachRow() {
+        SessionLogsResponseDto sessionLog = workout();
+        ArchivedSessionLogs stored = storeAndCapture(sessionLog);
+        when(archivedSessionLogsRepository.streamByOwnerIdAndOriginalSessionIdOrderByCompletedAt(
+                ownerId, sessionLog.getOriginalSessionId())).thenReturn(Stream.of(stored));
+
+        List<SessionLogsResponseDto> read = new ArrayList<>();
+        archive.forEach(ownerId, sessionLog.getOriginalSessionId(), read::add);
+
+        assertEquals(1, read.size());
+        verify(entityManager).detach(stored);
+    }
+
+    @Test
+    void shouldStreamAllArchivedWorkoutsOfOwnerWithoutSession() {
+        ArchivedSessionLogs stored = storeAndCapture(workout());
+        when(archivedSessionLogsRepository.streamByOwnerIdOrderByCompletedAt(ownerId)).thenReturn(Stream.of(stored));
+
+        List<SessionLogsResponseDto> read = new ArrayList<>();
+        archive.forEach(ownerId, null, read::add);
+
+        assertEquals(List.of(stored.getId()), read.stream().map(SessionLogsResponseDto::getId).toList());
+    }
+
+    @Test
+    void shouldRejectUnknownPayloadFormat() {
+        ArchivedSessionLogs stored = new ArchivedSessionLogs();
+        stored.setPayload(new byte[] {9, 0});
+        when(archivedSessionLogsRepository.findByIdAndOwnerId(any(), any())).thenReturn(Optional.of(stored));
+
+        assertThrows(IllegalStateException.class, () -> archive.find(UUID.randomUUID(), ownerId));
+    }
+
+    @Test
+    void shouldRejectPayloadWithUnknownField() throws Exception {
+        // Format 1, but with a field the archive record does not have
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(1);
+        try (OutputStream out = new DeflaterOutputStream(bytes)) {
+            new SmileMapper().writeValue(out, Map.of("id", UUID.randomUUID().toString(), "heartRate", 150));
+        }
+        ArchivedSessionLogs stored = new ArchivedSessionLogs();
+        stored.setPayload(bytes.toByteArray());
+        when(archivedSessionLogsRepository.findByIdAndOwnerId(any(), any())).thenReturn(Optional.of(stored));
+
+        assertThrows(UncheckedIOException.class, () -> archive.find(UUID.randomUUID(), ownerId));
+    }
+}
@@ -1,28 +1,44 @@
 package hs.aalen.fitness_tracker_backend.sessionlogs;
 
+import hs.aalen.fitness_tracker_backend.executionlogs.repository.ExecutionLogsRepository;
+import hs.aalen.fitness_tracker_backend.executionlogs.service.ExecutionLogsEditBuffer;
+import hs.aalen.fitness_tracker_backend.executionlogs.service.ExecutionLogsService;
 import hs.aalen.fitness_tracker_backend.exerciseexecutions.model.ExerciseExecutions;
 import hs.aalen.fitness_tracker_backend.exercises.model.Exercises;
-import hs.aalen.fitness_tracker_backend.exerciseexecutions.repository.ExerciseExecutionsRepository;
+import hs.aalen.fitness_tracker_backend.outbox.service.OutboxService;
 import hs.aalen.fitness_tracker_backend.sessionlogs.dto.SessionLogsResponseDto;
 import hs.aalen.fitness_tracker_backend.sessionlogs.dto.SessionLogsUpdateDto;
 import hs.aalen.fitness_tracker_backend.sessionlogs.model.SessionLogs;
 import hs.aalen.fitness_tracker_backend.sessionlogs.repository.SessionLogsRepository;
+import hs.aalen.fitness_tracker_backend.sessionlogs.service.SessionLogsArchive;
 import hs.aalen.fitness_tracker_backend.sessionlogs.service.SessionLogsService;
+import hs.aalen.fitness_tracker_backend.sessionlogs.service.SessionLogsStreamService;
 import hs.aalen.fitness_tracker_backend.sessions.model.Sessions;
 import hs.aalen.fitness_tracker_backend.plans.model.Plans;
 import hs.aalen.fitness_tracker_backend.sessions.repository.SessionsRepository;
+import hs.aalen.fitness_tracker_backend.shared.OptimisticRetry;
+import hs.aalen.fitness_tracker_backend.shared.RankKeys;
 import hs.aalen.fitness_tracker_backend.users.model.Users;
 import hs.aalen.fitness_tracker_backend.users.repository.UsersRepository;
 
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.access.AccessDeniedException;
 
+import java.time.Instant;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -38,10 +54,31 @@ class SessionLogsServiceTest {
         private SessionsRepository sessionsRepository;
 
         @Mock
-        private ExerciseExecutionsRepository exerciseExecutionsRepository;
+        private UsersRepository usersRepository;
 
         @Mock
-        private UsersRepository usersRepository;
+        private SessionLogsStreamService sessionLogsStreamService;
+
+        @Mock
+        private ExecutionLogsService executionLogsService;
+
+        @Mock
+        private OutboxService outboxService;
+
+        @Mock
+        private EntityManager entityManager;
+
+        @Mock
+        private ExecutionLogsRepository executionLogsRepository;
+
+        @Mock
+        private SessionLogsArchive sessionLogsArchive;
+
+        @Spy
+        private ExecutionLogsEditBuffer executionLogsEditBuffer = new ExecutionLogsEditBuffer();
+
+        @Spy
+        private OptimisticRetry optimisticRetry = new OptimisticRetry(TransactionOperations.withoutTransaction());
 
         @InjectMocks
         private SessionLogsService service;
@@ -87,8 +124,9 @@ class SessionLogsServiceTest {
                 execution.setPlannedSets(3);
                 execution.setPlannedReps(10);
                 execution.setPlannedWeight(50);
-                execution.setOrderID(1);
+                execution.setRankKey(RankKeys.forPosition(1));
                 execution.setSession(session);
+                session.getExerciseExecutions().add(execution);
         }
 
         private SessionLogs createSessionLogWithOwner(Users owner) {
@@ -106,8 +144,6 @@ class SessionLogsServiceTest {
         void shouldStartSessionSuccessfully() {
                 when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
                 when(sessionsRepository.findById(sessionId)).thenReturn(Optional.of(session));
-                when(exerciseExecutionsRepository.findBySessionIdOrderByOrderID(sessionId))
-                                .thenReturn(List.of(execution));
 
                 when(sessionLogsRepository.save(any(SessionLogs.class)))
                                 .thenAnswer(invocation -> {
@@ -121,6 +157,7 @@ class SessionLogsServiceTest {
                 assertEquals("Morning Session", dto.getSessionName());
                 assertEquals(1, dto.getExecutionLogCount());
                 assertEquals(SessionLogs.LogStatus.InProgress, dto.getStatus());
+                assertEquals(List.of("Chest"), dto.getExecutionLogs().get(0).getExerciseMuscleGroup());
                 verify(sessionLogsRepository, times(2)).save(any(SessionLogs.class));
         }
 
@@ -128,8 +165,6 @@ class SessionLogsServiceTest {
         void shouldSetOwnerWhenStartingSession() {
                 when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
                 when(sessionsRepository.findById(sessionId)).thenReturn(Optional.of(session));
-                when(exerciseExecutionsRepository.findBySessionIdOrderByOrderID(sessionId))
-                                .thenReturn(List.of(execution));
 
                 when(sessionLogsRepository.save(any(SessionLogs.class)))
                                 .thenAnswer(invocation -> {
@@ -147,8 +182,7 @@ class SessionLogsServiceTest {
         void shouldThrowWhenSessionHasNoExercises() {
                 when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
                 when(sessionsRepository.findById(sessionId)).thenReturn(Optional.of(session));
-                when(exerciseExecutionsRepository.findBySessionIdOrderByOrderID(sessionId))
-                                .thenReturn(Collections.emptyList());
+                session.getExerciseExecutions().clear();
 
                 IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
                                 () -> service.startSession(sessionId, TEST_USERNAME));
@@ -171,13 +205,34 @@ class SessionLogsServiceTest {
                 when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
                 when(sessionLogsRepository.findByIdAndOwner(log.getId(), testUser))
                                 .thenReturn(Optional.of(log));
-                when(sessionLogsRepository.save(any(SessionLogs.class)))
+                when(sessionLogsRepository.saveAndFlush(any(SessionLogs.class)))
                                 .thenAnswer(invocation -> invocation.getArgument(0));
 
                 SessionLogsResponseDto updated = service.completeSession(log.getId(), TEST_USERNAME);
 
                 assertEquals(SessionLogs.LogStatus.Completed, updated.getStatus());
                 assertNotNull(updated.getCompletedAt());
+                verify(executionLogsService).flushPendingEdits(log.getId());
+                verify(outboxService).record(SessionLogsService.SESSION_LOG_COMPLETED, log.getId());
+        }
+
+        @Test
+        void shouldLeaveCompletedSessionUnchangedWhenCompletedAgain() {
+                SessionLogs log = createSessionLogWithOwner(testUser);
+                Instant completedAt = Instant.parse("2026-10-14T18:00:00Z");
+                log.setStatus(SessionLogs.LogStatus.Completed);
+                log.setCompletedAt(completedAt);
+
+                when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
+                when(sessionLogsRepository.findByIdAndOwner(log.getId(), testUser))
+                                .thenReturn(Optional.of(log));
+
+                SessionLogsResponseDto result = service.completeSession(log.getId(), TEST_USERNAME);
+
+                assertEquals(completedAt, result.getCompletedAt());
+                assertEquals(completedAt, log.getCompletedAt());
+                verify(sessionLogsRepository, never()).saveAndFlush(any());
+                verifyNoInteractions(outboxService);
         }
 
         @Test
@@ -192,7 +247,7 @@ class SessionLogsServiceTest {
                 when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
                 when(sessionLogsRepository.findByIdAndOwner(log.getId(), testUser))
                                 .thenReturn(Optional.of(log));
-                when(sessionLogsRepository.save(any(SessionLogs.class)))
+                when(sessionLogsRepository.saveAndFlush(any(SessionLogs.class)))
                                 .thenAnswer(invocation -> invocation.getArgument(0));
 
                 SessionLogsResponseDto updated = service.updateSessionLog(log.getId(), dto, TEST_USERNAME);
@@ -202,6 +257,47 @@ class SessionLogsServiceTest {
                 assertNotNull(updated.getCompletedAt());
         }
 
+        @Test
+        void shouldRejectUpdateWhenIfMatchVersionIsStale() {
+                SessionLogs log = createSessionLogWithOwner(testUser);
+                log.setStatus(SessionLogs.LogStatus.InProgress);
+                log.setVersion(3L);
+
+                SessionLogsUpdateDto dto = new SessionLogsUpdateDto();
+                dto.setNotes("New notes");
+
+                when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
+                when(sessionLogsRepository.findByIdAndOwner(log.getId(), testUser))
+                                .thenReturn(Optional.of(log));
+
+                assertThrows(OptimisticLockingFailureException.class,
+                                () -> service.updateSessionLog(log.getId(), dto, TEST_USERNAME, 2L));
+                verify(sessionLogsRepository, times(1)).findByIdAndOwner(log.getId(), testUser);
+                verify(sessionLogsRepository, never()).saveAndFlush(any(SessionLogs.class));
+        }
+
+        @Test
+        void shouldRetryUpdateOnConcurrentModificationWithoutIfMatch() {
+                SessionLogs log = createSessionLogWithOwner(testUser);
+                log.setStatus(SessionLogs.LogStatus.InProgress);
+
+                SessionLogsUpdateDto dto = new SessionLogsUpdateDto();
+                dto.setNotes("New notes");
+
+                when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
+                when(sessionLogsRepository.findByIdAndOwner(log.getId(), testUser))
+                                .thenReturn(Optional.of(log));
+                when(sessionLogsRepository.saveAndFlush(any(SessionLogs.class)))
+                                .thenThrow(new ObjectOptimisticLockingFailureException(SessionLogs.class, log.getId()))
+                                .thenAnswer(invocation -> invocation.getArgument(0));
+
+                SessionLogsResponseDto updated = service.updateSessionLog(log.getId(), dto, TEST_USERNAME);
+
+                assertEquals("New notes", updated.getNotes());
+                verify(sessionLogsRepository, times(2)).findByIdAndOwner(log.getId(), testUser);
+                verify(sessionLogsRepository, times(2)).saveAndFlush(any(SessionLogs.class));
+        }
+
         @Test
         void shouldDeleteSessionLogWhenNotCompleted() {
                 SessionLogs log = createSessionLogWithOwner(testUser);
@@ -240,8 +336,6 @@ class SessionLogsServiceTest {
                 when(sessionsRepository.findById(sessionId))
                                 .thenReturn(Optional.of(session));
 
-                when(exerciseExecutionsRepository.findBySessionIdOrderByOrderID(sessionId))
-                                .thenReturn(List.of(execution));
 
                 when(sessionLogsRepository.save(any(SessionLogs.class)))
                                 .thenAnswer(invocation -> invocation.getArgument(0));
@@ -252,20 +346,6 @@ class SessionLogsServiceTest {
                 assertEquals("", dto.getSessionPlan());
         }
 
-        @Test
-        void shouldReturnOnlyOwnSessionLogs() {
-                SessionLogs log = createSessionLogWithOwner(testUser);
-
-                when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
-                when(sessionLogsRepository.findByOwner(testUser)).thenReturn(List.of(log));
-
-                List<SessionLogsResponseDto> results = service.getAllSessionLogs(TEST_USERNAME);
-
-                assertFalse(results.isEmpty());
-                assertEquals(1, results.size());
-                assertEquals("Test Session", results.get(0).getSessionName());
-        }
-
         @Test
         void shouldReturnSessionLogById() {
                 SessionLogs log = createSessionLogWithOwner(testUser);
@@ -294,19 +374,185 @@ class SessionLogsServiceTest {
         }
 
         @Test
-        void shouldReturnSessionLogsBySessionId() {
+        void shouldStreamSessionLogsBySessionId() {
                 UUID originalSessionId = UUID.randomUUID();
                 SessionLogs log = createSessionLogWithOwner(testUser);
                 log.setOriginalSessionId(originalSessionId);
 
                 when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
-                when(sessionLogsRepository.findByOwnerAndOriginalSessionId(testUser, originalSessionId))
-                                .thenReturn(List.of(log));
+                when(sessionLogsRepository.streamByOwnerAndOriginalSessionId(testUser, originalSessionId))
+                                .thenReturn(Stream.of(log));
+                List<SessionLogsResponseDto> results = new ArrayList<>();
 
-                List<SessionLogsResponseDto> results = service.getSessionLogsBySessionId(
-                                originalSessionId, TEST_USERNAME);
+                service.streamSessionLogs(originalSessionId, TEST_USERNAME, results::add);
 
                 assertFalse(results.isEmpty());
                 assertEquals(originalSessionId, results.get(0).getOriginalSessionId());
         }
+
+        @Test
+        void shouldStreamSessionLogsOfOwner() {
+                SessionLogs first = createSessionLogWithOwner(testUser);
+                SessionLogs second = createSessionLogWithOwner(testUser);
+                List<SessionLogsResponseDto> received = new ArrayList<>();
+
+                when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
+                when(sessionLogsRepository.streamByOwner(testUser)).thenReturn(Stream.of(first, second));
+
+                service.streamSessionLogs(null, TEST_USERNAME, received::add);
+
+                assertEquals(2, received.size());
+                verify(entityManager).detach(first);
+                verify(entityManager).detach(second);
+        }
+
+        private static SessionLogsResponseDto archived(UUID id) {
+                SessionLogsResponseDto dto = new SessionLogsResponseDto();
+                dto.setId(id);
+                dto.setStatus(SessionLogs.LogStatus.Completed);
+                return dto;
+        }
+
+        @Test
+        void shouldReadArchivedSessionLogById() {
+                UUID id = UUID.randomUUID();
+                when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
+                when(sessionLogsRepository.findByIdAndOwner(id, testUser)).thenReturn(Optional.empty());
+                when(sessionLogsArchive.find(id, testUser.getId())).thenReturn(Optional.of(archived(id)));
+
+                SessionLogsResponseDto result = service.getSessionLogById(id, TEST_USERNAME);
+
+                assertEquals(id, result.getId());
+        }
+
+        @Test
+        void shouldDenyWhenNeitherLogTablesNorArchiveHaveSessionLog() {
+                UUID id = UUID.randomUUID();
+                when(usersRepository.findByUsername(OTHER_USERNAME)).thenReturn(Optional.of(otherUser));
+                when(sessionLogsRepository.findByIdAndOwner(id, otherUser)).thenReturn(Optional.empty());
+                when(sessionLogsArchive.find(id, otherUser.getId())).thenReturn(Optional.empty());
+
+                assertThrows(AccessDeniedException.class, () -> service.getSessionLogById(id, OTHER_USERNAME));
+        }
+
+        @Test
+        @SuppressWarnings("unchecked")
+        void shouldListArchivedSessionLogsOfSessionBeforeHotOnes() {
+                SessionLogs hot = createSessionLogWithOwner(testUser);
+                UUID sessionId = UUID.randomUUID();
+                UUID archivedId = UUID.randomUUID();
+                when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
+                when(sessionLogsRepository.streamByOwnerAndOriginalSessionId(testUser, sessionId)).thenReturn(Stream.of(hot));
+                doAnswer(invocation -> {
+                        invocation.<Consumer<SessionLogsResponseDto>>getArgument(2).accept(archived(archivedId));
+                        return null;
+                }).when(sessionLogsArchive).forEach(eq(testUser.getId()), eq(sessionId), any(Consumer.class));
+
+                List<SessionLogsResponseDto> results = new ArrayList<>();
+                service.streamSessionLogs(sessionId, TEST_USERNAME, results::add);
+
+                assertEquals(List.of(archivedId, hot.getId()), results.stream().map(SessionLogsResponseDto::getId).toList());
+        }
+
+        @Test
+        @SuppressWarnings("unchecked")
+        void shouldListArchivedSessionLogsInFullList() {
+                SessionLogs hot = createSessionLogWithOwner(testUser);
+                UUID archivedId = UUID.randomUUID();
+                when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
+                when(sessionLogsRepository.streamByOwner(testUser)).thenReturn(Stream.of(hot));
+                doAnswer(invocation -> {
+                        invocation.<Consumer<SessionLogsResponseDto>>getArgument(2).accept(archived(archivedId));
+                        return null;
+                }).when(sessionLogsArchive).forEach(eq(testUser.getId()), isNull(), any(Consumer.class));
+
+                List<SessionLogsResponseDto> results = new ArrayList<>();
+                service.streamSessionLogs(null, TEST_USERNAME, results::add);
+
+                assertEquals(List.of(archivedId, hot.getId()), results.stream().map(SessionLogsResponseDto::getId).toList());
+        }
+
+        @Test
+        void shouldArchiveCompletedSessionLogsAndRemoveThemFromLogTables() {
+                SessionLogs log = createSessionLogWithOwner(testUser);
+                log.setStatus(SessionLogs.LogStatus.Completed);
+                Instant cutoff = Instant.parse("2025-10-19T00:00:00Z");
+                when(sessionLogsRepository.findIdsCompletedBefore(SessionLogs.LogStatus.Completed, cutoff, PageRequest.of(0, 10)))
+                                .thenReturn(List.of(log.getId()));
+                when(sessionLogsRepository.findWithExecutionLogsByIdIn(List.of(log.getId()))).thenReturn(List.of(log));
+
+                assertEquals(1, service.archiveCompletedBefore(cutoff, 10));
+
+                verify(sessionLogsArchive).store(argThat(dto -> dto.getId().equals(log.getId())), eq(testUser.getId()));
+                verify(executionLogsRepository).deleteBySessionLogIdIn(List.of(log.getId()));
+                verify(sessionLogsRepository).deleteByIdIn(List.of(log.getId()));
+        }
+
+        @Test
+        void shouldNotTouchTablesWhenNothingIsDueForArchive() {
+                when(sessionLogsRepository.findIdsCompletedBefore(any(), any(), any())).thenReturn(List.of());
+
+                assertEquals(0, service.archiveCompletedBefore(Instant.now(), 10));
+
+                verifyNoInteractions(sessionLogsArchive, executionLogsRepository);
+        }
+
+        private SessionLogs abandonedSessionLog(Instant startedAt) {
+                SessionLogs log = createSessionLogWithOwner(testUser);
+                log.setStartedAt(startedAt);
+                return log;
+        }
+
+        @Test
+        void shouldAutoCompleteAbandonedSessionLogsDatedToTheirStart() {
+                Instant cutoff = Instant.parse("2026-10-17T00:00:00Z");
+                SessionLogs abandoned = abandonedSessionLog(cutoff.minusSeconds(3600));
+                SessionLogs finished = abandonedSessionLog(cutoff.minusSeconds(7200));
+                finished.setStatus(SessionLogs.LogStatus.Completed);
+                List<UUID> ids = List.of(finished.getId(), abandoned.getId());
+                when(sessionLogsRepository.findIdsStartedBefore(SessionLogs.LogStatus.InProgress, cutoff, PageRequest.of(0, 10)))
+                                .thenReturn(ids);
+                when(sessionLogsRepository.findAllById(ids)).thenReturn(List.of(finished, abandoned));
+
+                assertEquals(2, service.completeStartedBefore(cutoff, 10));
+
+                assertEquals(SessionLogs.LogStatus.Completed, abandoned.getStatus());
+                assertTrue(abandoned.getAutoCompleted());
+                assertEquals(abandoned.getStartedAt(), abandoned.getCompletedAt());
+                assertNull(finished.getCompletedAt());
+                assertFalse(finished.getAutoCompleted());
+                verify(sessionLogsStreamService).close(abandoned.getId());
+                verify(sessionLogsStreamService, never()).close(finished.getId());
+                verify(executionLogsService).flushPendingEdits(abandoned.getId());
+                verify(sessionLogsRepository).saveAndFlush(abandoned);
+                verify(outboxService).record(SessionLogsService.SESSION_LOG_COMPLETED, abandoned.getId());
+                verifyNoMoreInteractions(outboxService);
+        }
+
+        @Test
+        void shouldDeleteAbandonedSessionLogsAndCloseTheirStreams() {
+                Instant cutoff = Instant.parse("2026-10-17T00:00:00Z");
+                SessionLogs abandoned = abandonedSessionLog(cutoff.minusSeconds(3600));
+                when(sessionLogsRepository.findIdsStartedBefore(SessionLogs.LogStatus.InProgress, cutoff, PageRequest.of(0, 10)))
+                                .thenReturn(List.of(abandoned.getId()));
+                when(sessionLogsRepository.findWithExecutionLogsByIdIn(List.of(abandoned.getId()))).thenReturn(List.of(abandoned));
+
+                assertEquals(1, service.deleteStartedBefore(cutoff, 10));
+
+                verify(sessionLogsRepository).deleteAll(List.of(abandoned));
+                verify(executionLogsEditBuffer).discardSessionLog(abandoned.getId());
+                verify(sessionLogsStreamService).close(abandoned.getId());
+                verifyNoInteractions(outboxService);
+        }
+
+        @Test
+        void shouldNotSweepWhenNoSessionLogIsStale() {
+                when(sessionLogsRepository.findIdsStartedBefore(any(), any(), any())).thenReturn(List.of());
+
+                assertEquals(0, service.completeStartedBefore(Instant.now(), 10));
+                assertEquals(0, service.deleteStartedBefore(Instant.now(), 10));
+
+                verify(sessionLogsRepository, never()).saveAndFlush(any());
+                verify(sessionLogsRepository, never()).deleteAll(any());
+        }
 }
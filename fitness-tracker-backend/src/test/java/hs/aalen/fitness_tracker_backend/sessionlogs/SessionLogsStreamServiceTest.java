@@ -0,0 +1,125 @@
+package hs.aalen.fitness_tracker_backend.sessionlogs;
+
+import hs.aalen.fitness_tracker_backend.executionlogs.dto.ExecutionLogsChangeDto;
+import hs.aalen.fitness_tracker_backend.sessionlogs.model.SessionLogs;
+import hs.aalen.fitness_tracker_backend.sessionlogs.repository.SessionLogsRepository;
+import hs.aalen.fitness_tracker_backend.sessionlogs.service.SessionLogsStreamService;
+import hs.aalen.fitness_tracker_backend.users.model.Users;
+import hs.aalen.fitness_tracker_backend.users.repository.UsersRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SessionLogsStreamServiceTest {
+
+        @Mock
+        private SessionLogsRepository sessionLogsRepository;
+
+        @Mock
+        private UsersRepository usersRepository;
+
+        @InjectMocks
+        private SessionLogsStreamService service;
+
+        private Users testUser;
+        private SessionLogs sessionLog;
+        // Tasks handed to the stream executor, run by the test when it chooses
+        private final List<Runnable> sendTasks = new ArrayList<>();
+        private static final String TEST_USERNAME = "testUser";
+
+        @BeforeEach
+        void setup() {
+                testUser = new Users();
+                testUser.setId(UUID.randomUUID());
+                testUser.setUsername(TEST_USERNAME);
+
+                sessionLog = new SessionLogs();
+                sessionLog.setId(UUID.randomUUID());
+                sessionLog.setOwner(testUser);
+                sessionLog.setStatus(SessionLogs.LogStatus.InProgress);
+                ReflectionTestUtils.setField(service, "streamExecutor", (TaskExecutor) sendTasks::add);
+        }
+
+        private void subscribe() {
+                when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
+                when(sessionLogsRepository.findByIdAndOwner(sessionLog.getId(), testUser))
+                                .thenReturn(Optional.of(sessionLog));
+                service.subscribe(sessionLog.getId(), TEST_USERNAME, null);
+        }
+
+        private void change() {
+                ExecutionLogsChangeDto change = new ExecutionLogsChangeDto();
+                change.setSessionLogId(sessionLog.getId());
+                service.onExecutionLogChanged(change);
+        }
+
+        @Test
+        void shouldOpenStreamForOwnSessionLog() {
+                when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
+                when(sessionLogsRepository.findByIdAndOwner(sessionLog.getId(), testUser))
+                                .thenReturn(Optional.of(sessionLog));
+
+                SseEmitter emitter = service.subscribe(sessionLog.getId(), TEST_USERNAME, "7");
+
+                assertNotNull(emitter);
+                assertEquals(30 * 60 * 1000L, emitter.getTimeout());
+        }
+
+        @Test
+        void shouldDenyStreamForForeignSessionLog() {
+                UUID foreignId = UUID.randomUUID();
+                when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
+                when(sessionLogsRepository.findByIdAndOwner(foreignId, testUser)).thenReturn(Optional.empty());
+
+                assertThrows(AccessDeniedException.class,
+                                () -> service.subscribe(foreignId, TEST_USERNAME, null));
+        }
+
+        @Test
+        void shouldHandChangesToStreamExecutorInsteadOfSendingOnCommit() {
+                subscribe();
+
+                change();
+                change();
+
+                // One task drains both changes; nothing was written on the committing thread
+                assertEquals(1, sendTasks.size());
+                sendTasks.remove(0).run();
+                change();
+                assertEquals(1, sendTasks.size());
+        }
+
+        @Test
+        void shouldForgetChannelOnceSessionLogIsClosed() {
+                subscribe();
+
+                service.close(sessionLog.getId());
+                change();
+
+                assertTrue(sendTasks.isEmpty());
+        }
+
+        @Test
+        void shouldNotQueueChangesOfUnwatchedSessionLog() {
+                change();
+
+                assertTrue(sendTasks.isEmpty());
+        }
+}
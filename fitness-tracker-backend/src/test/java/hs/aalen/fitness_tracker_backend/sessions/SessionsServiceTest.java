@@ -4,19 +4,27 @@ import hs.aalen.fitness_tracker_backend.exerciseexecutions.model.ExerciseExecuti
 import hs.aalen.fitness_tracker_backend.plans.model.Plans;
 import hs.aalen.fitness_tracker_backend.plans.repository.PlansRepository;
 import hs.aalen.fitness_tracker_backend.sessionlogs.repository.SessionLogsRepository;
+import hs.aalen.fitness_tracker_backend.sessionlogs.service.SessionLogsArchive;
 import hs.aalen.fitness_tracker_backend.sessions.dto.SessionsCreateDto;
+import hs.aalen.fitness_tracker_backend.sessions.dto.SessionsReorderDto;
 import hs.aalen.fitness_tracker_backend.sessions.dto.SessionsUpdateDto;
 import hs.aalen.fitness_tracker_backend.sessions.model.Sessions;
 import hs.aalen.fitness_tracker_backend.sessions.repository.SessionsRepository;
 import hs.aalen.fitness_tracker_backend.sessions.service.SessionsService;
+import hs.aalen.fitness_tracker_backend.shared.OptimisticRetry;
+import hs.aalen.fitness_tracker_backend.shared.RankKeys;
 import hs.aalen.fitness_tracker_backend.users.repository.UsersRepository;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.dao.DataIntegrityViolationException;
 
 import java.util.*;
 
@@ -36,9 +44,15 @@ class SessionsServiceTest {
     @Mock
     private SessionLogsRepository sessionLogsRepository;
 
+    @Mock
+    private SessionLogsArchive sessionLogsArchive;
+
     @Mock
     private UsersRepository usersRepository;
 
+    @Spy
+    private OptimisticRetry optimisticRetry = new OptimisticRetry(TransactionOperations.withoutTransaction());
+
     @InjectMocks
     private SessionsService service;
 
@@ -60,7 +74,7 @@ class SessionsServiceTest {
         session.setId(sessionId);
         session.setName("Session 1");
         session.setPlan(plan);
-        session.setOrderID(1);
+        session.setRankKey(RankKeys.forPosition(1));
         plan.getSessions().add(session);
     }
 
@@ -73,14 +87,15 @@ class SessionsServiceTest {
 
         when(plansRepository.findById(planId)).thenReturn(Optional.of(plan));
         when(sessionsRepository.findByNameAndPlan_Id(dto.getName(), planId)).thenReturn(Optional.empty());
-        when(sessionsRepository.save(any(Sessions.class))).thenAnswer(i -> i.getArgument(0));
+        when(sessionsRepository.findRankKeysByPlanId(planId, null)).thenReturn(List.of(RankKeys.forPosition(1)));
+        when(sessionsRepository.saveAndFlush(any(Sessions.class))).thenAnswer(i -> i.getArgument(0));
 
         var created = service.create(dto);
 
         assertEquals("New Session", created.getName());
         assertEquals(planId, created.getPlanId());
         assertEquals(2, created.getOrderID());
-        verify(sessionsRepository).save(any(Sessions.class));
+        verify(sessionsRepository).saveAndFlush(any(Sessions.class));
     }
 
     @Test
@@ -102,39 +117,34 @@ class SessionsServiceTest {
     }
 
     @Test
-    void shouldUpdateSessionAndSwapOrder() {
+    void shouldMoveSessionToFreePositionWithoutRewritingSiblings() {
         Sessions otherSession = new Sessions();
         otherSession.setId(UUID.randomUUID());
         otherSession.setPlan(plan);
-        otherSession.setOrderID(2);
+        otherSession.setRankKey(RankKeys.forPosition(2));
         plan.getSessions().add(otherSession);
 
-        session.setOrderID(1);
-
         SessionsUpdateDto dto = new SessionsUpdateDto();
         dto.setName("Updated Session");
         dto.setPlanId(planId);
-        dto.setOrderID(2);
+        dto.setOrderID(3);
 
         when(sessionsRepository.findById(sessionId)).thenReturn(Optional.of(session));
         when(plansRepository.findById(planId)).thenReturn(Optional.of(plan));
         when(sessionsRepository.findByNameAndPlan_Id(dto.getName(), planId)).thenReturn(Optional.empty());
-
-        when(sessionsRepository.save(any(Sessions.class))).thenAnswer(invocation -> {
-            Sessions saved = invocation.getArgument(0);
-            if (saved.getId().equals(sessionId) && saved.getOrderID() == 2) {
-                otherSession.setOrderID(1);
-            }
-            return saved;
-        });
+        when(sessionsRepository.findRankKeysByPlanId(planId, sessionId))
+                .thenReturn(List.of(RankKeys.forPosition(2)));
+        when(sessionsRepository.saveAndFlush(any(Sessions.class))).thenAnswer(i -> i.getArgument(0));
 
         var updated = service.update(sessionId, dto);
 
         assertEquals("Updated Session", updated.getName());
         assertEquals(2, updated.getOrderID());
-        assertEquals(1, otherSession.getOrderID());
+        assertEquals(RankKeys.forPosition(3), session.getRankKey());
+        assertEquals(RankKeys.forPosition(2), otherSession.getRankKey());
+        verify(sessionsRepository, times(1)).saveAndFlush(any(Sessions.class));
+        verify(sessionsRepository, never()).saveAllAndFlush(any());
     }
-
     @Test
     void shouldDeleteSession() {
         when(sessionsRepository.existsById(sessionId)).thenReturn(true);
@@ -206,7 +216,7 @@ class SessionsServiceTest {
         dto.setPlanId(planId);
 
         when(plansRepository.findById(planId)).thenReturn(Optional.of(plan));
-        when(sessionsRepository.findByPlan_Id(planId)).thenReturn(sessions);
+        when(sessionsRepository.countByPlan_Id(planId)).thenReturn((long) sessions.size());
 
         assertThrows(IllegalArgumentException.class, () -> service.create(dto));
     }
@@ -225,7 +235,7 @@ class SessionsServiceTest {
         when(sessionsRepository.findById(sessionId)).thenReturn(Optional.of(session));
         when(plansRepository.findById(newPlanId)).thenReturn(Optional.of(newPlan));
         when(sessionsRepository.findByNameAndPlan_Id(dto.getName(), newPlanId)).thenReturn(Optional.empty());
-        when(sessionsRepository.save(any(Sessions.class))).thenAnswer(i -> i.getArgument(0));
+        when(sessionsRepository.saveAndFlush(any(Sessions.class))).thenAnswer(i -> i.getArgument(0));
 
         var updated = service.update(sessionId, dto);
 
@@ -240,19 +250,56 @@ class SessionsServiceTest {
         dto.setPlanId(planId);
         dto.setOrderID(null);
 
-        session.setOrderID(1);
-
         when(sessionsRepository.findById(sessionId)).thenReturn(Optional.of(session));
         when(plansRepository.findById(planId)).thenReturn(Optional.of(plan));
         when(sessionsRepository.findByNameAndPlan_Id(dto.getName(), planId)).thenReturn(Optional.empty());
 
-        when(sessionsRepository.save(any(Sessions.class))).thenAnswer(i -> i.getArgument(0));
+        when(sessionsRepository.saveAndFlush(any(Sessions.class))).thenAnswer(i -> i.getArgument(0));
 
         var updated = service.update(sessionId, dto);
 
         assertEquals(1, updated.getOrderID());
     }
 
+    @Test
+    void shouldTranslateOrderConstraintViolationOnCreate() {
+        SessionsCreateDto dto = new SessionsCreateDto();
+        dto.setName("Concurrent Session");
+        dto.setPlanId(planId);
+        dto.setOrderID(2);
+
+        when(plansRepository.findById(planId)).thenReturn(Optional.of(plan));
+        when(sessionsRepository.findByNameAndPlan_Id(dto.getName(), planId)).thenReturn(Optional.empty());
+        when(sessionsRepository.findRankKeysByPlanId(planId, null)).thenReturn(List.of(RankKeys.forPosition(1)));
+        when(sessionsRepository.saveAndFlush(any(Sessions.class))).thenThrow(new DataIntegrityViolationException(
+                "Unique index or primary key violation: \"PUBLIC.UK_SESSIONS_PLAN_ORDER_INDEX_1\""));
+
+        IllegalArgumentException ex = assertThrows(
+                IllegalArgumentException.class,
+                () -> service.create(dto));
+
+        assertEquals("Order 2 is already used in this plan", ex.getMessage());
+    }
+
+    @Test
+    void shouldTranslateNameConstraintViolationOnUpdate() {
+        SessionsUpdateDto dto = new SessionsUpdateDto();
+        dto.setName("Concurrent Name");
+        dto.setPlanId(planId);
+
+        when(sessionsRepository.findById(sessionId)).thenReturn(Optional.of(session));
+        when(plansRepository.findById(planId)).thenReturn(Optional.of(plan));
+        when(sessionsRepository.findByNameAndPlan_Id(dto.getName(), planId)).thenReturn(Optional.empty());
+        when(sessionsRepository.saveAndFlush(any(Sessions.class))).thenThrow(new DataIntegrityViolationException(
+                "Unique index or primary key violation: \"PUBLIC.UK_SESSIONS_PLAN_NAME_INDEX_1\""));
+
+        IllegalArgumentException ex = assertThrows(
+                IllegalArgumentException.class,
+                () -> service.update(sessionId, dto));
+
+        assertEquals("Session with this name already exists in this plan", ex.getMessage());
+    }
+
     @Test
     void shouldThrowExceptionForInvalidOrderRange_TooLow() {
         SessionsCreateDto dto = new SessionsCreateDto();
@@ -278,11 +325,11 @@ class SessionsServiceTest {
     }
 
     @Test
-    void shouldThrowExceptionWhenOrderAlreadyTaken() {
+    void shouldInsertSessionBetweenNeighboursOnCreate() {
         Sessions otherSession = new Sessions();
         otherSession.setId(UUID.randomUUID());
         otherSession.setPlan(plan);
-        otherSession.setOrderID(2);
+        otherSession.setRankKey(RankKeys.forPosition(2));
         plan.getSessions().add(otherSession);
 
         SessionsCreateDto dto = new SessionsCreateDto();
@@ -292,10 +339,48 @@ class SessionsServiceTest {
 
         when(plansRepository.findById(planId)).thenReturn(Optional.of(plan));
         when(sessionsRepository.findByNameAndPlan_Id(dto.getName(), planId)).thenReturn(Optional.empty());
+        when(sessionsRepository.findRankKeysByPlanId(planId, null))
+                .thenReturn(List.of(RankKeys.forPosition(1), RankKeys.forPosition(2)));
+        when(sessionsRepository.saveAndFlush(any(Sessions.class))).thenAnswer(i -> i.getArgument(0));
 
-        when(sessionsRepository.findByPlan_Id(planId)).thenReturn(plan.getSessions());
+        var created = service.create(dto);
 
-        assertThrows(IllegalArgumentException.class, () -> service.create(dto));
+        assertEquals(2, created.getOrderID());
+        ArgumentCaptor<Sessions> saved = ArgumentCaptor.forClass(Sessions.class);
+        verify(sessionsRepository, times(1)).saveAndFlush(saved.capture());
+        assertEquals(RankKeys.forPosition(1) + RankKeys.GAP / 2, saved.getValue().getRankKey());
+        assertEquals(RankKeys.forPosition(1), session.getRankKey());
+        assertEquals(RankKeys.forPosition(2), otherSession.getRankKey());
+        verify(sessionsRepository, never()).saveAllAndFlush(any());
+    }
+
+    @Test
+    void shouldRebalancePlanWhenNeighboursAreAdjacent() {
+        session.setRankKey(5L);
+        Sessions otherSession = new Sessions();
+        otherSession.setId(UUID.randomUUID());
+        otherSession.setPlan(plan);
+        otherSession.setRankKey(6L);
+
+        SessionsCreateDto dto = new SessionsCreateDto();
+        dto.setName("Squeezed In");
+        dto.setPlanId(planId);
+        dto.setOrderID(2);
+
+        when(plansRepository.findById(planId)).thenReturn(Optional.of(plan));
+        when(sessionsRepository.findByNameAndPlan_Id(dto.getName(), planId)).thenReturn(Optional.empty());
+        when(sessionsRepository.findRankKeysByPlanId(planId, null))
+                .thenReturn(List.of(5L, 6L))
+                .thenReturn(List.of(RankKeys.forPosition(1), RankKeys.forPosition(2)));
+        when(sessionsRepository.findByPlan_IdOrderByRankKey(planId)).thenReturn(List.of(session, otherSession));
+        when(sessionsRepository.saveAndFlush(any(Sessions.class))).thenAnswer(i -> i.getArgument(0));
+
+        var created = service.create(dto);
+
+        assertEquals(2, created.getOrderID());
+        assertEquals(RankKeys.forPosition(1), session.getRankKey());
+        assertEquals(RankKeys.forPosition(2), otherSession.getRankKey());
+        verify(sessionsRepository, times(2)).saveAllAndFlush(any());
     }
 
     @Test
@@ -313,7 +398,7 @@ class SessionsServiceTest {
         when(sessionsRepository.findById(sessionId)).thenReturn(Optional.of(session));
         when(plansRepository.findById(newPlanId)).thenReturn(Optional.of(newPlan));
         when(sessionsRepository.findByNameAndPlan_Id(dto.getName(), newPlanId)).thenReturn(Optional.empty());
-        when(sessionsRepository.save(any(Sessions.class))).thenAnswer(i -> i.getArgument(0));
+        when(sessionsRepository.saveAndFlush(any(Sessions.class))).thenAnswer(i -> i.getArgument(0));
 
         var updated = service.update(sessionId, dto);
 
@@ -333,7 +418,7 @@ class SessionsServiceTest {
         when(plansRepository.findById(planId)).thenReturn(Optional.of(plan));
         when(sessionsRepository.findByNameAndPlan_Id(dto.getName(), planId))
                 .thenReturn(Optional.empty());
-        when(sessionsRepository.save(any(Sessions.class)))
+        when(sessionsRepository.saveAndFlush(any(Sessions.class)))
                 .thenAnswer(i -> i.getArgument(0));
 
         var updated = service.update(sessionId, dto);
@@ -341,6 +426,7 @@ class SessionsServiceTest {
         assertEquals(1, updated.getOrderID());
     }
 
+    // Positions are dense, so a free order past the end places the session last
     @Test
     void shouldUpdateOrderWhenTargetOrderIsFree() {
         SessionsUpdateDto dto = new SessionsUpdateDto();
@@ -352,14 +438,12 @@ class SessionsServiceTest {
         when(plansRepository.findById(planId)).thenReturn(Optional.of(plan));
         when(sessionsRepository.findByNameAndPlan_Id(dto.getName(), planId))
                 .thenReturn(Optional.empty());
-        when(sessionsRepository.findByPlan_Id(planId))
-                .thenReturn(plan.getSessions());
-        when(sessionsRepository.save(any(Sessions.class)))
+        when(sessionsRepository.saveAndFlush(any(Sessions.class)))
                 .thenAnswer(i -> i.getArgument(0));
 
         var updated = service.update(sessionId, dto);
 
-        assertEquals(5, updated.getOrderID());
+        assertEquals(1, updated.getOrderID());
     }
 
     @Test
@@ -381,7 +465,7 @@ class SessionsServiceTest {
         when(plansRepository.findById(planId)).thenReturn(Optional.of(plan));
         when(sessionsRepository.findByNameAndPlan_Id(dto.getName(), planId))
                 .thenReturn(Optional.empty());
-        when(sessionsRepository.save(any(Sessions.class)))
+        when(sessionsRepository.saveAndFlush(any(Sessions.class)))
                 .thenAnswer(i -> i.getArgument(0));
 
         var created = service.create(dto);
@@ -393,7 +477,7 @@ class SessionsServiceTest {
     void shouldMapExerciseExecutionsAndSessionLogCount() {
         var exercise = new ExerciseExecutions();
         exercise.setId(UUID.randomUUID());
-        exercise.setOrderID(1);
+        exercise.setRankKey(RankKeys.forPosition(1));
         exercise.setPlannedSets(3);
         exercise.setPlannedReps(10);
         exercise.setPlannedWeight(50);
@@ -412,12 +496,15 @@ class SessionsServiceTest {
     }
 
     @Test
-    void shouldThrowExceptionWhenUpdatingOrderToTaken() {
-        Sessions otherSession = new Sessions();
-        otherSession.setId(UUID.randomUUID());
-        otherSession.setPlan(plan);
-        otherSession.setOrderID(2);
-        plan.getSessions().add(otherSession);
+    void shouldMoveSessionBetweenNeighboursWithoutRewritingThem() {
+        Sessions second = new Sessions();
+        second.setId(UUID.randomUUID());
+        second.setPlan(plan);
+        second.setRankKey(RankKeys.forPosition(2));
+        Sessions third = new Sessions();
+        third.setId(UUID.randomUUID());
+        third.setPlan(plan);
+        third.setRankKey(RankKeys.forPosition(3));
 
         SessionsUpdateDto dto = new SessionsUpdateDto();
         dto.setName("Session 1");
@@ -428,15 +515,40 @@ class SessionsServiceTest {
         when(plansRepository.findById(planId)).thenReturn(Optional.of(plan));
         when(sessionsRepository.findByNameAndPlan_Id(dto.getName(), planId))
                 .thenReturn(Optional.of(session));
-        when(sessionsRepository.findByPlan_Id(planId)).thenReturn(plan.getSessions());
+        when(sessionsRepository.findRankKeysByPlanId(planId, sessionId))
+                .thenReturn(List.of(RankKeys.forPosition(2), RankKeys.forPosition(3)));
+        when(sessionsRepository.saveAndFlush(any(Sessions.class))).thenAnswer(i -> i.getArgument(0));
 
-        IllegalArgumentException ex = assertThrows(
-                IllegalArgumentException.class,
-                () -> service.update(sessionId, dto));
+        var updated = service.update(sessionId, dto);
 
-        assertEquals("Order 2 is already used in this plan", ex.getMessage());
+        assertEquals(2, updated.getOrderID());
+        assertEquals(RankKeys.forPosition(2) + RankKeys.GAP / 2, session.getRankKey());
+        assertEquals(RankKeys.forPosition(2), second.getRankKey());
+        assertEquals(RankKeys.forPosition(3), third.getRankKey());
+        verify(sessionsRepository, times(1)).saveAndFlush(session);
+        verify(sessionsRepository, never()).saveAllAndFlush(any());
     }
 
+    @Test
+    void shouldDerivePositionsPerPlanWhenListingSessions() {
+        Plans otherPlan = new Plans();
+        otherPlan.setId(UUID.randomUUID());
+        Sessions second = new Sessions();
+        second.setId(UUID.randomUUID());
+        second.setPlan(plan);
+        second.setRankKey(RankKeys.forPosition(1) + RankKeys.GAP / 2);
+        Sessions elsewhere = new Sessions();
+        elsewhere.setId(UUID.randomUUID());
+        elsewhere.setPlan(otherPlan);
+        elsewhere.setRankKey(RankKeys.forPosition(1) + 1);
+
+        when(sessionsRepository.findAll()).thenReturn(List.of(second, elsewhere, session));
+
+        var result = service.getAll(null);
+
+        assertEquals(List.of(2, 1, 1), result.stream().map(dto -> dto.getOrderID()).toList());
+        verify(sessionsRepository, never()).findRankKeysByPlanId(any(), any());
+    }
     @Test
     void shouldReturnSessionLogCountWithAuthenticatedUser() {
         var user = new hs.aalen.fitness_tracker_backend.users.model.Users();
@@ -446,10 +558,11 @@ class SessionsServiceTest {
         when(sessionsRepository.findById(sessionId)).thenReturn(Optional.of(session));
         when(usersRepository.findByUsername("testUser")).thenReturn(Optional.of(user));
         when(sessionLogsRepository.countByOwnerAndOriginalSessionId(user, sessionId)).thenReturn(5L);
+        when(sessionLogsArchive.count(user.getId(), sessionId)).thenReturn(2L);
 
         var result = service.getById(sessionId, "testUser");
 
-        assertEquals(5, result.getSessionLogCount());
+        assertEquals(7, result.getSessionLogCount());
     }
 
     @Test
@@ -479,7 +592,7 @@ class SessionsServiceTest {
         dto.setPlanId(null);
 
         when(sessionsRepository.findById(sessionId)).thenReturn(Optional.of(session));
-        when(sessionsRepository.save(any(Sessions.class))).thenAnswer(i -> i.getArgument(0));
+        when(sessionsRepository.saveAndFlush(any(Sessions.class))).thenAnswer(i -> i.getArgument(0));
 
         var result = service.update(sessionId, dto);
 
@@ -503,7 +616,7 @@ class SessionsServiceTest {
         when(sessionsRepository.findById(sessionId)).thenReturn(Optional.of(session));
         when(plansRepository.findById(newPlanId)).thenReturn(Optional.of(newPlan));
         when(sessionsRepository.findByNameAndPlan_Id(dto.getName(), newPlanId)).thenReturn(Optional.empty());
-        when(sessionsRepository.save(any(Sessions.class))).thenAnswer(i -> i.getArgument(0));
+        when(sessionsRepository.saveAndFlush(any(Sessions.class))).thenAnswer(i -> i.getArgument(0));
 
         var result = service.update(sessionId, dto);
 
@@ -511,4 +624,56 @@ class SessionsServiceTest {
         assertTrue(newPlan.getSessions().contains(session));
     }
 
+    @Test
+    void shouldReorderSessionsInOneTransaction() {
+        Sessions otherSession = new Sessions();
+        otherSession.setId(UUID.randomUUID());
+        otherSession.setName("Session 2");
+        otherSession.setPlan(plan);
+        otherSession.setRankKey(RankKeys.forPosition(2));
+        plan.getSessions().add(otherSession);
+
+        SessionsReorderDto dto = new SessionsReorderDto();
+        dto.setPlanId(planId);
+        dto.setSessionIds(List.of(otherSession.getId(), sessionId));
+
+        when(plansRepository.existsById(planId)).thenReturn(true);
+        when(sessionsRepository.findByPlan_Id(planId)).thenReturn(plan.getSessions());
+
+        var result = service.reorder(dto);
+
+        assertEquals(otherSession.getId(), result.get(0).getId());
+        assertEquals(1, result.get(0).getOrderID());
+        assertEquals(2, result.get(1).getOrderID());
+        assertEquals(RankKeys.forPosition(2), session.getRankKey());
+        verify(sessionsRepository, times(2)).saveAllAndFlush(any());
+    }
+
+    @Test
+    void shouldRejectReorderWithUnknownSession() {
+        SessionsReorderDto dto = new SessionsReorderDto();
+        dto.setPlanId(planId);
+        dto.setSessionIds(List.of(UUID.randomUUID()));
+
+        when(plansRepository.existsById(planId)).thenReturn(true);
+        when(sessionsRepository.findByPlan_Id(planId)).thenReturn(plan.getSessions());
+
+        IllegalArgumentException ex = assertThrows(
+                IllegalArgumentException.class,
+                () -> service.reorder(dto));
+
+        assertEquals("Reorder must list every session of the plan exactly once", ex.getMessage());
+    }
+
+    @Test
+    void shouldThrowEntityNotFoundWhenReorderingUnknownPlan() {
+        SessionsReorderDto dto = new SessionsReorderDto();
+        dto.setPlanId(planId);
+        dto.setSessionIds(List.of(sessionId));
+
+        when(plansRepository.existsById(planId)).thenReturn(false);
+
+        assertThrows(EntityNotFoundException.class, () -> service.reorder(dto));
+    }
+
 }
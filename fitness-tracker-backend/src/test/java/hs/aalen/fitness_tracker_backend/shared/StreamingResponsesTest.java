@@ -0,0 +1,80 @@
+package hs.aalen.fitness_tracker_backend.shared;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingResponsesTest {
+
+    private final StreamingResponses streamingResponses = new StreamingResponses(
+            new MappingJackson2HttpMessageConverter(),
+            new MappingJackson2CborHttpMessageConverter(),
+            new MappingJackson2SmileHttpMessageConverter());
+
+    // Remembers what had reached the stream each time it was flushed
+    private static class RecordingStream extends ByteArrayOutputStream {
+        final List<String> flushed = new ArrayList<>();
+
+        @Override
+        public void flush() {
+            flushed.add(toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void shouldPreferHigherQualityOverOrderAndSpecificity() {
+        assertEquals(MediaType.APPLICATION_JSON, StreamingResponses.negotiate(null));
+        assertEquals(MediaType.APPLICATION_CBOR, StreamingResponses.negotiate("application/json;q=0.5, application/cbor"));
+        assertEquals(StreamingResponses.SMILE,
+                StreamingResponses.negotiate("application/*;q=0.2, application/x-jackson-smile;q=0.9"));
+        assertEquals(MediaType.APPLICATION_JSON, StreamingResponses.negotiate("text/html, */*;q=0.1"));
+        assertEquals(MediaType.APPLICATION_CBOR, StreamingResponses.negotiate("application/json;q=0, */*"));
+    }
+
+    @Test
+    void shouldAnswerNotAcceptableWithoutRunningProducer() {
+        ResponseEntity<StreamingResponseBody> response = streamingResponses.<String>array(
+                "text/html, application/json;q=0", sink -> fail());
+
+        assertEquals(HttpStatus.NOT_ACCEPTABLE, response.getStatusCode());
+        assertNull(response.getBody());
+    }
+
+    @Test
+    void shouldFlushFirstElementBeforeProducingTheNext() throws Exception {
+        RecordingStream out = new RecordingStream();
+        ResponseEntity<StreamingResponseBody> response = streamingResponses.<String>array(
+                MediaType.APPLICATION_JSON_VALUE, sink -> {
+                    sink.accept("first");
+                    assertEquals(List.of("[\"first\""), out.flushed);
+                    sink.accept("second");
+                    assertEquals(1, out.flushed.size());
+                });
+
+        assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().getContentType());
+        response.getBody().writeTo(out);
+
+        assertEquals("[\"first\",\"second\"]", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldWriteEmptyArrayWhenProducerHasNoRows() throws Exception {
+        RecordingStream out = new RecordingStream();
+
+        streamingResponses.<String>array(null, sink -> { }).getBody().writeTo(out);
+
+        assertEquals("[]", out.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -65,4 +65,15 @@ class UsersServiceTest {
         assertEquals(unknownUsername, exception.getMessage());
         verify(usersRepository).findByUsername(unknownUsername);
     }
+
+    @Test
+    void shouldGrantCoachAuthorityToCoaches() {
+        testUser.setRole(Users.Role.Coach);
+        when(usersRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(testUser));
+
+        UserDetails userDetails = service.loadUserByUsername(TEST_USERNAME);
+
+        assertTrue(userDetails.getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("COACH")));
+    }
 }
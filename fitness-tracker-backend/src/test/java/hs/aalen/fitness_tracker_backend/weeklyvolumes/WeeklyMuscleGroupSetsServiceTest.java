@@ -0,0 +1,196 @@
+package hs.aalen.fitness_tracker_backend.weeklyvolumes;
+
+import hs.aalen.fitness_tracker_backend.executionlogs.model.ExecutionLogs;
+import hs.aalen.fitness_tracker_backend.executionlogs.model.PerformedSet;
+import hs.aalen.fitness_tracker_backend.executionlogs.model.PerformedSets;
+import hs.aalen.fitness_tracker_backend.exercises.model.MuscleGroup;
+import hs.aalen.fitness_tracker_backend.sessionlogs.model.SessionLogs;
+import hs.aalen.fitness_tracker_backend.sessionlogs.repository.SessionLogsRepository;
+import hs.aalen.fitness_tracker_backend.users.model.Users;
+import hs.aalen.fitness_tracker_backend.users.repository.UsersRepository;
+import hs.aalen.fitness_tracker_backend.weeklyvolumes.dto.WeeklyMuscleGroupSetsResponseDto;
+import hs.aalen.fitness_tracker_backend.weeklyvolumes.model.WeeklyMuscleGroupSets;
+import hs.aalen.fitness_tracker_backend.weeklyvolumes.repository.WeeklyMuscleGroupSetsRepository;
+import hs.aalen.fitness_tracker_backend.weeklyvolumes.service.WeeklyMuscleGroupSetsService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WeeklyMuscleGroupSetsServiceTest {
+
+    @Mock
+    private WeeklyMuscleGroupSetsRepository weeklyRepository;
+
+    @Mock
+    private SessionLogsRepository sessionLogsRepository;
+
+    @Mock
+    private UsersRepository usersRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @InjectMocks
+    private WeeklyMuscleGroupSetsService service;
+
+    // A Wednesday; its week starts on Monday 2026-10-12
+    private static final Instant COMPLETED_AT = Instant.parse("2026-10-14T18:00:00Z");
+    private static final LocalDate WEEK = LocalDate.parse("2026-10-12");
+
+    private Users owner;
+    private SessionLogs sessionLog;
+
+    @BeforeEach
+    void setup() {
+        // Constructor injection leaves the persistence context field to us
+        ReflectionTestUtils.setField(service, "entityManager", entityManager);
+
+        owner = new Users();
+        owner.setId(UUID.randomUUID());
+        owner.setUsername("member");
+
+        sessionLog = new SessionLogs();
+        sessionLog.setId(UUID.randomUUID());
+        sessionLog.setOwner(owner);
+        sessionLog.setStatus(SessionLogs.LogStatus.Completed);
+        sessionLog.setCompletedAt(COMPLETED_AT);
+    }
+
+    private ExecutionLogs executionLog(SessionLogs parent, int sets, boolean completed, String... groups) {
+        ExecutionLogs executionLog = new ExecutionLogs();
+        executionLog.setActualSets(sets);
+        executionLog.setCompleted(completed);
+        executionLog.setExerciseMuscleGroup(List.of(groups));
+        executionLog.setSessionLog(parent);
+        parent.getExecutionLogs().add(executionLog);
+        return executionLog;
+    }
+
+    private static WeeklyMuscleGroupSets row(UUID ownerId, LocalDate week, MuscleGroup group, int sets) {
+        WeeklyMuscleGroupSets row = new WeeklyMuscleGroupSets();
+        row.setOwnerId(ownerId);
+        row.setWeekStart(week);
+        row.setMuscleGroup(group);
+        row.setSets(sets);
+        return row;
+    }
+
+    @Test
+    void shouldStartWeeksOnMonday() {
+        assertEquals(WEEK, WeeklyMuscleGroupSetsService.weekStart(COMPLETED_AT));
+        assertEquals(WEEK, WeeklyMuscleGroupSetsService.weekStart(Instant.parse("2026-10-12T00:00:00Z")));
+        assertEquals(WEEK, WeeklyMuscleGroupSetsService.weekStart(Instant.parse("2026-10-18T23:59:59Z")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldRecountWholeWeekOfCompletedWorkout() {
+        executionLog(sessionLog, 4, true, "Chest", "Triceps");
+        executionLog(sessionLog, 3, false, "Back");
+        ExecutionLogs recorded = executionLog(sessionLog, 5, false, "Back", "Biceps");
+        recorded.setRecordedSets(PerformedSets.append(PerformedSets.append(null,
+                new PerformedSet(10, 40, null, null)), new PerformedSet(8, 45, null, null)));
+        SessionLogs earlier = new SessionLogs();
+        executionLog(earlier, 3, true, "Chest");
+
+        when(sessionLogsRepository.findById(sessionLog.getId())).thenReturn(Optional.of(sessionLog));
+        when(sessionLogsRepository.findCompletedBetween(owner.getId(),
+                Instant.parse("2026-10-12T00:00:00Z"), Instant.parse("2026-10-19T00:00:00Z")))
+                .thenReturn(List.of(earlier, sessionLog));
+
+        service.recordWorkout(sessionLog.getId());
+
+        verify(weeklyRepository).deleteWeek(owner.getId(), WEEK);
+        ArgumentCaptor<Iterable<WeeklyMuscleGroupSets>> captor = ArgumentCaptor.forClass(Iterable.class);
+        verify(weeklyRepository).saveAll(captor.capture());
+        Map<MuscleGroup, Integer> sets = new EnumMap<>(MuscleGroup.class);
+        captor.getValue().forEach(row -> {
+            assertEquals(owner.getId(), row.getOwnerId());
+            assertEquals(WEEK, row.getWeekStart());
+            sets.put(row.getMuscleGroup(), row.getSets());
+        });
+        assertEquals(Map.of(MuscleGroup.Chest, 7, MuscleGroup.Triceps, 4,
+                MuscleGroup.Back, 2, MuscleGroup.Biceps, 2), sets);
+    }
+
+    @Test
+    void shouldLockOwnerBeforeCountingWeek() {
+        when(sessionLogsRepository.findById(sessionLog.getId())).thenReturn(Optional.of(sessionLog));
+        when(sessionLogsRepository.findCompletedBetween(any(), any(), any())).thenReturn(List.of(sessionLog));
+
+        service.recordWorkout(sessionLog.getId());
+
+        InOrder inOrder = inOrder(usersRepository, sessionLogsRepository, weeklyRepository);
+        inOrder.verify(usersRepository).lockById(owner.getId());
+        inOrder.verify(sessionLogsRepository).findCompletedBetween(any(), any(), any());
+        inOrder.verify(weeklyRepository).deleteWeek(owner.getId(), WEEK);
+    }
+
+    @Test
+    void shouldIgnoreWorkoutThatIsNotCompleted() {
+        sessionLog.setStatus(SessionLogs.LogStatus.InProgress);
+        sessionLog.setCompletedAt(null);
+        when(sessionLogsRepository.findById(sessionLog.getId())).thenReturn(Optional.of(sessionLog));
+
+        service.recordWorkout(sessionLog.getId());
+
+        verifyNoInteractions(weeklyRepository);
+    }
+
+    @Test
+    void shouldGroupReportRowsByUserAndWeek() {
+        Users other = new Users();
+        other.setId(UUID.randomUUID());
+        other.setUsername("other");
+        when(usersRepository.findByUsernameIn(Set.of("member", "other"))).thenReturn(List.of(owner, other));
+        when(weeklyRepository.streamByOwners(any(), any(), any())).thenReturn(Stream.of(
+                row(owner.getId(), WEEK.minusWeeks(1), MuscleGroup.Back, 6),
+                row(owner.getId(), WEEK, MuscleGroup.Chest, 9),
+                row(owner.getId(), WEEK, MuscleGroup.Back, 4),
+                row(other.getId(), WEEK, MuscleGroup.Quadriceps, 12)));
+
+        List<WeeklyMuscleGroupSetsResponseDto> report = new ArrayList<>();
+        service.streamReport(List.of("member", "other", "member"), null, null, report::add);
+
+        assertEquals(2, report.size());
+        assertEquals("member", report.get(0).getUsername());
+        assertEquals(2, report.get(0).getWeeks().size());
+        assertEquals(List.of(MuscleGroup.Chest, MuscleGroup.Back),
+                new ArrayList<>(report.get(0).getWeeks().get(1).getSets().keySet()));
+        assertEquals("other", report.get(1).getUsername());
+        assertEquals(12, report.get(1).getWeeks().get(0).getSets().get(MuscleGroup.Quadriceps));
+    }
+
+    @Test
+    void shouldRejectUnknownUsers() {
+        when(usersRepository.findByUsernameIn(any())).thenReturn(List.of(owner));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> service.streamReport(List.of("member", "ghost"), null, null, dto -> { }));
+        assertEquals("Unknown users: ghost", e.getMessage());
+        verifyNoInteractions(weeklyRepository);
+    }
+}